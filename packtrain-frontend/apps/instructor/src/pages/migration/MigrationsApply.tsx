@@ -29,6 +29,7 @@ type MigrationApplyNotificationDTO = {
   error?: string;
   zero_submissions_complete?: boolean;
   process_extensions_complete?: boolean;
+  review_ready?: boolean;
 };
 
 export function MigrationsApplyPage() {
@@ -121,6 +122,9 @@ export function MigrationsApplyPage() {
         if (payload.zero_submissions_complete) {
           setCompleted((prev) => ({ ...prev, zero: true }));
         }
+        if (payload.review_ready) {
+          navigate("/instructor/migrate/review");
+        }
       });
     },
   });
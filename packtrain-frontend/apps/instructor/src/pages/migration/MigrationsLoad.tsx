@@ -14,14 +14,77 @@ import {
 } from "@mantine/core";
 import { useForm } from "@mantine/form";
 import { getApiClient } from "@repo/api/index";
-import { MasterMigration } from "@repo/api/openapi";
+import { MasterMigration, Task } from "@repo/api/openapi";
 import { store$ } from "@repo/api/store";
 import { Loading } from "@repo/ui/components/Loading";
+import { createWebSocketClient } from "@repo/ui/WebSocketHooks";
 import { useMutation } from "@tanstack/react-query";
 import React, { useState } from "react";
 import { useNavigate } from "react-router-dom";
+import { userManager } from "../../auth";
 import { useGetMigratableAssignmentsInstructor } from "../../hooks";
 
+const TASK_TIMEOUT_MS = 10 * 60 * 1000;
+const MAX_POLL_INTERVAL_MS = 10 * 1000;
+
+// raw scores are imported in the background, so an upload isn't done until its task is.
+// the task's progress topic says when it has finished, and polling with a backoff covers a
+// finish that happened before the subscription or while the socket was down
+const waitForTask = async (taskId: number): Promise<Task> => {
+  const client = await getApiClient();
+  const user = await userManager.getUser();
+
+  let finished = false;
+  let wake = () => {};
+  const socket = user
+    ? createWebSocketClient({
+        authToken: user.access_token,
+        onConnect: (ws) => {
+          ws.subscribe(`/tasks/${taskId}/progress`, (msg) => {
+            if (JSON.parse(msg.body).finished) {
+              finished = true;
+              wake();
+            }
+          });
+        },
+      })
+    : null;
+
+  const deadline = Date.now() + TASK_TIMEOUT_MS;
+  let interval = 1000;
+  try {
+    for (;;) {
+      const res = await client.get_task({ task_id: taskId });
+      if (res.data.status === "COMPLETED") {
+        return res.data;
+      }
+      if (res.data.status === "FAILED" || res.data.status === "CANCELLED") {
+        throw new Error(res.data.message ?? "Failed to import scores");
+      }
+      if (Date.now() >= deadline) {
+        throw new Error("Timed out waiting for scores to import");
+      }
+
+      await new Promise<void>((resolve) => {
+        if (finished) {
+          finished = false;
+          resolve();
+          return;
+        }
+        const timeout = setTimeout(resolve, interval);
+        wake = () => {
+          finished = false;
+          clearTimeout(timeout);
+          resolve();
+        };
+      });
+      interval = Math.min(interval * 2, MAX_POLL_INTERVAL_MS);
+    }
+  } finally {
+    socket?.deactivate();
+  }
+};
+
 export function MigrationsLoadPage() {
   const navigate = useNavigate();
   const [searchValue, setSearchValue] = useState("");
@@ -80,7 +143,7 @@ export function MigrationsLoadPage() {
           },
         }
       );
-      return res.data;
+      return waitForTask(res.data.id);
     },
   });
 
@@ -199,6 +262,7 @@ export function MigrationsLoadPage() {
                   selectedAssignmentId,
                 ]);
               },
+              onError: () => setUploading(false),
             }
           );
         },
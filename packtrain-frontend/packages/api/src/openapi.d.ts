@@ -63,8 +63,18 @@ declare namespace Components {
          * 55AAD0CC-9C92-47E9-9293-05CBED73A4AB
          */
         export type PolicyQueryParameters = string; // uuid
+        /**
+         * example:
+         * 291
+         */
+        export type TaskPathParameters = number; // int64
     }
     export interface PathParameters {
+        TaskPathParameters?: /**
+         * example:
+         * 291
+         */
+        Parameters.TaskPathParameters /* int64 */;
         CoursePathParameters?: /**
          * example:
          * 9DEB34FC-C15A-4B31-8374-91EC1C8E9E66
@@ -490,6 +500,26 @@ declare namespace Components {
              */
             response_to_requester?: string;
         }
+        /**
+         * Calls a task made to an external service. Bytes are not known for Canvas
+         */
+        export interface ExternalServiceUsage {
+            /**
+             * example:
+             * 12
+             */
+            calls: number; // int64
+            /**
+             * example:
+             * 4096
+             */
+            bytes_sent: number; // int64
+            /**
+             * example:
+             * 65536
+             */
+            bytes_received: number; // int64
+        }
         /**
          * A generic request for extending work deadlines
          */
@@ -563,6 +593,7 @@ declare namespace Components {
             date_started?: string; // date-time
             status?: "created" | "started" | "awaiting_review" | "ready_to_post" | "posting" | "loaded" | "completed";
             migrations?: /* Migration object that has a single assignment and a policy */ Migration[];
+            streaming?: /* Whether scores are posted to Canvas as they are scored */ MigrationStreaming;
         }
         /**
          * The statistics from a master migration, has the number of: extensions, late penalties, missing, no credit
@@ -632,6 +663,22 @@ declare namespace Components {
              */
             justification: string;
         }
+        /**
+         * Whether scores are posted to Canvas as they are scored
+         */
+        export interface MigrationStreaming {
+            /**
+             * example:
+             * true
+             */
+            enabled: boolean;
+            /**
+             * Scores that differ from the raw score by more than this are held for review
+             * example:
+             * 10
+             */
+            hold_threshold?: number | null; // double
+        }
         /**
          * A migration for an assignment that contains scores for each student
          */
@@ -854,6 +901,57 @@ declare namespace Components {
              * A message about the status of the task
              */
             message?: string;
+            progress?: /* How far along a running task is. Live updates are pushed to /tasks/{id}/progress */ TaskProgress;
+            resource_usage?: /* What a task cost to run, added up over all of its attempts */ TaskResourceUsage;
+        }
+        /**
+         * How far along a running task is. Live updates are pushed to /tasks/{id}/progress
+         */
+        export interface TaskProgress {
+            /**
+             * example:
+             * Publishing scores
+             */
+            phase?: string;
+            /**
+             * example:
+             * 120
+             */
+            processed: number; // int64
+            /**
+             * example:
+             * 300
+             */
+            total?: number; // int64
+        }
+        /**
+         * What a task cost to run, added up over all of its attempts
+         */
+        export interface TaskResourceUsage {
+            /**
+             * example:
+             * 1200
+             */
+            queue_wait_ms: number; // int64
+            /**
+             * example:
+             * 45000
+             */
+            wall_time_ms: number; // int64
+            /**
+             * example:
+             * 830
+             */
+            jdbc_statements: number; // int64
+            /**
+             * example:
+             * 2400
+             */
+            rows_written: number; // int64
+            canvas: /* Calls a task made to an external service. Bytes are not known for Canvas */ ExternalServiceUsage;
+            s3: /* Calls a task made to an external service. Bytes are not known for Canvas */ ExternalServiceUsage;
+            policy_server: /* Calls a task made to an external service. Bytes are not known for Canvas */ ExternalServiceUsage;
+            gradescope: /* Calls a task made to an external service. Bytes are not known for Canvas */ ExternalServiceUsage;
         }
         /**
          * A server user
@@ -1021,6 +1119,31 @@ declare namespace Paths {
             export type $404 = /* An error occurred while processing that query */ Components.Schemas.ErrorResponse;
         }
     }
+    namespace CancelTask {
+        namespace Parameters {
+            /**
+             * example:
+             * 291
+             */
+            export type TaskId = number; // int64
+        }
+        export interface PathParameters {
+            task_id: /**
+             * example:
+             * 291
+             */
+            Parameters.TaskId /* int64 */;
+        }
+        namespace Responses {
+            export type $202 = /* An async task on the server */ Components.Schemas.Task;
+            export interface $400 {
+            }
+            export interface $403 {
+            }
+            export interface $404 {
+            }
+        }
+    }
     namespace CheckHealth {
         namespace Responses {
             export interface $200 {
@@ -1872,11 +1995,18 @@ declare namespace Paths {
     }
     namespace GetMasterMigrationToReview {
         namespace Parameters {
+            /**
+             * Cwid of the last student on the previous page
+             * example:
+             * 10000000
+             */
+            export type After = string;
             /**
              * example:
              * 9DEB34FC-C15A-4B31-8374-91EC1C8E9E66
              */
             export type CourseId = string; // uuid
+            export type Limit = number;
             /**
              * example:
              * 49D2FB6A-598A-4618-A467-C71D6542D14F
@@ -1895,8 +2025,19 @@ declare namespace Paths {
              */
             Parameters.MasterMigrationId /* uuid */;
         }
+        export interface QueryParameters {
+            after?: /**
+             * Cwid of the last student on the previous page
+             * example:
+             * 10000000
+             */
+            Parameters.After;
+            limit?: Parameters.Limit;
+        }
         namespace Responses {
             export type $200 = /* A migration for an assignment that contains scores for each student */ Components.Schemas.MigrationWithScores[];
+            export interface $400 {
+            }
         }
     }
     namespace GetMembers {
@@ -2024,6 +2165,54 @@ declare namespace Paths {
             export type $200 = /* A complete policy with the actual code */ Components.Schemas.PolicyWithCode;
         }
     }
+    namespace GetTask {
+        namespace Parameters {
+            /**
+             * example:
+             * 291
+             */
+            export type TaskId = number; // int64
+        }
+        export interface PathParameters {
+            task_id: /**
+             * example:
+             * 291
+             */
+            Parameters.TaskId /* int64 */;
+        }
+        namespace Responses {
+            export type $200 = /* An async task on the server */ Components.Schemas.Task;
+            export interface $404 {
+            }
+        }
+    }
+    namespace GetTasks {
+        namespace Parameters {
+            /**
+             * Id of the last task on the previous page
+             * example:
+             * 291
+             */
+            export type After = number; // int64
+            export type Limit = number;
+            export type Status = ("CREATED" | "QUEUED" | "STARTED" | "COMPLETED" | "FAILED" | "CANCELLED")[];
+        }
+        export interface QueryParameters {
+            status?: Parameters.Status;
+            after?: /**
+             * Id of the last task on the previous page
+             * example:
+             * 291
+             */
+            Parameters.After /* int64 */;
+            limit?: Parameters.Limit;
+        }
+        namespace Responses {
+            export type $200 = /* An async task on the server */ Components.Schemas.Task[];
+            export interface $400 {
+            }
+        }
+    }
     namespace GetUser {
         namespace Responses {
             export type $200 = /* A server user */ Components.Schemas.User;
@@ -2315,6 +2504,37 @@ declare namespace Paths {
             }
         }
     }
+    namespace SetMigrationStreaming {
+        namespace Parameters {
+            /**
+             * example:
+             * 9DEB34FC-C15A-4B31-8374-91EC1C8E9E66
+             */
+            export type CourseId = string; // uuid
+            /**
+             * example:
+             * 49D2FB6A-598A-4618-A467-C71D6542D14F
+             */
+            export type MasterMigrationId = string; // uuid
+        }
+        export interface PathParameters {
+            course_id: /**
+             * example:
+             * 9DEB34FC-C15A-4B31-8374-91EC1C8E9E66
+             */
+            Parameters.CourseId /* uuid */;
+            master_migration_id: /**
+             * example:
+             * 49D2FB6A-598A-4618-A467-C71D6542D14F
+             */
+            Parameters.MasterMigrationId /* uuid */;
+        }
+        export type RequestBody = /* Whether scores are posted to Canvas as they are scored */ Components.Schemas.MigrationStreaming;
+        namespace Responses {
+            export type $202 = /* The master migration that contains to the list of migration objects */ Components.Schemas.MasterMigration;
+            export type $400 = /* An error occurred while processing that query */ Components.Schemas.ErrorResponse;
+        }
+    }
     namespace SetPolicy {
         namespace Parameters {
             /**
@@ -2551,7 +2771,8 @@ declare namespace Paths {
         }
         export type RequestBody = string; // binary
         namespace Responses {
-            export type $202 = /* The master migration that contains to the list of migration objects */ Components.Schemas.MasterMigration;
+            export type $202 = /* An async task on the server */ Components.Schemas.Task;
+            export type $400 = /* An error occurred while processing that query */ Components.Schemas.ErrorResponse;
             export type $404 = /* An error occurred while processing that query */ Components.Schemas.ErrorResponse;
         }
     }
@@ -3126,6 +3347,8 @@ export interface OperationMethods {
    * upload_raw_scores - Upload the scores for a migration
    * 
    * Upload the raw scores for a student from an external service.
+   * The file is imported in the background, this returns the import task. Once the task has
+   * finished its message lists any lines that could not be imported.
    * 
    */
   'upload_raw_scores'(
@@ -3161,6 +3384,20 @@ export interface OperationMethods {
     data?: any,
     config?: AxiosRequestConfig  
   ): OperationResponse<Paths.SetPolicy.Responses.$202>
+  /**
+   * set_migration_streaming - Opt a master migration in or out of streaming scores to Canvas
+   * 
+   * When streaming is enabled, scores are posted to Canvas as they come back from the policy server
+   * instead of all at once after review. Scores that differ from the raw score by more than
+   * `hold_threshold` are held back and posted with the rest of the migration after review.
+   * Streaming can only be changed before the migration is applied.
+   * 
+   */
+  'set_migration_streaming'(
+    parameters?: Parameters<Paths.SetMigrationStreaming.PathParameters> | null,
+    data?: Paths.SetMigrationStreaming.RequestBody,
+    config?: AxiosRequestConfig  
+  ): OperationResponse<Paths.SetMigrationStreaming.Responses.$202>
   /**
    * apply_validate_master_migration - Verify that all information provided in master migration is valid
    */
@@ -3184,9 +3421,13 @@ export interface OperationMethods {
   ): OperationResponse<Paths.ApplyMasterMigration.Responses.$202>
   /**
    * get_master_migration_to_review - Get all current information about a master migration
+   * 
+   * Students are paged by cwid across every migration. To get the next page, pass the cwid of
+   * the last student returned as `after`. Without a `limit` every student is returned.
+   * 
    */
   'get_master_migration_to_review'(
-    parameters?: Parameters<Paths.GetMasterMigrationToReview.PathParameters> | null,
+    parameters?: Parameters<Paths.GetMasterMigrationToReview.QueryParameters & Paths.GetMasterMigrationToReview.PathParameters> | null,
     data?: any,
     config?: AxiosRequestConfig  
   ): OperationResponse<Paths.GetMasterMigrationToReview.Responses.$200>
@@ -3222,6 +3463,42 @@ export interface OperationMethods {
     data?: any,
     config?: AxiosRequestConfig  
   ): OperationResponse<Paths.FinalizeMasterMigration.Responses.$202>
+  /**
+   * get_tasks - Get the tasks submitted by the current user, newest first
+   * 
+   * Pages are keyed off the last task of the previous page. To get the next page, pass the id of
+   * the last task returned as `after`.
+   * 
+   */
+  'get_tasks'(
+    parameters?: Parameters<Paths.GetTasks.QueryParameters> | null,
+    data?: any,
+    config?: AxiosRequestConfig  
+  ): OperationResponse<Paths.GetTasks.Responses.$200>
+  /**
+   * get_task - Get a task submitted by the current user
+   * 
+   * Also returns tasks that a submission by the current user joined, because the same work was
+   * already in flight.
+   * 
+   */
+  'get_task'(
+    parameters?: Parameters<Paths.GetTask.PathParameters> | null,
+    data?: any,
+    config?: AxiosRequestConfig  
+  ): OperationResponse<Paths.GetTask.Responses.$200>
+  /**
+   * cancel_task - Cancel a task submitted by the current user
+   * 
+   * A queued task is cancelled straight away. A running task is asked to stop and is marked
+   * as cancelled once it reaches a safe point, so the task returned may still be running.
+   * 
+   */
+  'cancel_task'(
+    parameters?: Parameters<Paths.CancelTask.PathParameters> | null,
+    data?: any,
+    config?: AxiosRequestConfig  
+  ): OperationResponse<Paths.CancelTask.Responses.$202>
   /**
    * get_course_information_student - Get information for a course
    * 
@@ -3911,6 +4188,8 @@ export interface PathsDictionary {
      * upload_raw_scores - Upload the scores for a migration
      * 
      * Upload the raw scores for a student from an external service.
+     * The file is imported in the background, this returns the import task. Once the task has
+     * finished its message lists any lines that could not be imported.
      * 
      */
     'post'(
@@ -3953,6 +4232,22 @@ export interface PathsDictionary {
       config?: AxiosRequestConfig  
     ): OperationResponse<Paths.SetPolicy.Responses.$202>
   }
+  ['/instructor/courses/{course_id}/migrations/{master_migration_id}/streaming']: {
+    /**
+     * set_migration_streaming - Opt a master migration in or out of streaming scores to Canvas
+     * 
+     * When streaming is enabled, scores are posted to Canvas as they come back from the policy server
+     * instead of all at once after review. Scores that differ from the raw score by more than
+     * `hold_threshold` are held back and posted with the rest of the migration after review.
+     * Streaming can only be changed before the migration is applied.
+     * 
+     */
+    'post'(
+      parameters?: Parameters<Paths.SetMigrationStreaming.PathParameters> | null,
+      data?: Paths.SetMigrationStreaming.RequestBody,
+      config?: AxiosRequestConfig  
+    ): OperationResponse<Paths.SetMigrationStreaming.Responses.$202>
+  }
   ['/instructor/courses/{course_id}/migrations/{master_migration_id}/apply_validate']: {
     /**
      * apply_validate_master_migration - Verify that all information provided in master migration is valid
@@ -3981,9 +4276,13 @@ export interface PathsDictionary {
   ['/instructor/courses/{course_id}/migrations/{master_migration_id}/review']: {
     /**
      * get_master_migration_to_review - Get all current information about a master migration
+     * 
+     * Students are paged by cwid across every migration. To get the next page, pass the cwid of
+     * the last student returned as `after`. Without a `limit` every student is returned.
+     * 
      */
     'get'(
-      parameters?: Parameters<Paths.GetMasterMigrationToReview.PathParameters> | null,
+      parameters?: Parameters<Paths.GetMasterMigrationToReview.QueryParameters & Paths.GetMasterMigrationToReview.PathParameters> | null,
       data?: any,
       config?: AxiosRequestConfig  
     ): OperationResponse<Paths.GetMasterMigrationToReview.Responses.$200>
@@ -4026,6 +4325,48 @@ export interface PathsDictionary {
       config?: AxiosRequestConfig  
     ): OperationResponse<Paths.FinalizeMasterMigration.Responses.$202>
   }
+  ['/tasks']: {
+    /**
+     * get_tasks - Get the tasks submitted by the current user, newest first
+     * 
+     * Pages are keyed off the last task of the previous page. To get the next page, pass the id of
+     * the last task returned as `after`.
+     * 
+     */
+    'get'(
+      parameters?: Parameters<Paths.GetTasks.QueryParameters> | null,
+      data?: any,
+      config?: AxiosRequestConfig  
+    ): OperationResponse<Paths.GetTasks.Responses.$200>
+  }
+  ['/tasks/{task_id}']: {
+    /**
+     * get_task - Get a task submitted by the current user
+     * 
+     * Also returns tasks that a submission by the current user joined, because the same work was
+     * already in flight.
+     * 
+     */
+    'get'(
+      parameters?: Parameters<Paths.GetTask.PathParameters> | null,
+      data?: any,
+      config?: AxiosRequestConfig  
+    ): OperationResponse<Paths.GetTask.Responses.$200>
+  }
+  ['/tasks/{task_id}/cancel']: {
+    /**
+     * cancel_task - Cancel a task submitted by the current user
+     * 
+     * A queued task is cancelled straight away. A running task is asked to stop and is marked
+     * as cancelled once it reaches a safe point, so the task returned may still be running.
+     * 
+     */
+    'post'(
+      parameters?: Parameters<Paths.CancelTask.PathParameters> | null,
+      data?: any,
+      config?: AxiosRequestConfig  
+    ): OperationResponse<Paths.CancelTask.Responses.$202>
+  }
   ['/student/courses/{course_id}']: {
     /**
      * get_course_information_student - Get information for a course
@@ -4131,11 +4472,13 @@ export type Credentials = Components.Schemas.Credentials;
 export type Enrollment = Components.Schemas.Enrollment;
 export type ErrorResponse = Components.Schemas.ErrorResponse;
 export type Extension = Components.Schemas.Extension;
+export type ExternalServiceUsage = Components.Schemas.ExternalServiceUsage;
 export type LateRequest = Components.Schemas.LateRequest;
 export type MasterMigration = Components.Schemas.MasterMigration;
 export type MasterMigrationStatistics = Components.Schemas.MasterMigrationStatistics;
 export type Migration = Components.Schemas.Migration;
 export type MigrationScoreChange = Components.Schemas.MigrationScoreChange;
+export type MigrationStreaming = Components.Schemas.MigrationStreaming;
 export type MigrationWithScores = Components.Schemas.MigrationWithScores;
 export type Policy = Components.Schemas.Policy;
 export type PolicyDryRun = Components.Schemas.PolicyDryRun;
@@ -4146,4 +4489,6 @@ export type PolicyWithCode = Components.Schemas.PolicyWithCode;
 export type Score = Components.Schemas.Score;
 export type StudentInformation = Components.Schemas.StudentInformation;
 export type Task = Components.Schemas.Task;
+export type TaskProgress = Components.Schemas.TaskProgress;
+export type TaskResourceUsage = Components.Schemas.TaskResourceUsage;
 export type User = Components.Schemas.User;
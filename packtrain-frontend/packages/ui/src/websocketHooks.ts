@@ -7,6 +7,27 @@ interface ConnectionOptions {
   onConnect: (client: Client) => void;
 }
 
+// for use outside of components, the caller deactivates the client when done with it
+export function createWebSocketClient({
+  authToken,
+  onConnect,
+}: ConnectionOptions) {
+  const socket = new SockJS(
+    window.__ENV__?.VITE_API_URL
+      ? window.__ENV__.VITE_API_URL + "ws"
+      : "https://localhost.dev/api/ws"
+  );
+  const client = new Client({
+    webSocketFactory: () => socket,
+    connectHeaders: { Authorization: `Bearer ${authToken}` },
+    reconnectDelay: 5000,
+    onConnect: () => onConnect?.(client),
+  });
+
+  client.activate();
+  return client;
+}
+
 export function useWebSocketClient({
   authToken,
   onConnect,
@@ -16,20 +37,7 @@ export function useWebSocketClient({
   useEffect(() => {
     if (!authToken) return;
 
-    const socket = new SockJS(
-      window.__ENV__?.VITE_API_URL
-        ? window.__ENV__.VITE_API_URL + "ws"
-        : "https://localhost.dev/api/ws"
-    );
-    const client = new Client({
-      webSocketFactory: () => socket,
-      connectHeaders: { Authorization: `Bearer ${authToken}` },
-      reconnectDelay: 5000,
-      onConnect: () => onConnect?.(client),
-    });
-
-    clientRef.current = client;
-    client.activate();
+    clientRef.current = createWebSocketClient({ authToken, onConnect });
   }, [authToken, onConnect]);
 
   return clientRef;
@@ -1,5 +1,6 @@
 package edu.mines.packtrain.config;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.event.ApplicationEventMulticaster;
@@ -9,11 +10,17 @@ import org.springframework.core.task.SimpleAsyncTaskExecutor;
 @Configuration
 public class AsyncEventConfig {
     @Bean(name = "applicationEventMulticaster")
-    public ApplicationEventMulticaster simpleApplicationEventMulticaster() {
+    public ApplicationEventMulticaster simpleApplicationEventMulticaster(
+            @Value("${grading-admin.events.concurrency-limit:64}") int concurrencyLimit) {
         SimpleApplicationEventMulticaster eventMulticaster =
                 new SimpleApplicationEventMulticaster();
 
-        eventMulticaster.setTaskExecutor(new SimpleAsyncTaskExecutor());
+        SimpleAsyncTaskExecutor taskExecutor = new SimpleAsyncTaskExecutor("event-");
+        taskExecutor.setVirtualThreads(true);
+        // publishers block once this many events are in flight instead of spawning more threads
+        taskExecutor.setConcurrencyLimit(concurrencyLimit);
+
+        eventMulticaster.setTaskExecutor(taskExecutor);
         return eventMulticaster;
     }
 }
@@ -1,9 +1,17 @@
 package edu.mines.packtrain.config;
 
+import edu.mines.packtrain.services.tasks.TaskMeteredDataSource;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+import javax.sql.DataSource;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.event.ContextRefreshedEvent;
 import org.springframework.context.event.EventListener;
@@ -13,6 +21,14 @@ import org.springframework.jdbc.core.JdbcTemplate;
 @Configuration
 @Slf4j
 public class DatabaseConfig {
+    // changes hibernate's schema update can't make by itself. these run in order on every start,
+    // so each one has to be safe to run again
+    private static final List<String> MIGRATIONS = List.of(
+            "sql/migrations/scheduled_tasks_single_table.sql",
+            "sql/migrations/transaction_log_unique_revision.sql",
+            "sql/migrations/raw_scores_unique_cwid.sql"
+    );
+
     private final ClassPathResource masterMigrationStatsSqlFile;
     private final JdbcTemplate jdbcTemplate;
 
@@ -21,16 +37,55 @@ public class DatabaseConfig {
         masterMigrationStatsSqlFile = new ClassPathResource("sql/master_migration_stats_view.sql");
     }
 
+    /**
+     * Wraps the data source so statements run by tasks are counted against them.
+     */
+    @Bean
+    public static BeanPostProcessor taskMeteredDataSourcePostProcessor() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof DataSource dataSource
+                        && !(bean instanceof TaskMeteredDataSource)) {
+                    return new TaskMeteredDataSource(dataSource);
+                }
+                return bean;
+            }
+        };
+    }
+
     @EventListener(ContextRefreshedEvent.class)
-    public void setupMasterMigrationStatsView() {
+    public void setupDatabase() {
+        MIGRATIONS.forEach(this::runMigration);
+        setupMasterMigrationStatsView();
+    }
+
+    private void runMigration(String migration) {
+        log.debug("Running migration '{}'", migration);
+        try (InputStream is = new ClassPathResource(migration).getInputStream()) {
+            jdbcTemplate.execute(new String(is.readAllBytes(), StandardCharsets.UTF_8));
+        } catch (IOException exception) {
+            throw new RuntimeException(String.format("Failed to read migration '%s'", migration),
+                    exception);
+        }
+    }
+
+    /**
+     * Creates the master migration stats view, replacing it if it was created from a different
+     * version of the sql file (the view is tagged with a hash of the file it was created from).
+     */
+    private void setupMasterMigrationStatsView() {
         log.debug("Attempting to setup master migration stats view");
         try (InputStream is = masterMigrationStatsSqlFile.getInputStream()) {
             byte[] data = is.readAllBytes();
-            String decoded = new String(data, StandardCharsets.UTF_8);
+            String hash = HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256")
+                    .digest(data));
+            String decoded = new String(data, StandardCharsets.UTF_8)
+                    .replace("${definition_hash}", hash);
 
             jdbcTemplate.execute(decoded);
 
-        } catch (IOException exception) {
+        } catch (IOException | NoSuchAlgorithmException exception) {
             log.error("Failed to setup master_migration_stats_view view", exception);
         }
 
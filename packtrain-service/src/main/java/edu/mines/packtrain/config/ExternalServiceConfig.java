@@ -41,6 +41,10 @@ public class ExternalServiceConfig {
         private String username;
         private String password;
         private String exchangeName;
+        // scores coming back from the policy server are handled in batches of up to this many,
+        // waiting at most scoreBatchDelayMs for a batch to fill up
+        private int scoreBatchSize;
+        private long scoreBatchDelayMs;
     }
 
     @AllArgsConstructor
@@ -100,12 +104,17 @@ public class ExternalServiceConfig {
             @Value("${grading-admin.external-services.rabbitmq.uri}") URI uri,
             @Value("${grading-admin.external-services.rabbitmq.user}") String username,
             @Value("${grading-admin.external-services.rabbitmq.password}") String password,
-            @Value("${grading-admin.external-services.rabbitmq.exchange-name}") String exchangeName
+            @Value("${grading-admin.external-services.rabbitmq.exchange-name}") String exchangeName,
+            @Value("${grading-admin.external-services.rabbitmq.score-batch-size:250}")
+            int scoreBatchSize,
+            @Value("${grading-admin.external-services.rabbitmq.score-batch-delay-ms:200}")
+            long scoreBatchDelayMs
     ) {
         if (!enabled) {
             return new RabbitMqConfig(false);
         }
-        return new RabbitMqConfig(true, uri, username, password, exchangeName);
+        return new RabbitMqConfig(true, uri, username, password, exchangeName, scoreBatchSize,
+                scoreBatchDelayMs);
     }
 
     @Bean
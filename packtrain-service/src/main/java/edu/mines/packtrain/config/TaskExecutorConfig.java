@@ -0,0 +1,173 @@
+package edu.mines.packtrain.config;
+
+import edu.mines.packtrain.services.tasks.TransientTaskException;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.time.Duration;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeoutException;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.dao.RecoverableDataAccessException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+@Configuration
+@EnableScheduling
+public class TaskExecutorConfig {
+    @AllArgsConstructor
+    @Getter
+    public static class QueueConfig {
+        // identifies this replica as the owner of the tasks it has leased
+        private final String instanceId;
+        private final long leaseSeconds;
+        // max number of tasks this replica will run at once across all task types
+        private final int maxRunningTasks;
+        // max number of tasks a single course may have running across all replicas
+        private final int maxRunningTasksPerCourse;
+    }
+
+    @AllArgsConstructor
+    @Getter
+    public static class RetryConfig {
+        // includes the first attempt
+        private final int maxAttempts;
+        private final long baseDelaySeconds;
+        private final long maxDelaySeconds;
+
+        /**
+         * Exponential backoff - doubles with every attempt, up to the max delay.
+         */
+        public long getDelaySeconds(int attempt) {
+            long delay = baseDelaySeconds << Math.min(Math.max(attempt - 1, 0), 20);
+            return Math.min(delay, maxDelaySeconds);
+        }
+
+        public boolean shouldRetry(int attempt, Throwable e) {
+            return attempt < maxAttempts && isTransient(e);
+        }
+
+        /**
+         * Failures that are likely to go away on their own (ie: Canvas or the database
+         * being briefly unreachable). Anything else is assumed to fail again on retry.
+         */
+        public static boolean isTransient(Throwable e) {
+            for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+                if (cause instanceof TransientTaskException
+                        || cause instanceof IOException
+                        || cause instanceof TimeoutException
+                        || cause instanceof TransientDataAccessException
+                        || cause instanceof RecoverableDataAccessException) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    @AllArgsConstructor
+    @Getter
+    public static class RetentionConfig {
+        // finished tasks older than this are moved to the archive
+        private final long retentionDays;
+        // max number of tasks archived per statement, keeps each delete short
+        private final int archiveBatchSize;
+    }
+
+    @AllArgsConstructor
+    @Getter
+    public static class DeadlineConfig {
+        // how long a task may run before the watchdog cancels it
+        private final Duration defaultDeadline;
+        // keyed by the simple name of the task def (ie: UserSyncTaskDef)
+        private final Map<String, Duration> deadlineByTaskType;
+
+        public Duration getDeadline(String taskType) {
+            return deadlineByTaskType.getOrDefault(taskType, defaultDeadline);
+        }
+    }
+
+    @AllArgsConstructor
+    @Getter
+    public static class BulkheadConfig {
+        private final int defaultConcurrency;
+        // keyed by the simple name of the task def (ie: UserSyncTaskDef)
+        private final Map<String, Integer> concurrencyByTaskType;
+
+        public int getConcurrency(String taskType) {
+            return concurrencyByTaskType.getOrDefault(taskType, defaultConcurrency);
+        }
+    }
+
+    @Bean
+    public BulkheadConfig configureTaskBulkheads(
+            @Value("${grading-admin.tasks.default-concurrency:10}") int defaultConcurrency,
+            Environment environment
+    ) {
+        Map<String, Integer> concurrencyByTaskType = Binder.get(environment)
+                .bind("grading-admin.tasks.concurrency",
+                        Bindable.mapOf(String.class, Integer.class))
+                .orElse(Map.of());
+
+        return new BulkheadConfig(defaultConcurrency, concurrencyByTaskType);
+    }
+
+    @Bean
+    public DeadlineConfig configureTaskDeadlines(Environment environment) {
+        Binder binder = Binder.get(environment);
+        Duration defaultDeadline = binder.bind("grading-admin.tasks.default-deadline",
+                Duration.class).orElse(Duration.ofHours(1));
+        Map<String, Duration> deadlineByTaskType = binder
+                .bind("grading-admin.tasks.deadlines", Bindable.mapOf(String.class, Duration.class))
+                .orElse(Map.of());
+
+        return new DeadlineConfig(defaultDeadline, deadlineByTaskType);
+    }
+
+    @Bean
+    public RetryConfig configureTaskRetries(
+            @Value("${grading-admin.tasks.retry.max-attempts:5}") int maxAttempts,
+            @Value("${grading-admin.tasks.retry.base-delay-seconds:5}") long baseDelaySeconds,
+            @Value("${grading-admin.tasks.retry.max-delay-seconds:300}") long maxDelaySeconds
+    ) {
+        return new RetryConfig(maxAttempts, baseDelaySeconds, maxDelaySeconds);
+    }
+
+    @Bean
+    public RetentionConfig configureTaskRetention(
+            @Value("${grading-admin.tasks.retention.retention-days:30}") long retentionDays,
+            @Value("${grading-admin.tasks.retention.archive-batch-size:1000}") int archiveBatchSize
+    ) {
+        return new RetentionConfig(retentionDays, archiveBatchSize);
+    }
+
+    @Bean
+    public QueueConfig configureTaskQueue(
+            @Value("${grading-admin.tasks.queue.instance-id:}") String instanceId,
+            @Value("${grading-admin.tasks.queue.lease-seconds:60}") long leaseSeconds,
+            @Value("${grading-admin.tasks.queue.max-running-tasks:50}") int maxRunningTasks,
+            @Value("${grading-admin.tasks.queue.max-running-tasks-per-course:8}")
+            int maxRunningTasksPerCourse
+    ) {
+        if (instanceId.isBlank()) {
+            String hostname;
+            try {
+                hostname = InetAddress.getLocalHost().getHostName();
+            } catch (UnknownHostException _) {
+                hostname = "unknown";
+            }
+            instanceId = String.format("%s-%s", hostname, UUID.randomUUID());
+        }
+
+        return new QueueConfig(instanceId, leaseSeconds, maxRunningTasks,
+                maxRunningTasksPerCourse);
+    }
+}
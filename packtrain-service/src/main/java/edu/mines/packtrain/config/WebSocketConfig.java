@@ -23,6 +23,6 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
 
     @Override
     public void configureMessageBroker(MessageBrokerRegistry registry) {
-        registry.enableSimpleBroker("/courses", "/migrations");
+        registry.enableSimpleBroker("/courses", "/migrations", "/tasks");
     }
 }
\ No newline at end of file
@@ -9,6 +9,7 @@ import edu.mines.packtrain.data.ErrorResponseDTO;
 import edu.mines.packtrain.data.LateRequestDTO;
 import edu.mines.packtrain.data.MasterMigrationDTO;
 import edu.mines.packtrain.data.MigrationScoreChangeDTO;
+import edu.mines.packtrain.data.MigrationStreamingDTO;
 import edu.mines.packtrain.data.MigrationWithScoresDTO;
 import edu.mines.packtrain.data.PolicyDTO;
 import edu.mines.packtrain.data.TaskDTO;
@@ -33,6 +34,7 @@ import edu.mines.packtrain.services.RawScoreService;
 import edu.mines.packtrain.services.SectionService;
 import jakarta.transaction.Transactional;
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Set;
@@ -60,8 +62,11 @@ public class InstructorApiImpl implements InstructorApiDelegate {
 
     @Override
     public ResponseEntity<List<MigrationWithScoresDTO>> getMasterMigrationToReview(UUID courseId,
-                                                                       UUID masterMigrationId) {
-        return ResponseEntity.ok(migrationService.getMasterMigrationToReview(masterMigrationId));
+                                                                       UUID masterMigrationId,
+                                                                       String after,
+                                                                       Integer limit) {
+        return ResponseEntity.ok(migrationService.getMasterMigrationToReview(masterMigrationId,
+                after, limit));
     }
 
     @Override
@@ -211,6 +216,16 @@ public class InstructorApiImpl implements InstructorApiDelegate {
         return ResponseEntity.accepted().body(DTOFactory.toDto(masterMigration));
     }
 
+    @Override
+    public ResponseEntity<MasterMigrationDTO> setMigrationStreaming(
+            UUID courseId, UUID masterMigrationId, MigrationStreamingDTO migrationStreamingDTO) {
+        MasterMigration masterMigration = migrationService.setStreamingForMasterMigration(
+                masterMigrationId, migrationStreamingDTO.getEnabled(),
+                migrationStreamingDTO.getHoldThreshold());
+
+        return ResponseEntity.accepted().body(DTOFactory.toDto(masterMigration));
+    }
+
     @Override
     public ResponseEntity<Void> updateStudentScore(UUID courseId, UUID masterMigrationId,
                                                UUID migrationId,
@@ -227,27 +242,17 @@ public class InstructorApiImpl implements InstructorApiDelegate {
     }
 
     @Override
-    public ResponseEntity<MasterMigrationDTO> uploadRawScores(UUID courseId,
-                                                              UUID masterMigrationId,
-                                                              UUID migrationId, Resource body) {
-        try {
-            switch (migrationService.getAssignmentForMigration(migrationId)
-                    .getExternalAssignmentConfig().getType()) {
-                case GRADESCOPE ->
-                        rawScoreService.uploadGradescopeCSV(body.getInputStream(), migrationId);
-                case PRAIRIELEARN ->
-                        rawScoreService.uploadPrairieLearnCSV(body.getInputStream(), migrationId);
-                case RUNESTONE ->
-                        rawScoreService.uploadRunestoneCSV(body.getInputStream(), migrationId);
-                default -> throw new IllegalStateException("Request to import non supported csv");
-            }
+    public ResponseEntity<TaskDTO> uploadRawScores(UUID courseId, UUID masterMigrationId,
+                                                   UUID migrationId, Resource body) {
+        ScheduledTaskDef task;
+        try (InputStream file = body.getInputStream()) {
+            task = rawScoreService.startRawScoreImport(securityManager.getUser(), migrationId,
+                    file);
         } catch (IOException e) {
             return ResponseEntity.badRequest().build();
         }
 
-        MasterMigration masterMigration = migrationService.getMasterMigration(masterMigrationId);
-
-        return ResponseEntity.accepted().body(DTOFactory.toDto(masterMigration));
+        return ResponseEntity.accepted().body(DTOFactory.toDto(task));
     }
 
     @Override
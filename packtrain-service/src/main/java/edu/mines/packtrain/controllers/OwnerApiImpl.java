@@ -10,6 +10,7 @@ import edu.mines.packtrain.data.PolicyDryRunResultsDTO;
 import edu.mines.packtrain.data.PolicyRawScoreDTO;
 import edu.mines.packtrain.data.PolicyWithCodeDTO;
 import edu.mines.packtrain.data.TaskDTO;
+import edu.mines.packtrain.events.NewTaskEvent;
 import edu.mines.packtrain.factories.DTOFactory;
 import edu.mines.packtrain.managers.SecurityManager;
 import edu.mines.packtrain.models.Assignment;
@@ -18,18 +19,19 @@ import edu.mines.packtrain.models.CourseMember;
 import edu.mines.packtrain.models.Policy;
 import edu.mines.packtrain.models.Section;
 import edu.mines.packtrain.models.enums.CourseRole;
-import edu.mines.packtrain.models.tasks.ScheduledTaskDef;
+import edu.mines.packtrain.models.tasks.CourseSyncTaskDef;
+import edu.mines.packtrain.models.tasks.SectionSyncTaskDef;
 import edu.mines.packtrain.services.AssignmentService;
 import edu.mines.packtrain.services.CourseMemberService;
 import edu.mines.packtrain.services.CourseService;
 import edu.mines.packtrain.services.PolicyService;
 import edu.mines.packtrain.services.SectionService;
 import edu.mines.packtrain.services.tasks.AssignmentTaskService;
+import edu.mines.packtrain.services.tasks.TaskBatch;
+import edu.mines.packtrain.services.tasks.TaskSubmissionService;
 import java.util.ArrayList;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Optional;
-import java.util.Set;
 import java.util.UUID;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -47,12 +49,14 @@ public class OwnerApiImpl implements OwnerApiDelegate {
     private final SecurityManager securityManager;
     private final AssignmentService assignmentService;
     private final AssignmentTaskService assignmentTaskService;
+    private final TaskSubmissionService taskSubmissionService;
 
     public OwnerApiImpl(CourseService courseService, SectionService sectionService,
                         CourseMemberService courseMemberService,
                         AssignmentService assignmentService,
                         SecurityManager securityManager,
-                        PolicyService policyService, AssignmentTaskService assignmentTaskService) {
+                        PolicyService policyService, AssignmentTaskService assignmentTaskService,
+                        TaskSubmissionService taskSubmissionService) {
         this.courseService = courseService;
         this.sectionService = sectionService;
         this.courseMemberService = courseMemberService;
@@ -60,6 +64,7 @@ public class OwnerApiImpl implements OwnerApiDelegate {
         this.assignmentService = assignmentService;
         this.policyService = policyService;
         this.assignmentTaskService = assignmentTaskService;
+        this.taskSubmissionService = taskSubmissionService;
     }
 
     @Override
@@ -206,38 +211,27 @@ public class OwnerApiImpl implements OwnerApiDelegate {
     }
 
     private List<TaskDTO> queueSyncCourseTasks(UUID courseId, CourseSyncTaskDTO courseSyncTaskDTO) {
-        List<TaskDTO> tasks = new LinkedList<>();
+        TaskBatch batch = new TaskBatch(courseId, NewTaskEvent.TaskData.PRIORITY_NORMAL);
 
-        ScheduledTaskDef courseTask = courseService.syncCourseWithCanvas(
+        CourseSyncTaskDef courseTask = courseService.syncCourseWithCanvas(batch,
                 securityManager.getUser(), courseId, courseSyncTaskDTO.getCanvasId(),
                 courseSyncTaskDTO.getOverwriteName(), courseSyncTaskDTO.getOverwriteCode());
 
-        tasks.add(DTOFactory.toDto(courseTask));
-
-        ScheduledTaskDef sectionTask = sectionService.createSectionsFromCanvas(
+        SectionSyncTaskDef sectionTask = sectionService.createSectionsFromCanvas(batch,
                 securityManager.getUser(), courseId, courseSyncTaskDTO.getCanvasId());
 
-
-        tasks.add(DTOFactory.toDto(sectionTask));
-
         if (courseSyncTaskDTO.getImportUsers()) {
-            ScheduledTaskDef importUsersTask = courseMemberService.syncMembersFromCanvas(
-                    securityManager.getUser(), Set.of(courseTask.getId(), sectionTask.getId()),
-                    courseId, true, true, true);
-
-            tasks.add(DTOFactory.toDto(importUsersTask));
+            courseMemberService.syncMembersFromCanvas(batch, securityManager.getUser(), courseId,
+                    true, true, true, courseTask, sectionTask);
         }
 
         if (courseSyncTaskDTO.getImportAssignments()) {
-            ScheduledTaskDef importAssignmentsTask = assignmentTaskService
-                    .syncAssignmentsFromCanvas(securityManager.getUser(),
-                            Set.of(courseTask.getId()), courseId,
-                            true, true, true);
-
-            tasks.add(DTOFactory.toDto(importAssignmentsTask));
+            assignmentTaskService.syncAssignmentsFromCanvas(batch, securityManager.getUser(),
+                    courseId, true, true, true, courseTask);
         }
 
-        return tasks;
+        // a sync that is already running for the course is joined rather than started again
+        return taskSubmissionService.submit(this, batch).stream().map(DTOFactory::toDto).toList();
     }
 
     @Override
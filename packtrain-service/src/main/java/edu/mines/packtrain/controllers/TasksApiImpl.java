@@ -0,0 +1,60 @@
+package edu.mines.packtrain.controllers;
+
+import edu.mines.packtrain.api.TasksApiDelegate;
+import edu.mines.packtrain.data.TaskDTO;
+import edu.mines.packtrain.factories.DTOFactory;
+import edu.mines.packtrain.managers.SecurityManager;
+import edu.mines.packtrain.models.User;
+import edu.mines.packtrain.models.tasks.ScheduleStatus;
+import edu.mines.packtrain.services.TaskExecutorService;
+import java.util.List;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.server.ResponseStatusException;
+
+@Controller
+public class TasksApiImpl implements TasksApiDelegate {
+    private final TaskExecutorService taskExecutorService;
+    private final SecurityManager securityManager;
+
+    public TasksApiImpl(TaskExecutorService taskExecutorService, SecurityManager securityManager) {
+        this.taskExecutorService = taskExecutorService;
+        this.securityManager = securityManager;
+    }
+
+    @Override
+    public ResponseEntity<List<TaskDTO>> getTasks(List<String> status, Long after, Integer limit) {
+        User user = securityManager.getUser();
+        List<ScheduleStatus> statuses = status == null ? List.of()
+                : status.stream().map(TasksApiImpl::parseStatus).toList();
+
+        return ResponseEntity.ok(taskExecutorService.getScheduledTasks(user, statuses, after,
+                limit == null ? 25 : limit).stream().map(DTOFactory::toDto).toList());
+    }
+
+    private static ScheduleStatus parseStatus(String status) {
+        try {
+            return ScheduleStatus.valueOf(status);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, String.format("Unknown task " +
+                    "status '%s'", status));
+        }
+    }
+
+    @Override
+    public ResponseEntity<TaskDTO> getTask(Long taskId) {
+        User user = securityManager.getUser();
+
+        return ResponseEntity.ok(DTOFactory.toDto(taskExecutorService.getScheduledTask(user,
+                taskId)));
+    }
+
+    @Override
+    public ResponseEntity<TaskDTO> cancelTask(Long taskId) {
+        User user = securityManager.getUser();
+
+        return ResponseEntity.accepted().body(DTOFactory.toDto(taskExecutorService.cancelTask(user,
+                taskId)));
+    }
+}
@@ -22,4 +22,8 @@ public class MigrationApplyNotificationDTO {
 
     @JsonProperty("process_extensions_complete")
     private Boolean processExtensionsComplete;
+
+    // every migration in the master migration has all of its scores
+    @JsonProperty("review_ready")
+    private Boolean reviewReady;
 }
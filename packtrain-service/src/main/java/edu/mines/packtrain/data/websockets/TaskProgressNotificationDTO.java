@@ -0,0 +1,34 @@
+package edu.mines.packtrain.data.websockets;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class TaskProgressNotificationDTO {
+
+    @JsonProperty("task_id")
+    private Long taskId;
+
+    @JsonProperty("phase")
+    private String phase;
+
+    @JsonProperty("processed")
+    private Long processed;
+
+    @JsonProperty("total")
+    private Long total;
+
+    @JsonProperty("items_per_second")
+    private Double itemsPerSecond;
+
+    @JsonProperty("finished")
+    private Boolean finished;
+}
@@ -2,8 +2,10 @@ package edu.mines.packtrain.events;
 
 import edu.mines.packtrain.models.tasks.ScheduledTaskDef;
 import edu.mines.packtrain.repositories.ScheduledTaskRepo;
+import java.util.List;
 import java.util.Optional;
 import java.util.Set;
+import java.util.UUID;
 import java.util.function.Consumer;
 import lombok.Getter;
 import lombok.RequiredArgsConstructor;
@@ -16,10 +18,19 @@ public class NewTaskEvent extends ApplicationEvent {
     @Setter
     @Getter
     public static class TaskData<T extends ScheduledTaskDef> {
+        public static final int PRIORITY_NORMAL = 0;
+        // work a user is actively waiting on, which should jump ahead of bulk work
+        public static final int PRIORITY_INTERACTIVE = 10;
+
         private final ScheduledTaskRepo<T> repo;
 
         private Set<Long> dependsOn = Set.of();
 
+        // the course the task is doing work for, if any
+        private UUID courseId;
+
+        private int priority = PRIORITY_NORMAL;
+
         private final Long taskId;
 
         private final Consumer<T> job;
@@ -28,10 +39,15 @@ public class NewTaskEvent extends ApplicationEvent {
         private Optional<Consumer<T>> onJobFail = Optional.empty();
     }
 
-    private final TaskData<?> data;
+    // queued together, so dependencies between them are always in place before any of them runs
+    private final List<TaskData<?>> tasks;
 
     public NewTaskEvent(Object source, TaskData<?> data) {
+        this(source, List.of(data));
+    }
+
+    public NewTaskEvent(Object source, List<TaskData<?>> tasks) {
         super(source);
-        this.data = data;
+        this.tasks = tasks;
     }
 }
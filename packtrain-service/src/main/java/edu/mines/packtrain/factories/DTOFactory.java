@@ -7,12 +7,16 @@ import edu.mines.packtrain.data.CourseLateRequestConfigDTO;
 import edu.mines.packtrain.data.CourseMemberDTO;
 import edu.mines.packtrain.data.CredentialDTO;
 import edu.mines.packtrain.data.ExtensionDTO;
+import edu.mines.packtrain.data.ExternalServiceUsageDTO;
 import edu.mines.packtrain.data.LateRequestDTO;
 import edu.mines.packtrain.data.MasterMigrationDTO;
 import edu.mines.packtrain.data.MasterMigrationStatisticsDTO;
 import edu.mines.packtrain.data.MigrationDTO;
+import edu.mines.packtrain.data.MigrationStreamingDTO;
 import edu.mines.packtrain.data.PolicyDTO;
 import edu.mines.packtrain.data.TaskDTO;
+import edu.mines.packtrain.data.TaskProgressDTO;
+import edu.mines.packtrain.data.TaskResourceUsageDTO;
 import edu.mines.packtrain.data.UserDTO;
 import edu.mines.packtrain.models.Assignment;
 import edu.mines.packtrain.models.Course;
@@ -27,6 +31,7 @@ import edu.mines.packtrain.models.Policy;
 import edu.mines.packtrain.models.Section;
 import edu.mines.packtrain.models.User;
 import edu.mines.packtrain.models.tasks.ScheduledTaskDef;
+import edu.mines.packtrain.models.tasks.TaskResourceUsage;
 
 public class DTOFactory {
 
@@ -124,7 +129,32 @@ public class DTOFactory {
                 .status(task.getStatus().toString())
                 .message(task.getStatusText())
                 .submittedTime(task.getSubmittedTime())
-                .completedTime(task.getCompletedTime());
+                .completedTime(task.getCompletedTime())
+                .progress(task.getProgressProcessed() == null ? null : new TaskProgressDTO()
+                        .phase(task.getProgressPhase())
+                        .processed(task.getProgressProcessed())
+                        .total(task.getProgressTotal()))
+                .resourceUsage(task.getResourceUsage() == null ? null
+                        : toDto(task.getResourceUsage()));
+    }
+
+    public static TaskResourceUsageDTO toDto(TaskResourceUsage usage) {
+        return new TaskResourceUsageDTO()
+                .queueWaitMs(usage.getQueueWaitMs())
+                .wallTimeMs(usage.getWallTimeMs())
+                .jdbcStatements(usage.getJdbcStatements())
+                .rowsWritten(usage.getRowsWritten())
+                .canvas(toDto(usage.getCanvas()))
+                .s3(toDto(usage.getS3()))
+                .policyServer(toDto(usage.getPolicyServer()))
+                .gradescope(toDto(usage.getGradescope()));
+    }
+
+    public static ExternalServiceUsageDTO toDto(TaskResourceUsage.ExternalServiceUsage usage) {
+        return new ExternalServiceUsageDTO()
+                .calls(usage.getCalls())
+                .bytesSent(usage.getBytesSent())
+                .bytesReceived(usage.getBytesReceived());
     }
 
     public static AssignmentDTO toDto(Assignment assignment) {
@@ -197,7 +227,10 @@ public class DTOFactory {
                 .dateStarted(masterMigration.getDateStarted())
                 .status(MasterMigrationDTO.StatusEnum.fromValue(masterMigration.getStatus()
                         .getStatus()))
-                .migrator(toDto(masterMigration.getCreatedByUser()));
+                .migrator(toDto(masterMigration.getCreatedByUser()))
+                .streaming(new MigrationStreamingDTO()
+                        .enabled(masterMigration.isStreamingToCanvas())
+                        .holdThreshold(masterMigration.getStreamHoldThreshold()));
 
         if (masterMigration.getMigrations() != null && !masterMigration.getMigrations().isEmpty()) {
             dto.migrations(masterMigration.getMigrations().stream().map(DTOFactory::toDto)
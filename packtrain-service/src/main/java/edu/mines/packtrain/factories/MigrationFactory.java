@@ -6,6 +6,7 @@ import edu.mines.packtrain.data.policyServer.ScoredDTO;
 import edu.mines.packtrain.models.Assignment;
 import java.io.IOException;
 import java.net.URI;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 import java.util.concurrent.TimeoutException;
@@ -37,15 +38,15 @@ public class MigrationFactory {
     public static class StartProcessScoresAndExtensionsFactory {
 
         private final Function<String, Optional<Channel>> createScorePublishChannel;
-        private final BiFunction<String, Consumer<ScoredDTO>, Optional<Channel>>
+        private final BiFunction<String, Consumer<List<ScoredDTO>>, Optional<Channel>>
                 createScoreReceivedChannel;
         private final ProcessScoresAndExtensionsConfig processScoresAndExtensionsConfig;
-        private Consumer<ScoredDTO> onScoreReceived;
+        private Consumer<List<ScoredDTO>> onScoresReceived;
 
 
         StartProcessScoresAndExtensionsFactory(UUID migrationId, Function<String,
                                                        Optional<Channel>> createScorePublishChannel,
-                                               BiFunction<String, Consumer<ScoredDTO>,
+                                               BiFunction<String, Consumer<List<ScoredDTO>>,
                                                        Optional<Channel>>
                                                        createScoreReceivedChannel) {
             this.createScorePublishChannel = createScorePublishChannel;
@@ -77,9 +78,13 @@ public class MigrationFactory {
             return this;
         }
 
-        public StartProcessScoresAndExtensionsFactory withOnScoreReceived(Consumer<ScoredDTO>
-                                                                                  onScoreReceived) {
-            this.onScoreReceived = onScoreReceived;
+        /**
+         * @param onScoresReceived called with each batch of scores that comes back from the
+         *                         policy server
+         */
+        public StartProcessScoresAndExtensionsFactory withOnScoresReceived(
+                Consumer<List<ScoredDTO>> onScoresReceived) {
+            this.onScoresReceived = onScoresReceived;
             return this;
         }
 
@@ -96,7 +101,7 @@ public class MigrationFactory {
                     .setRawGradeRoutingKey(rawScoreRoutingKey);
             processScoresAndExtensionsConfig.setRawGradePublishChannel(publishChannel.get());
 
-            if (onScoreReceived == null) {
+            if (onScoresReceived == null) {
                 log.warn("No score received action specified!");
                 return processScoresAndExtensionsConfig;
             }
@@ -104,7 +109,7 @@ public class MigrationFactory {
             String scoredRoutingKey = String.format("%s.scored",
                     processScoresAndExtensionsConfig.getMigrationId());
             Optional<Channel> scoreReceivedChannel = createScoreReceivedChannel
-                    .apply(scoredRoutingKey, onScoreReceived);
+                    .apply(scoredRoutingKey, onScoresReceived);
 
             if (scoreReceivedChannel.isEmpty()) {
                 publishChannel.get().close();
@@ -121,7 +126,8 @@ public class MigrationFactory {
 
     public static StartProcessScoresAndExtensionsFactory startProcessScoresAndExtensions(
             UUID migrationId, Function<String, Optional<Channel>> createScorePublishChannel,
-            BiFunction<String, Consumer<ScoredDTO>, Optional<Channel>> createScoreReceivedChannel) {
+            BiFunction<String, Consumer<List<ScoredDTO>>, Optional<Channel>>
+                    createScoreReceivedChannel) {
 
         // in case we need to eventually wrap things from the parent
         return new StartProcessScoresAndExtensionsFactory(migrationId, createScorePublishChannel,
@@ -36,6 +36,19 @@ public class MasterMigration {
     @Column(name = "status")
     private MigrationStatus status = MigrationStatus.CREATED;
 
+    // post scores to Canvas as they are scored instead of waiting for review (see
+    // CanvasScoreStream), scores that move more than the hold threshold from the raw score are
+    // still held for review
+    @Column(name = "stream_to_canvas")
+    private Boolean streamToCanvas;
+
+    @Column(name = "stream_hold_threshold")
+    private Double streamHoldThreshold;
+
+    public boolean isStreamingToCanvas() {
+        return Boolean.TRUE.equals(streamToCanvas);
+    }
+
     @OneToMany(mappedBy = "masterMigration", cascade = CascadeType.ALL,
             orphanRemoval = true, fetch = FetchType.EAGER)
     private List<Migration> migrations;
@@ -13,6 +13,7 @@ import jakarta.persistence.Id;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
 import jakarta.persistence.Table;
+import java.time.Instant;
 import java.util.UUID;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
@@ -49,6 +50,10 @@ public class Migration {
     @Column(name = "raw_score_message")
     private String rawScoreMessage;
 
+    // set once the policy server has returned a score for every student published to it
+    @Column(name = "scores_received_time")
+    private Instant scoresReceivedTime;
+
     // for now this relationship is one to one, later on this will be one to many
     // for now this relationship is one to one, later on this will be one to many
     // TO-DO: implement one to many so edge case like One Migration is for an assessment
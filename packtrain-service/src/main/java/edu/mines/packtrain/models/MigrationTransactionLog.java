@@ -8,9 +8,11 @@ import jakarta.persistence.Enumerated;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
 import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
 import java.time.Instant;
 import java.util.UUID;
 import lombok.Data;
@@ -18,7 +20,14 @@ import lombok.EqualsAndHashCode;
 
 @Data
 @Entity(name = "migration_transaction_log")
-@Table(name = "migration_transaction_logs")
+@Table(name = "migration_transaction_logs", indexes = {
+        // a student's latest revision is always the first row for their (migration, cwid)
+        @Index(columnList = "migration_id, student_cwid, revision DESC")
+}, uniqueConstraints = {
+        // see sql/migrations/transaction_log_unique_revision.sql for tables from before this
+        @UniqueConstraint(name = "migration_transaction_logs_migration_cwid_revision",
+                columnNames = {"migration_id", "student_cwid", "revision"})
+})
 public class MigrationTransactionLog {
     @Id
     @GeneratedValue(strategy = GenerationType.SEQUENCE)
@@ -60,4 +69,13 @@ public class MigrationTransactionLog {
 
     @Column(name = "message", length = 1000)
     private String message;
+
+    // hash of everything the score was computed from, so unchanged students can be skipped when
+    // a migration is applied again
+    @Column(name = "input_fingerprint")
+    private String inputFingerprint;
+
+    // set when the entry was streamed to Canvas while scoring
+    @Column(name = "posted_time")
+    private Instant postedTime;
 }
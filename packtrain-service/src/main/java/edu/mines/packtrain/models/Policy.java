@@ -43,6 +43,10 @@ public class Policy {
     @Column(name = "uri", unique = true, nullable = false)
     private String policyURI;
 
+    // sha-256 of the policy file, the uri stays the same when a policy is edited in place
+    @Column(name = "content_hash")
+    private String contentHash;
+
     @Column(name = "number_of_migrations", nullable = false)
     private int numberOfMigrations = 0;
 }
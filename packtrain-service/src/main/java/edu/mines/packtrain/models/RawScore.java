@@ -9,14 +9,17 @@ import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
 import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
 import java.time.Instant;
 import java.util.UUID;
 import lombok.Data;
 
 @Data
 @Entity(name = "raw_score")
-@Table(name = "raw_scores")
-// todo - this should be a composite key of cwid + migrationId
+// a student has one score per migration, imports upsert on this (see RawScoreBulkRepo). tables
+// from before this are fixed up by sql/migrations/raw_scores_unique_cwid.sql
+@Table(name = "raw_scores", uniqueConstraints = @UniqueConstraint(
+        name = "raw_scores_migration_id_cwid", columnNames = {"migration_id", "cwid"}))
 public class RawScore {
     @Id
     @GeneratedValue(strategy = GenerationType.UUID)
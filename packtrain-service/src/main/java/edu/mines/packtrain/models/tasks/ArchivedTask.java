@@ -0,0 +1,54 @@
+package edu.mines.packtrain.models.tasks;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import java.time.Instant;
+import lombok.Data;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
+
+/**
+ * A finished task that has been moved out of {@code scheduled_tasks} once it passed the retention
+ * period. Only the common columns are kept, the type specific ones are dropped.
+ */
+@Data
+@Entity(name = "archived_task")
+@Table(name = "scheduled_tasks_archive", indexes = {@Index(columnList = "user_id, submitted_time")})
+public class ArchivedTask {
+    @Id
+    private long id;
+
+    @Column(name = "task_type")
+    private String taskType;
+
+    @Column(name = "user_id")
+    private String createdByUserCwid;
+
+    @Column(name = "task_name", nullable = false)
+    private String taskName;
+
+    @Column(name = "submitted_time")
+    private Instant submittedTime;
+
+    @Column(name = "completed_time")
+    private Instant completedTime;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status")
+    private ScheduleStatus status;
+
+    @Column(name = "status_text", length = 10000)
+    private String statusText;
+
+    @JdbcTypeCode(SqlTypes.JSON)
+    @Column(name = "resource_usage")
+    private TaskResourceUsage resourceUsage;
+
+    @Column(name = "archived_time", nullable = false)
+    private Instant archivedTime;
+}
@@ -2,7 +2,6 @@ package edu.mines.packtrain.models.tasks;
 
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
-import jakarta.persistence.Table;
 import java.util.UUID;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
@@ -10,7 +9,6 @@ import lombok.experimental.Accessors;
 
 @EqualsAndHashCode(callSuper = true)
 @Data
-@Table(name = "sync_course_tasks")
 @Entity(name = "sync_course_task")
 public class CourseSyncTaskDef extends ScheduledTaskDef {
     @Column(name = "course_id")
@@ -2,7 +2,6 @@ package edu.mines.packtrain.models.tasks;
 
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
-import jakarta.persistence.Table;
 import java.net.URI;
 import java.util.UUID;
 import lombok.Data;
@@ -10,16 +9,15 @@ import lombok.EqualsAndHashCode;
 
 @EqualsAndHashCode(callSuper = true)
 @Data
-@Table(name = "process_scores_tasks")
 @Entity(name = "process_score_task")
 public class ProcessScoresAndExtensionsTaskDef extends ScheduledTaskDef {
 
-    @Column(name = "migration_id", nullable = false)
+    @Column(name = "migration_id")
     private UUID migrationId;
 
-    @Column(name = "assignment_id", nullable = false)
+    @Column(name = "assignment_id")
     private UUID assignmentId;
 
-    @Column(name = "policy_uri", nullable = false)
+    @Column(name = "policy_uri")
     private URI policy;
 }
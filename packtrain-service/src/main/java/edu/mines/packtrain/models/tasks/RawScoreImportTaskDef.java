@@ -0,0 +1,21 @@
+package edu.mines.packtrain.models.tasks;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import java.util.UUID;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+
+@EqualsAndHashCode(callSuper = true)
+@Data
+@Entity(name = "raw_score_import_task_def")
+public class RawScoreImportTaskDef extends ScheduledTaskDef {
+
+    @Column(name = "migration_id")
+    private UUID migrationId;
+
+    // the uploaded file, spooled to S3 so whichever replica runs the task can read it
+    @Column(name = "upload_object")
+    private String uploadObject;
+
+}
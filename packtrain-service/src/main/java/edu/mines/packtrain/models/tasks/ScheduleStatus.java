@@ -1,5 +1,5 @@
 package edu.mines.packtrain.models.tasks;
 
 public enum ScheduleStatus {
-    MISSING, CREATED, QUEUED, STARTED, COMPLETED, FAILED
+    MISSING, CREATED, QUEUED, STARTED, COMPLETED, FAILED, CANCELLED
 }
@@ -1,24 +1,50 @@
 package edu.mines.packtrain.models.tasks;
 
 import edu.mines.packtrain.models.User;
+import jakarta.persistence.CollectionTable;
 import jakarta.persistence.Column;
+import jakarta.persistence.DiscriminatorColumn;
+import jakarta.persistence.ElementCollection;
 import jakarta.persistence.Entity;
 import jakarta.persistence.EnumType;
 import jakarta.persistence.Enumerated;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.Inheritance;
 import jakarta.persistence.InheritanceType;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
+import jakarta.persistence.Table;
 import java.time.Instant;
+import java.util.HashSet;
+import java.util.Set;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
+import lombok.ToString;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
 
+/**
+ * Base for every kind of background task.
+ * <br></br>
+ * All task types share one table (told apart by {@code task_type}), so listing a user's tasks or
+ * updating a task's status by id is a single indexed lookup instead of a union over a table per
+ * type. Type specific columns are left null for the other types.
+ * <br></br>
+ * Rows from the per type tables used before are copied over on start up, see
+ * {@code sql/migrations/scheduled_tasks_single_table.sql}.
+ */
 @Data
 @Entity
-@Inheritance(strategy = InheritanceType.TABLE_PER_CLASS)
+@Table(name = "scheduled_tasks", indexes = {
+        @Index(columnList = "user_id, submitted_time, id"),
+        @Index(columnList = "status, completed_time"),
+        @Index(columnList = "idempotency_key")
+})
+@Inheritance(strategy = InheritanceType.SINGLE_TABLE)
+@DiscriminatorColumn(name = "task_type")
 public abstract class ScheduledTaskDef {
     @Id
     @GeneratedValue(strategy = GenerationType.SEQUENCE)
@@ -44,4 +70,42 @@ public abstract class ScheduledTaskDef {
 
     @Column(name = "status_text", length = 10000)
     protected String statusText;
+
+    // set when someone asks to cancel the task, the replica running it stops it on its next
+    // heartbeat
+    @Column(name = "cancel_requested", nullable = false, columnDefinition = "boolean default false")
+    protected boolean cancelRequested = false;
+
+    // identifies the work the task does (type + course + parameters), so a duplicate submission
+    // can join the task already in flight instead of doing the same work twice
+    @Column(name = "idempotency_key")
+    protected String idempotencyKey;
+
+    // cwids of the users whose submissions joined this task while it was in flight, they can
+    // follow it as well
+    @ElementCollection
+    @CollectionTable(name = "scheduled_task_joiners", joinColumns = @JoinColumn(name = "task_id"))
+    @Column(name = "user_id", nullable = false)
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    protected Set<String> joinedBy = new HashSet<>();
+
+    // progress is written behind while the task runs, so it may lag slightly behind
+    @Column(name = "progress_phase")
+    protected String progressPhase;
+
+    @Column(name = "progress_processed")
+    protected Long progressProcessed;
+
+    @Column(name = "progress_total")
+    protected Long progressTotal;
+
+    // what the task cost to run, written once each attempt ends
+    @JdbcTypeCode(SqlTypes.JSON)
+    @Column(name = "resource_usage")
+    protected TaskResourceUsage resourceUsage;
+
+    // where the task got to before it last failed, so a retry can pick up from there
+    @Column(name = "checkpoint", length = 1000)
+    protected String checkpoint;
 }
@@ -2,14 +2,12 @@ package edu.mines.packtrain.models.tasks;
 
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
-import jakarta.persistence.Table;
 import java.util.UUID;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
 
 @EqualsAndHashCode(callSuper = true)
 @Data
-@Table(name = "section_sync_tasks")
 @Entity(name = "section_sync_task")
 public class SectionSyncTaskDef extends ScheduledTaskDef {
 
@@ -0,0 +1,97 @@
+package edu.mines.packtrain.models.tasks;
+
+import jakarta.persistence.CollectionTable;
+import jakarta.persistence.Column;
+import jakarta.persistence.ElementCollection;
+import jakarta.persistence.Entity;
+import jakarta.persistence.FetchType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.JoinColumn;
+import jakarta.persistence.PostLoad;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.Table;
+import jakarta.persistence.Transient;
+import java.time.Instant;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.UUID;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import org.springframework.data.domain.Persistable;
+
+/**
+ * A task that is waiting to run (or running) on one of the service replicas.
+ * <br></br>
+ * A replica claims an entry by taking out a lease on it, and keeps extending that lease for as long
+ * as the task runs. If the replica dies, the lease expires and another replica picks the task back
+ * up. The entry is removed once the task has finished.
+ * <br></br>
+ * Dependents are released by the dependency graph of the replica they were submitted on, or by the
+ * replica their last dependency finished on. The queue only keeps them from being claimed while one
+ * of their dependencies is still in it.
+ */
+@Data
+@Entity(name = "task_queue_entry")
+@Table(name = "task_queue", indexes = {@Index(columnList = "enqueued_time")})
+public class TaskQueueEntry implements Persistable<Long> {
+    @Id
+    @Column(name = "task_id")
+    private long taskId;
+
+    // simple name of the task def, used to look up its handler
+    @Column(name = "task_type", nullable = false)
+    private String taskType;
+
+    @Column(name = "course_id")
+    private UUID courseId;
+
+    // higher runs first, see NewTaskEvent.TaskData
+    @Column(name = "priority", nullable = false)
+    private int priority = 0;
+
+    @Column(name = "enqueued_time", nullable = false)
+    private Instant enqueuedTime = Instant.now();
+
+    // set when a failed attempt is waiting to be retried
+    @Column(name = "available_time")
+    private Instant availableTime;
+
+    @Column(name = "lease_owner")
+    private String leaseOwner;
+
+    @Column(name = "lease_expires_time")
+    private Instant leaseExpiresTime;
+
+    @Column(name = "attempts", nullable = false)
+    private int attempts = 0;
+
+    @ElementCollection(fetch = FetchType.EAGER)
+    @CollectionTable(name = "task_queue_dependencies",
+            joinColumns = @JoinColumn(name = "task_id"),
+            indexes = {@Index(columnList = "depends_on")})
+    @Column(name = "depends_on")
+    private Set<Long> dependsOn = new HashSet<>();
+
+    // entries are always created with the id of their task, so without this every save of a new
+    // entry would have to select it first to tell whether to insert or update
+    @Transient
+    @EqualsAndHashCode.Exclude
+    private boolean persisted = false;
+
+    @Override
+    public Long getId() {
+        return taskId;
+    }
+
+    @Override
+    public boolean isNew() {
+        return !persisted;
+    }
+
+    @PostLoad
+    @PostPersist
+    void markPersisted() {
+        persisted = true;
+    }
+}
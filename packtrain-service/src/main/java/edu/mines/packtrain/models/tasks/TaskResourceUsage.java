@@ -0,0 +1,29 @@
+package edu.mines.packtrain.models.tasks;
+
+import lombok.Data;
+
+/**
+ * What a task cost to run, stored as json on the task.
+ * <br></br>
+ * Times and counts add up over every attempt of the task, apart from the queue wait which is
+ * only the time before the first attempt started.
+ */
+@Data
+public class TaskResourceUsage {
+    @Data
+    public static class ExternalServiceUsage {
+        private long calls;
+        private long bytesSent;
+        private long bytesReceived;
+    }
+
+    private long queueWaitMs;
+    private long wallTimeMs;
+    private long jdbcStatements;
+    private long rowsWritten;
+
+    private ExternalServiceUsage canvas = new ExternalServiceUsage();
+    private ExternalServiceUsage s3 = new ExternalServiceUsage();
+    private ExternalServiceUsage policyServer = new ExternalServiceUsage();
+    private ExternalServiceUsage gradescope = new ExternalServiceUsage();
+}
@@ -0,0 +1,36 @@
+package edu.mines.packtrain.repositories;
+
+import edu.mines.packtrain.models.tasks.ArchivedTask;
+import jakarta.transaction.Transactional;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface ArchivedTaskRepo extends CrudRepository<ArchivedTask, Long> {
+    /**
+     * Moves up to {@code limit} finished tasks older than {@code retentionDays} into the archive,
+     * in one statement. Tasks still in the queue are left alone, as are rows another replica is
+     * archiving at the same time.
+     *
+     * @return the number of tasks archived
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "with moved as (delete from scheduled_tasks where id in (" +
+            "select t.id from scheduled_tasks t " +
+            "where t.status in ('COMPLETED', 'FAILED', 'CANCELLED') " +
+            "and (t.completed_time < now() - (?1 * interval '1 day') " +
+            "or (t.completed_time is null and t.submitted_time < now() - (?1 * interval '1 day'))) " +
+            "and not exists (select 1 from task_queue q where q.task_id = t.id) " +
+            "order by t.id limit ?2 for update skip locked) " +
+            "returning id, task_type, user_id, task_name, submitted_time, completed_time, status, " +
+            "status_text, resource_usage), " +
+            "joiners as (delete from scheduled_task_joiners j using moved m where j.task_id = m.id) " +
+            "insert into scheduled_tasks_archive (id, task_type, user_id, task_name, submitted_time, " +
+            "completed_time, status, status_text, resource_usage, archived_time) " +
+            "select id, task_type, user_id, task_name, submitted_time, completed_time, status, " +
+            "status_text, resource_usage, now() from moved", nativeQuery = true)
+    int archiveFinishedTasks(long retentionDays, int limit);
+}
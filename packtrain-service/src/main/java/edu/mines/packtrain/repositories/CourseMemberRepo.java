@@ -14,6 +14,12 @@ import org.springframework.stereotype.Repository;
 
 @Repository
 public interface CourseMemberRepo extends CrudRepository<CourseMember, UUID> {
+    interface RosterEntry {
+        String getEmail();
+
+        String getCwid();
+    }
+
     boolean existsByCourseAndUser(Course course, User user);
 
     Optional<CourseMember> getAllByCourseAndUser(Course course, User user);
@@ -23,6 +29,10 @@ public interface CourseMemberRepo extends CrudRepository<CourseMember, UUID> {
 
     Set<CourseMember> getAllByCourse(Course course);
 
+    @Query("select m.user.email as email, m.user.cwid as cwid from course_member m " +
+            "where m.course = ?1")
+    List<RosterEntry> getRosterByCourse(Course course);
+
     @Query("select m from course_member m where m.course = ?1 " +
             "and m.user.name like concat('%',?2,'%')")
     Set<CourseMember> findAllByCourseByUserName(Course course, String name);
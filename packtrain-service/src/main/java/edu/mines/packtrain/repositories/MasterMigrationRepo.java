@@ -1,9 +1,12 @@
 package edu.mines.packtrain.repositories;
 
 import edu.mines.packtrain.models.MasterMigration;
+import edu.mines.packtrain.models.enums.MigrationStatus;
+import jakarta.transaction.Transactional;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
 
@@ -12,4 +15,20 @@ public interface MasterMigrationRepo extends CrudRepository<MasterMigration, UUI
     List<MasterMigration> getMasterMigrationsByCourseId(UUID courseId);
 
     Optional<MasterMigration> getMasterMigrationById(UUID masterMigrationId);
+
+    /**
+     * Moves a master migration from {@code from} to {@code to} once every one of its migrations
+     * has received all of its scores.
+     * <br></br>
+     * Each migration marks itself before calling this, so whichever finishes last is the one that
+     * sees them all and moves the master migration on.
+     *
+     * @return 1 if the master migration was moved on by this call
+     */
+    @Modifying
+    @Transactional
+    @Query("update master_migration mm set mm.status = ?3 where mm.id = ?1 and mm.status = ?2 " +
+            "and not exists (select 1 from migration m where m.masterMigration.id = ?1 " +
+            "and m.scoresReceivedTime is null)")
+    int advanceOnceScored(UUID masterMigrationId, MigrationStatus from, MigrationStatus to);
 }
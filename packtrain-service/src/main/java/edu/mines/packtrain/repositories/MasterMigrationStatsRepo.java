@@ -1,7 +1,18 @@
 package edu.mines.packtrain.repositories;
 
 import edu.mines.packtrain.models.MasterMigrationStats;
+import jakarta.transaction.Transactional;
 import java.util.UUID;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 
 public interface MasterMigrationStatsRepo extends ViewOnlyRepository<MasterMigrationStats, UUID> {
+    /**
+     * Recomputes master_migration_stats_view. Readers keep seeing the old stats until it is done.
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "refresh materialized view concurrently master_migration_stats_view",
+            nativeQuery = true)
+    void refresh();
 }
@@ -1,8 +1,11 @@
 package edu.mines.packtrain.repositories;
 
 import edu.mines.packtrain.models.Migration;
+import jakarta.transaction.Transactional;
+import java.time.Instant;
 import java.util.List;
 import java.util.UUID;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
 import org.springframework.stereotype.Repository;
@@ -14,4 +17,9 @@ public interface MigrationRepo extends CrudRepository<Migration, UUID> {
 
     @Query("select m from migration m where m.id=?1")
     Migration getMigrationById(UUID migrationId);
+
+    @Modifying
+    @Transactional
+    @Query("update migration m set m.scoresReceivedTime = ?2 where m.id = ?1")
+    void setScoresReceivedTime(UUID migrationId, Instant scoresReceivedTime);
 }
@@ -1,19 +1,147 @@
 package edu.mines.packtrain.repositories;
 
+import edu.mines.packtrain.models.Course;
 import edu.mines.packtrain.models.MigrationTransactionLog;
+import edu.mines.packtrain.models.enums.CourseRole;
+import edu.mines.packtrain.models.enums.SubmissionStatus;
+import jakarta.transaction.Transactional;
+import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
 
 public interface MigrationTransactionLogRepo extends CrudRepository<MigrationTransactionLog, Long> {
+    interface LatestRevision {
+        String getCwid();
+
+        int getRevision();
+
+        String getInputFingerprint();
+    }
+
+    /**
+     * A student's latest entry for a migration, along with their raw score and enrollment.
+     */
+    interface ReviewScore {
+        // section names are free text, so they're joined on a character that can't be typed
+        String SECTION_SEPARATOR = "\u001f";
+
+        UUID getMigrationId();
+
+        String getCwid();
+
+        double getScore();
+
+        SubmissionStatus getSubmissionStatus();
+
+        Instant getSubmissionTime();
+
+        String getMessage();
+
+        Double getRawScore();
+
+        Double getHoursLate();
+
+        String getName();
+
+        String getCanvasId();
+
+        CourseRole getRole();
+
+        String getSections();
+    }
+
     List<MigrationTransactionLog> getAllByMigrationId(UUID migrationId);
 
     @Query("select l from migration_transaction_log l where l.migrationId = ?1 " +
             "order by l.cwid, l.revision asc")
     List<MigrationTransactionLog> getAllByMigrationIdSorted(UUID migrationId);
 
+    /**
+     * The latest revision for each student in a migration, ordered by cwid.
+     * <br></br>
+     * The (migration_id, student_cwid, revision desc) index saves a sort, but postgres has no skip
+     * scan for distinct on, so every revision of every student in the migration is still read.
+     */
+    @Query(value = "select distinct on (student_cwid) * from migration_transaction_logs " +
+            "where migration_id = ?1 order by student_cwid, revision desc", nativeQuery = true)
+    List<MigrationTransactionLog> getLatestByMigrationId(UUID migrationId);
+
+    @Modifying
+    @Transactional
+    @Query("update migration_transaction_log l set l.postedTime = ?2 where l.id in ?1")
+    void markPosted(Collection<Long> ids, Instant postedTime);
+
+    @Query("select max(l.revision) from migration_transaction_log l " +
+            "where l.migrationId = ?1 and l.cwid = ?2")
+    Optional<Integer> getLatestRevision(UUID migrationId, String cwid);
+
     @Query("select l from migration_transaction_log l where l.migrationId = ?2 " +
             "and l.cwid = ?1 order by l.revision asc")
     List<MigrationTransactionLog> getByCwidAndMigrationId(String cwid, UUID migrationId);
+
+    /**
+     * Pages the students that {@link #getReviewScores} would return. The enrollment join has to
+     * match the one there, otherwise a page can come back short (or empty) while there are still
+     * students left.
+     */
+    @Query("select distinct l.cwid from migration_transaction_log l " +
+            "join course_member m on m.user.cwid = l.cwid and m.course = ?2 " +
+            "where l.migrationId in ?1 and l.cwid > ?3 order by l.cwid")
+    List<String> getCwidsAfter(Collection<UUID> migrationIds, Course course, String after,
+                               Limit limit);
+
+    /**
+     * Builds the review for a page of students in one go, students that aren't enrolled in the
+     * course are left out.
+     */
+    @Query("select l.migrationId as migrationId, l.cwid as cwid, l.score as score, " +
+            "l.submissionStatus as submissionStatus, l.submissionTime as submissionTime, " +
+            "l.message as message, r.score as rawScore, r.hoursLate as hoursLate, " +
+            "u.name as name, m.canvasId as canvasId, m.role as role, " +
+            "(select listagg(s.name, '" + ReviewScore.SECTION_SEPARATOR + "') within group (order by s.name) " +
+            "from course_member sm join sm.sections s where sm = m) as sections " +
+            "from migration_transaction_log l " +
+            "join course_member m on m.user.cwid = l.cwid and m.course = ?2 " +
+            "join m.user u " +
+            "left join raw_score r on r.migrationId = l.migrationId and r.cwid = l.cwid " +
+            "where l.migrationId in ?1 and l.cwid in ?3 " +
+            "and l.revision = (select max(c.revision) from migration_transaction_log c " +
+            "where c.migrationId = l.migrationId and c.cwid = l.cwid) " +
+            "order by l.cwid")
+    List<ReviewScore> getReviewScores(Collection<UUID> migrationIds, Course course,
+                                      Collection<String> cwids);
+
+    /**
+     * Writes a missing, zero score entry for every student in the course that hasn't already been
+     * scored by the policy server, on top of whatever revision they are already at. Students that
+     * have been scored are left for the scoring phase to decide whether they need scoring again.
+     * <br></br>
+     * Ids come straight from the entity's sequence. Hibernate only hands out ids in blocks ending at
+     * values it took from the sequence itself, so the two can't collide.
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "insert into migration_transaction_logs (id, created_by, student_cwid, " +
+            "student_canvas_id, migration_id, revision, submission_status, extension_applied, " +
+            "score, submission_time) " +
+            "select nextval('migration_transaction_log_seq'), ?2, m.user_id, m.canvas_id, ?1, " +
+            "coalesce(l.revision, 0) + 1, 'MISSING', false, 0, now() " +
+            "from course_members m left join (select distinct on (student_cwid) student_cwid, " +
+            "revision, input_fingerprint from migration_transaction_logs where migration_id = ?1 " +
+            "order by student_cwid, revision desc) l on l.student_cwid = m.user_id " +
+            "where m.course_id = ?3 and m.course_role = 'STUDENT' " +
+            "and l.input_fingerprint is null", nativeQuery = true)
+    int zeroOutStudents(UUID migrationId, String createdByCwid, UUID courseId);
+
+    @Query(value = "select distinct on (student_cwid) student_cwid as \"cwid\", " +
+            "revision as \"revision\", input_fingerprint as \"inputFingerprint\" " +
+            "from migration_transaction_logs where migration_id = ?1 " +
+            "order by student_cwid, revision desc", nativeQuery = true)
+    List<LatestRevision> getLatestRevisions(UUID migrationId);
 }
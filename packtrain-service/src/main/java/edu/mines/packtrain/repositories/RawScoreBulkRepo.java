@@ -0,0 +1,26 @@
+package edu.mines.packtrain.repositories;
+
+import edu.mines.packtrain.models.RawScore;
+import java.util.Collection;
+import java.util.UUID;
+
+/**
+ * Writes a chunk of raw scores for a migration in a single statement, keyed on
+ * (migration_id, cwid). A chunk must not have more than one score for a student.
+ */
+public interface RawScoreBulkRepo {
+    /**
+     * Inserts the scores, adding them to any score a student already has. The earliest submission
+     * wins.
+     *
+     * @return the number of scores inserted or updated
+     */
+    int upsertCombining(UUID migrationId, Collection<RawScore> scores);
+
+    /**
+     * Inserts the scores, skipping students that already have a score.
+     *
+     * @return the number of scores inserted
+     */
+    int insertSkippingExisting(UUID migrationId, Collection<RawScore> scores);
+}
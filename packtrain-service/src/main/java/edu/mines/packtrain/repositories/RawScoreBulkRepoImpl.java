@@ -0,0 +1,73 @@
+package edu.mines.packtrain.repositories;
+
+import edu.mines.packtrain.models.RawScore;
+import java.sql.Array;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.function.Function;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+class RawScoreBulkRepoImpl implements RawScoreBulkRepo {
+    // each column is bound as a single array, so a chunk is one statement no matter its size.
+    // Times are bound as text so the driver doesn't move them into the JVM's time zone
+    private static final String INSERT = "insert into raw_scores (id, migration_id, cwid, score, " +
+            "submission_time, hours_late, submission_status) " +
+            "select gen_random_uuid(), ?, s.cwid, s.score, s.submission_time, s.hours_late, " +
+            "s.submission_status from unnest(?::varchar[], ?::float8[], ?::timestamptz[], " +
+            "?::float8[], ?::varchar[]) as s(cwid, score, submission_time, hours_late, " +
+            "submission_status) ";
+
+    private static final String ON_CONFLICT_COMBINE = "on conflict (migration_id, cwid) do update " +
+            "set score = coalesce(raw_scores.score, 0) + coalesce(excluded.score, 0), " +
+            "submission_time = least(raw_scores.submission_time, excluded.submission_time), " +
+            "submission_status = case when excluded.submission_time < raw_scores.submission_time " +
+            "then excluded.submission_status else raw_scores.submission_status end, " +
+            "hours_late = case when excluded.submission_time < raw_scores.submission_time " +
+            "then excluded.hours_late else raw_scores.hours_late end";
+
+    private static final String ON_CONFLICT_SKIP = "on conflict (migration_id, cwid) do nothing";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    RawScoreBulkRepoImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public int upsertCombining(UUID migrationId, Collection<RawScore> scores) {
+        return insert(INSERT + ON_CONFLICT_COMBINE, migrationId, scores);
+    }
+
+    @Override
+    public int insertSkippingExisting(UUID migrationId, Collection<RawScore> scores) {
+        return insert(INSERT + ON_CONFLICT_SKIP, migrationId, scores);
+    }
+
+    private int insert(String sql, UUID migrationId, Collection<RawScore> scores) {
+        if (scores.isEmpty()) {
+            return 0;
+        }
+
+        return jdbcTemplate.update(connection -> {
+            PreparedStatement statement = connection.prepareStatement(sql);
+            statement.setObject(1, migrationId);
+            statement.setArray(2, array(connection, "varchar", scores, RawScore::getCwid));
+            statement.setArray(3, array(connection, "float8", scores, RawScore::getScore));
+            statement.setArray(4, array(connection, "varchar", scores,
+                    s -> Objects.toString(s.getSubmissionTime(), null)));
+            statement.setArray(5, array(connection, "float8", scores, RawScore::getHoursLate));
+            statement.setArray(6, array(connection, "varchar", scores,
+                    s -> s.getSubmissionStatus().name()));
+            return statement;
+        });
+    }
+
+    private static Array array(Connection connection, String type, Collection<RawScore> scores,
+                               Function<RawScore, Object> column) throws SQLException {
+        return connection.createArrayOf(type, scores.stream().map(column).toArray());
+    }
+}
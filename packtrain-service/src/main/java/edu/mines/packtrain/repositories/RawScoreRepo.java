@@ -1,21 +1,25 @@
 package edu.mines.packtrain.repositories;
 
 import edu.mines.packtrain.models.RawScore;
+import jakarta.transaction.Transactional;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
 import org.springframework.stereotype.Repository;
 
 @Repository
-public interface RawScoreRepo extends CrudRepository<RawScore, UUID> {
+public interface RawScoreRepo extends CrudRepository<RawScore, UUID>, RawScoreBulkRepo {
     List<RawScore> getByCwid(String cwid);
     List<RawScore> getByMigrationId(UUID migrationId);
 
     @Query("select r from raw_score r where r.cwid = ?1 and r.migrationId = ?2")
     Optional<RawScore> getByCwidAndMigrationId(String cwid, UUID migrationId);
 
-    @Query("select count(r) > 0 from raw_score r where r.cwid = ?1 and r.migrationId = ?2")
-    boolean existsByCwidAndMigrationId(String cwid, UUID migrationId);
+    @Modifying
+    @Transactional
+    @Query("delete from raw_score r where r.migrationId = ?1")
+    void deleteByMigrationId(UUID migrationId);
 }
@@ -1,12 +1,14 @@
 package edu.mines.packtrain.repositories;
 
-import edu.mines.packtrain.models.User;
 import edu.mines.packtrain.models.tasks.ScheduleStatus;
 import edu.mines.packtrain.models.tasks.ScheduledTaskDef;
+import edu.mines.packtrain.models.tasks.TaskResourceUsage;
 import jakarta.transaction.Transactional;
 import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
@@ -17,8 +19,46 @@ public interface ScheduledTaskRepo<T extends ScheduledTaskDef> extends CrudRepos
     @Query("select e from #{#entityName} e where e.id = ?1")
     Optional<T> getById(long id);
 
-    @Query("select e from #{#entityName} e where e.createdByUser = ?1 order by e.submittedTime")
-    List<T> getTasksForUser(User user);
+    /**
+     * The tasks the user submitted, or that a submission of theirs joined.
+     */
+    @Query("select e from #{#entityName} e where (e.createdByUser.cwid = ?1 " +
+            "or ?1 member of e.joinedBy) and e.status in ?2 " +
+            "order by e.submittedTime desc, e.id desc")
+    List<T> getTasksForUser(String cwid, Collection<ScheduleStatus> statuses, Limit limit);
+
+    /**
+     * The next page of {@link #getTasksForUser}, starting after the task submitted at
+     * {@code submittedTime} with id {@code id}.
+     */
+    @Query("select e from #{#entityName} e where (e.createdByUser.cwid = ?1 " +
+            "or ?1 member of e.joinedBy) and e.status in ?2 " +
+            "and (e.submittedTime < ?3 or (e.submittedTime = ?3 and e.id < ?4)) " +
+            "order by e.submittedTime desc, e.id desc")
+    List<T> getTasksForUserAfter(String cwid, Collection<ScheduleStatus> statuses,
+                                 Instant submittedTime, long id, Limit limit);
+
+    @Query("select e from #{#entityName} e where e.idempotencyKey = ?1 and e.status in ?2 " +
+            "order by e.id desc")
+    List<T> getTasksWithIdempotencyKey(String idempotencyKey, Collection<ScheduleStatus> statuses,
+                                       Limit limit);
+
+    /**
+     * Serializes submissions with the same idempotency key until the end of the current
+     * transaction, so two of them can't both miss each other's task.
+     */
+    @Query(value = "select 1 from (select pg_advisory_xact_lock(hashtextextended(?1, 0))) l",
+            nativeQuery = true)
+    int lockIdempotencyKey(String idempotencyKey);
+
+    @Modifying
+    @Transactional
+    @Query(value = "insert into scheduled_task_joiners (task_id, user_id) values (?1, ?2) " +
+            "on conflict do nothing", nativeQuery = true)
+    void addJoiner(long id, String cwid);
+
+    @Query("select count(e) > 0 from #{#entityName} e join e.joinedBy j where e.id = ?1 and j = ?2")
+    boolean isJoinedBy(long id, String cwid);
 
     @Query("select e.status from #{#entityName} e where e.id = ?1")
     Optional<ScheduleStatus> getStatus(long id);
@@ -33,9 +73,46 @@ public interface ScheduledTaskRepo<T extends ScheduledTaskDef> extends CrudRepos
     @Query("update #{#entityName} e set e.status = ?2 where e.id = ?1")
     void setStatus(long id, ScheduleStatus status);
 
+    @Modifying
+    @Transactional
+    @Query("update #{#entityName} e set e.statusText = ?2 where e.id = ?1")
+    void setStatusText(long id, String statusText);
+
+    @Query("select e.resourceUsage from #{#entityName} e where e.id = ?1")
+    Optional<TaskResourceUsage> getResourceUsage(long id);
+
+    @Modifying
+    @Transactional
+    @Query("update #{#entityName} e set e.resourceUsage = ?2 where e.id = ?1")
+    void setResourceUsage(long id, TaskResourceUsage resourceUsage);
+
+    @Modifying
+    @Transactional
+    @Query("update #{#entityName} e set e.status = ?2 where e.id in ?1")
+    void setStatus(Collection<Long> ids, ScheduleStatus status);
+
+    @Modifying
+    @Transactional
+    @Query("update #{#entityName} e set e.cancelRequested = true where e.id = ?1")
+    void requestCancel(long id);
+
+    @Query("select e.id from #{#entityName} e where e.id in ?1 and e.cancelRequested = true")
+    List<Long> getCancelRequested(Collection<Long> ids);
+
     @Modifying
     @Transactional
     @Query("update #{#entityName} e set e.completedTime = ?2 where e.id = ?1")
     void setCompletedTime(long id, Instant completedTime);
 
+    @Modifying
+    @Transactional
+    @Query("update #{#entityName} e set e.progressPhase = ?2, e.progressProcessed = ?3, " +
+            "e.progressTotal = ?4 where e.id = ?1")
+    void setProgress(long id, String phase, long processed, Long total);
+
+    @Modifying
+    @Transactional
+    @Query("update #{#entityName} e set e.checkpoint = ?2 where e.id = ?1")
+    void setCheckpoint(long id, String checkpoint);
+
 }
@@ -0,0 +1,109 @@
+package edu.mines.packtrain.repositories;
+
+import edu.mines.packtrain.models.tasks.TaskQueueEntry;
+import jakarta.transaction.Transactional;
+import java.util.Collection;
+import java.util.List;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface TaskQueueRepo extends CrudRepository<TaskQueueEntry, Long> {
+    /**
+     * Leases up to {@code limit} of the given tasks for {@code owner}.
+     * <br></br>
+     * {@code taskIds} are the tasks the owner's dependency graph has released. Besides those, any
+     * task that was abandoned by another replica is also claimed: one whose lease expired, or one
+     * that has been waiting for longer than a lease without anyone claiming it (its replica died
+     * while it was still waiting on its dependencies).
+     * <br></br>
+     * A task can be claimed once nobody holds a live lease on it and none of the tasks it depends
+     * on are still queued. Ready tasks are ranked within their course (counting the course's
+     * running tasks first), and then served by priority and rank, so courses take turns instead
+     * of one large migration filling every slot. A course never has more than
+     * {@code maxPerCourse} tasks running at once.
+     * <br></br>
+     * Rows another replica is claiming at the same time are skipped rather than waited on. Lease
+     * times come from the database clock so replicas don't need to agree on the time.
+     */
+    @Transactional
+    @Query(value = "update task_queue set lease_owner = ?1, " +
+            "lease_expires_time = now() + (?2 * interval '1 second'), attempts = attempts + 1 " +
+            "where task_id in (select c.task_id from task_queue c " +
+            "where (c.lease_owner is null or c.lease_expires_time < now()) " +
+            "and c.task_id in (select r.task_id from (" +
+            "select q.task_id, q.priority, q.enqueued_time, " +
+            "row_number() over (partition by q.course_id " +
+            "order by q.priority desc, q.enqueued_time) + " +
+            "(select count(*) from task_queue l where l.course_id = q.course_id " +
+            "and l.lease_owner is not null and l.lease_expires_time >= now()) as course_rank " +
+            "from task_queue q " +
+            "where (q.lease_owner is null or q.lease_expires_time < now()) " +
+            "and (q.available_time is null or q.available_time <= now()) " +
+            "and q.task_type not in ?4 " +
+            "and (q.task_id in ?6 or q.lease_expires_time < now() " +
+            "or coalesce(q.available_time, q.enqueued_time) < now() - (?2 * interval '1 second')) " +
+            "and not exists (select 1 from task_queue_dependencies d " +
+            "join task_queue p on p.task_id = d.depends_on where d.task_id = q.task_id)" +
+            ") r where r.course_rank <= ?5 " +
+            "order by r.priority desc, r.course_rank, r.enqueued_time limit ?3) " +
+            "for update skip locked) " +
+            "returning *", nativeQuery = true)
+    List<TaskQueueEntry> claim(String owner, long leaseSeconds, int limit,
+                               Collection<String> excludedTaskTypes, int maxPerCourse,
+                               Collection<Long> taskIds);
+
+    /**
+     * @return the tasks out of {@code taskIds} that are still queued and that nobody holds a lease
+     * on
+     */
+    @Query(value = "select task_id from task_queue where task_id in ?1 " +
+            "and (lease_owner is null or lease_expires_time < now())", nativeQuery = true)
+    List<Long> getUnleased(Collection<Long> taskIds);
+
+    /**
+     * @return the queued tasks that depend on {@code taskId}
+     */
+    @Query(value = "select q.* from task_queue q join task_queue_dependencies d " +
+            "on d.task_id = q.task_id where d.depends_on = ?1", nativeQuery = true)
+    List<TaskQueueEntry> getDependents(long taskId);
+
+    @Modifying
+    @Transactional
+    @Query(value = "update task_queue set lease_expires_time = now() + (?2 * interval '1 second') " +
+            "where lease_owner = ?1 and task_id in ?3", nativeQuery = true)
+    int extendLeases(String owner, long leaseSeconds, Collection<Long> taskIds);
+
+    @Modifying
+    @Transactional
+    @Query(value = "update task_queue set lease_owner = null, lease_expires_time = null " +
+            "where lease_owner = ?1 and task_id = ?2", nativeQuery = true)
+    void releaseLease(String owner, long taskId);
+
+    @Modifying
+    @Transactional
+    @Query(value = "update task_queue set lease_owner = null, lease_expires_time = null, " +
+            "available_time = now() + (?3 * interval '1 second') " +
+            "where lease_owner = ?1 and task_id = ?2", nativeQuery = true)
+    void scheduleRetry(String owner, long taskId, long delaySeconds);
+
+    /**
+     * Removes a task from the queue, as long as no replica is running it.
+     *
+     * @return 1 if the task was removed
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "with entry as (select task_id from task_queue where task_id = ?1 " +
+            "and (lease_owner is null or lease_expires_time < now()) for update), " +
+            "deps as (delete from task_queue_dependencies d using entry " +
+            "where d.task_id = entry.task_id) " +
+            "delete from task_queue q using entry where q.task_id = entry.task_id",
+            nativeQuery = true)
+    int deleteIfUnleased(long taskId);
+
+    @Query("select count(e) from task_queue_entry e")
+    long countQueued();
+}
@@ -0,0 +1,173 @@
+package edu.mines.packtrain.services;
+
+import edu.ksu.canvas.model.Progress;
+import edu.mines.packtrain.data.policyServer.ScoredDTO;
+import edu.mines.packtrain.models.MigrationTransactionLog;
+import edu.mines.packtrain.models.enums.SubmissionStatus;
+import edu.mines.packtrain.repositories.MigrationTransactionLogRepo;
+import edu.mines.packtrain.services.external.CanvasService;
+import edu.mines.packtrain.services.tasks.TaskContext;
+import edu.mines.packtrain.services.tasks.TaskProgress;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Posts scores to Canvas as they come back from the policy server, for migrations that opted in to
+ * streaming.
+ * <br></br>
+ * Scores are posted in chunks, and the entries that were posted are marked so the post phase
+ * only has to send whatever is left (held scores, zeroed out students, and anything that failed
+ * here). Scores whose final score is further than the hold threshold from the raw score are held
+ * back for review.
+ * <br></br>
+ * Chunks are posted one at a time off the thread that offers them, so the score consumer never
+ * waits on Canvas, and a chunk that fails (for whatever reason) is only ever left for the post
+ * phase.
+ */
+@Slf4j
+public class CanvasScoreStream {
+    private final CanvasService.CanvasServiceWithAuth canvas;
+    private final CanvasService canvasService;
+    private final MigrationTransactionLogRepo transactionLogRepo;
+    private final String canvasCourseId;
+    private final long canvasAssignmentId;
+    private final Double holdThreshold;
+    private final int chunkSize;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final List<MigrationTransactionLog> pending = new ArrayList<>();
+    private final ExecutorService poster = Executors.newSingleThreadExecutor(Thread.ofVirtual()
+            .name("canvas-score-stream").factory());
+    private final AtomicLong posted = new AtomicLong();
+    private long held;
+
+    public CanvasScoreStream(CanvasService canvasService, CanvasService.CanvasServiceWithAuth canvas,
+                             MigrationTransactionLogRepo transactionLogRepo, String canvasCourseId,
+                             long canvasAssignmentId, Double holdThreshold, int chunkSize) {
+        this.canvasService = canvasService;
+        this.canvas = canvas;
+        this.transactionLogRepo = transactionLogRepo;
+        this.canvasCourseId = canvasCourseId;
+        this.canvasAssignmentId = canvasAssignmentId;
+        this.holdThreshold = holdThreshold;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Queues the entries written for a batch of scores, posting a chunk once there are enough.
+     *
+     * @param dtos    the scores, in the same order as {@code entries}
+     * @param entries the transaction log entries that were written for them
+     */
+    public void offer(List<ScoredDTO> dtos, List<MigrationTransactionLog> entries) {
+        lock.lock();
+        try {
+            for (int i = 0; i < entries.size(); i++) {
+                if (shouldHold(dtos.get(i))) {
+                    held++;
+                    continue;
+                }
+                pending.add(entries.get(i));
+            }
+
+            while (pending.size() >= chunkSize) {
+                List<MigrationTransactionLog> chunk = List.copyOf(pending.subList(0, chunkSize));
+                pending.subList(0, chunkSize).clear();
+                submit(chunk);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Posts whatever is left over, and waits for every chunk to finish posting.
+     */
+    public void flush() {
+        lock.lock();
+        try {
+            if (!pending.isEmpty()) {
+                List<MigrationTransactionLog> chunk = List.copyOf(pending);
+                pending.clear();
+                submit(chunk);
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        poster.shutdown();
+        TaskProgress progress = TaskContext.progress();
+        try {
+            while (!poster.awaitTermination(1, TimeUnit.SECONDS)) {
+                progress.checkCancelled();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            progress.checkCancelled();
+            throw new RuntimeException(e);
+        }
+
+        log.info("Streamed {} scores to Canvas assignment '{}', {} were held for review",
+                posted.get(), canvasAssignmentId, held);
+    }
+
+    /**
+     * Stops posting, anything that hasn't been posted yet is left for the post phase.
+     */
+    public void close() {
+        poster.shutdownNow();
+    }
+
+    private boolean shouldHold(ScoredDTO dto) {
+        return holdThreshold != null
+                && Math.abs(dto.getFinalScore() - dto.getRawScore()) > holdThreshold;
+    }
+
+    private void submit(List<MigrationTransactionLog> chunk) {
+        try {
+            poster.execute(() -> post(chunk));
+        } catch (RejectedExecutionException e) {
+            // the stream was closed because the run is over, so the scores still arriving aren't
+            // waited on by anyone
+            log.debug("Canvas score stream closed, leaving {} scores for the post phase",
+                    chunk.size());
+        }
+    }
+
+    private void post(List<MigrationTransactionLog> chunk) {
+        // a failed chunk isn't retried here, its entries are left for the post phase. if only
+        // marking them fails they get posted again there, which doesn't change anything
+        try {
+            CanvasService.BuiltAssignmentSubmissions submissions = canvasService
+                    .prepCanvasSubmissionsForPublish(canvasCourseId, canvasAssignmentId);
+
+            for (MigrationTransactionLog entry : chunk) {
+                submissions.addSubmission(entry.getCanvasId(), entry.getMessage(),
+                        entry.getScore(),
+                        entry.getSubmissionStatus().equals(SubmissionStatus.EXCUSED));
+            }
+
+            Optional<Progress> progress = canvas.publishCanvasScores(submissions);
+            if (progress.isEmpty()) {
+                log.warn("Failed to stream {} scores to Canvas, leaving them for the post phase",
+                        chunk.size());
+                return;
+            }
+
+            transactionLogRepo.markPosted(chunk.stream().map(MigrationTransactionLog::getId)
+                    .toList(), Instant.now());
+            posted.addAndGet(chunk.size());
+        } catch (RuntimeException e) {
+            log.warn("Failed to stream {} scores to Canvas, leaving them for the post phase",
+                    chunk.size(), e);
+        }
+    }
+}
@@ -17,8 +17,15 @@ import edu.mines.packtrain.models.tasks.UserSyncTaskDef;
 import edu.mines.packtrain.repositories.CourseMemberRepo;
 import edu.mines.packtrain.repositories.ScheduledTaskRepo;
 import edu.mines.packtrain.services.external.CanvasService;
+import edu.mines.packtrain.services.tasks.TaskBatch;
+import edu.mines.packtrain.services.tasks.TaskContext;
+import edu.mines.packtrain.services.tasks.TaskHandlerProvider;
+import edu.mines.packtrain.services.tasks.TaskHandlerRegistry;
+import edu.mines.packtrain.services.tasks.TaskProgress;
+import edu.mines.packtrain.services.tasks.TaskSubmissionService;
 import jakarta.transaction.Transactional;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
@@ -27,7 +34,6 @@ import java.util.Set;
 import java.util.UUID;
 import java.util.stream.Collectors;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.http.HttpStatus;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.stereotype.Service;
@@ -35,7 +41,16 @@ import org.springframework.web.server.ResponseStatusException;
 
 @Service
 @Slf4j
-public class CourseMemberService {
+public class CourseMemberService implements TaskHandlerProvider {
+    // the phases of a member sync, in the order they run
+    private enum MemberSyncPhase {
+        ADD, REMOVE, UPDATE;
+
+        boolean isDone(Optional<MemberSyncPhase> completedPhase) {
+            return completedPhase.map(p -> p.ordinal() >= ordinal()).orElse(false);
+        }
+    }
+
     private final CourseMemberRepo courseMemberRepo;
     private final ScheduledTaskRepo<UserSyncTaskDef> taskRepo;
 
@@ -44,7 +59,6 @@ public class CourseMemberService {
     private final CourseService courseService;
     private final CanvasService canvasService;
 
-    private final ApplicationEventPublisher eventPublisher;
     private final ImpersonationManager impersonationManager;
 
     private final SimpMessagingTemplate messagingTemplate;
@@ -56,7 +70,6 @@ public class CourseMemberService {
             SectionService sectionService,
             CourseService courseService,
             CanvasService canvasService,
-            ApplicationEventPublisher eventPublisher,
             ImpersonationManager impersonationManager,
             SimpMessagingTemplate messagingTemplate) {
         this.courseMemberRepo = courseMemberRepo;
@@ -65,11 +78,15 @@ public class CourseMemberService {
         this.sectionService = sectionService;
         this.courseService = courseService;
         this.canvasService = canvasService;
-        this.eventPublisher = eventPublisher;
         this.impersonationManager = impersonationManager;
         this.messagingTemplate = messagingTemplate;
     }
 
+    @Override
+    public void registerTaskHandlers(TaskHandlerRegistry registry) {
+        registry.register(UserSyncTaskDef.class, this::createSyncMembersTaskData);
+    }
+
     public Optional<CourseMember> findCourseMemberGivenCourseAndCwid(Course course, String cwid) {
         // TODO CODE SMELLS - need to add unique constant
         Optional<CourseMember> courseMember = courseMemberRepo.findAllByCourseByCwid(course, cwid)
@@ -143,6 +160,10 @@ public class CourseMemberService {
                 .filter(x -> x.getRole().equals(CourseRole.STUDENT)).toList();
     }
 
+    public Set<CourseMember> getAllMembersInCourse(Course course) {
+        return courseMemberRepo.getAllByCourse(course);
+    }
+
     @Transactional
     public void syncCourseMembersTask(UserSyncTaskDef task) {
         if (!task.shouldAddNewUsers() && !task.shouldUpdateExistingUsers()
@@ -163,12 +184,20 @@ public class CourseMemberService {
             return;
         }
 
+        // phases are checkpointed as they finish, so a retry skips the ones already done
+        Optional<MemberSyncPhase> completedPhase = Optional.ofNullable(task.getCheckpoint())
+                .map(MemberSyncPhase::valueOf);
+
+        TaskProgress progress = TaskContext.progress();
+        progress.startPhase("Fetching members from Canvas", null);
+
         IdentityProvider impersonatedUser = impersonationManager.impersonateUser(
                 task.getCreatedByUser());
 
         Map<String, edu.ksu.canvas.model.User> canvasUsersForCourse = canvasService.asUser(
                 impersonatedUser).getCourseMembers(course.getCanvasId());
 
+        progress.checkCancelled();
         List<User> users = userService.getOrCreateUsersFromCanvas(canvasUsersForCourse);
 
         Set<String> incomingCwids = users.stream().map(User::getCwid).collect(Collectors.toSet());
@@ -185,7 +214,8 @@ public class CourseMemberService {
         Set<String> cwidsToUpdate = incomingCwids.stream()
                 .filter(c -> !cwidsToCreate.contains(c)).collect(Collectors.toSet());
 
-        if (task.shouldAddNewUsers()) {
+        if (task.shouldAddNewUsers() && !MemberSyncPhase.ADD.isDone(completedPhase)) {
+            progress.startPhase("Adding new members", (long) cwidsToCreate.size());
             Set<CourseMember> newMembers = createNewEnrollments(
                     task,
                     users.stream().filter(u -> cwidsToCreate.contains(u.getCwid())).toList(),
@@ -197,17 +227,25 @@ public class CourseMemberService {
             // this is quite large, so doing it at once will be a lot
             // faster than saving incrementally
             courseMemberRepo.saveAll(newMembers);
+            progress.increment(cwidsToCreate.size());
+            taskRepo.setCheckpoint(task.getId(), MemberSyncPhase.ADD.name());
         }
 
-        if (task.shouldRemoveOldUsers()) {
+        progress.checkCancelled();
+        if (task.shouldRemoveOldUsers() && !MemberSyncPhase.REMOVE.isDone(completedPhase)) {
+            progress.startPhase("Removing old members", (long) cwidsToRemove.size());
             log.info("Deleting {} course memberships for '{}'",
                     cwidsToRemove.size(), course.getCode());
             if (!cwidsToRemove.isEmpty()) {
                 courseMemberRepo.deleteByCourseAndCwid(course, cwidsToRemove);
             }
+            progress.increment(cwidsToRemove.size());
+            taskRepo.setCheckpoint(task.getId(), MemberSyncPhase.REMOVE.name());
         }
 
-        if (task.shouldUpdateExistingUsers()) {
+        progress.checkCancelled();
+        if (task.shouldUpdateExistingUsers() && !MemberSyncPhase.UPDATE.isDone(completedPhase)) {
+            progress.startPhase("Updating existing members", (long) cwidsToUpdate.size());
             Set<CourseMember> updatedMembers = updateExistingEnrollments(task, cwidsToUpdate,
                     canvasUsersForCourse, course, sections);
 
@@ -215,6 +253,8 @@ public class CourseMemberService {
                     updatedMembers.size(), course.getCode());
 
             courseMemberRepo.saveAll(updatedMembers);
+            progress.increment(cwidsToUpdate.size());
+            taskRepo.setCheckpoint(task.getId(), MemberSyncPhase.UPDATE.name());
         }
     }
 
@@ -227,6 +267,7 @@ public class CourseMemberService {
                 .stream().collect(Collectors.toMap(c -> c.getUser().getCwid(), c -> c));
 
         for (String user : members.keySet()) {
+            TaskContext.progress().checkCancelled();
             log.trace("Updating membership for user: {}", user);
 
             CourseMember member = members.get(user);
@@ -275,6 +316,7 @@ public class CourseMemberService {
         Set<CourseMember> members = new HashSet<>();
 
         for (User user : users) {
+            TaskContext.progress().checkCancelled();
             log.trace("Processing user: {}", user);
 
             // we dont need to worry about this case, if we get here then it is in the
@@ -320,9 +362,9 @@ public class CourseMemberService {
         return members;
     }
 
-    public ScheduledTaskDef syncMembersFromCanvas(User actingUser, Set<Long> dependencies,
-            UUID courseId, boolean updateExisting,
-            boolean removeOld, boolean addNew) {
+    public UserSyncTaskDef syncMembersFromCanvas(TaskBatch batch, User actingUser, UUID courseId,
+            boolean updateExisting, boolean removeOld, boolean addNew,
+            ScheduledTaskDef... dependsOn) {
         UserSyncTaskDef task = new UserSyncTaskDef();
         task.setCreatedByUser(actingUser);
         task.setTaskName(String.format("Sync Course '%s': Course Members", courseId));
@@ -330,13 +372,17 @@ public class CourseMemberService {
         task.shouldUpdateExistingUsers(updateExisting);
         task.shouldAddNewUsers(addNew);
         task.shouldRemoveOldUsers(removeOld);
-        task = taskRepo.save(task);
+        task.setIdempotencyKey(TaskSubmissionService.idempotencyKey(UserSyncTaskDef.class,
+                courseId, updateExisting, removeOld, addNew));
+
+        return batch.add(task, this::createSyncMembersTaskData, dependsOn);
+    }
 
+    private NewTaskEvent.TaskData<UserSyncTaskDef> createSyncMembersTaskData(long taskId) {
         CourseSyncNotificationDTO notificationDTO = CourseSyncNotificationDTO.builder()
                 .membersComplete(true).build();
         NewTaskEvent.TaskData<UserSyncTaskDef> taskDefinition = new NewTaskEvent.TaskData<>(
-                taskRepo, task.getId(), this::syncCourseMembersTask);
-        taskDefinition.setDependsOn(dependencies);
+                taskRepo, taskId, this::syncCourseMembersTask);
         taskDefinition.setOnJobComplete(Optional.of(_ -> {
             try {
                 messagingTemplate.convertAndSend("/courses/sync",
@@ -356,9 +402,7 @@ public class CourseMemberService {
             }
         }));
 
-        eventPublisher.publishEvent(new NewTaskEvent(this, taskDefinition));
-
-        return task;
+        return taskDefinition;
     }
 
     public CourseMember addMemberToCourse(String courseId, CourseMemberDTO courseMemberDTO) {
@@ -447,20 +491,11 @@ public class CourseMemberService {
         courseMemberRepo.save(courseMember.get());
     }
 
-    public Optional<String> getCwidGivenCourseAndEmail(String email, Course course) {
-        Optional<User> user = userService.findUserByEmail(email);
-
-        if (user.isEmpty()) {
-            log.warn("User '{}' does not exist in system!", email);
-            return Optional.empty();
-        }
-
-        if (!courseMemberRepo.existsByCourseAndUser(course, user.get())) {
-            log.warn("User '{}' is not enrolled in course '{}'", user.get().getEmail(), course.getCode());
-            return Optional.empty();
-        }
-
-        return Optional.of(user.get().getCwid());
+    /**
+     * Loads every member of a course in one query, for resolving the students in an import.
+     */
+    public CourseRoster getRoster(Course course) {
+        return new CourseRoster(courseMemberRepo.getRosterByCourse(course));
     }
 
     public String getCanvasIdGivenCourseAndCwid(String cwid, Course course) {
@@ -477,6 +512,27 @@ public class CourseMemberService {
         return member.get().getCanvasId();
     }
 
+    /**
+     * Bulk version of {@link #getCanvasIdGivenCourseAndCwid}, in a single query.
+     *
+     * @return the canvas id of each user, by cwid
+     */
+    public Map<String, String> getCanvasIdsGivenCourseAndCwids(Set<String> cwids, Course course) {
+        Map<String, String> canvasIds = new HashMap<>();
+        courseMemberRepo.getAllByCourseAndCwids(course, cwids)
+                .forEach(m -> canvasIds.put(m.getUser().getCwid(), m.getCanvasId()));
+
+        if (canvasIds.size() != cwids.size()) {
+            Set<String> missing = new HashSet<>(cwids);
+            missing.removeAll(canvasIds.keySet());
+            log.warn("Users '{}' are not enrolled in course '{}'", missing, course.getCode());
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, String.format("Users '%s' " +
+                    "are not enrolled in this course", missing));
+        }
+
+        return canvasIds;
+    }
+
     public boolean isUserEnrolledInCourse(String cwid, Course course) {
         return courseMemberRepo.existsByCourseAndId(course, cwid);
     }
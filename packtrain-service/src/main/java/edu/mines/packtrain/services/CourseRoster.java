@@ -0,0 +1,75 @@
+package edu.mines.packtrain.services;
+
+import edu.mines.packtrain.repositories.CourseMemberRepo;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * A course's members keyed by the identifiers external tools export them by, so an import can
+ * resolve every row without going back to the database.
+ * <br></br>
+ * Lookups ignore case and surrounding whitespace. A member can be found by their email, their
+ * cwid, or the part of their email before the @ (ie: when a tool exports a different domain for
+ * the same account), as long as no other member shares it.
+ */
+public class CourseRoster {
+    private final Map<String, String> cwids = new HashMap<>();
+    private final Set<String> unresolved = new HashSet<>();
+
+    public CourseRoster(Collection<CourseMemberRepo.RosterEntry> members) {
+        Map<String, String> aliases = new HashMap<>();
+        Set<String> ambiguous = new HashSet<>();
+
+        for (CourseMemberRepo.RosterEntry member : members) {
+            String email = normalize(member.getEmail());
+            cwids.put(email, member.getCwid());
+            cwids.put(normalize(member.getCwid()), member.getCwid());
+
+            int at = email.indexOf('@');
+            if (at > 0) {
+                String alias = email.substring(0, at);
+                if (aliases.putIfAbsent(alias, member.getCwid()) != null
+                        && !aliases.get(alias).equals(member.getCwid())) {
+                    ambiguous.add(alias);
+                }
+            }
+        }
+
+        ambiguous.forEach(aliases::remove);
+        // full emails and cwids win over aliases
+        aliases.forEach(cwids::putIfAbsent);
+    }
+
+    public Optional<String> resolve(String identifier) {
+        String key = normalize(identifier);
+        String cwid = cwids.get(key);
+
+        if (cwid == null) {
+            int at = key.indexOf('@');
+            cwid = at > 0 ? cwids.get(key.substring(0, at)) : null;
+        }
+
+        if (cwid == null) {
+            unresolved.add(identifier);
+        }
+
+        return Optional.ofNullable(cwid);
+    }
+
+    /**
+     * Everything {@link #resolve(String)} couldn't find, so they can be reported once at the end of
+     * an import instead of on every row.
+     */
+    public Set<String> getUnresolved() {
+        return Set.copyOf(unresolved);
+    }
+
+    private static String normalize(String identifier) {
+        return identifier.strip().toLowerCase(Locale.ROOT);
+    }
+}
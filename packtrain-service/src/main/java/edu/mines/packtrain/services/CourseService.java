@@ -16,7 +16,6 @@ import edu.mines.packtrain.models.MasterMigration;
 import edu.mines.packtrain.models.User;
 import edu.mines.packtrain.models.enums.CourseRole;
 import edu.mines.packtrain.models.tasks.CourseSyncTaskDef;
-import edu.mines.packtrain.models.tasks.ScheduledTaskDef;
 import edu.mines.packtrain.repositories.CourseLateRequestConfigRepo;
 import edu.mines.packtrain.repositories.CourseMemberRepo;
 import edu.mines.packtrain.repositories.CourseRepo;
@@ -26,11 +25,14 @@ import edu.mines.packtrain.repositories.MigrationRepo;
 import edu.mines.packtrain.repositories.ScheduledTaskRepo;
 import edu.mines.packtrain.services.external.CanvasService;
 import edu.mines.packtrain.services.external.S3Service;
+import edu.mines.packtrain.services.tasks.TaskBatch;
+import edu.mines.packtrain.services.tasks.TaskHandlerProvider;
+import edu.mines.packtrain.services.tasks.TaskHandlerRegistry;
+import edu.mines.packtrain.services.tasks.TaskSubmissionService;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.http.HttpStatus;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.stereotype.Service;
@@ -38,12 +40,11 @@ import org.springframework.web.server.ResponseStatusException;
 
 @Slf4j
 @Service
-public class CourseService {
+public class CourseService implements TaskHandlerProvider {
     private final CourseRepo courseRepo;
     private final CourseLateRequestConfigRepo lateRequestConfigRepo;
     private final GradescopeConfigRepo gradescopeConfigRepo;
     private final ScheduledTaskRepo<CourseSyncTaskDef> taskRepo;
-    private final ApplicationEventPublisher eventPublisher;
     private final ImpersonationManager impersonationManager;
     private final CanvasService canvasService;
     private final S3Service s3Service;
@@ -57,7 +58,6 @@ public class CourseService {
     public CourseService(CourseRepo courseRepo, CourseLateRequestConfigRepo lateRequestConfigRepo,
                          GradescopeConfigRepo gradescopeConfigRepo,
                          ScheduledTaskRepo<CourseSyncTaskDef> taskRepo,
-                         ApplicationEventPublisher eventPublisher,
                          ImpersonationManager impersonationManager,
                          CanvasService canvasService, S3Service s3Service, UserService userService,
                          MasterMigrationRepo masterMigrationRepo, MigrationRepo migrationRepo,
@@ -69,7 +69,6 @@ public class CourseService {
         this.taskRepo = taskRepo;
         this.impersonationManager = impersonationManager;
         this.canvasService = canvasService;
-        this.eventPublisher = eventPublisher;
         this.s3Service = s3Service;
         this.userService = userService;
         this.masterMigrationRepo = masterMigrationRepo;
@@ -78,6 +77,11 @@ public class CourseService {
         this.messagingTemplate = messagingTemplate;
     }
 
+    @Override
+    public void registerTaskHandlers(TaskHandlerRegistry registry) {
+        registry.register(CourseSyncTaskDef.class, this::createSyncCourseTaskData);
+    }
+
     public List<Course> getAllCourses(boolean enabled) {
         if (enabled) {
             return courseRepo.getAll(true);
@@ -210,8 +214,9 @@ public class CourseService {
         courseRepo.save(toUpdate.get());
     }
 
-    public ScheduledTaskDef syncCourseWithCanvas(User actingUser, UUID courseId, long canvasId,
-                                                 boolean overwriteName, boolean overwriteCode) {
+    public CourseSyncTaskDef syncCourseWithCanvas(TaskBatch batch, User actingUser, UUID courseId,
+                                                  long canvasId, boolean overwriteName,
+                                                  boolean overwriteCode) {
         if (!courseRepo.existsById(courseId)) {
             log.warn("Course '{}' has not been created!", courseId);
             throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Course does not exist");
@@ -224,13 +229,17 @@ public class CourseService {
         task.setCanvasId(canvasId);
         task.shouldOverwriteName(overwriteName);
         task.shouldOverwriteCode(overwriteCode);
+        task.setIdempotencyKey(TaskSubmissionService.idempotencyKey(CourseSyncTaskDef.class,
+                courseId, canvasId, overwriteName, overwriteCode));
 
-        task = taskRepo.save(task);
+        return batch.add(task, this::createSyncCourseTaskData);
+    }
 
+    private NewTaskEvent.TaskData<CourseSyncTaskDef> createSyncCourseTaskData(long taskId) {
         CourseSyncNotificationDTO notificationDTO = CourseSyncNotificationDTO.builder()
                 .courseComplete(true).build();
         NewTaskEvent.TaskData<CourseSyncTaskDef> taskDefinition = new NewTaskEvent.TaskData<>(
-                taskRepo, task.getId(), this::syncCourseTask);
+                taskRepo, taskId, this::syncCourseTask);
         taskDefinition.setOnJobComplete(Optional.of(_ -> {
             try {
                 messagingTemplate.convertAndSend("/courses/sync",
@@ -250,9 +259,7 @@ public class CourseService {
             }
         }));
 
-        eventPublisher.publishEvent(new NewTaskEvent(this, taskDefinition));
-
-        return task;
+        return taskDefinition;
     }
 
     public void enableCourse(UUID courseId) {
@@ -1,6 +1,8 @@
 package edu.mines.packtrain.services;
 
 import java.time.Instant;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -39,6 +41,7 @@ public class ExtensionService {
     private final UserService userService;
     private final SecurityManager securityManager;
     private final ExtensionEmailService extensionEmailService;
+    private final MasterMigrationStatsService masterMigrationStatsService;
 
 
     public List<Extension> getExtensionsByMigrationId(UUID migrationId) {
@@ -78,7 +81,9 @@ public class ExtensionService {
 
         extensionRepo.save(lateRequest.get().getExtension());
 
-        return lateRequestRepo.save(lateRequest.get());
+        LateRequest saved = lateRequestRepo.save(lateRequest.get());
+        masterMigrationStatsService.markStale();
+        return saved;
     }
 
     public LateRequest denyExtension(UUID extensionId, String reason) {
@@ -96,7 +101,9 @@ public class ExtensionService {
         lateRequest.get().setStatus(LateRequestStatus.REJECTED);
 
         extensionRepo.save(lateRequest.get().getExtension());
-        return lateRequestRepo.save(lateRequest.get());
+        LateRequest saved = lateRequestRepo.save(lateRequest.get());
+        masterMigrationStatsService.markStale();
+        return saved;
     }
 
     public List<LateRequest> getAllLateRequestsForStudent(UUID courseId, User user) {
@@ -162,7 +169,9 @@ public class ExtensionService {
 
         extensionEmailService.handleExtensionCreated(lateRequest, course, actingUser, instructor.getUser());
 
-        return lateRequestRepo.save(lateRequest);
+        LateRequest saved = lateRequestRepo.save(lateRequest);
+        masterMigrationStatsService.markStale();
+        return saved;
     }
 
     public Optional<LateRequest> getLateRequest(@Nullable UUID id) {
@@ -173,6 +182,16 @@ public class ExtensionService {
         return Optional.ofNullable(lateRequestRepo.getLateRequestById(id));
     }
 
+    public Map<UUID, LateRequest> getLateRequests(Collection<UUID> ids) {
+        if (ids.isEmpty()) {
+            return Map.of();
+        }
+
+        Map<UUID, LateRequest> lateRequests = new HashMap<>();
+        lateRequestRepo.findAllById(ids).forEach(r -> lateRequests.put(r.getId(), r));
+        return lateRequests;
+    }
+
     public void deleteLateRequest(Course course, User actingUser, UUID lateRequestId) {
         LateRequest lateRequest = getLateRequest(lateRequestId)
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND,
@@ -184,6 +203,7 @@ public class ExtensionService {
         }
 
         lateRequestRepo.delete(lateRequest);
+        masterMigrationStatsService.markStale();
     }
 
     public Map<String, LateRequest> getLateRequestsForAssignment(UUID assignment) {
@@ -0,0 +1,56 @@
+package edu.mines.packtrain.services;
+
+import edu.mines.packtrain.models.MasterMigrationStats;
+import edu.mines.packtrain.repositories.MasterMigrationStatsRepo;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+/**
+ * Keeps the master migration stats view up to date.
+ * <br></br>
+ * Importing raw scores and a master migration becoming ready for review refresh the stats straight
+ * away. Late requests change far more often (a whole class at a deadline), so those only mark the
+ * stats as stale and they are refreshed at most once per interval.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class MasterMigrationStatsService {
+    private final MasterMigrationStatsRepo masterMigrationStatsRepo;
+    private final AtomicBoolean stale = new AtomicBoolean();
+
+    public Optional<MasterMigrationStats> getStats(UUID masterMigrationId) {
+        return masterMigrationStatsRepo.findById(masterMigrationId);
+    }
+
+    /**
+     * Recomputes the stats now.
+     */
+    public void refresh() {
+        // cleared first, so a write that lands during the refresh still gets picked up next time
+        stale.set(false);
+        try {
+            masterMigrationStatsRepo.refresh();
+        } catch (RuntimeException e) {
+            // stale stats shouldn't fail whatever changed them
+            log.warn("Failed to refresh master migration stats", e);
+            stale.set(true);
+        }
+    }
+
+    public void markStale() {
+        stale.set(true);
+    }
+
+    @Scheduled(fixedDelayString = "${grading-admin.migrations.stats-refresh-interval-ms:30000}")
+    public void refreshIfStale() {
+        if (stale.get()) {
+            refresh();
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package edu.mines.packtrain.services;
+
+import edu.mines.packtrain.models.Course;
+import edu.mines.packtrain.models.CourseMember;
+import edu.mines.packtrain.models.LateRequest;
+import edu.mines.packtrain.models.enums.CourseRole;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import lombok.Getter;
+
+/**
+ * Everything a migration needs to look up per student, loaded once when the migration starts.
+ * <br></br>
+ * Zeroing out, scoring and manual edits all share the same context (see
+ * {@link MigrationService#getMigrationContext(UUID)}) instead of each going back to the database for
+ * every student. Revisions are kept up to date as entries are written, so the context has to be
+ * told about every entry written for the migration on this instance.
+ * <br></br>
+ * Other instances (and zeroing out, which writes revisions in SQL) don't update it, so every
+ * apply run starts from {@link MigrationService#rebuildMigrationContext(UUID)}.
+ */
+public class MigrationContext {
+    @Getter
+    private final UUID migrationId;
+    @Getter
+    private final Course course;
+    private final Map<String, String> canvasIds;
+    @Getter
+    private final Set<String> students;
+    private final Map<String, LateRequest> lateRequests;
+    private final Map<UUID, LateRequest> lateRequestsById;
+    private final Map<String, Integer> revisions;
+    private final Map<String, String> fingerprints;
+    // fingerprints of scores that have been published but haven't come back yet
+    private final Map<String, String> pendingFingerprints = new ConcurrentHashMap<>();
+
+    public MigrationContext(UUID migrationId, Course course, Collection<CourseMember> members,
+                            Map<String, LateRequest> lateRequests,
+                            Map<String, Integer> revisions, Map<String, String> fingerprints) {
+        this.migrationId = migrationId;
+        this.course = course;
+
+        Map<String, String> canvasIds = new HashMap<>();
+        members.forEach(m -> canvasIds.put(m.getUser().getCwid(), m.getCanvasId()));
+        this.canvasIds = Map.copyOf(canvasIds);
+        this.students = members.stream().filter(m -> m.getRole().equals(CourseRole.STUDENT))
+                .map(m -> m.getUser().getCwid()).collect(Collectors.toUnmodifiableSet());
+
+        this.lateRequests = Map.copyOf(lateRequests);
+        this.lateRequestsById = lateRequests.values().stream()
+                .collect(Collectors.toUnmodifiableMap(LateRequest::getId, l -> l));
+        this.revisions = new ConcurrentHashMap<>(revisions);
+        this.fingerprints = new ConcurrentHashMap<>(fingerprints);
+    }
+
+    public boolean isEnrolled(String cwid) {
+        return canvasIds.containsKey(cwid);
+    }
+
+    public Optional<String> getCanvasId(String cwid) {
+        return Optional.ofNullable(canvasIds.get(cwid));
+    }
+
+    public Optional<LateRequest> getLateRequest(String cwid) {
+        return Optional.ofNullable(lateRequests.get(cwid));
+    }
+
+    public Optional<LateRequest> getLateRequestById(UUID id) {
+        return Optional.ofNullable(lateRequestsById.get(id));
+    }
+
+    /**
+     * Claims the next revision for a student.
+     */
+    public int nextRevision(String cwid) {
+        return revisions.merge(cwid, 1, Integer::sum);
+    }
+
+    /**
+     * Replaces the revision for a student with the latest one from the database, for writes that
+     * may race with another instance.
+     */
+    public void syncRevision(String cwid, int revision) {
+        revisions.merge(cwid, revision, Math::max);
+    }
+
+    /**
+     * The fingerprint of the inputs a student's latest entry was scored from, if it was scored by
+     * the policy server.
+     */
+    public Optional<String> getFingerprint(String cwid) {
+        return Optional.ofNullable(fingerprints.get(cwid));
+    }
+
+    /**
+     * Records the fingerprint of a score that was just published, for when it comes back.
+     */
+    public void expectScore(String cwid, String fingerprint) {
+        pendingFingerprints.put(cwid, fingerprint);
+    }
+
+    /**
+     * Gets the fingerprint for a new entry for a student. A score that was published carries the
+     * fingerprint it was published with, anything else (ie: a manual edit) carries on with the
+     * fingerprint of the entry it replaces.
+     */
+    public Optional<String> takeFingerprint(String cwid) {
+        String pending = pendingFingerprints.remove(cwid);
+        if (pending != null) {
+            fingerprints.put(cwid, pending);
+        }
+        return getFingerprint(cwid);
+    }
+
+    public void clearFingerprint(String cwid) {
+        pendingFingerprints.remove(cwid);
+        fingerprints.remove(cwid);
+    }
+}
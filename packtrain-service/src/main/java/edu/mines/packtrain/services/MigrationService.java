@@ -2,8 +2,11 @@ package edu.mines.packtrain.services;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rabbitmq.client.Channel;
 import edu.ksu.canvas.model.Progress;
 import edu.mines.packtrain.data.AssignmentSlimDTO;
+import edu.mines.packtrain.data.CourseMemberDTO;
+import edu.mines.packtrain.data.MasterMigrationStatisticsDTO;
 import edu.mines.packtrain.data.MigrationScoreChangeDTO;
 import edu.mines.packtrain.data.MigrationWithScoresDTO;
 import edu.mines.packtrain.data.PolicyRawScoreDTO;
@@ -20,7 +23,6 @@ import edu.mines.packtrain.managers.IdentityProvider;
 import edu.mines.packtrain.managers.ImpersonationManager;
 import edu.mines.packtrain.models.Assignment;
 import edu.mines.packtrain.models.Course;
-import edu.mines.packtrain.models.CourseMember;
 import edu.mines.packtrain.models.LateRequest;
 import edu.mines.packtrain.models.MasterMigration;
 import edu.mines.packtrain.models.MasterMigrationStats;
@@ -39,7 +41,6 @@ import edu.mines.packtrain.models.tasks.ProcessScoresAndExtensionsTaskDef;
 import edu.mines.packtrain.models.tasks.ScheduledTaskDef;
 import edu.mines.packtrain.models.tasks.ZeroOutSubmissionsTaskDef;
 import edu.mines.packtrain.repositories.MasterMigrationRepo;
-import edu.mines.packtrain.repositories.MasterMigrationStatsRepo;
 import edu.mines.packtrain.repositories.MigrationRepo;
 import edu.mines.packtrain.repositories.MigrationTransactionLogRepo;
 import edu.mines.packtrain.repositories.RawScoreRepo;
@@ -47,30 +48,50 @@ import edu.mines.packtrain.repositories.ScheduledTaskRepo;
 import edu.mines.packtrain.services.external.CanvasService;
 import edu.mines.packtrain.services.external.PolicyServerService;
 import edu.mines.packtrain.services.external.RabbitMqService;
+import edu.mines.packtrain.services.tasks.TaskBatch;
+import edu.mines.packtrain.services.tasks.TaskContext;
+import edu.mines.packtrain.services.tasks.TaskHandlerProvider;
+import edu.mines.packtrain.services.tasks.TaskHandlerRegistry;
+import edu.mines.packtrain.services.tasks.TaskProgress;
+import edu.mines.packtrain.services.tasks.TaskSubmissionService;
+import edu.mines.packtrain.services.tasks.TransientTaskException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
 import java.io.IOException;
 import java.net.URI;
+import java.time.Duration;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
 import lombok.extern.slf4j.Slf4j;
 import org.jetbrains.annotations.NotNull;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
 import org.springframework.http.HttpStatus;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.server.ResponseStatusException;
 
 @Service
 @Slf4j
-public class MigrationService {
+public class MigrationService implements TaskHandlerProvider {
     private final MigrationRepo migrationRepo;
     private final MasterMigrationRepo masterMigrationRepo;
     private final MigrationTransactionLogRepo transactionLogRepo;
@@ -84,13 +105,21 @@ public class MigrationService {
     private final RabbitMqService rabbitMqService;
     private final PolicyServerService policyServerService;
     private final RawScoreRepo rawScoreRepo;
-    private final MasterMigrationStatsRepo masterMigrationStatsRepo;
+    private final MasterMigrationStatsService masterMigrationStatsService;
     private final PolicyService policyService;
     private final CourseMemberService courseMemberService;
     private final ImpersonationManager impersonationManager;
     private final CanvasService canvasService;
     private final SimpMessagingTemplate messagingTemplate;
     private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+    private final TaskSubmissionService taskSubmissionService;
+    private final Map<UUID, MigrationContext> migrationContexts = new ConcurrentHashMap<>();
+    // how long the policy server has to return every score for a migration
+    private final Duration scoringTimeout;
+    // number of students posted to Canvas per request, and how far back a retry has to go
+    private static final int CANVAS_POST_CHUNK_SIZE = 250;
+    private static final int MAX_REVIEW_PAGE_SIZE = 500;
     private final String MIGRATION_APPLY_ENDPOINT = "/migrations/apply";
     private final String MIGRATION_POST_ENDPOINT = "/migrations/post";
 
@@ -106,13 +135,16 @@ public class MigrationService {
                             RabbitMqService rabbitMqService,
                             PolicyServerService policyServerService,
                             RawScoreRepo rawScoreRepo,
-                            MasterMigrationStatsRepo masterMigrationStatsRepo,
+                            MasterMigrationStatsService masterMigrationStatsService,
                             PolicyService policyService,
                             CourseMemberService courseMemberService,
                             ImpersonationManager impersonationManager,
                             CanvasService canvasService,
                             SimpMessagingTemplate messagingTemplate,
-                            ObjectMapper objectMapper) {
+                            ObjectMapper objectMapper, MeterRegistry meterRegistry,
+                            TaskSubmissionService taskSubmissionService,
+                            @Value("${grading-admin.migrations.scoring-timeout:30m}")
+                            Duration scoringTimeout) {
         this.migrationRepo = migrationRepo;
         this.masterMigrationRepo = masterMigrationRepo;
         this.transactionLogRepo = transactionLogRepo;
@@ -126,13 +158,24 @@ public class MigrationService {
         this.rabbitMqService = rabbitMqService;
         this.policyServerService = policyServerService;
         this.rawScoreRepo = rawScoreRepo;
-        this.masterMigrationStatsRepo = masterMigrationStatsRepo;
+        this.masterMigrationStatsService = masterMigrationStatsService;
         this.policyService = policyService;
         this.courseMemberService = courseMemberService;
         this.impersonationManager = impersonationManager;
         this.canvasService = canvasService;
         this.messagingTemplate = messagingTemplate;
         this.objectMapper = objectMapper;
+        this.meterRegistry = meterRegistry;
+        this.taskSubmissionService = taskSubmissionService;
+        this.scoringTimeout = scoringTimeout;
+    }
+
+    @Override
+    public void registerTaskHandlers(TaskHandlerRegistry registry) {
+        registry.register(ZeroOutSubmissionsTaskDef.class, this::createZeroOutTaskData);
+        registry.register(ProcessScoresAndExtensionsTaskDef.class,
+                this::createProcessScoresTaskData);
+        registry.register(PostToCanvasTaskDef.class, this::createPostToCanvasTaskData);
     }
 
     public MasterMigration createMigrationForAssignments(Course course, User createdByUser,
@@ -185,6 +228,7 @@ public class MigrationService {
         }
 
         masterMigrationRepo.delete(masterMigration.get());
+        evictMigrationContexts(masterMigration.get());
 
         return true;
     }
@@ -234,6 +278,27 @@ public class MigrationService {
         return assignmentService.getAssignmentForMigration(migration);
     }
 
+    public MasterMigration setStreamingForMasterMigration(UUID masterMigrationId, boolean enabled,
+                                                          Double holdThreshold) {
+        MasterMigration masterMigration = getMasterMigration(masterMigrationId);
+
+        if (masterMigration.getStatus() != MigrationStatus.CREATED
+                && masterMigration.getStatus() != MigrationStatus.LOADED) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, String.format("Streaming " +
+                    "can't be changed once a migration has been applied! Status: %s",
+                    masterMigration.getStatus()));
+        }
+
+        if (holdThreshold != null && holdThreshold < 0) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Hold threshold must not " +
+                    "be negative");
+        }
+
+        masterMigration.setStreamToCanvas(enabled);
+        masterMigration.setStreamHoldThreshold(holdThreshold);
+        return masterMigrationRepo.save(masterMigration);
+    }
+
     public Migration setPolicyForMigration(UUID migrationId, UUID policyId) {
         Migration updatedMigration = migrationRepo.getMigrationById(migrationId);
 
@@ -252,33 +317,152 @@ public class MigrationService {
     }
 
     public void handleScoreReceived(User asUser, UUID migrationId, ScoredDTO dto) {
-        MigrationTransactionLog entry = new MigrationTransactionLog();
-        List<MigrationTransactionLog> existing = transactionLogRepo
-                .getByCwidAndMigrationId(dto.getCwid(), migrationId);
-
-        if (!existing.isEmpty()) {
-            log.info("Overwriting exising score for {} under rev {}",
-                    dto.getCwid(), existing.getLast().getRevision() + 1);
-            entry.setRevision(existing.getLast().getRevision() + 1);
-        }
-
-        entry.setPerformedByUser(asUser);
-        entry.setCwid(dto.getCwid());
-        entry.setCanvasId(courseMemberService.getCanvasIdGivenCourseAndCwid(dto.getCwid(),
-                getCourseForMigration(migrationId)));
-        entry.setMigrationId(migrationId);
-        entry.setExtensionId(dto.getExtensionId());
-        if (entry.getExtensionId() != null) {
-            entry.setExtensionApplied(dto.getExtensionStatus().equals(LateRequestStatus.APPLIED));
-        } else {
-            entry.setExtensionApplied(false);
+        MigrationContext context = getMigrationContext(migrationId);
+
+        // one off edits can land on a different instance to the one that scored the migration, so
+        // the cached revision can't be trusted here
+        transactionLogRepo.getLatestRevision(migrationId, dto.getCwid())
+                .ifPresent(r -> context.syncRevision(dto.getCwid(), r));
+
+        handleScoresReceived(asUser, context, List.of(dto));
+    }
+
+    public void handleScoresReceived(User asUser, UUID migrationId, List<ScoredDTO> dtos) {
+        handleScoresReceived(asUser, getMigrationContext(migrationId), dtos);
+    }
+
+    /**
+     * Records a batch of scores for a migration.
+     * <br></br>
+     * Revisions, canvas ids and late requests come from the migration context, so a batch only
+     * goes back to the database for students or extensions that weren't around when the context
+     * was built. The entries are inserted with JDBC batching.
+     */
+    private List<MigrationTransactionLog> handleScoresReceived(User asUser,
+                                                               MigrationContext context,
+                                                               List<ScoredDTO> dtos) {
+        if (dtos.isEmpty()) {
+            return List.of();
+        }
+
+        Set<String> unknownCwids = dtos.stream().map(ScoredDTO::getCwid)
+                .filter(cwid -> !context.isEnrolled(cwid)).collect(Collectors.toSet());
+        Map<String, String> canvasIds = unknownCwids.isEmpty() ? Map.of()
+                : courseMemberService.getCanvasIdsGivenCourseAndCwids(unknownCwids,
+                context.getCourse());
+
+        Map<UUID, LateRequest> lateRequests = extensionService.getLateRequests(dtos.stream()
+                .map(ScoredDTO::getExtensionId).filter(Objects::nonNull)
+                .filter(id -> context.getLateRequestById(id).isEmpty())
+                .collect(Collectors.toSet()));
+
+        List<MigrationTransactionLog> entries = new ArrayList<>(dtos.size());
+        for (ScoredDTO dto : dtos) {
+            MigrationTransactionLog entry = new MigrationTransactionLog();
+
+            int revision = context.nextRevision(dto.getCwid());
+            if (revision > 1) {
+                log.info("Overwriting exising score for {} under rev {}", dto.getCwid(), revision);
+            }
+            entry.setRevision(revision);
+
+            entry.setPerformedByUser(asUser);
+            entry.setCwid(dto.getCwid());
+            entry.setCanvasId(context.getCanvasId(dto.getCwid())
+                    .orElseGet(() -> canvasIds.get(dto.getCwid())));
+            entry.setMigrationId(context.getMigrationId());
+            entry.setExtensionId(dto.getExtensionId());
+            if (entry.getExtensionId() != null) {
+                entry.setExtensionApplied(dto.getExtensionStatus()
+                        .equals(LateRequestStatus.APPLIED));
+            } else {
+                entry.setExtensionApplied(false);
+            }
+            entry.setSubmissionStatus(dto.getSubmissionStatus());
+            entry.setScore(dto.getFinalScore());
+            entry.setSubmissionTime(dto.getAdjustedSubmissionTime());
+            entry.setInputFingerprint(context.takeFingerprint(dto.getCwid()).orElse(null));
+
+            Optional<LateRequest> lateRequest = Optional.ofNullable(entry.getExtensionId())
+                    .flatMap(id -> context.getLateRequestById(id)
+                            .or(() -> Optional.ofNullable(lateRequests.get(id))));
+            String msg = createScoreMessage(entry, dto, lateRequest);
+
+            if (!msg.isEmpty()) {
+                entry.setMessage(msg);
+            }
+
+            entries.add(entry);
         }
-        entry.setSubmissionStatus(dto.getSubmissionStatus());
-        entry.setScore(dto.getFinalScore());
-        entry.setSubmissionTime(dto.getAdjustedSubmissionTime());
 
+        transactionLogRepo.saveAll(entries);
+        return entries;
+    }
+
+    /**
+     * Gets the context for a migration, building it if this instance doesn't have one yet.
+     * <br></br>
+     * A cached context only knows about entries written on this instance, so anything that writes
+     * more than a one-off edit should start from {@link #rebuildMigrationContext(UUID)} instead.
+     */
+    public MigrationContext getMigrationContext(UUID migrationId) {
+        return migrationContexts.computeIfAbsent(migrationId, this::buildMigrationContext);
+    }
+
+    /**
+     * Replaces this instance's context for a migration with one freshly loaded from the database,
+     * so revisions, late requests, the roster and fingerprints written elsewhere are picked up.
+     */
+    public MigrationContext rebuildMigrationContext(UUID migrationId) {
+        MigrationContext context = buildMigrationContext(migrationId);
+        migrationContexts.put(migrationId, context);
+        return context;
+    }
+
+    private MigrationContext buildMigrationContext(UUID migrationId) {
+        Course course = getCourseForMigration(migrationId);
+        Assignment assignment = getAssignmentForMigration(migrationId);
+
+        Map<String, Integer> revisions = new HashMap<>();
+        Map<String, String> fingerprints = new HashMap<>();
+        for (MigrationTransactionLogRepo.LatestRevision latest : transactionLogRepo
+                .getLatestRevisions(migrationId)) {
+            revisions.put(latest.getCwid(), latest.getRevision());
+            if (latest.getInputFingerprint() != null) {
+                fingerprints.put(latest.getCwid(), latest.getInputFingerprint());
+            }
+        }
+
+        return new MigrationContext(migrationId, course,
+                courseMemberService.getAllMembersInCourse(course),
+                extensionService.getLateRequestsForAssignment(assignment.getId()), revisions,
+                fingerprints);
+    }
+
+    private void evictMigrationContexts(MasterMigration masterMigration) {
+        if (masterMigration.getMigrations() == null) {
+            return;
+        }
+        masterMigration.getMigrations().forEach(m -> migrationContexts.remove(m.getId()));
+    }
+
+    /**
+     * Drops the contexts for migrations that finished (or were deleted) on another instance.
+     */
+    @Scheduled(fixedDelayString = "${grading-admin.migrations.context-sweep-interval-ms:300000}")
+    public void evictFinishedMigrationContexts() {
+        for (UUID migrationId : List.copyOf(migrationContexts.keySet())) {
+            Migration migration = migrationRepo.getMigrationById(migrationId);
+            if (migration == null || migration.getMasterMigration() == null
+                    || migration.getMasterMigration().getStatus() == MigrationStatus.COMPLETED) {
+                migrationContexts.remove(migrationId);
+            }
+        }
+    }
+
+    private static String createScoreMessage(MigrationTransactionLog entry, ScoredDTO dto,
+                                             Optional<LateRequest> lateRequest) {
         StringBuilder msg = new StringBuilder();
-        Optional<LateRequest> lateRequest = extensionService.getLateRequest(entry.getExtensionId());
 
         if (entry.isExtensionApplied() && lateRequest.isPresent()) {
             msg.append(String.format("Applied extension '%s' submitted on '%s' for %s days\n\n",
@@ -304,31 +488,119 @@ public class MigrationService {
                     dto.getSubmissionMessage()));
         }
 
-        if (!msg.isEmpty()) {
-            entry.setMessage(msg.toString());
-        }
-
-        transactionLogRepo.save(entry);
+        return msg.toString();
     }
 
+    /**
+     * Publishes a migration's raw scores to the policy server and waits for every score to come
+     * back, so the apply phase only finishes once the migration is ready to review.
+     * <br></br>
+     * Once the last migration in a master migration has all of its scores, the master migration
+     * moves on to review by itself.
+     */
     public void processScoresAndExtensionsTask(ProcessScoresAndExtensionsTaskDef task) {
         Assignment assignment = assignmentService.getAssignmentById(task.getAssignmentId());
-
+        migrationRepo.setScoresReceivedTime(task.getMigrationId(), null);
+
+        Tags tags = Tags.of("course", assignment.getCourse().getId().toString());
+        Counter scoresPublished = meterRegistry.counter("packtrain.migrations.scores.published",
+                tags);
+        Counter scoresReceived = meterRegistry.counter("packtrain.migrations.scores.received",
+                tags);
+        // not tagged with the course, its percentile histogram would be repeated for every course
+        Timer scoreHandleTimer = meterRegistry.timer("packtrain.migrations.scores.handle");
+
+        // the zero out (or a previous run) may have happened on another instance, so whatever this
+        // instance has cached can't be trusted to continue the revisions from
+        MigrationContext context = rebuildMigrationContext(task.getMigrationId());
+
+        ScoreCompletionBarrier barrier = new ScoreCompletionBarrier();
+        MasterMigration masterMigration = getMigration(task.getMigrationId()).getMasterMigration();
+        Optional<CanvasScoreStream> stream = masterMigration.isStreamingToCanvas()
+                ? Optional.of(createCanvasScoreStream(task, assignment, masterMigration))
+                : Optional.empty();
         MigrationFactory.ProcessScoresAndExtensionsConfig config;
 
         try {
             config = MigrationFactory.startProcessScoresAndExtensions(task.getMigrationId(),
                             rabbitMqService::createRawGradePublishChannel,
-                            rabbitMqService::createScoreReceivedChannel)
+                            (routingKey, onScoresReceived) -> rabbitMqService
+                                    .createScoreReceivedChannel(routingKey, onScoresReceived,
+                                            barrier::rejected))
                     .forAssignment(assignment)
                     .withPolicy(task.getPolicy())
-                    .withOnScoreReceived(dto -> this.handleScoreReceived(
-                            task.getCreatedByUser(), task.getMigrationId(), dto))
+                    .withOnScoresReceived(dtos -> {
+                        List<MigrationTransactionLog> entries = scoreHandleTimer.record(() ->
+                                this.handleScoresReceived(task.getCreatedByUser(), context, dtos));
+                        scoresReceived.increment(dtos.size());
+                        afterScoresWritten(dtos, entries, stream, barrier);
+                    })
                     .build();
         } catch (IOException | TimeoutException e) {
             throw new RuntimeException(e);
         }
 
+        try {
+            long expected = publishScores(task, context, config, scoresPublished);
+            barrier.expect(expected);
+            awaitScores(task, barrier, expected);
+            stream.ifPresent(CanvasScoreStream::flush);
+        } finally {
+            closeChannel(config.getRawGradePublishChannel());
+            closeChannel(config.getScoreReceivedChannel());
+            stream.ifPresent(CanvasScoreStream::close);
+        }
+
+        migrationRepo.setScoresReceivedTime(task.getMigrationId(), Instant.now());
+        UUID masterMigrationId = masterMigration.getId();
+        if (masterMigrationRepo.advanceOnceScored(masterMigrationId, MigrationStatus.STARTED,
+                MigrationStatus.AWAITING_REVIEW) == 1) {
+            log.info("All scores received for master migration '{}', ready for review",
+                    masterMigrationId);
+            masterMigrationStatsService.refresh();
+            sendApplyNotification(MigrationApplyNotificationDTO.builder().reviewReady(true)
+                    .build());
+        }
+    }
+
+    /**
+     * Runs whatever follows a batch of scores being written.
+     * <br></br>
+     * Nothing here may throw back into the score consumer. It would take that as the write
+     * failing, and retry the batch one score at a time, writing every score in it again.
+     */
+    private void afterScoresWritten(List<ScoredDTO> dtos, List<MigrationTransactionLog> entries,
+                                    Optional<CanvasScoreStream> stream,
+                                    ScoreCompletionBarrier barrier) {
+        try {
+            stream.ifPresent(s -> s.offer(dtos, entries));
+        } catch (RuntimeException e) {
+            // the entries are still unposted, so the post phase sends them instead
+            log.warn("Failed to stream {} scores to Canvas, leaving them for the post phase",
+                    dtos.size(), e);
+        } finally {
+            barrier.received(dtos.size());
+        }
+    }
+
+    private CanvasScoreStream createCanvasScoreStream(ProcessScoresAndExtensionsTaskDef task,
+                                                      Assignment assignment,
+                                                      MasterMigration masterMigration) {
+        IdentityProvider provider = impersonationManager.impersonateUser(
+                task.getCreatedByUser());
+
+        return new CanvasScoreStream(canvasService, canvasService.asUser(provider),
+                transactionLogRepo, String.valueOf(assignment.getCourse().getCanvasId()),
+                assignment.getCanvasId(), masterMigration.getStreamHoldThreshold(),
+                CANVAS_POST_CHUNK_SIZE);
+    }
+
+    /**
+     * @return the number of scores published
+     */
+    private long publishScores(ProcessScoresAndExtensionsTaskDef task, MigrationContext context,
+                               MigrationFactory.ProcessScoresAndExtensionsConfig config,
+                               Counter scoresPublished) {
         boolean status = policyServerService.startGrading(config.getGradingStartDTO());
 
         if (!status) {
@@ -337,43 +609,176 @@ public class MigrationService {
 
         List<RawScore> scores = rawScoreRepo.getByMigrationId(task.getMigrationId());
 
-        Map<String, LateRequest> lateRequests = extensionService
-                .getLateRequestsForAssignment(task.getAssignmentId());
+        Optional<String> inputsHash = createScoringInputsHash(task.getMigrationId(), config);
+
+        TaskProgress progress = TaskContext.progress();
+        progress.startPhase("Publishing scores", (long) scores.size());
 
+        long published = 0;
+        long unchanged = 0;
+        Set<String> withScores = new HashSet<>();
         for (RawScore score : scores) {
-            Optional<LateRequest> extension = Optional.ofNullable(lateRequests
-                    .getOrDefault(score.getCwid(), null));
-            PolicyRawScoreDTO dto = createRawGradeDTO(score, extension);
+            progress.checkCancelled();
+            withScores.add(score.getCwid());
+            PolicyRawScoreDTO dto = createRawGradeDTO(score,
+                    context.getLateRequest(score.getCwid()));
+
+            if (!context.isEnrolled(score.getCwid())) {
+                log.warn("User '{}' is not enrolled in course '{}'", score, context.getCourse());
+                progress.increment();
+                continue;
+            }
 
-            if (!courseMemberService.isUserEnrolledInCourse(score.getCwid(),
-                    assignment.getCourse())) {
-                log.warn("User '{}' is not enrolled in course '{}'", score, assignment.getCourse());
+            Optional<String> fingerprint = inputsHash.map(h -> createInputFingerprint(h, dto));
+            if (fingerprint.isPresent()
+                    && fingerprint.equals(context.getFingerprint(score.getCwid()))) {
+                // scored from exactly the same inputs last time, so the latest entry still stands
+                unchanged++;
+                progress.increment();
                 continue;
             }
 
+            fingerprint.ifPresentOrElse(f -> context.expectScore(score.getCwid(), f),
+                    () -> context.clearFingerprint(score.getCwid()));
             rabbitMqService.sendScore(config.getRawGradePublishChannel(),
                     config.getGradingStartDTO().getRawGradeRoutingKey(), dto);
+            scoresPublished.increment();
+            published++;
+            progress.increment();
         }
+
+        zeroOutRemovedScores(task, context, withScores);
+
+        log.info("Published {} scores for migration '{}', {} were unchanged", published,
+                task.getMigrationId(), unchanged);
+
+        return published;
     }
 
-    public void zeroOutSubmissions(ZeroOutSubmissionsTaskDef task) {
-        Course course = getCourseForMigration(task.getMigrationId());
+    /**
+     * Hashes everything that goes into scoring that isn't specific to a student, ie: the policy and
+     * the assignment.
+     */
+    private Optional<String> createScoringInputsHash(UUID migrationId,
+            MigrationFactory.ProcessScoresAndExtensionsConfig config) {
+        Migration migration = getMigration(migrationId);
+        Optional<String> policyHash = policyService.getContentHash(migration.getPolicy());
+
+        if (policyHash.isEmpty()) {
+            log.warn("Policy for migration '{}' couldn't be hashed, every student will be scored",
+                    migrationId);
+            return Optional.empty();
+        }
+
+        try {
+            return Optional.of(PolicyService.hashContent(policyHash.get() + objectMapper
+                    .writeValueAsString(config.getGradingStartDTO().getGlobalMetadata())));
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private String createInputFingerprint(String inputsHash, PolicyRawScoreDTO dto) {
+        try {
+            return PolicyService.hashContent(inputsHash + objectMapper.writeValueAsString(dto));
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException(e);
+        }
+    }
 
-        List<CourseMember> members = courseMemberService.getAllStudentsInCourse(course);
+    /**
+     * Zeroes out students who were scored last time but no longer have a raw score. Students who
+     * were never scored were already zeroed out before scoring started.
+     */
+    private void zeroOutRemovedScores(ProcessScoresAndExtensionsTaskDef task,
+                                      MigrationContext context, Set<String> withScores) {
+        List<ScoredDTO> zeroes = new ArrayList<>();
+        for (String cwid : context.getStudents()) {
+            if (withScores.contains(cwid) || context.getFingerprint(cwid).isEmpty()) {
+                continue;
+            }
 
-        for (CourseMember member : members) {
+            context.clearFingerprint(cwid);
             ScoredDTO scoredDTO = new ScoredDTO();
-            scoredDTO.setCwid(member.getUser().getCwid());
+            scoredDTO.setCwid(cwid);
             scoredDTO.setRawScore(0);
             scoredDTO.setFinalScore(0);
             scoredDTO.setAdjustedSubmissionTime(Instant.now());
             scoredDTO.setHoursLate(0);
             scoredDTO.setSubmissionStatus(SubmissionStatus.MISSING);
             scoredDTO.setExtensionStatus(LateRequestStatus.NO_EXTENSION);
+            zeroes.add(scoredDTO);
+        }
+
+        handleScoresReceived(task.getCreatedByUser(), context, zeroes);
+    }
+
+    private void awaitScores(ProcessScoresAndExtensionsTaskDef task,
+                             ScoreCompletionBarrier barrier, long expected) {
+        TaskProgress progress = TaskContext.progress();
+        progress.startPhase("Waiting for scores", expected);
+
+        AtomicLong reported = new AtomicLong();
+        boolean complete;
+        try {
+            complete = barrier.await(scoringTimeout, Duration.ofSeconds(1), received -> {
+                progress.increment(received - reported.getAndSet(received));
+                progress.checkCancelled();
+            });
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            progress.checkCancelled();
+            throw new RuntimeException(e);
+        }
+
+        if (!complete) {
+            throw new RuntimeException(String.format("Only received %d of %d scores for " +
+                    "migration '%s' within %s", barrier.getReceived(), expected,
+                    task.getMigrationId(), scoringTimeout));
+        }
+
+        if (barrier.getRejected() > 0) {
+            throw new RuntimeException(String.format("%d of %d scores for migration '%s' " +
+                    "couldn't be handled", barrier.getRejected(), expected,
+                    task.getMigrationId()));
+        }
+    }
+
+    private void sendApplyNotification(MigrationApplyNotificationDTO notificationDTO) {
+        try {
+            messagingTemplate.convertAndSend(MIGRATION_APPLY_ENDPOINT,
+                    objectMapper.writeValueAsString(notificationDTO));
+        } catch (JsonProcessingException _) {
+            throw new RuntimeException("Could not process JSON for sending notification DTO!");
+        }
+    }
 
-            handleScoreReceived(task.getCreatedByUser(), task.getMigrationId(), scoredDTO);
+    private static void closeChannel(Channel channel) {
+        if (channel == null || !channel.isOpen()) {
+            return;
         }
 
+        try {
+            channel.close();
+        } catch (IOException | TimeoutException e) {
+            log.warn("Failed to close channel {}", channel.getChannelNumber(), e);
+        }
+    }
+
+    public void zeroOutSubmissions(ZeroOutSubmissionsTaskDef task) {
+        Course course = getCourseForMigration(task.getMigrationId());
+
+        TaskProgress progress = TaskContext.progress();
+        progress.startPhase("Zeroing out submissions", null);
+        progress.checkCancelled();
+
+        int zeroed = transactionLogRepo.zeroOutStudents(task.getMigrationId(),
+                task.getCreatedByUser().getCwid(), course.getId());
+        progress.increment(zeroed);
+
+        // the revisions were just written in SQL, so the cached context is out of date. applying
+        // rebuilds it anyway, this just stops a one-off edit in between from using it
+        migrationContexts.remove(task.getMigrationId());
     }
 
     private static @NotNull PolicyRawScoreDTO createRawGradeDTO(RawScore score,
@@ -398,6 +803,7 @@ public class MigrationService {
         return dto;
     }
 
+    @Transactional
     public List<ScheduledTaskDef> startProcessScoresAndExtensions(User actingUser,
                                                                   UUID masterMigrationId) {
         if (!validateApplyMasterMigration(masterMigrationId)) {
@@ -411,7 +817,10 @@ public class MigrationService {
             return List.of();
         }
 
-        if (master.get().getStatus() != MigrationStatus.LOADED) {
+        // applying again from review (ie: after changing a policy) only rescores the students
+        // whose inputs changed
+        if (master.get().getStatus() != MigrationStatus.LOADED
+                && master.get().getStatus() != MigrationStatus.AWAITING_REVIEW) {
             log.warn("Migration is in invalid state to start a migration. {} != {}",
                     master.get().getStatus().name(), MigrationStatus.LOADED.name());
             return List.of();
@@ -422,7 +831,11 @@ public class MigrationService {
 
         log.info("Starting migration for {} assignments", migrations.size());
 
-        List<ScheduledTaskDef> tasks = new LinkedList<>();
+        Course course = getCourseForMasterMigration(masterMigrationId);
+        // applying a single assignment is something an instructor is sat waiting on
+        int priority = migrations.size() == 1 ? NewTaskEvent.TaskData.PRIORITY_INTERACTIVE
+                : NewTaskEvent.TaskData.PRIORITY_NORMAL;
+        TaskBatch batch = new TaskBatch(course.getId(), priority);
 
         for (Migration migration : migrations) {
             Assignment assignment = migration.getAssignment();
@@ -432,33 +845,7 @@ public class MigrationService {
             zeroOutSubmissionsTask.setTaskName(String.format("Initializing all scores to zero" +
                     " / missing for assignment '%s'", assignment.getName()));
             zeroOutSubmissionsTask.setMigrationId(migration.getId());
-            zeroOutSubmissionsTask = zeroOutSubmissionsTaskRepo.save(zeroOutSubmissionsTask);
-
-            tasks.add(zeroOutSubmissionsTask);
-
-            MigrationApplyNotificationDTO zeroNotificationDTO =
-                    MigrationApplyNotificationDTO.builder().zeroSubmissionsComplete(true).build();
-            NewTaskEvent.TaskData<ZeroOutSubmissionsTaskDef> zeroTaskDef =
-                    new NewTaskEvent.TaskData<>(zeroOutSubmissionsTaskRepo,
-                            zeroOutSubmissionsTask.getId(), this::zeroOutSubmissions);
-            zeroTaskDef.setOnJobComplete(Optional.of(_ -> {
-                try {
-                    messagingTemplate.convertAndSend(MIGRATION_APPLY_ENDPOINT,
-                            objectMapper.writeValueAsString(zeroNotificationDTO));
-                } catch (JsonProcessingException _) {
-                    throw new RuntimeException("Could not process JSON for sending notification DTO!");
-                }
-            }));
-            zeroTaskDef.setOnJobFail(Optional.of(_ -> {
-                try {
-                    MigrationApplyNotificationDTO errorDTO = MigrationApplyNotificationDTO.builder()
-                            .error("Could not zero submissions!").build();
-                    messagingTemplate.convertAndSend(MIGRATION_APPLY_ENDPOINT,
-                            objectMapper.writeValueAsString(errorDTO));
-                } catch (JsonProcessingException _) {
-                    throw new RuntimeException("Could not process JSON for sending notification DTO!");
-                }
-            }));
+            batch.add(zeroOutSubmissionsTask, this::createZeroOutTaskData);
 
             ProcessScoresAndExtensionsTaskDef task = new ProcessScoresAndExtensionsTaskDef();
             task.setCreatedByUser(actingUser);
@@ -467,39 +854,11 @@ public class MigrationService {
             task.setMigrationId(migration.getId());
             task.setAssignmentId(assignment.getId());
             task.setPolicy(URI.create(migration.getPolicy().getPolicyURI()));
-            task = processScoresTaskRepo.save(task);
-
-            tasks.add(task);
-
-            MigrationApplyNotificationDTO extensionsNotificationDTO =
-                    MigrationApplyNotificationDTO.builder().processExtensionsComplete(true).build();
-            NewTaskEvent.TaskData<ProcessScoresAndExtensionsTaskDef> taskDefinition =
-                    new NewTaskEvent.TaskData<>(processScoresTaskRepo, task.getId(),
-                            this::processScoresAndExtensionsTask);
-            taskDefinition.setDependsOn(Set.of(zeroOutSubmissionsTask.getId()));
-            taskDefinition.setOnJobComplete(Optional.of(_ -> {
-                try {
-                    messagingTemplate.convertAndSend("/migrations/apply",
-                            objectMapper.writeValueAsString(extensionsNotificationDTO));
-                } catch (JsonProcessingException _) {
-                    throw new RuntimeException("Could not process JSON for sending notification DTO!");
-                }
-            }));
-            taskDefinition.setOnJobFail(Optional.of(_ -> {
-                try {
-                    MigrationApplyNotificationDTO errorDTO = MigrationApplyNotificationDTO.builder()
-                            .error("Could not process scores and extensions!").build();
-                    messagingTemplate.convertAndSend("/migrations/apply",
-                            objectMapper.writeValueAsString(errorDTO));
-                } catch (JsonProcessingException _) {
-                    throw new RuntimeException("Could not process JSON for sending notification DTO!");
-                }
-            }));
-
-            eventPublisher.publishEvent(new NewTaskEvent(this, zeroTaskDef));
-            eventPublisher.publishEvent(new NewTaskEvent(this, taskDefinition));
+            batch.add(task, this::createProcessScoresTaskData, zeroOutSubmissionsTask);
         }
 
+        List<ScheduledTaskDef> tasks = taskSubmissionService.submit(this, batch);
+
         master.get().setStatus(MigrationStatus.STARTED);
 
         masterMigrationRepo.save(master.get());
@@ -507,8 +866,65 @@ public class MigrationService {
         return tasks;
     }
 
+    private NewTaskEvent.TaskData<ZeroOutSubmissionsTaskDef> createZeroOutTaskData(long taskId) {
+        MigrationApplyNotificationDTO zeroNotificationDTO =
+                MigrationApplyNotificationDTO.builder().zeroSubmissionsComplete(true).build();
+        NewTaskEvent.TaskData<ZeroOutSubmissionsTaskDef> zeroTaskDef =
+                new NewTaskEvent.TaskData<>(zeroOutSubmissionsTaskRepo, taskId,
+                        this::zeroOutSubmissions);
+        zeroTaskDef.setOnJobComplete(Optional.of(_ -> {
+            try {
+                messagingTemplate.convertAndSend(MIGRATION_APPLY_ENDPOINT,
+                        objectMapper.writeValueAsString(zeroNotificationDTO));
+            } catch (JsonProcessingException _) {
+                throw new RuntimeException("Could not process JSON for sending notification DTO!");
+            }
+        }));
+        zeroTaskDef.setOnJobFail(Optional.of(_ -> {
+            try {
+                MigrationApplyNotificationDTO errorDTO = MigrationApplyNotificationDTO.builder()
+                        .error("Could not zero submissions!").build();
+                messagingTemplate.convertAndSend(MIGRATION_APPLY_ENDPOINT,
+                        objectMapper.writeValueAsString(errorDTO));
+            } catch (JsonProcessingException _) {
+                throw new RuntimeException("Could not process JSON for sending notification DTO!");
+            }
+        }));
+
+        return zeroTaskDef;
+    }
+
+    private NewTaskEvent.TaskData<ProcessScoresAndExtensionsTaskDef> createProcessScoresTaskData(
+            long taskId) {
+        MigrationApplyNotificationDTO extensionsNotificationDTO =
+                MigrationApplyNotificationDTO.builder().processExtensionsComplete(true).build();
+        NewTaskEvent.TaskData<ProcessScoresAndExtensionsTaskDef> taskDefinition =
+                new NewTaskEvent.TaskData<>(processScoresTaskRepo, taskId,
+                        this::processScoresAndExtensionsTask);
+        taskDefinition.setOnJobComplete(Optional.of(_ -> {
+            try {
+                messagingTemplate.convertAndSend("/migrations/apply",
+                        objectMapper.writeValueAsString(extensionsNotificationDTO));
+            } catch (JsonProcessingException _) {
+                throw new RuntimeException("Could not process JSON for sending notification DTO!");
+            }
+        }));
+        taskDefinition.setOnJobFail(Optional.of(_ -> {
+            try {
+                MigrationApplyNotificationDTO errorDTO = MigrationApplyNotificationDTO.builder()
+                        .error("Could not process scores and extensions!").build();
+                messagingTemplate.convertAndSend("/migrations/apply",
+                        objectMapper.writeValueAsString(errorDTO));
+            } catch (JsonProcessingException _) {
+                throw new RuntimeException("Could not process JSON for sending notification DTO!");
+            }
+        }));
+
+        return taskDefinition;
+    }
+
     public Optional<MasterMigrationStats> getStatsForMasterMigration(UUID masterMigrationId) {
-        return masterMigrationStatsRepo.findById(masterMigrationId);
+        return masterMigrationStatsService.getStats(masterMigrationId);
     }
 
     public boolean attemptToStartRawScoreImport(UUID migrationId, String message,
@@ -539,10 +955,28 @@ public class MigrationService {
         migration.setRawScoreMessage(message);
 
         migrationRepo.save(migration);
+        masterMigrationStatsService.refresh();
 
         return true;
     }
 
+    /**
+     * Puts a migration whose raw score import failed back to empty, so the scores can be uploaded
+     * again.
+     */
+    public void failRawScoreImport(UUID migrationId, String message) {
+        Migration migration = getMigration(migrationId);
+
+        if (migration.getRawScoreStatus() != RawScoreStatus.IMPORTING) {
+            return;
+        }
+
+        migration.setRawScoreStatus(RawScoreStatus.EMPTY);
+        migration.setRawScoreMessage(message);
+
+        migrationRepo.save(migration);
+    }
+
     public boolean validateLoadMasterMigration(UUID masterMigrationId) {
         MasterMigration masterMigration = getMasterMigration(masterMigrationId);
 
@@ -618,50 +1052,51 @@ public class MigrationService {
         return true;
     }
 
-    public List<MigrationWithScoresDTO> getMasterMigrationToReview(UUID masterMigrationId) {
+    /**
+     * Gets the latest scores for a page of students across every migration in a master migration.
+     * <br></br>
+     * Students are paged by cwid, pass the last cwid of the previous page as {@code after}. Without
+     * a {@code limit} every student is returned.
+     */
+    public List<MigrationWithScoresDTO> getMasterMigrationToReview(UUID masterMigrationId,
+                                                                   String after, Integer limit) {
+        if (limit != null && (limit < 1 || limit > MAX_REVIEW_PAGE_SIZE)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, String.format("Limit must " +
+                    "be between 1 and %d", MAX_REVIEW_PAGE_SIZE));
+        }
+
         MasterMigration masterMigration = getMasterMigration(masterMigrationId);
 
-        masterMigration.setStatus(MigrationStatus.AWAITING_REVIEW);
+        List<MigrationWithScoresDTO> migrationWithScoresDTOs = new LinkedList<>();
+        Course course = getCourseForMasterMigration(masterMigrationId);
 
-        masterMigration = masterMigrationRepo.save(masterMigration);
+        List<UUID> migrationIds = masterMigration.getMigrations().stream().map(Migration::getId)
+                .toList();
+        if (migrationIds.isEmpty()) {
+            return migrationWithScoresDTOs;
+        }
 
+        List<String> cwids = transactionLogRepo.getCwidsAfter(migrationIds, course,
+                after == null ? "" : after, limit == null ? Limit.unlimited() : Limit.of(limit));
 
-        List<MigrationWithScoresDTO> migrationWithScoresDTOs = new LinkedList<>();
-        Course course = getCourseForMasterMigration(masterMigrationId);
+        Map<UUID, List<ScoreDTO>> scoresByMigration = new HashMap<>();
+        if (!cwids.isEmpty()) {
+            for (MigrationTransactionLogRepo.ReviewScore review : transactionLogRepo
+                    .getReviewScores(migrationIds, course, cwids)) {
+                scoresByMigration.computeIfAbsent(review.getMigrationId(), _ -> new ArrayList<>())
+                        .add(createReviewScoreDTO(review));
+            }
+        }
+
+        // the stats are for the whole master migration, so they're the same for every migration
+        Optional<MasterMigrationStatisticsDTO> stats = getStatsForMasterMigration(masterMigrationId)
+                .map(DTOFactory::toDto);
 
         for (Migration migration : masterMigration.getMigrations()) {
             AssignmentSlimDTO assignmentSlimDTO = DTOFactory.toSlimDto(migration.getAssignment());
 
             MigrationWithScoresDTO migrationWithScoresDTO = new MigrationWithScoresDTO();
-            List<MigrationTransactionLog> entries = transactionLogRepo
-                    .getAllByMigrationIdSorted(migration.getId());
-            Map<String, ScoreDTO> scores = new HashMap<>();
-
-            for (MigrationTransactionLog entry : entries) {
-                Optional<CourseMember> member = courseMemberService
-                        .findCourseMemberGivenCourseAndCwid(course, entry.getCwid());
-
-                if (member.isEmpty()) {
-                    log.warn("Skipping student '{}' without enrollment in course", entry.getCwid());
-                    continue;
-                }
-
-                ScoreDTO score = new ScoreDTO();
-                score.setScore(entry.getScore());
-                score.setStatus(entry.getSubmissionStatus().getStatus());
-                score.submissionDate(entry.getSubmissionTime());
-                score.setComment(entry.getMessage());
-                // TODO this is bad
-                score.setRawScore(rawScoreRepo.getByCwidAndMigrationId(entry.getCwid(),
-                        entry.getMigrationId()).map(RawScore::getScore).orElse(0.));
-                score.daysLate(rawScoreRepo.getByCwidAndMigrationId(entry.getCwid(),
-                        entry.getMigrationId()).map(r -> (int) (r.getHoursLate() == null
-                        ? 0 : r.getHoursLate() / 24)).orElse(0));
-
-                score.setStudent(DTOFactory.toDto(member.get()));
-
-                scores.put(entry.getCwid(), score);
-            }
+            List<ScoreDTO> scores = scoresByMigration.getOrDefault(migration.getId(), List.of());
 
             if (scores.isEmpty()) {
                 log.error("No students were scored!");
@@ -673,13 +1108,9 @@ public class MigrationService {
 
             migrationWithScoresDTO.setMigrationId(migration.getId());
             migrationWithScoresDTO.setAssignment(assignmentSlimDTO);
-            migrationWithScoresDTO.setScores(scores.values().stream().toList());
+            migrationWithScoresDTO.setScores(scores);
 
-            Optional<MasterMigrationStats> stats = getStatsForMasterMigration(masterMigrationId);
-
-            if (stats.isPresent()) {
-                migrationWithScoresDTO.setStats(stats.map(DTOFactory::toDto).get());
-            }
+            stats.ifPresent(migrationWithScoresDTO::setStats);
 
             migrationWithScoresDTOs.add(migrationWithScoresDTO);
 
@@ -688,6 +1119,27 @@ public class MigrationService {
         return migrationWithScoresDTOs;
     }
 
+    private static ScoreDTO createReviewScoreDTO(MigrationTransactionLogRepo.ReviewScore review) {
+        CourseMemberDTO student = new CourseMemberDTO()
+                .name(review.getName())
+                .canvasId(review.getCanvasId())
+                .courseRole(CourseMemberDTO.CourseRoleEnum.fromValue(review.getRole().getRole()))
+                .cwid(review.getCwid())
+                .sections(review.getSections() == null ? List.of()
+                        : List.of(review.getSections()
+                        .split(MigrationTransactionLogRepo.ReviewScore.SECTION_SEPARATOR)));
+
+        ScoreDTO score = new ScoreDTO();
+        score.setScore(review.getScore());
+        score.setStatus(review.getSubmissionStatus().getStatus());
+        score.submissionDate(review.getSubmissionTime());
+        score.setComment(review.getMessage());
+        score.setRawScore(review.getRawScore() == null ? 0. : review.getRawScore());
+        score.daysLate(review.getHoursLate() == null ? 0 : (int) (review.getHoursLate() / 24));
+        score.setStudent(student);
+        return score;
+    }
+
     public boolean updateStudentScore(User asUser, UUID migrationId, MigrationScoreChangeDTO dto) {
         ScoredDTO scored = new ScoredDTO();
         scored.setCwid(dto.getCwid());
@@ -724,32 +1176,54 @@ public class MigrationService {
         IdentityProvider provider = impersonationManager.impersonateUser(
                 taskDef.getCreatedByUser());
 
-        CanvasService.BuiltAssignmentSubmissions submissions = canvasService
-                .prepCanvasSubmissionsForPublish(String.valueOf(taskDef.getCanvasCourseId()),
-                        taskDef.getCanvasAssignmentId());
+        // sorted by cwid, so the order is stable across attempts. Anything streamed to Canvas
+        // while scoring has already been posted
+        List<MigrationTransactionLog> toPost = transactionLogRepo.getLatestByMigrationId(
+                taskDef.getMigrationId()).stream().filter(e -> e.getPostedTime() == null).toList();
 
-        List<MigrationTransactionLog> entries = transactionLogRepo.getAllByMigrationIdSorted(
-                taskDef.getMigrationId());
+        // the checkpoint is the number of entries a previous attempt already posted
+        int posted = taskDef.getCheckpoint() == null ? 0
+                : Integer.parseInt(taskDef.getCheckpoint());
 
         log.info("Processing {} migration log entries for posting to canvas for migration '{}'",
-                entries.size(), taskDef.getMigrationId());
+                toPost.size() - posted, taskDef.getMigrationId());
 
-        for (MigrationTransactionLog entry : entries) {
-            submissions.addSubmission(entry.getCanvasId(), entry.getMessage(), entry.getScore(),
-                    entry.getSubmissionStatus().equals(SubmissionStatus.EXCUSED));
-        }
+        TaskProgress progress = TaskContext.progress();
+        progress.startPhase("Posting scores to Canvas", (long) toPost.size());
+        progress.increment(posted);
+
+        for (int start = posted; start < toPost.size(); start += CANVAS_POST_CHUNK_SIZE) {
+            progress.checkCancelled();
+            List<MigrationTransactionLog> chunk = toPost.subList(start,
+                    Math.min(start + CANVAS_POST_CHUNK_SIZE, toPost.size()));
+
+            CanvasService.BuiltAssignmentSubmissions submissions = canvasService
+                    .prepCanvasSubmissionsForPublish(String.valueOf(taskDef.getCanvasCourseId()),
+                            taskDef.getCanvasAssignmentId());
+
+            for (MigrationTransactionLog entry : chunk) {
+                submissions.addSubmission(entry.getCanvasId(), entry.getMessage(),
+                        entry.getScore(),
+                        entry.getSubmissionStatus().equals(SubmissionStatus.EXCUSED));
+            }
+
+            Optional<Progress> canvasProgress = canvasService.asUser(provider)
+                    .publishCanvasScores(submissions);
 
-        Optional<Progress> progress = canvasService.asUser(provider)
-                .publishCanvasScores(submissions);
+            if (canvasProgress.isEmpty()) {
+                throw new TransientTaskException("Failed to post scores to Canvas!");
+            }
 
-        if (progress.isEmpty()) {
-            throw new RuntimeException("Failed to post scores to Canvas!");
+            postToCanvasTaskRepo.setCheckpoint(taskDef.getId(),
+                    String.valueOf(start + chunk.size()));
+            progress.increment(chunk.size());
         }
 
         // We will probably want to periodically check in on this and then only flag this
         // as completed once this is done
     }
 
+    @Transactional
     public List<ScheduledTaskDef> processMigrationLog(User actingUser, UUID masterMigrationId) {
         MasterMigration masterMigration = getMasterMigration(masterMigrationId);
 
@@ -764,8 +1238,12 @@ public class MigrationService {
         masterMigrationRepo.save(masterMigration);
 
         Course course = getCourseForMasterMigration(masterMigrationId);
+        // posting a single assignment is something an instructor is sat waiting on
+        int priority = masterMigration.getMigrations().size() == 1
+                ? NewTaskEvent.TaskData.PRIORITY_INTERACTIVE
+                : NewTaskEvent.TaskData.PRIORITY_NORMAL;
 
-        List<ScheduledTaskDef> tasks = new LinkedList<>();
+        TaskBatch batch = new TaskBatch(course.getId(), priority);
 
         for (Migration migration : masterMigration.getMigrations()) {
             Assignment assignment = getAssignmentForMigration(migration.getId());
@@ -776,38 +1254,38 @@ public class MigrationService {
             task.setMigrationId(migration.getId());
             task.setCanvasAssignmentId(assignment.getCanvasId());
             task.setCanvasCourseId(course.getCanvasId());
-            task = postToCanvasTaskRepo.save(task);
-
-            tasks.add(task);
-
-            MigrationPostNotificationDTO notificationDTO =
-                    MigrationPostNotificationDTO.builder().post_complete(true).build();
-            NewTaskEvent.TaskData<PostToCanvasTaskDef> taskDefinition =
-                    new NewTaskEvent.TaskData<>(postToCanvasTaskRepo, task.getId(),
-                            this::postGradesToCanvasTask);
-            taskDefinition.setOnJobComplete(Optional.of(_ -> {
-                try {
-                    messagingTemplate.convertAndSend(MIGRATION_POST_ENDPOINT,
-                            objectMapper.writeValueAsString(notificationDTO));
-                } catch (JsonProcessingException _) {
-                    throw new RuntimeException("Could not process JSON for sending notification DTO!");
-                }
-            }));
-            taskDefinition.setOnJobFail(Optional.of(_ -> {
-                try {
-                    MigrationPostNotificationDTO errorDTO = MigrationPostNotificationDTO.builder()
-                            .error("Could not post grades to Canvas!").build();
-                    messagingTemplate.convertAndSend(MIGRATION_POST_ENDPOINT,
-                            objectMapper.writeValueAsString(errorDTO));
-                } catch (JsonProcessingException _) {
-                    throw new RuntimeException("Could not process JSON for sending notification DTO!");
-                }
-            }));
-
-            eventPublisher.publishEvent(new NewTaskEvent(this, taskDefinition));
+            batch.add(task, this::createPostToCanvasTaskData);
         }
 
-        return tasks;
+        return taskSubmissionService.submit(this, batch);
+    }
+
+    private NewTaskEvent.TaskData<PostToCanvasTaskDef> createPostToCanvasTaskData(long taskId) {
+        MigrationPostNotificationDTO notificationDTO =
+                MigrationPostNotificationDTO.builder().post_complete(true).build();
+        NewTaskEvent.TaskData<PostToCanvasTaskDef> taskDefinition =
+                new NewTaskEvent.TaskData<>(postToCanvasTaskRepo, taskId,
+                        this::postGradesToCanvasTask);
+        taskDefinition.setOnJobComplete(Optional.of(_ -> {
+            try {
+                messagingTemplate.convertAndSend(MIGRATION_POST_ENDPOINT,
+                        objectMapper.writeValueAsString(notificationDTO));
+            } catch (JsonProcessingException _) {
+                throw new RuntimeException("Could not process JSON for sending notification DTO!");
+            }
+        }));
+        taskDefinition.setOnJobFail(Optional.of(_ -> {
+            try {
+                MigrationPostNotificationDTO errorDTO = MigrationPostNotificationDTO.builder()
+                        .error("Could not post grades to Canvas!").build();
+                messagingTemplate.convertAndSend(MIGRATION_POST_ENDPOINT,
+                        objectMapper.writeValueAsString(errorDTO));
+            } catch (JsonProcessingException _) {
+                throw new RuntimeException("Could not process JSON for sending notification DTO!");
+            }
+        }));
+
+        return taskDefinition;
     }
 
     public boolean finalizePostToCanvas(UUID masterMigrationId) {
@@ -823,6 +1301,7 @@ public class MigrationService {
 
         masterMigration.setStatus(MigrationStatus.COMPLETED);
         masterMigrationRepo.save(masterMigration);
+        evictMigrationContexts(masterMigration);
         return true;
     }
 }
@@ -10,6 +10,10 @@ import edu.mines.packtrain.repositories.CourseRepo;
 import edu.mines.packtrain.repositories.PolicyRepo;
 import edu.mines.packtrain.services.external.PolicyServerService;
 import edu.mines.packtrain.services.external.S3Service;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -79,6 +83,7 @@ public class PolicyService {
         policy.setDescription(description);
         policy.setFileName(fileName);
         policy.setPolicyURI(policyUrl.get());
+        policy.setContentHash(hashContent(file));
 
         policy = policyRepo.save(policy);
 
@@ -193,8 +198,38 @@ public class PolicyService {
         }
 
         policy.setPolicyURI(policyUrl.get());
+        policy.setContentHash(hashContent(file));
 
         return policyRepo.save(policy);
     }
 
+    /**
+     * Gets the hash of a policy's file, downloading it for policies created before hashes were
+     * stored.
+     */
+    public Optional<String> getContentHash(Policy policy) {
+        if (policy.getContentHash() != null) {
+            return Optional.of(policy.getContentHash());
+        }
+
+        Optional<String> policyText = s3Service.getPolicy(policy.getPolicyURI());
+        if (policyText.isEmpty()) {
+            log.warn("Failed to download policy '{}' to hash it", policy.getPolicyURI());
+            return Optional.empty();
+        }
+
+        policy.setContentHash(hashContent(policyText.get()));
+        policyRepo.save(policy);
+        return Optional.of(policy.getContentHash());
+    }
+
+    public static String hashContent(String content) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256")
+                    .digest(content.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
 }
@@ -0,0 +1,158 @@
+package edu.mines.packtrain.services;
+
+import edu.mines.packtrain.models.RawScore;
+import edu.mines.packtrain.repositories.RawScoreRepo;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Buffers the raw scores parsed from an import and writes them in fixed size chunks, so an import
+ * only ever holds one chunk in memory no matter how big the file is.
+ * <br></br>
+ * A student can show up more than once in a file (ie: PrairieLearn exports have a row per question).
+ * Depending on the source those rows are either combined into one score or only the first one is
+ * kept, whether the earlier row is still in the chunk or was already written.
+ * <br></br>
+ * Rows that can't be parsed are skipped and reported at the end (see {@link #describe()}) instead
+ * of failing the whole import.
+ */
+@Slf4j
+class RawScoreImportBatch {
+    enum Duplicates {
+        SKIP,
+        COMBINE
+    }
+
+    // keeps the report within what a task's status text can hold
+    private static final int MAX_REPORTED_ROWS = 40;
+    private static final int MAX_REPORTED_MESSAGE_LENGTH = 150;
+
+    private final RawScoreRepo rawScoreRepo;
+    private final UUID migrationId;
+    private final Duplicates duplicates;
+    private final int chunkSize;
+    private final Map<String, RawScore> pending = new LinkedHashMap<>();
+    @Getter
+    private long imported;
+    @Getter
+    private long failedRows;
+    private final List<String> rowErrors = new ArrayList<>();
+    private Set<String> unresolved = Set.of();
+
+    RawScoreImportBatch(RawScoreRepo rawScoreRepo, UUID migrationId, Duplicates duplicates,
+                        int chunkSize) {
+        this.rawScoreRepo = rawScoreRepo;
+        this.migrationId = migrationId;
+        this.duplicates = duplicates;
+        this.chunkSize = chunkSize;
+    }
+
+    void add(RawScore score) {
+        RawScore existing = pending.get(score.getCwid());
+
+        if (existing == null) {
+            pending.put(score.getCwid(), score);
+        } else if (duplicates == Duplicates.COMBINE) {
+            combine(existing, score);
+        } else {
+            log.warn("Duplicate score for '{}'", score.getCwid());
+            return;
+        }
+
+        imported++;
+
+        if (pending.size() >= chunkSize) {
+            flush();
+        }
+    }
+
+    void rowFailed(long line, Exception e) {
+        failedRows++;
+        log.warn("Failed to import line {}", line, e);
+
+        if (rowErrors.size() < MAX_REPORTED_ROWS) {
+            String message = String.valueOf(e.getMessage());
+            if (message.length() > MAX_REPORTED_MESSAGE_LENGTH) {
+                message = message.substring(0, MAX_REPORTED_MESSAGE_LENGTH) + "...";
+            }
+            rowErrors.add(String.format("line %d: %s", line, message));
+        }
+    }
+
+    /**
+     * Records the students in the file that aren't members of the course.
+     */
+    void setUnresolved(Set<String> unresolved) {
+        this.unresolved = unresolved;
+    }
+
+    /**
+     * A short summary of the import, for the migration.
+     */
+    String summarize() {
+        if (failedRows == 0) {
+            return String.format("%s raw scores were imported!", imported);
+        }
+
+        return String.format("%s raw scores were imported, %s lines could not be imported!",
+                imported, failedRows);
+    }
+
+    /**
+     * The full report, with the lines that couldn't be imported and the students that weren't
+     * found.
+     */
+    String describe() {
+        StringBuilder report = new StringBuilder(summarize());
+
+        if (!unresolved.isEmpty()) {
+            report.append(String.format("\n%s students are not members of the course: %s",
+                    unresolved.size(), String.join(", ", unresolved.stream().sorted()
+                            .limit(MAX_REPORTED_ROWS).toList())));
+        }
+
+        rowErrors.forEach(e -> report.append("\n").append(e));
+        if (failedRows > rowErrors.size()) {
+            report.append(String.format("\n... and %s more", failedRows - rowErrors.size()));
+        }
+
+        return report.toString();
+    }
+
+    /**
+     * Writes the current chunk, merging it with the scores already written for the migration.
+     */
+    void flush() {
+        if (pending.isEmpty()) {
+            return;
+        }
+
+        if (duplicates == Duplicates.COMBINE) {
+            rawScoreRepo.upsertCombining(migrationId, pending.values());
+        } else {
+            int inserted = rawScoreRepo.insertSkippingExisting(migrationId, pending.values());
+            if (inserted < pending.size()) {
+                log.warn("Skipped {} duplicate scores", pending.size() - inserted);
+                imported -= pending.size() - inserted;
+            }
+        }
+
+        pending.clear();
+    }
+
+    private static void combine(RawScore existing, RawScore incoming) {
+        if (existing.getSubmissionTime().isAfter(incoming.getSubmissionTime())) {
+            existing.setSubmissionTime(incoming.getSubmissionTime());
+            existing.setSubmissionStatus(incoming.getSubmissionStatus());
+            existing.setHoursLate(incoming.getHoursLate());
+        }
+
+        existing.setScore(existing.getScore() + incoming.getScore());
+    }
+}
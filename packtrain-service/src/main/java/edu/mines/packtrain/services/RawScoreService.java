@@ -3,12 +3,25 @@ package edu.mines.packtrain.services;
 import com.opencsv.CSVReader;
 import com.opencsv.CSVReaderBuilder;
 import com.opencsv.exceptions.CsvException;
+import edu.mines.packtrain.events.NewTaskEvent;
 import edu.mines.packtrain.models.Assignment;
 import edu.mines.packtrain.models.Course;
 import edu.mines.packtrain.models.RawScore;
+import edu.mines.packtrain.models.User;
 import edu.mines.packtrain.models.enums.ExternalAssignmentType;
 import edu.mines.packtrain.models.enums.SubmissionStatus;
+import edu.mines.packtrain.models.tasks.RawScoreImportTaskDef;
+import edu.mines.packtrain.models.tasks.ScheduledTaskDef;
 import edu.mines.packtrain.repositories.RawScoreRepo;
+import edu.mines.packtrain.repositories.ScheduledTaskRepo;
+import edu.mines.packtrain.services.external.S3Service;
+import edu.mines.packtrain.services.tasks.TaskBatch;
+import edu.mines.packtrain.services.tasks.TaskContext;
+import edu.mines.packtrain.services.tasks.TaskHandlerProvider;
+import edu.mines.packtrain.services.tasks.TaskHandlerRegistry;
+import edu.mines.packtrain.services.tasks.TaskProgress;
+import edu.mines.packtrain.services.tasks.TaskSubmissionService;
+import edu.mines.packtrain.services.tasks.TransientTaskException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
@@ -17,11 +30,12 @@ import java.time.Instant;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Locale;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
@@ -31,63 +45,185 @@ import org.springframework.web.server.ResponseStatusException;
 
 @Service
 @Slf4j
-public class RawScoreService {
+public class RawScoreService implements TaskHandlerProvider {
     private final String timeZone;
     private final RawScoreRepo rawScoreRepo;
     private final CourseMemberService courseMemberService;
     private final MigrationService migrationService;
+    private final S3Service s3Service;
+    private final TaskSubmissionService taskSubmissionService;
+    private final ScheduledTaskRepo<RawScoreImportTaskDef> importTaskRepo;
+    private final int importChunkSize;
 
     public RawScoreService(
             @Value("${grading-admin.time-zone}") String timeZone,
             RawScoreRepo rawScoreRepo, CourseMemberService courseMemberService,
-            MigrationService migrationService) {
+            MigrationService migrationService, S3Service s3Service,
+            TaskSubmissionService taskSubmissionService,
+            ScheduledTaskRepo<RawScoreImportTaskDef> importTaskRepo,
+            @Value("${grading-admin.raw-scores.import-chunk-size:500}") int importChunkSize) {
         this.timeZone = timeZone;
         this.rawScoreRepo = rawScoreRepo;
         this.courseMemberService = courseMemberService;
         this.migrationService = migrationService;
+        this.s3Service = s3Service;
+        this.taskSubmissionService = taskSubmissionService;
+        this.importTaskRepo = importTaskRepo;
+        this.importChunkSize = importChunkSize;
     }
 
-    public void uploadGradescopeCSV(InputStream file, UUID migrationId) {
-        List<RawScore> scores = List.of();
+    @Override
+    public void registerTaskHandlers(TaskHandlerRegistry registry) {
+        registry.register(RawScoreImportTaskDef.class, this::createImportTaskData);
+    }
+
+    /**
+     * Spools an upload and imports it in the background, so a large file doesn't hold up the
+     * request.
+     *
+     * @return the import task
+     */
+    public ScheduledTaskDef startRawScoreImport(User actingUser, UUID migrationId,
+                                                InputStream file) {
+        Assignment assignment = migrationService.getAssignmentForMigration(migrationId);
 
-        if (!migrationService.attemptToStartRawScoreImport(migrationId, "Import of " +
-                "Gradescope scores started.", ExternalAssignmentType.GRADESCOPE)) {
-            log.error("Failed to start raw score import for GS!");
-            return;
+        if (assignment.getExternalAssignmentConfig() == null
+                || assignment.getExternalAssignmentConfig().getType()
+                == ExternalAssignmentType.INTERNAL) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Raw scores can only be " +
+                    "imported for external assignments");
         }
 
-        try (CSVReader csvReader = new CSVReaderBuilder(new InputStreamReader(file))
-                .withSkipLines(1)
-                .build()) {
+        ExternalAssignmentType type = assignment.getExternalAssignmentConfig().getType();
 
-            scores = csvReader.readAll().stream().map(l -> parseLineGS(migrationId, l))
-                    .filter(Optional::isPresent).map(Optional::get).toList();
-        } catch (Exception e) {
-            log.error("Failed to read CSV", e);
-            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, e.getMessage());
+        if (!migrationService.attemptToStartRawScoreImport(migrationId, String.format("Import " +
+                "of %s scores queued.", type.name().toLowerCase()), type)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Raw scores have already " +
+                    "been imported for this migration");
         }
 
-        if (!migrationService.finishRawScoreImport(migrationId, String.format("%s raw scores " +
-                "were imported!", scores.size()))) {
-            log.error("Failed to complete raw score import for GS!");
+        String uploadObject;
+        try {
+            uploadObject = s3Service.spoolRawScoreUpload(migrationId, file);
+        } catch (RuntimeException e) {
+            migrationService.failRawScoreImport(migrationId, "Failed to upload raw scores.");
             throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Failed to " +
-                    "complete raw score import for GS!");
+                    "upload raw scores");
+        }
+
+        RawScoreImportTaskDef task = new RawScoreImportTaskDef();
+        task.setCreatedByUser(actingUser);
+        task.setTaskName(String.format("Import raw scores for assignment '%s'",
+                assignment.getName()));
+        task.setMigrationId(migrationId);
+        task.setUploadObject(uploadObject);
+
+        TaskBatch batch = new TaskBatch(migrationService.getCourseForMigration(migrationId).getId(),
+                NewTaskEvent.TaskData.PRIORITY_INTERACTIVE);
+        batch.add(task, this::createImportTaskData);
+
+        return taskSubmissionService.submit(this, batch).getFirst();
+    }
+
+    private NewTaskEvent.TaskData<RawScoreImportTaskDef> createImportTaskData(long taskId) {
+        NewTaskEvent.TaskData<RawScoreImportTaskDef> taskData = new NewTaskEvent.TaskData<>(
+                importTaskRepo, taskId, this::importRawScoresTask);
+        // the upload is kept until the task is done for good, so a retry can read it again
+        taskData.setOnJobComplete(Optional.of(task ->
+                s3Service.deleteRawScoreUpload(task.getUploadObject())));
+        taskData.setOnJobFail(Optional.of(task -> {
+            migrationService.failRawScoreImport(task.getMigrationId(), "Import of raw scores " +
+                    "failed.");
+            s3Service.deleteRawScoreUpload(task.getUploadObject());
+        }));
+
+        return taskData;
+    }
+
+    public void importRawScoresTask(RawScoreImportTaskDef task) {
+        // anything already written is from an earlier attempt that didn't finish
+        rawScoreRepo.deleteByMigrationId(task.getMigrationId());
+
+        ExternalAssignmentType type = migrationService.getAssignmentForMigration(
+                task.getMigrationId()).getExternalAssignmentConfig().getType();
+        TaskProgress progress = TaskContext.progress();
+        progress.startPhase("Importing raw scores", null);
+
+        RawScoreImportBatch batch;
+        try (InputStream file = s3Service.openRawScoreUpload(task.getUploadObject())) {
+            batch = switch (type) {
+                case GRADESCOPE -> importGradescopeCSV(file, task.getMigrationId());
+                case PRAIRIELEARN -> importPrairieLearnCSV(file, task.getMigrationId());
+                case RUNESTONE -> importRunestoneCSV(file, task.getMigrationId());
+                default -> throw new IllegalStateException("Request to import non supported csv");
+            };
+        } catch (IOException e) {
+            // cancelling interrupts the read, which isn't worth retrying
+            progress.checkCancelled();
+            throw new TransientTaskException("Failed to read raw score upload", e);
+        } catch (CsvException e) {
+            // the file won't parse any better on a retry
+            throw new RuntimeException(String.format("Failed to parse raw score upload at line %d",
+                    e.getLineNumber()), e);
+        }
+
+        finishImport(task.getMigrationId(), batch, type);
+        importTaskRepo.setStatusText(task.getId(), batch.describe());
+    }
+
+    private void finishImport(UUID migrationId, RawScoreImportBatch batch,
+                              ExternalAssignmentType type) {
+        if (!migrationService.finishRawScoreImport(migrationId, batch.summarize())) {
+            // the migration was moved out of importing underneath us (ie: it was deleted)
+            throw new IllegalStateException(String.format("Raw score import for %s on " +
+                    "migration '%s' is no longer in progress", type, migrationId));
         }
     }
 
-    public void uploadPrairieLearnCSV(InputStream file, UUID migrationId) {
-        List<RawScore> scores = List.of();
+    /**
+     * Reports a line as done. Cancellation is only checked once per chunk of lines, which is
+     * plenty often and keeps it out of the per-line cost.
+     */
+    private void lineRead(TaskProgress progress, long linesRead) {
+        progress.increment();
+        if (linesRead % importChunkSize == 0) {
+            progress.checkCancelled();
+        }
+    }
 
-        if (!migrationService.attemptToStartRawScoreImport(migrationId, "Import of " +
-                "PrairieLearn scores started.", ExternalAssignmentType.PRAIRIELEARN)) {
-            log.error("Failed to start raw score import for PL!");
-            return;
+    private RawScoreImportBatch importGradescopeCSV(InputStream file, UUID migrationId)
+            throws IOException, CsvException {
+        RawScoreImportBatch batch = new RawScoreImportBatch(rawScoreRepo, migrationId,
+                RawScoreImportBatch.Duplicates.SKIP, importChunkSize);
+        TaskProgress progress = TaskContext.progress();
+
+        try (CSVReader csvReader = new CSVReaderBuilder(new InputStreamReader(file))
+                .withSkipLines(1)
+                .build()) {
+            String[] line;
+            while ((line = csvReader.readNext()) != null) {
+                try {
+                    parseLineGS(migrationId, line).ifPresent(batch::add);
+                } catch (RuntimeException e) {
+                    batch.rowFailed(csvReader.getLinesRead(), e);
+                }
+                lineRead(progress, csvReader.getLinesRead());
+            }
+            batch.flush();
         }
 
-        boolean groupMode = false;
+        return batch;
+    }
 
+    private RawScoreImportBatch importPrairieLearnCSV(InputStream file, UUID migrationId)
+            throws IOException, CsvException {
         Course course = migrationService.getCourseForMigration(migrationId);
         Assignment assignment = migrationService.getAssignmentForMigration(migrationId);
+        CourseRoster roster = courseMemberService.getRoster(course);
+        // PL has a row per question, which are added up into one score per student
+        RawScoreImportBatch batch = new RawScoreImportBatch(rawScoreRepo, migrationId,
+                RawScoreImportBatch.Duplicates.COMBINE, importChunkSize);
+        TaskProgress progress = TaskContext.progress();
 
         try (CSVReader csvReader = new CSVReaderBuilder(new InputStreamReader(file))
                 .build()) {
@@ -95,55 +231,51 @@ public class RawScoreService {
             String[] s = csvReader.readNext();
 
             if (s == null) {
-                return;
+                return batch;
             }
 
             List<String> header = Arrays.stream(s).toList();
-
-            if (header.contains("Group name")) {
-                groupMode = true;
+            boolean groupMode = header.contains("Group name");
+
+            String[] line;
+            while ((line = csvReader.readNext()) != null) {
+                try {
+                    List<String[]> submissions = groupMode
+                            ? convertGroupSubmissionToIndividualSubmission(header, line)
+                            : List.of(reduceColumns(header, line));
+
+                    for (String[] submission : submissions) {
+                        parseLinePL(roster, assignment, migrationId, submission)
+                                .ifPresent(batch::add);
+                    }
+                } catch (RuntimeException e) {
+                    batch.rowFailed(csvReader.getLinesRead(), e);
+                }
+                lineRead(progress, csvReader.getLinesRead());
             }
-
-            List<String[]> contents = groupMode ? convertGroupSubmissionToIndividualSubmission(
-                    header, csvReader.readAll()) : reduceColumns(header, csvReader.readAll());
-
-            scores = contents.stream().map(l -> parseLinePL(course, assignment, migrationId, l))
-                    .filter(Optional::isPresent).map(Optional::get).toList();
-
-        } catch (IOException e) {
-            log.error("Failed to read CSV!", e);
-            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, e.getMessage());
-        } catch (CsvException e) {
-            log.error("Failed to parse CSV line!", e);
-            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, e.getMessage());
+            batch.flush();
+            logUnresolved(roster, course);
+            batch.setUnresolved(roster.getUnresolved());
         }
 
-        if (!migrationService.finishRawScoreImport(migrationId, String.format("%s raw scores were" +
-                " imported!", scores.size()))) {
-            log.error("Failed to complete raw score import for PL!");
-            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Failed to " +
-                    "complete raw score import for GS!");
-        }
+        return batch;
     }
 
-    public void uploadRunestoneCSV(InputStream file, UUID migrationId) {
-        List<RawScore> scores = List.of();
-
-        if (!migrationService.attemptToStartRawScoreImport(migrationId, "Import of " +
-                "Runestone scores started.", ExternalAssignmentType.RUNESTONE)) {
-            log.error("Failed to start raw score import for Runestone!");
-            return;
-        }
-
+    private RawScoreImportBatch importRunestoneCSV(InputStream file, UUID migrationId)
+            throws IOException, CsvException {
         Course course = migrationService.getCourseForMigration(migrationId);
         Assignment assignment = migrationService.getAssignmentForMigration(migrationId);
+        CourseRoster roster = courseMemberService.getRoster(course);
+        RawScoreImportBatch batch = new RawScoreImportBatch(rawScoreRepo, migrationId,
+                RawScoreImportBatch.Duplicates.COMBINE, importChunkSize);
+        TaskProgress progress = TaskContext.progress();
 
         try (CSVReader csvReader = new CSVReaderBuilder(new InputStreamReader(file))
                 .build()) {
             String[] headerLine = csvReader.readNext();
             if (headerLine == null) {
                 log.error("Missing header for Runestone import!");
-                return;
+                return batch;
             }
 
             int assignmentIdx = -1;
@@ -154,23 +286,30 @@ public class RawScoreService {
                 }
             }
 
-            int finalAssignmentIdx = assignmentIdx; // lambda vars have to be final
-            scores = csvReader.readAll().stream().map(l -> parseLineRunestone(finalAssignmentIdx, course, assignment,
-                    migrationId, l))
-                    .filter(Optional::isPresent).map(Optional::get).toList();
-        } catch (Exception e) {
-            log.error("Failed to read CSV", e);
-            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, e.getMessage());
-
+            String[] line;
+            while ((line = csvReader.readNext()) != null) {
+                try {
+                    parseLineRunestone(assignmentIdx, roster, assignment, migrationId, line)
+                            .ifPresent(batch::add);
+                } catch (RuntimeException e) {
+                    batch.rowFailed(csvReader.getLinesRead(), e);
+                }
+                lineRead(progress, csvReader.getLinesRead());
+            }
+            batch.flush();
+            logUnresolved(roster, course);
+            batch.setUnresolved(roster.getUnresolved());
         }
 
-        if (!migrationService.finishRawScoreImport(migrationId, String.format("%s raw scores " +
-                "were imported!", scores.size()))) {
-            log.error("Failed to complete raw score import for Runestone!");
-            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Failed to " +
-                    "complete raw score import for GS!");
-        }
+        return batch;
+    }
 
+    private static void logUnresolved(CourseRoster roster, Course course) {
+        Set<String> unresolved = roster.getUnresolved();
+        if (!unresolved.isEmpty()) {
+            log.warn("{} students are not members of '{}': {}", unresolved.size(),
+                    course.getCode(), unresolved);
+        }
     }
 
     private String[] extractMembersFromGroup(String groupMembers) {
@@ -180,42 +319,34 @@ public class RawScoreService {
     }
 
     private List<String[]> convertGroupSubmissionToIndividualSubmission(List<String> header,
-            List<String[]> csv) {
-        List<String[]> normalizeGroupSubmissions = new LinkedList<>();
-
+            String[] line) {
         final int GROUP_MEMBERS_IDX = header.indexOf("Usernames");
         final int SUBMISSION_DATE_IDX = header.indexOf("Submission date");
         final int QUESTION_POINTS_IDX = header.indexOf("Question points");
 
-        for (String[] line : csv) {
-            String[] members = extractMembersFromGroup(line[GROUP_MEMBERS_IDX]);
-            for (String member : members) {
-                normalizeGroupSubmissions.add(new String[] {
-                        member.strip(), line[SUBMISSION_DATE_IDX], line[QUESTION_POINTS_IDX]
-                });
-            }
+        String[] members = extractMembersFromGroup(line[GROUP_MEMBERS_IDX]);
+        List<String[]> normalizeGroupSubmissions = new ArrayList<>(members.length);
+        for (String member : members) {
+            normalizeGroupSubmissions.add(new String[] {
+                    member.strip(), line[SUBMISSION_DATE_IDX], line[QUESTION_POINTS_IDX]
+            });
         }
 
         return normalizeGroupSubmissions;
     }
 
-    private List<String[]> reduceColumns(List<String> header, List<String[]> csv) {
-        List<String[]> reducedSubmissions = new LinkedList<>();
-
+    private String[] reduceColumns(List<String> header, String[] line) {
         final int USER_ID_INDEX = header.indexOf("UID");
         final int SUBMISSION_DATE_IDX = header.indexOf("Submission date");
         final int QUESTION_POINTS_IDX = header.indexOf("Question points");
-        for (String[] line : csv) {
-            reducedSubmissions.add(new String[] {
-                    line[USER_ID_INDEX], line[SUBMISSION_DATE_IDX], line[QUESTION_POINTS_IDX]
-            });
-        }
 
-        return reducedSubmissions;
+        return new String[] {
+                line[USER_ID_INDEX], line[SUBMISSION_DATE_IDX], line[QUESTION_POINTS_IDX]
+        };
     }
 
-    private Optional<RawScore> parseLinePL(Course course, Assignment assignment, UUID migrationId,
-            String[] line) {
+    private Optional<RawScore> parseLinePL(CourseRoster roster, Assignment assignment,
+            UUID migrationId, String[] line) {
         final int USER_ID_IDX = 0;
         final int SUBMISSION_DATE_IDX = 1;
         final int POINTS_IDX = 2;
@@ -227,11 +358,9 @@ public class RawScoreService {
             return Optional.empty();
         }
 
-        Optional<String> cwid = courseMemberService.getCwidGivenCourseAndEmail(line[USER_ID_IDX],
-                course);
+        Optional<String> cwid = roster.resolve(line[USER_ID_IDX]);
 
         if (cwid.isEmpty()) {
-            log.warn("Student '{}' is not a member of '{}'", line[USER_ID_IDX], course.getCode());
             return Optional.empty();
         }
 
@@ -259,10 +388,10 @@ public class RawScoreService {
         s.setSubmissionTime(submissionTime);
         s.setScore(score);
 
-        return Optional.of(createOrIncrementScore(s));
+        return Optional.of(s);
     }
 
-    private Optional<RawScore> parseLineRunestone(int assignmentIdx, Course course,
+    private Optional<RawScore> parseLineRunestone(int assignmentIdx, CourseRoster roster,
             Assignment assignment, UUID migrationId,
             String[] line) {
         if (assignmentIdx == -1) {
@@ -274,11 +403,9 @@ public class RawScoreService {
 
         RawScore s = new RawScore();
 
-        Optional<String> cwid = courseMemberService.getCwidGivenCourseAndEmail(
-                line[USER_ID_IDX], course);
+        Optional<String> cwid = roster.resolve(line[USER_ID_IDX]);
 
         if (cwid.isEmpty()) {
-            log.warn("Student '{}' is not a member of '{}'", line[USER_ID_IDX], course.getCode());
             return Optional.empty();
         }
 
@@ -290,27 +417,7 @@ public class RawScoreService {
         // Runestone does not track submission times ^^
         s.setScore(Double.parseDouble(line[assignmentIdx]));
 
-        return Optional.of(createOrIncrementScore(s));
-    }
-
-    private RawScore createOrIncrementScore(RawScore incoming) {
-        if (!rawScoreRepo.existsByCwidAndMigrationId(incoming.getCwid(),
-                incoming.getMigrationId())) {
-            return rawScoreRepo.save(incoming);
-        }
-
-        RawScore existing = getRawScoreForCwidAndMigration(incoming.getCwid(),
-                incoming.getMigrationId()).orElseThrow();
-
-        if (existing.getSubmissionTime().isAfter(incoming.getSubmissionTime())) {
-            existing.setSubmissionTime(incoming.getSubmissionTime());
-            existing.setSubmissionStatus(incoming.getSubmissionStatus());
-            existing.setHoursLate(incoming.getHoursLate());
-        }
-
-        existing.setScore(existing.getScore() + incoming.getScore());
-
-        return rawScoreRepo.save(existing);
+        return Optional.of(s);
     }
 
     private Optional<RawScore> parseLineGS(UUID migrationId, String[] line) {
@@ -322,11 +429,6 @@ public class RawScoreService {
 
         String cwid = line[CWID_IDX].trim();
 
-        if (rawScoreRepo.existsByCwidAndMigrationId(cwid, migrationId)) {
-            log.warn("Duplicate score for '{}'", cwid);
-            return Optional.empty();
-        }
-
         String status = line[STATUS_IDX].trim();
 
         RawScore newScore = new RawScore();
@@ -340,7 +442,7 @@ public class RawScoreService {
 
         if (status.equals("Missing")) {
             newScore.setSubmissionStatus(SubmissionStatus.MISSING);
-            return Optional.of(rawScoreRepo.save(newScore));
+            return Optional.of(newScore);
         }
 
         double score = Double.parseDouble(line[SCORE_IDX]);
@@ -366,7 +468,7 @@ public class RawScoreService {
         newScore.setHoursLate(hoursLate);
         newScore.setSubmissionStatus(submissionStatus);
 
-        return Optional.of(rawScoreRepo.save(newScore));
+        return Optional.of(newScore);
     }
 
     public Optional<RawScore> getRawScoreForCwidAndMigration(String cwid, UUID migrationId) {
@@ -0,0 +1,103 @@
+package edu.mines.packtrain.services;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongConsumer;
+
+/**
+ * Tracks how many scores the policy server still owes a migration.
+ * <br></br>
+ * Scores can come back before every raw score has been published, so the number expected is only
+ * set once publishing is done ({@link #expect(long)}), and the barrier doesn't open until then.
+ * <br></br>
+ * Scores that were rejected instead of handled count towards the expected number too, so one bad
+ * score doesn't leave the barrier waiting for the whole timeout. Check {@link #getRejected()} once
+ * it opens.
+ */
+public class ScoreCompletionBarrier {
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition changed = lock.newCondition();
+    private long expected = -1;
+    private long received;
+    private long rejected;
+
+    public void expect(long count) {
+        lock.lock();
+        try {
+            expected = count;
+            changed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void received(long count) {
+        lock.lock();
+        try {
+            received += count;
+            changed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void rejected(long count) {
+        lock.lock();
+        try {
+            rejected += count;
+            changed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getReceived() {
+        lock.lock();
+        try {
+            return received;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getRejected() {
+        lock.lock();
+        try {
+            return rejected;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Waits for every expected score to be received or rejected.
+     * <br></br>
+     * {@code onTick} is called with the number received or rejected so far at least once every
+     * {@code tick}, so the caller can report progress and check whether it has been cancelled.
+     *
+     * @return false if the scores didn't all arrive within {@code timeout}
+     */
+    public boolean await(Duration timeout, Duration tick, LongConsumer onTick)
+            throws InterruptedException {
+        long deadline = System.nanoTime() + timeout.toNanos();
+
+        lock.lock();
+        try {
+            while (expected < 0 || received + rejected < expected) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    return false;
+                }
+
+                changed.await(Math.min(remaining, tick.toNanos()), TimeUnit.NANOSECONDS);
+                onTick.accept(received + rejected);
+            }
+
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -10,17 +10,19 @@ import edu.mines.packtrain.models.Course;
 import edu.mines.packtrain.models.CourseMember;
 import edu.mines.packtrain.models.Section;
 import edu.mines.packtrain.models.User;
-import edu.mines.packtrain.models.tasks.ScheduledTaskDef;
 import edu.mines.packtrain.models.tasks.SectionSyncTaskDef;
 import edu.mines.packtrain.repositories.ScheduledTaskRepo;
 import edu.mines.packtrain.repositories.SectionRepo;
 import edu.mines.packtrain.services.external.CanvasService;
+import edu.mines.packtrain.services.tasks.TaskBatch;
+import edu.mines.packtrain.services.tasks.TaskHandlerProvider;
+import edu.mines.packtrain.services.tasks.TaskHandlerRegistry;
+import edu.mines.packtrain.services.tasks.TaskSubmissionService;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
 import java.util.UUID;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.http.HttpStatus;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.stereotype.Service;
@@ -28,13 +30,12 @@ import org.springframework.web.server.ResponseStatusException;
 
 @Slf4j
 @Service
-public class SectionService {
+public class SectionService implements TaskHandlerProvider {
     private final SectionRepo sectionRepo;
     private final ScheduledTaskRepo<SectionSyncTaskDef> taskRepo;
     private final CourseService courseService;
     private final CanvasService canvasService;
 
-    private final ApplicationEventPublisher eventPublisher;
     private final ImpersonationManager impersonationManager;
 
     private final SimpMessagingTemplate messagingTemplate;
@@ -42,18 +43,21 @@ public class SectionService {
 
     public SectionService(SectionRepo sectionRepo, ScheduledTaskRepo<SectionSyncTaskDef> taskRepo,
                           CourseService courseService, CanvasService canvasService,
-                          ApplicationEventPublisher eventPublisher,
                           ImpersonationManager impersonationManager,
                           SimpMessagingTemplate messagingTemplate) {
         this.sectionRepo = sectionRepo;
         this.taskRepo = taskRepo;
         this.courseService = courseService;
         this.canvasService = canvasService;
-        this.eventPublisher = eventPublisher;
         this.impersonationManager = impersonationManager;
         this.messagingTemplate = messagingTemplate;
     }
 
+    @Override
+    public void registerTaskHandlers(TaskHandlerRegistry registry) {
+        registry.register(SectionSyncTaskDef.class, this::createSyncSectionTaskData);
+    }
+
     public void syncSectionTask(SectionSyncTaskDef task) {
         IdentityProvider user = impersonationManager.impersonateUser(task.getCreatedByUser());
         List<edu.ksu.canvas.model.Section> canvasSections = canvasService.asUser(user)
@@ -101,20 +105,24 @@ public class SectionService {
         return section.get();
     }
 
-    public ScheduledTaskDef createSectionsFromCanvas(User actingUser, UUID courseId,
-                                                     long canvasId) {
+    public SectionSyncTaskDef createSectionsFromCanvas(TaskBatch batch, User actingUser,
+                                                       UUID courseId, long canvasId) {
         SectionSyncTaskDef task = new SectionSyncTaskDef();
         task.setCreatedByUser(actingUser);
         task.setTaskName(String.format("Sync Course '%s': Course Sections", courseId));
         task.setCourseToImport(courseId);
         task.setCanvasId(canvasId);
+        task.setIdempotencyKey(TaskSubmissionService.idempotencyKey(SectionSyncTaskDef.class,
+                courseId, canvasId));
 
-        task = taskRepo.save(task);
+        return batch.add(task, this::createSyncSectionTaskData);
+    }
 
+    private NewTaskEvent.TaskData<SectionSyncTaskDef> createSyncSectionTaskData(long taskId) {
         CourseSyncNotificationDTO notificationDTO = CourseSyncNotificationDTO.builder()
                 .sectionsComplete(true).build();
         NewTaskEvent.TaskData<SectionSyncTaskDef> taskDefinition = new NewTaskEvent.TaskData<>(
-                taskRepo, task.getId(), this::syncSectionTask);
+                taskRepo, taskId, this::syncSectionTask);
         taskDefinition.setOnJobComplete(Optional.of(_ -> {
             try {
                 messagingTemplate.convertAndSend("/courses/sync",
@@ -134,9 +142,7 @@ public class SectionService {
             }
         }));
 
-        eventPublisher.publishEvent(new NewTaskEvent(this, taskDefinition));
-
-        return task;
+        return taskDefinition;
     }
 
     public List<Section> getSectionsForCourse(UUID courseId) {
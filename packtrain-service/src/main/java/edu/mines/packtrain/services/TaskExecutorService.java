@@ -1,97 +1,467 @@
 package edu.mines.packtrain.services;
 
+import edu.mines.packtrain.config.TaskExecutorConfig;
 import edu.mines.packtrain.events.NewTaskEvent;
 import edu.mines.packtrain.models.User;
 import edu.mines.packtrain.models.tasks.ScheduleStatus;
 import edu.mines.packtrain.models.tasks.ScheduledTaskDef;
+import edu.mines.packtrain.models.tasks.TaskQueueEntry;
+import edu.mines.packtrain.models.tasks.TaskResourceUsage;
 import edu.mines.packtrain.repositories.ScheduledTaskRepo;
+import edu.mines.packtrain.repositories.TaskQueueRepo;
+import edu.mines.packtrain.services.tasks.TaskBulkhead;
+import edu.mines.packtrain.services.tasks.TaskContext;
+import edu.mines.packtrain.services.tasks.TaskDependencyGraph;
+import edu.mines.packtrain.services.tasks.TaskHandlerRegistry;
+import edu.mines.packtrain.services.tasks.TaskMetrics;
+import edu.mines.packtrain.services.tasks.TaskProgress;
+import edu.mines.packtrain.services.tasks.TaskProgressService;
+import edu.mines.packtrain.services.tasks.TaskRetryException;
+import java.time.Duration;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Predicate;
 import lombok.extern.slf4j.Slf4j;
+import org.hibernate.Hibernate;
 import org.springframework.context.ApplicationListener;
+import org.springframework.data.domain.Limit;
 import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.springframework.web.server.ResponseStatusException;
 
 @Service
 @Slf4j
 public class TaskExecutorService implements ApplicationListener<NewTaskEvent> {
+    public static final int MAX_TASK_PAGE_SIZE = 100;
+    private static final String CANCELLED_BY_USER = "Cancelled by user";
+
+    private record RunningTask(String taskType, Instant startedTime) {
+    }
 
-    private static final int MAX_ATTEMPTS = 10;
     private final ExecutorService executorService;
     private final ScheduledTaskRepo<? extends ScheduledTaskDef> scheduledTaskRepo;
+    private final TaskQueueRepo taskQueueRepo;
+    private final TaskHandlerRegistry handlerRegistry;
+    private final TaskBulkhead bulkhead;
+    private final TaskProgressService progressService;
+    private final TaskMetrics metrics;
+    private final TaskExecutorConfig.QueueConfig queueConfig;
+    private final TaskExecutorConfig.RetryConfig retryConfig;
+    private final TaskExecutorConfig.DeadlineConfig deadlineConfig;
+
+    // tasks submitted with a job that has no registered handler (ie: one off jobs in tests).
+    // these can only be run by this replica, and are lost on restart.
+    private final Map<Long, NewTaskEvent.TaskData<?>> unregisteredTasks = new ConcurrentHashMap<>();
+    private final Map<Long, RunningTask> runningTasks = new ConcurrentHashMap<>();
+    private final TaskDependencyGraph dependencyGraph;
+    // released by the dependency graph, but not leased yet (ie: this replica was at capacity)
+    private final Set<Long> runnableTasks = ConcurrentHashMap.newKeySet();
+    private final ReentrantLock claimLock = new ReentrantLock();
+    private final AtomicBoolean claimRequested = new AtomicBoolean();
 
-    public TaskExecutorService(ScheduledTaskRepo<? extends ScheduledTaskDef> scheduledTaskRepo) {
+    public TaskExecutorService(ScheduledTaskRepo<? extends ScheduledTaskDef> scheduledTaskRepo,
+                               TaskQueueRepo taskQueueRepo, TaskHandlerRegistry handlerRegistry,
+                               TaskBulkhead bulkhead, TaskProgressService progressService,
+                               TaskMetrics metrics, TaskExecutorConfig.QueueConfig queueConfig,
+                               TaskExecutorConfig.RetryConfig retryConfig,
+                               TaskExecutorConfig.DeadlineConfig deadlineConfig) {
         this.scheduledTaskRepo = scheduledTaskRepo;
-        this.executorService = Executors.newFixedThreadPool(10);
+        this.taskQueueRepo = taskQueueRepo;
+        this.handlerRegistry = handlerRegistry;
+        this.bulkhead = bulkhead;
+        this.progressService = progressService;
+        this.metrics = metrics;
+        this.queueConfig = queueConfig;
+        this.retryConfig = retryConfig;
+        this.deadlineConfig = deadlineConfig;
+        this.executorService = Executors.newThreadPerTaskExecutor(
+                Thread.ofVirtual().name("task-", 0).factory());
+        this.dependencyGraph = new TaskDependencyGraph(
+                id -> scheduledTaskRepo.getStatus(id).orElse(ScheduleStatus.MISSING),
+                this::onTaskReady, this::onDependencyFailed);
+
+        metrics.registerRunningGauge(runningTasks.keySet());
     }
 
-    public static <T extends ScheduledTaskDef> void runTask(NewTaskEvent.TaskData<T> taskData) {
-        log.debug("Queuing task id '{}'", taskData.getTaskId());
+    /**
+     * Runs a task immediately on the calling thread.
+     * <br></br>
+     * The dependencies of the task are checked exactly once - if any of them have not completed,
+     * then the task is failed instead of waiting on them.
+     * Tasks that need to wait should be submitted via a {@link NewTaskEvent} instead.
+     *
+     * @param taskData the task to run
+     * @return the status the task finished with
+     */
+    public static <T extends ScheduledTaskDef> ScheduleStatus runTask(
+            NewTaskEvent.TaskData<T> taskData) {
         ScheduledTaskRepo<T> taskRepo = taskData.getRepo();
 
-        taskRepo.setStatus(taskData.getTaskId(), ScheduleStatus.QUEUED);
+        List<ScheduleStatus> dependsOnStatus = taskData.getDependsOn().stream()
+                .map(id -> taskRepo.getStatus(id).orElse(ScheduleStatus.MISSING)).toList();
 
-        if (!waitToStart(taskData, taskRepo)) return;
+        if (!dependsOnStatus.stream().allMatch(t -> t == ScheduleStatus.COMPLETED)) {
+            log.error("A dependent task failed for job '{}'.", taskData.getTaskId());
+            failTask(taskData, "Dependent task failed.");
+            return ScheduleStatus.FAILED;
+        }
+
+        return executeTask(taskData, _ -> false);
+    }
+
+    private static <T extends ScheduledTaskDef> ScheduleStatus executeTask(
+            NewTaskEvent.TaskData<T> taskData, Predicate<Exception> shouldRetry) {
+        ScheduledTaskRepo<T> taskRepo = taskData.getRepo();
 
         log.debug("Starting task id '{}'", taskData.getTaskId());
 
         taskRepo.setStatus(taskData.getTaskId(), ScheduleStatus.STARTED);
-        if (!runJobs(taskData, taskRepo)) return;
+        if (!runJobs(taskData, taskRepo, shouldRetry)) {
+            // runJobs records whether the task failed or was cancelled
+            return taskRepo.getStatus(taskData.getTaskId()).orElse(ScheduleStatus.FAILED);
+        }
 
         taskRepo.setStatus(taskData.getTaskId(), ScheduleStatus.COMPLETED);
         taskRepo.setCompletedTime(taskData.getTaskId(), Instant.now());
+
+        return ScheduleStatus.COMPLETED;
     }
 
-    public static <T extends ScheduledTaskDef> boolean waitToStart(
-            NewTaskEvent.TaskData<T> taskData, ScheduledTaskRepo<T> taskRepo) {
-        int curAttempts = 0;
+    private static void failTask(NewTaskEvent.TaskData<?> taskData, String reason) {
+        taskData.getRepo().setStatus(taskData.getTaskId(), ScheduleStatus.FAILED, reason);
+    }
 
-        do {
-            List<ScheduleStatus> dependsOnStatus = taskData.getDependsOn().stream()
-                    .map(id -> taskRepo.getStatus(id).orElse(ScheduleStatus.MISSING)).toList();
+    public static String getTaskType(ScheduledTaskDef task) {
+        return Hibernate.getClass(task).getSimpleName();
+    }
 
-            if (dependsOnStatus.stream().anyMatch(t -> t == ScheduleStatus.FAILED)) {
-                log.error("A dependent task failed for job '{}'.", taskData.getTaskId());
-                taskRepo.setStatus(taskData.getTaskId(), ScheduleStatus.FAILED,
-                        "Dependent task failed.");
-                return false;
+    /**
+     * Picks up work left behind by a replica that died - tasks it was running (whose leases have
+     * since expired), and tasks that were waiting on its dependency graph.
+     * <br></br>
+     * Dependents are released the moment their last parent finishes, this only makes sure that
+     * work isn't lost along with the replica that was holding it. It also drops dependents from
+     * this replica's graph once a parent on another replica has released or failed them.
+     */
+    @Scheduled(fixedDelayString = "${grading-admin.tasks.queue.recovery-interval-ms:60000}")
+    public void recoverAbandonedTasks() {
+        try {
+            dependencyGraph.syncRemoteDependencies();
+        } catch (Exception e) {
+            log.error("Failed to look up the status of remote dependencies", e);
+        }
+        claimTasks();
+    }
+
+    @Scheduled(fixedDelayString = "${grading-admin.tasks.queue.heartbeat-interval-ms:15000}")
+    public void heartbeat() {
+        if (runningTasks.isEmpty()) {
+            return;
+        }
+
+        Set<Long> taskIds = Set.copyOf(runningTasks.keySet());
+        int extended = taskQueueRepo.extendLeases(queueConfig.getInstanceId(),
+                queueConfig.getLeaseSeconds(), taskIds);
+
+        if (extended < taskIds.size()) {
+            log.warn("Lost the lease on {} running task(s)", taskIds.size() - extended);
+        }
+
+        // cancellations requested through another replica
+        scheduledTaskRepo.getCancelRequested(taskIds)
+                .forEach(taskId -> progressService.cancel(taskId, CANCELLED_BY_USER));
+    }
+
+    /**
+     * Cancels tasks that have run past the deadline for their type, so a job stuck on a hung
+     * request gives its thread and connections back.
+     */
+    @Scheduled(fixedDelayString = "${grading-admin.tasks.watchdog-interval-ms:5000}")
+    public void enforceDeadlines() {
+        Instant now = Instant.now();
+
+        runningTasks.forEach((taskId, running) -> {
+            Duration deadline = deadlineConfig.getDeadline(running.taskType());
+            if (Duration.between(running.startedTime(), now).compareTo(deadline) > 0) {
+                progressService.cancel(taskId, String.format("Timed out after %s", deadline));
+            }
+        });
+    }
+
+    private void onTaskReady(NewTaskEvent.TaskData<?> taskData) {
+        release(taskData.getTaskId());
+    }
+
+    private void release(long taskId) {
+        runnableTasks.add(taskId);
+        claimTasks();
+    }
+
+    private void onDependencyFailed(NewTaskEvent.TaskData<?> taskData, String reason) {
+        try {
+            // otherwise it was already cancelled
+            if (taskQueueRepo.deleteIfUnleased(taskData.getTaskId()) > 0) {
+                failTask(taskData, reason);
+                releaseRemoteDependents(taskData.getTaskId(), ScheduleStatus.FAILED);
             }
+        } catch (Exception e) {
+            log.error("Failed to fail task '{}'", taskData.getTaskId(), e);
+        } finally {
+            unregisteredTasks.remove(taskData.getTaskId());
+        }
+    }
 
-            if (dependsOnStatus.stream()
-                    .allMatch(t -> t == ScheduleStatus.COMPLETED)) {
-                break;
+    private void finished(long taskId, ScheduleStatus status) {
+        dependencyGraph.complete(taskId, status);
+        releaseRemoteDependents(taskId, status);
+    }
+
+    /**
+     * Releases (or fails) the queued dependents of a finished task that this replica's dependency
+     * graph doesn't know about, since the graph they are waiting in never hears about it.
+     * <br></br>
+     * A released dependent is only claimed once none of its other dependencies are queued. Ones
+     * without a handler on this replica are left to the replica that submitted them.
+     */
+    private void releaseRemoteDependents(long taskId, ScheduleStatus status) {
+        try {
+            for (TaskQueueEntry dependent : taskQueueRepo.getDependents(taskId)) {
+                long dependentId = dependent.getTaskId();
+                if (dependencyGraph.isSubmitted(dependentId)) {
+                    continue;
+                }
+
+                if (status != ScheduleStatus.COMPLETED) {
+                    if (taskQueueRepo.deleteIfUnleased(dependentId) > 0) {
+                        log.error("A dependent task failed for job '{}'.", dependentId);
+                        scheduledTaskRepo.setStatus(dependentId, ScheduleStatus.FAILED,
+                                "Dependent task failed.");
+                        finished(dependentId, ScheduleStatus.FAILED);
+                    }
+                } else if (handlerRegistry.isRegistered(dependent.getTaskType())) {
+                    runnableTasks.add(dependentId);
+                }
             }
+        } catch (Exception e) {
+            log.error("Failed to release the dependents of task '{}'", taskId, e);
+        }
+    }
 
-            curAttempts++;
+    /**
+     * Leases as many runnable tasks as this replica has room for, and starts them.
+     * <br></br>
+     * Called whenever the dependency graph releases a task and whenever a local task finishes
+     * (freeing up a slot). A claim requested while another one is in progress is run by that
+     * thread once it is done, so no request is lost.
+     */
+    private void claimTasks() {
+        claimRequested.set(true);
 
+        while (claimRequested.get() && claimLock.tryLock()) {
             try {
-                TimeUnit.SECONDS.sleep(2);
-            } catch (InterruptedException e) {
-                taskRepo.setStatus(taskData.getTaskId(), ScheduleStatus.FAILED,
-                        String.format("An exception occurred when waiting for dependent task " +
-                                "to complete:\n%s", e.getMessage()));
-                return false;
+                claimRequested.set(false);
+                claimRunnableTasks();
+            } catch (Exception e) {
+                log.error("Failed to claim tasks from the queue", e);
+            } finally {
+                claimLock.unlock();
             }
-        } while (curAttempts < MAX_ATTEMPTS);
+        }
+    }
 
-        if (curAttempts == MAX_ATTEMPTS) {
-            log.error("Exceeded max attempts waiting for dependent tasks to complete for " +
-                    "job '{}'.", taskData.getTaskId());
-            taskRepo.setStatus(taskData.getTaskId(), ScheduleStatus.FAILED,
-                    "Too many attempts waiting for dependent tasks to complete.");
-            return false;
+    private void claimRunnableTasks() {
+        int capacity = queueConfig.getMaxRunningTasks() - runningTasks.size();
+        if (capacity <= 0) {
+            return;
         }
 
-        return true;
+        Set<Long> candidates = Set.copyOf(runnableTasks);
+        Set<String> saturatedTypes = bulkhead.getSaturatedTaskTypes();
+        // `in ()` isn't valid sql
+        List<TaskQueueEntry> claimed = taskQueueRepo.claim(queueConfig.getInstanceId(),
+                queueConfig.getLeaseSeconds(), capacity,
+                saturatedTypes.isEmpty() ? List.of("") : saturatedTypes,
+                queueConfig.getMaxRunningTasksPerCourse(),
+                candidates.isEmpty() ? List.of(-1L) : candidates);
+
+        Set<Long> leftOver = new HashSet<>(candidates);
+        for (TaskQueueEntry entry : claimed) {
+            runnableTasks.remove(entry.getTaskId());
+            leftOver.remove(entry.getTaskId());
+
+            if (!bulkhead.tryAcquire(entry.getTaskType())) {
+                // several tasks of the same type were claimed at once - give this one back
+                taskQueueRepo.releaseLease(queueConfig.getInstanceId(), entry.getTaskId());
+                runnableTasks.add(entry.getTaskId());
+                continue;
+            }
+
+            runningTasks.put(entry.getTaskId(),
+                    new RunningTask(entry.getTaskType(), Instant.now()));
+            executorService.submit(() -> runClaimedTask(entry));
+        }
+
+        // the rest are either waiting for a slot, or were taken (or cancelled) elsewhere
+        if (!leftOver.isEmpty()) {
+            Set<Long> unleased = new HashSet<>(taskQueueRepo.getUnleased(leftOver));
+            leftOver.stream().filter(id -> !unleased.contains(id)).forEach(runnableTasks::remove);
+        }
+    }
+
+    private void runClaimedTask(TaskQueueEntry entry) {
+        long taskId = entry.getTaskId();
+
+        if (entry.getAttempts() > 1) {
+            log.info("Resuming task '{}' (attempt {})", taskId, entry.getAttempts());
+        }
+
+        metrics.recordStarted(entry);
+        Instant startedTime = Instant.now();
+        ScheduleStatus status = ScheduleStatus.FAILED;
+        boolean retrying = false;
+        TaskProgress progress = null;
+
+        try {
+            if (entry.getAttempts() > retryConfig.getMaxAttempts()) {
+                // the replicas running it keep dying, so don't let it take down another one
+                log.error("Giving up on task '{}' after {} attempts", taskId,
+                        entry.getAttempts() - 1);
+                scheduledTaskRepo.setStatus(taskId, ScheduleStatus.FAILED, String.format(
+                        "Gave up after %s attempts", entry.getAttempts() - 1));
+                return;
+            }
+
+            Optional<NewTaskEvent.TaskData<?>> taskData = Optional
+                    .<NewTaskEvent.TaskData<?>>ofNullable(unregisteredTasks.get(taskId))
+                    .or(() -> handlerRegistry.createTaskData(entry.getTaskType(), taskId));
+
+            if (taskData.isEmpty()) {
+                log.error("No handler registered for task '{}' of type '{}'", taskId,
+                        entry.getTaskType());
+                scheduledTaskRepo.setStatus(taskId, ScheduleStatus.FAILED,
+                        String.format("No handler registered for task type '%s'",
+                                entry.getTaskType()));
+                return;
+            }
+
+            // every dependency has left the queue by now, so this only has to check whether
+            // they all succeeded
+            boolean dependenciesCompleted = entry.getDependsOn().stream()
+                    .map(id -> scheduledTaskRepo.getStatus(id).orElse(ScheduleStatus.MISSING))
+                    .allMatch(depStatus -> depStatus == ScheduleStatus.COMPLETED);
+
+            if (!dependenciesCompleted) {
+                log.error("A dependent task failed for job '{}'.", taskId);
+                failTask(taskData.get(), "Dependent task failed.");
+                return;
+            }
+
+            if (!scheduledTaskRepo.getCancelRequested(List.of(taskId)).isEmpty()) {
+                status = ScheduleStatus.CANCELLED;
+                scheduledTaskRepo.setStatus(taskId, status, CANCELLED_BY_USER);
+                runOnJobFail(taskData.get());
+                return;
+            }
+
+            progress = progressService.start(taskId);
+            try {
+                status = executeTask(taskData.get(),
+                        e -> retryConfig.shouldRetry(entry.getAttempts(), e));
+            } finally {
+                progressService.finish(taskId);
+            }
+        } catch (TaskRetryException e) {
+            retrying = true;
+            long delay = retryConfig.getDelaySeconds(entry.getAttempts());
+
+            log.warn("Attempt {} of task '{}' failed, retrying in {}s", entry.getAttempts(),
+                    taskId, delay, e.getCause());
+            scheduledTaskRepo.setStatus(taskId, ScheduleStatus.QUEUED, String.format(
+                    "Attempt %s failed, retrying in %ss:\n%s", entry.getAttempts(), delay,
+                    e.getMessage()));
+            taskQueueRepo.scheduleRetry(queueConfig.getInstanceId(), taskId, delay);
+            CompletableFuture.delayedExecutor(delay, TimeUnit.SECONDS, executorService)
+                    .execute(() -> release(taskId));
+        } catch (Exception e) {
+            log.error("Unexpected failure while running task '{}'", taskId, e);
+            scheduledTaskRepo.setStatus(taskId, ScheduleStatus.FAILED, String.format(
+                    "Unexpected failure while running task '%s':\n%s", taskId, e.getMessage()));
+        } finally {
+            recordResourceUsage(entry, progress, startedTime);
+
+            if (retrying) {
+                metrics.recordRetry(entry);
+            } else {
+                metrics.recordFinished(entry, status,
+                        Duration.between(startedTime, Instant.now()));
+                taskQueueRepo.deleteById(taskId);
+                unregisteredTasks.remove(taskId);
+            }
+            runningTasks.remove(taskId);
+            bulkhead.release(entry.getTaskType());
+
+            if (!retrying) {
+                finished(taskId, status);
+            }
+            claimTasks();
+        }
+    }
+
+    /**
+     * Adds the cost of this attempt to what the task's earlier attempts cost.
+     */
+    private void recordResourceUsage(TaskQueueEntry entry, TaskProgress progress,
+                                     Instant startedTime) {
+        try {
+            TaskResourceUsage usage = scheduledTaskRepo.getResourceUsage(entry.getTaskId())
+                    .orElse(null);
+            if (usage == null) {
+                usage = new TaskResourceUsage();
+                usage.setQueueWaitMs(Duration.between(entry.getEnqueuedTime(), startedTime)
+                        .toMillis());
+            }
+
+            usage.setWallTimeMs(usage.getWallTimeMs()
+                    + Duration.between(startedTime, Instant.now()).toMillis());
+            if (progress != null) {
+                progress.getMeter().addTo(usage);
+            }
+
+            scheduledTaskRepo.setResourceUsage(entry.getTaskId(), usage);
+        } catch (Exception e) {
+            log.error("Failed to record resource usage of task '{}'", entry.getTaskId(), e);
+        }
     }
 
+    /**
+     * Runs the job and its callbacks.
+     *
+     * @param shouldRetry whether a failure of the job itself should be retried. If so, a
+     *                    {@link TaskRetryException} is thrown instead of failing the task, and
+     *                    {@code onJobFail} is not run.
+     * @return false if the task failed
+     */
     public static <T extends ScheduledTaskDef> boolean runJobs(
-            NewTaskEvent.TaskData<T> taskData, ScheduledTaskRepo<T> taskRepo) {
+            NewTaskEvent.TaskData<T> taskData, ScheduledTaskRepo<T> taskRepo,
+            Predicate<Exception> shouldRetry) {
 
         T data = taskRepo.getById(taskData.getTaskId()).orElseThrow(RuntimeException::new);
 
@@ -108,8 +478,22 @@ public class TaskExecutorService implements ApplicationListener<NewTaskEvent> {
         }
 
         try {
-            taskData.getJob().accept(data);
+            TaskContext.progress().runCancellable(() -> taskData.getJob().accept(data));
         } catch (Exception e) {
+            TaskProgress progress = TaskContext.progress();
+            if (progress.isCancelled()) {
+                taskData.getOnJobFail().ifPresent(fail -> fail.accept(data));
+                log.warn("Task '{}' was cancelled: {}", taskData.getTaskId(),
+                        progress.getCancelReason());
+                taskRepo.setStatus(taskData.getTaskId(), ScheduleStatus.CANCELLED,
+                        progress.getCancelReason());
+                return false;
+            }
+
+            if (shouldRetry.test(e)) {
+                throw new TaskRetryException(e);
+            }
+
             taskData.getOnJobFail().ifPresent(fail -> fail.accept(data));
             log.error("Failed to run 'job' for task '{}'", taskData.getTaskId());
             log.error(e.getMessage());
@@ -134,22 +518,164 @@ public class TaskExecutorService implements ApplicationListener<NewTaskEvent> {
         return true;
     }
 
+    /**
+     * Handled on the publishing thread, so tasks are enqueued in the order they were published
+     * (and within the publisher's transaction, if it has one). They are only handed to the
+     * dependency graph once that transaction commits, so no replica can run a task whose rows
+     * aren't visible yet.
+     */
+    @Override
+    public boolean supportsAsyncExecution() {
+        return false;
+    }
+
     @Override
     public void onApplicationEvent(NewTaskEvent event) {
-        log.debug("New task received from '{}'", event.getSource().getClass().getName());
-        executorService.submit(() -> runTask(event.getData()));
+        log.debug("{} new task(s) received from '{}'", event.getTasks().size(),
+                event.getSource().getClass().getName());
+        List<Long> taskIds = event.getTasks().stream().map(NewTaskEvent.TaskData::getTaskId)
+                .toList();
+
+        Map<Long, ScheduledTaskDef> tasks = new HashMap<>();
+        scheduledTaskRepo.findAllById(taskIds).forEach(t -> tasks.put(t.getId(), t));
+
+        List<TaskQueueEntry> entries = new ArrayList<>(taskIds.size());
+        List<NewTaskEvent.TaskData<?>> unregistered = new ArrayList<>();
+        for (NewTaskEvent.TaskData<?> taskData : event.getTasks()) {
+            ScheduledTaskDef task = tasks.get(taskData.getTaskId());
+            if (task == null) {
+                throw new IllegalStateException(String.format("Task '%s' must be saved before it " +
+                        "is submitted", taskData.getTaskId()));
+            }
+            String taskType = getTaskType(task);
+
+            if (!handlerRegistry.isRegistered(taskType)) {
+                unregistered.add(taskData);
+            }
+
+            log.debug("Queuing task id '{}'", taskData.getTaskId());
+            TaskQueueEntry entry = new TaskQueueEntry();
+            entry.setTaskId(taskData.getTaskId());
+            entry.setTaskType(taskType);
+            entry.setCourseId(taskData.getCourseId());
+            entry.setPriority(taskData.getPriority());
+            entry.setDependsOn(new HashSet<>(taskData.getDependsOn()));
+            entries.add(entry);
+        }
+
+        taskQueueRepo.saveAll(entries);
+        scheduledTaskRepo.setStatus(taskIds, ScheduleStatus.QUEUED);
+
+        afterCommit(() -> executorService.submit(() -> {
+            unregistered.forEach(taskData -> unregisteredTasks.put(taskData.getTaskId(), taskData));
+            event.getTasks().forEach(dependencyGraph::submit);
+        }));
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    /**
+     * Cancels a task that has not finished yet.
+     * <br></br>
+     * A task that has not started is taken off the queue straight away. A running task is
+     * stopped the next time its job checks for cancellation (or interrupted, if it is blocked),
+     * which for a task running on another replica happens on that replica's next heartbeat.
+     */
+    public ScheduledTaskDef cancelTask(User currentUser, long taskId) {
+        ScheduledTaskDef task = getScheduledTask(currentUser, taskId);
+
+        // the task is doing work for everyone that joined it
+        if (!task.getCreatedByUser().equals(currentUser)) {
+            throw new ResponseStatusException(HttpStatus.FORBIDDEN, String.format("Task '%s' was " +
+                    "submitted by another user", taskId));
+        }
+
+        if (task.getStatus() == ScheduleStatus.COMPLETED || task.getStatus() == ScheduleStatus.FAILED
+                || task.getStatus() == ScheduleStatus.CANCELLED) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, String.format("Task '%s' " +
+                    "has already finished", taskId));
+        }
+
+        scheduledTaskRepo.requestCancel(taskId);
+
+        if (taskQueueRepo.deleteIfUnleased(taskId) > 0) {
+            log.info("Cancelled task '{}' before it started", taskId);
+            scheduledTaskRepo.setStatus(taskId, ScheduleStatus.CANCELLED, CANCELLED_BY_USER);
+            runnableTasks.remove(taskId);
+            finished(taskId, ScheduleStatus.CANCELLED);
+
+            Optional.<NewTaskEvent.TaskData<?>>ofNullable(unregisteredTasks.remove(taskId))
+                    .or(() -> handlerRegistry.createTaskData(getTaskType(task), taskId))
+                    .ifPresent(TaskExecutorService::runOnJobFail);
+        } else {
+            progressService.cancel(taskId, CANCELLED_BY_USER);
+        }
+
+        return getScheduledTask(currentUser, taskId);
     }
 
-    public List<ScheduledTaskDef> getScheduledTasks(User currentUser) {
-        return scheduledTaskRepo.getTasksForUser(currentUser).stream()
-                .map(t -> (ScheduledTaskDef) t).toList();
+    private static <T extends ScheduledTaskDef> void runOnJobFail(
+            NewTaskEvent.TaskData<T> taskData) {
+        try {
+            taskData.getRepo().getById(taskData.getTaskId())
+                    .ifPresent(data -> taskData.getOnJobFail().ifPresent(fail -> fail.accept(data)));
+        } catch (Exception e) {
+            log.error("Failed to run 'onJobFail' for task '{}'", taskData.getTaskId(), e);
+        }
+    }
+
+    /**
+     * A page of the user's tasks, including the ones their submissions joined, newest first.
+     * <br></br>
+     * Pages are keyed off the last task of the previous page ({@code after}) rather than an
+     * offset, so fetching a page costs the same no matter how far back it is.
+     *
+     * @param statuses only include tasks in one of these states, or every state if empty
+     * @param after    id of the last task on the previous page, or null for the first page
+     */
+    public List<ScheduledTaskDef> getScheduledTasks(User currentUser,
+                                                    Collection<ScheduleStatus> statuses,
+                                                    Long after, int limit) {
+        if (limit < 1 || limit > MAX_TASK_PAGE_SIZE) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, String.format("Limit must " +
+                    "be between 1 and %d", MAX_TASK_PAGE_SIZE));
+        }
+
+        Collection<ScheduleStatus> filter = statuses.isEmpty()
+                ? EnumSet.allOf(ScheduleStatus.class) : statuses;
+
+        if (after == null) {
+            return scheduledTaskRepo.getTasksForUser(currentUser.getCwid(), filter, Limit.of(limit))
+                    .stream().map(t -> (ScheduledTaskDef) t).toList();
+        }
+
+        ScheduledTaskDef cursor = getScheduledTask(currentUser, after);
+        return scheduledTaskRepo.getTasksForUserAfter(currentUser.getCwid(), filter,
+                        cursor.getSubmittedTime(), cursor.getId(), Limit.of(limit))
+                .stream().map(t -> (ScheduledTaskDef) t).toList();
     }
 
+    /**
+     * Gets a task submitted by the user, or one that a submission of theirs joined.
+     */
     public ScheduledTaskDef getScheduledTask(User currentUser, long taskId) {
         Optional<ScheduledTaskDef> task = scheduledTaskRepo.getById(taskId)
                 .map(t -> (ScheduledTaskDef) t);
 
-        if (task.isEmpty() || !task.get().getCreatedByUser().equals(currentUser)) {
+        if (task.isEmpty() || (!task.get().getCreatedByUser().equals(currentUser)
+                && !scheduledTaskRepo.isJoinedBy(taskId, currentUser.getCwid()))) {
             throw new ResponseStatusException(HttpStatus.NOT_FOUND, String.format("Task '%s' " +
                     "does not exist!", taskId));
         }
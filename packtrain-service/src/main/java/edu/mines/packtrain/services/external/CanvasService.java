@@ -28,6 +28,8 @@ import edu.mines.packtrain.managers.IdentityProvider;
 import edu.mines.packtrain.managers.SecurityManager;
 import edu.mines.packtrain.models.enums.CourseRole;
 import edu.mines.packtrain.models.enums.CredentialType;
+import edu.mines.packtrain.services.tasks.TaskContext;
+import edu.mines.packtrain.services.tasks.TaskResourceMeter;
 import java.io.IOException;
 import java.util.HashMap;
 import java.util.List;
@@ -47,6 +49,13 @@ public class CanvasService {
     private final ExternalServiceConfig.CanvasConfig config;
     private CanvasApiFactory canvasApiFactory;
 
+    // the canvas client doesn't expose its http layer, so calls are counted here instead (a
+    // paginated list only counts once) and their bytes aren't known
+    private static void meterCall() {
+        TaskContext.meter().ifPresent(meter -> meter.recordExternalCall(
+                TaskResourceMeter.ExternalService.CANVAS, 0));
+    }
+
     public static class BuiltAssignmentSubmissions {
         private final Map<String, MultipleSubmissionsOptions.StudentSubmissionOption> map;
 
@@ -104,8 +113,10 @@ public class CanvasService {
             List<Course> courses = List.of();
 
             try {
+                meterCall();
                 courses = reader.listCurrentUserCourses(params);
             } catch (IOException e) {
+                TaskContext.progress().checkCancelled();
                 log.error("Failed to get courses from Canvas");
             }
 
@@ -126,8 +137,10 @@ public class CanvasService {
             GetSingleCourseOptions params = new GetSingleCourseOptions(id);
 
             try {
+                meterCall();
                 course = reader.getSingleCourse(params);
             } catch (IOException e) {
+                TaskContext.progress().checkCancelled();
                 log.error("Failed to get course from Canvas");
             }
 
@@ -155,9 +168,13 @@ public class CanvasService {
             try {
                 // omg i love you KSU.
                 // automatic handling of result pages <3
+                meterCall();
                 users = reader.getUsersInCourse(params).stream().collect(Collectors
                         .toMap(User::getSisUserId, user -> user));
             } catch (IOException e) {
+                // cancelling a task interrupts the request it is blocked on, which must not be
+                // mistaken for the course having no members
+                TaskContext.progress().checkCancelled();
                 log.error("Failed to get users from in course from Canvas.");
             }
 
@@ -176,8 +193,10 @@ public class CanvasService {
             List<Section> sections = List.of();
 
             try {
+                meterCall();
                 sections = reader.listCourseSections(String.valueOf(id), List.of());
             } catch (IOException e) {
+                TaskContext.progress().checkCancelled();
                 log.error("Failed to get sections for course from Canvas", e);
             }
 
@@ -198,11 +217,13 @@ public class CanvasService {
             Map<Long, String> assignmentGroups = Map.of();
 
             try {
+                meterCall();
                 assignmentGroups = reader.listAssignmentGroup(new ListAssignmentGroupOptions(
                         String.valueOf(id))).stream().collect(Collectors
                         .toMap(AssignmentGroup::getId, AssignmentGroup::getName));
 
             } catch (IOException e) {
+                TaskContext.progress().checkCancelled();
                 log.error("Failed to get assignment groups for course from Canvas", e);
             }
 
@@ -224,9 +245,11 @@ public class CanvasService {
 
             try {
                 // group category id is set iff it's a group assignment
+                meterCall();
                 assignments = reader.listCourseAssignments(new ListCourseAssignmentsOptions(
                         String.valueOf(id)));
             } catch (IOException e) {
+                TaskContext.progress().checkCancelled();
                 log.error("Failed to get assignments for course from Canvas", e);
             }
 
@@ -257,9 +280,11 @@ public class CanvasService {
             Optional<Progress> progress = Optional.empty();
 
             try {
+                meterCall();
                 progress = writer.gradeMultipleSubmissionsByCourse(builtSubmissions);
 
             } catch (IOException e) {
+                TaskContext.progress().checkCancelled();
                 log.error("Failed to publish scores!", e);
             }
 
@@ -285,8 +310,10 @@ public class CanvasService {
             Optional<Progress> progress = Optional.empty();
 
             try {
+                meterCall();
                 progress = reader.getProgress(asyncTaskId);
             } catch (IOException e) {
+                TaskContext.progress().checkCancelled();
                 log.error("Failed to get progress status!", e);
             }
 
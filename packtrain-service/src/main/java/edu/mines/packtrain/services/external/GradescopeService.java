@@ -5,6 +5,9 @@ import edu.mines.packtrain.managers.ImpersonationManager;
 import edu.mines.packtrain.models.ExternalAssignment;
 import edu.mines.packtrain.models.User;
 import edu.mines.packtrain.models.enums.CredentialType;
+import edu.mines.packtrain.services.tasks.TaskContext;
+import edu.mines.packtrain.services.tasks.TaskMeteringInterceptor;
+import edu.mines.packtrain.services.tasks.TaskResourceMeter;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.PipedInputStream;
@@ -12,6 +15,7 @@ import java.io.PipedOutputStream;
 import java.net.HttpCookie;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Optional;
 import java.util.UUID;
 import java.util.stream.Collectors;
 import lombok.extern.slf4j.Slf4j;
@@ -49,7 +53,10 @@ public class GradescopeService {
             return;
         }
 
-        client = RestClient.builder().baseUrl(config.getUri()).build();
+        client = RestClient.builder().baseUrl(config.getUri())
+                .requestInterceptor(new TaskMeteringInterceptor(
+                        TaskResourceMeter.ExternalService.GRADESCOPE))
+                .build();
     }
 
     private Map<String, String> login(ImpersonationManager.ImpersonatedUserProvider provider,
@@ -128,13 +135,20 @@ public class GradescopeService {
             return null;
         }
 
+        // the body is streamed on another thread, so the meter has to be picked up here
+        Optional<TaskResourceMeter> meter = TaskContext.meter();
+        meter.ifPresent(m -> m.recordExternalCall(TaskResourceMeter.ExternalService.GRADESCOPE, 0));
+
         Flux<DataBuffer> res = WebClient.create(config.getUri().toString())
                 .get().uri("/courses/{}/assignments/{}/scores.csv",
                         courseId, assignment.getExternalId())
                 .cookies(c -> c.setAll(cookies))
                 .accept(MediaType.ALL)
                 .retrieve()
-                .bodyToFlux(DataBuffer.class);
+                .bodyToFlux(DataBuffer.class)
+                .doOnNext(buffer -> meter.ifPresent(m -> m.recordBytesReceived(
+                        TaskResourceMeter.ExternalService.GRADESCOPE,
+                        buffer.readableByteCount())));
 
 
         PipedOutputStream output = new PipedOutputStream();
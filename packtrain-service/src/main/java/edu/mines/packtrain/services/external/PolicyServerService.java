@@ -6,6 +6,8 @@ import edu.mines.packtrain.data.PolicyDryRunResultsDTO;
 import edu.mines.packtrain.data.PolicyRawScoreDTO;
 import edu.mines.packtrain.data.policyServer.GradingStartDTO;
 import edu.mines.packtrain.data.policyServer.ValidateDTO;
+import edu.mines.packtrain.services.tasks.TaskMeteringInterceptor;
+import edu.mines.packtrain.services.tasks.TaskResourceMeter;
 import java.util.Optional;
 import lombok.SneakyThrows;
 import lombok.extern.slf4j.Slf4j;
@@ -41,6 +43,8 @@ public class PolicyServerService {
 
         client = RestClient.builder()
                 .baseUrl(this.config.getUri())
+                .requestInterceptor(new TaskMeteringInterceptor(
+                        TaskResourceMeter.ExternalService.POLICY_SERVER))
                 .build();
     }
 
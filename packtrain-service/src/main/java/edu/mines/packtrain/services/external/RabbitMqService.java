@@ -7,6 +7,7 @@ import com.rabbitmq.client.Connection;
 import com.rabbitmq.client.ConnectionFactory;
 import com.rabbitmq.client.DefaultConsumer;
 import com.rabbitmq.client.Envelope;
+import com.rabbitmq.client.ShutdownSignalException;
 import edu.mines.packtrain.config.ExternalServiceConfig;
 import edu.mines.packtrain.data.PolicyRawScoreDTO;
 import edu.mines.packtrain.data.policyServer.ScoredDTO;
@@ -14,9 +15,16 @@ import java.io.IOException;
 import java.net.URISyntaxException;
 import java.security.KeyManagementException;
 import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import java.util.function.Consumer;
+import java.util.function.LongConsumer;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
@@ -26,6 +34,9 @@ public class RabbitMqService {
     private final ExternalServiceConfig.RabbitMqConfig rabbitMqConfig;
     private final ObjectMapper mapper;
     private Connection rabbitMqConnection;
+    private final ScheduledExecutorService flushScheduler = Executors
+            .newSingleThreadScheduledExecutor(Thread.ofPlatform().daemon()
+                    .name("score-batch-flush").factory());
 
     public RabbitMqService(ExternalServiceConfig.RabbitMqConfig rabbitMqConfig,
                            ObjectMapper mapper) throws URISyntaxException,
@@ -79,8 +90,20 @@ public class RabbitMqService {
         return Optional.empty();
     }
 
+    /**
+     * Creates a channel that consumes the scores the policy server sends back for a migration.
+     * <br></br>
+     * Scores are handed to {@code onScoresReceived} in batches (see
+     * {@link ExternalServiceConfig.RabbitMqConfig#getScoreBatchSize()}), so they can be written
+     * in bulk instead of one at a time. Scores that can't be parsed or handled are rejected and
+     * counted to {@code onScoresRejected} instead.
+     * <br></br>
+     * A batch that {@code onScoresReceived} throws on is handed to it again one score at a time,
+     * so it should only throw if none of the batch was written.
+     */
     public Optional<Channel> createScoreReceivedChannel(String routingKey,
-                                                        Consumer<ScoredDTO> onScoreReceived) {
+                                                        Consumer<List<ScoredDTO>> onScoresReceived,
+                                                        LongConsumer onScoresRejected) {
         log.info("Creating new score received channel for migration with routing key '{}'",
                 routingKey);
 
@@ -94,22 +117,11 @@ public class RabbitMqService {
             log.info("Bind score received queue '{}' on exchange '{}' with routing key '{}'",
                     queueName, rabbitMqConfig.getExchangeName(), routingKey);
 
-            recievedChannel.basicConsume(queueName, false, new DefaultConsumer(
-                    recievedChannel) {
-                @Override
-                public void handleDelivery(String consumerTag, Envelope envelope,
-                                           AMQP.BasicProperties properties, byte[] body)
-                    throws IOException {
-                    long deliveryTag = envelope.getDeliveryTag();
-
-                    ScoredDTO parsedBody = mapper.readValue(body, ScoredDTO.class);
-                    log.debug("Received: {}", parsedBody);
-
-                    onScoreReceived.accept(parsedBody);
-
-                    recievedChannel.basicAck(deliveryTag, false);
-                }
-            });
+            // enough to fill the next batch while the current one is being written
+            recievedChannel.basicQos(rabbitMqConfig.getScoreBatchSize() * 2);
+            recievedChannel.basicConsume(queueName, false,
+                    new BatchingScoreConsumer(recievedChannel, onScoresReceived,
+                            onScoresRejected));
 
             log.info("Bind consumer to queue '{}'", queueName);
 
@@ -124,6 +136,121 @@ public class RabbitMqService {
         return Optional.empty();
     }
 
+    /**
+     * Collects score deliveries into batches. A batch is handled once it is full or once its
+     * first score has waited long enough, and is then acked with a single {@code multiple} ack.
+     * <br></br>
+     * If a batch fails, its scores are retried one at a time so one bad score doesn't hold up the
+     * rest. Scores that still fail are rejected, and reported so whoever is waiting on them knows
+     * they won't arrive.
+     */
+    private class BatchingScoreConsumer extends DefaultConsumer {
+        private final Consumer<List<ScoredDTO>> onScoresReceived;
+        private final LongConsumer onScoresRejected;
+        private final List<ScoredDTO> scores = new ArrayList<>();
+        private final List<Long> deliveryTags = new ArrayList<>();
+        private ScheduledFuture<?> scheduledFlush;
+
+        private BatchingScoreConsumer(Channel channel, Consumer<List<ScoredDTO>> onScoresReceived,
+                                      LongConsumer onScoresRejected) {
+            super(channel);
+            this.onScoresReceived = onScoresReceived;
+            this.onScoresRejected = onScoresRejected;
+        }
+
+        @Override
+        public void handleDelivery(String consumerTag, Envelope envelope,
+                                   AMQP.BasicProperties properties, byte[] body)
+            throws IOException {
+            long deliveryTag = envelope.getDeliveryTag();
+
+            ScoredDTO parsedBody;
+            try {
+                parsedBody = mapper.readValue(body, ScoredDTO.class);
+            } catch (IOException e) {
+                log.error("Failed to parse received score", e);
+                reject(deliveryTag);
+                return;
+            }
+            log.debug("Received: {}", parsedBody);
+
+            synchronized (this) {
+                scores.add(parsedBody);
+                deliveryTags.add(deliveryTag);
+
+                if (scores.size() >= rabbitMqConfig.getScoreBatchSize()) {
+                    flush();
+                } else if (scheduledFlush == null) {
+                    // flushed off the scheduler thread so one slow batch doesn't hold up the
+                    // other migrations' batches
+                    scheduledFlush = flushScheduler.schedule(
+                            () -> Thread.startVirtualThread(this::flushQuietly),
+                            rabbitMqConfig.getScoreBatchDelayMs(), TimeUnit.MILLISECONDS);
+                }
+            }
+        }
+
+        @Override
+        public void handleShutdownSignal(String consumerTag, ShutdownSignalException sig) {
+            // whatever is buffered can't be acked anymore, but it has still been received
+            flushQuietly();
+        }
+
+        private void flushQuietly() {
+            try {
+                flush();
+            } catch (IOException | ShutdownSignalException e) {
+                log.warn("Failed to ack received scores", e);
+            }
+        }
+
+        private synchronized void flush() throws IOException {
+            if (scheduledFlush != null) {
+                scheduledFlush.cancel(false);
+                scheduledFlush = null;
+            }
+            if (scores.isEmpty()) {
+                return;
+            }
+
+            List<ScoredDTO> batch = List.copyOf(scores);
+            List<Long> batchTags = List.copyOf(deliveryTags);
+            scores.clear();
+            deliveryTags.clear();
+
+            try {
+                onScoresReceived.accept(batch);
+            } catch (RuntimeException e) {
+                log.warn("Failed to handle batch of {} scores, retrying them one at a time",
+                        batch.size(), e);
+                handleIndividually(batch, batchTags);
+                return;
+            }
+
+            getChannel().basicAck(batchTags.getLast(), true);
+        }
+
+        private void handleIndividually(List<ScoredDTO> batch, List<Long> batchTags)
+                throws IOException {
+            for (int i = 0; i < batch.size(); i++) {
+                try {
+                    onScoresReceived.accept(List.of(batch.get(i)));
+                } catch (RuntimeException e) {
+                    log.error("Failed to handle score for '{}'", batch.get(i).getCwid(), e);
+                    reject(batchTags.get(i));
+                    continue;
+                }
+                getChannel().basicAck(batchTags.get(i), false);
+            }
+        }
+
+        private void reject(long deliveryTag) throws IOException {
+            // counted first, the score is gone either way even if the reject itself fails
+            onScoresRejected.accept(1);
+            getChannel().basicReject(deliveryTag, false);
+        }
+    }
+
     public boolean sendScore(Channel channel, String routingKey, PolicyRawScoreDTO rawScore) {
         if (!channel.isOpen()) {
             log.warn("Raw grade publish channel is closed! Attempting to recover");
@@ -2,7 +2,11 @@ package edu.mines.packtrain.services.external;
 
 import edu.mines.packtrain.config.ExternalServiceConfig;
 import edu.mines.packtrain.models.User;
+import edu.mines.packtrain.services.tasks.TaskContext;
+import edu.mines.packtrain.services.tasks.TaskMeteringInterceptor;
+import edu.mines.packtrain.services.tasks.TaskResourceMeter;
 import io.minio.BucketExistsArgs;
+import io.minio.GetObjectArgs;
 import io.minio.MakeBucketArgs;
 import io.minio.MinioClient;
 import io.minio.ObjectWriteResponse;
@@ -11,6 +15,7 @@ import io.minio.RemoveObjectArgs;
 import io.minio.SetBucketPolicyArgs;
 import io.minio.StatObjectArgs;
 import io.minio.errors.MinioException;
+import io.minio.http.HttpUtils;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
@@ -22,7 +27,12 @@ import java.util.Map;
 import java.util.Optional;
 import java.util.StringJoiner;
 import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 import lombok.extern.slf4j.Slf4j;
+import okhttp3.Interceptor;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.RestClient;
@@ -31,6 +41,13 @@ import org.springframework.web.client.RestClient;
 @Slf4j
 public class S3Service {
 
+    // the same as minio's own client
+    private static final long DEFAULT_TIMEOUT = TimeUnit.MINUTES.toMillis(5);
+    // raw score uploads hold student data, so they get their own bucket without the public read
+    // policy the course buckets have
+    private static final String RAW_SCORE_UPLOAD_BUCKET = "raw-score-uploads";
+    private static final long UPLOAD_PART_SIZE = 10485760;
+
     private RestClient restClient;
     private MinioClient s3Client;
     private final ExternalServiceConfig.S3Config config;
@@ -44,8 +61,28 @@ public class S3Service {
         s3Client = MinioClient.builder()
                 .endpoint(config.getEndpoint().toURL())
                 .credentials(config.getAccessKey(), config.getSecretKey())
+                .httpClient(HttpUtils.newDefaultHttpClient(DEFAULT_TIMEOUT, DEFAULT_TIMEOUT,
+                                DEFAULT_TIMEOUT).newBuilder()
+                        .addInterceptor(S3Service::meterRequest)
+                        .build())
+                .build();
+        restClient = RestClient.builder()
+                .requestInterceptor(new TaskMeteringInterceptor(
+                        TaskResourceMeter.ExternalService.S3))
                 .build();
-        restClient = RestClient.create();
+    }
+
+    private static Response meterRequest(Interceptor.Chain chain) throws IOException {
+        Optional<TaskResourceMeter> meter = TaskContext.meter();
+        RequestBody body = chain.request().body();
+        meter.ifPresent(m -> m.recordExternalCall(TaskResourceMeter.ExternalService.S3,
+                body == null ? 0 : body.contentLength()));
+
+        Response response = chain.proceed(chain.request());
+        ResponseBody responseBody = response.body();
+        meter.ifPresent(m -> m.recordBytesReceived(TaskResourceMeter.ExternalService.S3,
+                responseBody == null ? 0 : responseBody.contentLength()));
+        return response;
     }
 
     private boolean bucketExists(String bucket) {
@@ -223,6 +260,68 @@ public class S3Service {
         return true;
     }
 
+    /**
+     * Spools an uploaded raw score file until the import task that reads it has finished.
+     *
+     * @return the name of the spooled object
+     */
+    public String spoolRawScoreUpload(UUID migrationId, InputStream file) {
+        if (!config.isEnabled()) {
+            throw new ExternalServiceDisabledException("S3 Service is disabled!");
+        }
+
+        String objectName = String.format("%s/%s.csv", migrationId, UUID.randomUUID());
+
+        try {
+            if (!bucketExists(RAW_SCORE_UPLOAD_BUCKET)) {
+                s3Client.makeBucket(MakeBucketArgs.builder().bucket(RAW_SCORE_UPLOAD_BUCKET)
+                        .build());
+            }
+
+            s3Client.putObject(PutObjectArgs.builder()
+                    .bucket(RAW_SCORE_UPLOAD_BUCKET)
+                    .object(objectName)
+                    .stream(file, -1, UPLOAD_PART_SIZE)
+                    .contentType("text/csv")
+                    .build());
+        } catch (MinioException | InvalidKeyException | IOException | NoSuchAlgorithmException e) {
+            log.error("Failed to spool raw score upload for migration '{}'", migrationId, e);
+            throw new RuntimeException("Failed to spool raw score upload", e);
+        }
+
+        return objectName;
+    }
+
+    public InputStream openRawScoreUpload(String objectName) throws IOException {
+        if (!config.isEnabled()) {
+            throw new ExternalServiceDisabledException("S3 Service is disabled!");
+        }
+
+        try {
+            return s3Client.getObject(GetObjectArgs.builder()
+                    .bucket(RAW_SCORE_UPLOAD_BUCKET)
+                    .object(objectName)
+                    .build());
+        } catch (MinioException | InvalidKeyException | NoSuchAlgorithmException e) {
+            throw new IOException(String.format("Failed to open raw score upload '%s'",
+                    objectName), e);
+        }
+    }
+
+    public void deleteRawScoreUpload(String objectName) {
+        if (!config.isEnabled()) {
+            throw new ExternalServiceDisabledException("S3 Service is disabled!");
+        }
+
+        try {
+            s3Client.removeObject(RemoveObjectArgs.builder().bucket(RAW_SCORE_UPLOAD_BUCKET)
+                    .object(objectName).build());
+        } catch (MinioException | IOException | InvalidKeyException | NoSuchAlgorithmException e) {
+            // left behind, but only ever read by the task that spooled it
+            log.warn("Failed to remove raw score upload '{}'", objectName, e);
+        }
+    }
+
     public Optional<String> getPolicy(String url) {
         if (!config.isEnabled()) {
             throw new ExternalServiceDisabledException("S3 Service is disabled!");
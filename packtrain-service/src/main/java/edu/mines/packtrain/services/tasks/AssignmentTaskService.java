@@ -22,16 +22,14 @@ import java.util.Set;
 import java.util.UUID;
 import java.util.stream.Collectors;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.stereotype.Service;
 
 @Slf4j
 @Service
-public class AssignmentTaskService {
+public class AssignmentTaskService implements TaskHandlerProvider {
 
     private final ScheduledTaskRepo<AssignmentsSyncTaskDef> taskRepo;
-    private final ApplicationEventPublisher eventPublisher;
     private final CourseService courseService;
     private final ImpersonationManager impersonationManager;
     private final CanvasService canvasService;
@@ -40,14 +38,12 @@ public class AssignmentTaskService {
     private final ObjectMapper objectMapper = new ObjectMapper();
 
     public AssignmentTaskService(ScheduledTaskRepo<AssignmentsSyncTaskDef> taskRepo,
-                                 ApplicationEventPublisher eventPublisher,
                                  CourseService courseService,
                                  ImpersonationManager impersonationManager,
                                  CanvasService canvasService,
                                  AssignmentService assignmentService,
                                  SimpMessagingTemplate messagingTemplate) {
         this.taskRepo = taskRepo;
-        this.eventPublisher = eventPublisher;
         this.courseService = courseService;
         this.impersonationManager = impersonationManager;
         this.canvasService = canvasService;
@@ -55,9 +51,16 @@ public class AssignmentTaskService {
         this.messagingTemplate = messagingTemplate;
     }
 
-    public ScheduledTaskDef syncAssignmentsFromCanvas(User actingUser, Set<Long> dependencies,
-                                                      UUID courseId, boolean addNew,
-                                                      boolean deleteOld, boolean updateExisting) {
+    @Override
+    public void registerTaskHandlers(TaskHandlerRegistry registry) {
+        registry.register(AssignmentsSyncTaskDef.class, this::createSyncAssignmentsTaskData);
+    }
+
+    public AssignmentsSyncTaskDef syncAssignmentsFromCanvas(TaskBatch batch, User actingUser,
+                                                            UUID courseId, boolean addNew,
+                                                            boolean deleteOld,
+                                                            boolean updateExisting,
+                                                            ScheduledTaskDef... dependsOn) {
         AssignmentsSyncTaskDef task = new AssignmentsSyncTaskDef();
         task.setCourseToSync(courseId);
         task.setTaskName(String.format("Sync Course '%s': Course Assignments", courseId));
@@ -65,13 +68,17 @@ public class AssignmentTaskService {
         task.shouldAddNewAssignments(addNew);
         task.shouldDeleteAssignments(deleteOld);
         task.shouldUpdateAssignments(updateExisting);
-        task = taskRepo.save(task);
+        task.setIdempotencyKey(TaskSubmissionService.idempotencyKey(AssignmentsSyncTaskDef.class,
+                courseId, addNew, deleteOld, updateExisting));
+
+        return batch.add(task, this::createSyncAssignmentsTaskData, dependsOn);
+    }
 
+    private NewTaskEvent.TaskData<AssignmentsSyncTaskDef> createSyncAssignmentsTaskData(long taskId) {
         CourseSyncNotificationDTO notificationDTO = CourseSyncNotificationDTO.builder()
                 .assignmentsComplete(true).build();
         NewTaskEvent.TaskData<AssignmentsSyncTaskDef> taskDefinition = new NewTaskEvent.TaskData<>(
-                taskRepo, task.getId(), this::syncAssignmentTask);
-        taskDefinition.setDependsOn(dependencies);
+                taskRepo, taskId, this::syncAssignmentTask);
         taskDefinition.setOnJobComplete(Optional.of(_ -> {
             try {
                 messagingTemplate.convertAndSend("/courses/sync",
@@ -91,9 +98,7 @@ public class AssignmentTaskService {
             }
         }));
 
-        eventPublisher.publishEvent(new NewTaskEvent(this, taskDefinition));
-
-        return task;
+        return taskDefinition;
     }
 
     public void syncAssignmentTask(AssignmentsSyncTaskDef task) {
@@ -114,6 +119,8 @@ public class AssignmentTaskService {
         List<Assignment> assignments = canvasService.asUser(impersonatedUser)
                 .getCourseAssignments(course.getCanvasId());
 
+        TaskContext.progress().checkCancelled();
+
         Set<Long> incomingAssignments = assignments.stream().map(Assignment::getId)
                 .collect(Collectors.toSet());
 
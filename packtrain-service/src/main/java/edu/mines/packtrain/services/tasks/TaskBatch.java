@@ -0,0 +1,115 @@
+package edu.mines.packtrain.services.tasks;
+
+import edu.mines.packtrain.events.NewTaskEvent;
+import edu.mines.packtrain.models.tasks.ScheduledTaskDef;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.LongFunction;
+
+/**
+ * A graph of tasks that are saved and queued together by {@link TaskSubmissionService}.
+ * <br></br>
+ * Tasks are added unsaved, along with the handler that builds their
+ * {@link NewTaskEvent.TaskData}. Dependencies are given as task defs rather than ids, as the ids are
+ * only assigned when the whole batch is saved.
+ * <br></br>
+ * A task with an idempotency key joins the identical task that is already in flight (if there is
+ * one) instead of being submitted again, and anything in the batch that depends on it waits on the
+ * in flight task instead.
+ */
+public class TaskBatch {
+    private static final class Member<T extends ScheduledTaskDef> {
+        private final T task;
+        private final LongFunction<NewTaskEvent.TaskData<T>> handler;
+        private final List<ScheduledTaskDef> dependsOn;
+        private final Set<Long> dependsOnIds;
+        // the in flight task this one was folded into, if any
+        private ScheduledTaskDef joined;
+
+        private Member(T task, LongFunction<NewTaskEvent.TaskData<T>> handler,
+                       List<ScheduledTaskDef> dependsOn, Set<Long> dependsOnIds) {
+            this.task = task;
+            this.handler = handler;
+            this.dependsOn = dependsOn;
+            this.dependsOnIds = dependsOnIds;
+        }
+
+        private ScheduledTaskDef getEffectiveTask() {
+            return joined != null ? joined : task;
+        }
+    }
+
+    private final UUID courseId;
+    private final int priority;
+    private final List<Member<?>> members = new ArrayList<>();
+    // task defs are compared by value, so members are looked up by identity
+    private final Map<ScheduledTaskDef, Member<?>> membersByTask = new IdentityHashMap<>();
+
+    public TaskBatch(UUID courseId, int priority) {
+        this.courseId = courseId;
+        this.priority = priority;
+    }
+
+    public <T extends ScheduledTaskDef> T add(T task, LongFunction<NewTaskEvent.TaskData<T>> handler,
+                                              ScheduledTaskDef... dependsOn) {
+        return add(task, handler, Set.of(), dependsOn);
+    }
+
+    /**
+     * Adds a task that also depends on tasks that were submitted before this batch.
+     */
+    public <T extends ScheduledTaskDef> T add(T task, LongFunction<NewTaskEvent.TaskData<T>> handler,
+                                              Set<Long> dependsOnIds,
+                                              ScheduledTaskDef... dependsOn) {
+        Member<T> member = new Member<>(task, handler, List.of(dependsOn), dependsOnIds);
+        members.add(member);
+        membersByTask.put(task, member);
+        return task;
+    }
+
+    public boolean isEmpty() {
+        return members.isEmpty();
+    }
+
+    /**
+     * The tasks in the batch, in the order they were added. Once submitted, tasks that joined an
+     * in flight task are replaced by that task.
+     */
+    public List<ScheduledTaskDef> getTasks() {
+        return members.stream().map(Member::getEffectiveTask).toList();
+    }
+
+    List<ScheduledTaskDef> getNewTasks() {
+        return members.stream().filter(m -> m.joined == null)
+                .map(m -> (ScheduledTaskDef) m.task).toList();
+    }
+
+    void join(ScheduledTaskDef task, ScheduledTaskDef inFlight) {
+        membersByTask.get(task).joined = inFlight;
+    }
+
+    List<NewTaskEvent.TaskData<?>> createTaskData() {
+        return members.stream().filter(m -> m.joined == null)
+                .<NewTaskEvent.TaskData<?>>map(this::createTaskData)
+                .toList();
+    }
+
+    private <T extends ScheduledTaskDef> NewTaskEvent.TaskData<T> createTaskData(Member<T> member) {
+        Set<Long> dependsOn = new HashSet<>(member.dependsOnIds);
+        for (ScheduledTaskDef dep : member.dependsOn) {
+            Member<?> depMember = membersByTask.get(dep);
+            dependsOn.add(depMember != null ? depMember.getEffectiveTask().getId() : dep.getId());
+        }
+
+        NewTaskEvent.TaskData<T> data = member.handler.apply(member.task.getId());
+        data.setCourseId(courseId);
+        data.setPriority(priority);
+        data.setDependsOn(dependsOn);
+        return data;
+    }
+}
@@ -0,0 +1,61 @@
+package edu.mines.packtrain.services.tasks;
+
+import edu.mines.packtrain.config.TaskExecutorConfig;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.stream.Collectors;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+/**
+ * Limits how many tasks of each type may run at once, so that a burst of one kind of task
+ * (ie: Canvas syncs at the start of term) can't starve every other kind.
+ * <br></br>
+ * Permits are taken before a task is claimed from the queue, so a replica never leases work it
+ * doesn't have room to run - that work is left for the other replicas instead.
+ */
+@Component
+@Slf4j
+public class TaskBulkhead {
+    private final TaskExecutorConfig.BulkheadConfig config;
+    private final Map<String, Semaphore> permits = new ConcurrentHashMap<>();
+
+    public TaskBulkhead(TaskExecutorConfig.BulkheadConfig config) {
+        this.config = config;
+    }
+
+    private Semaphore permitsFor(String taskType) {
+        return permits.computeIfAbsent(taskType,
+                type -> new Semaphore(config.getConcurrency(type), true));
+    }
+
+    public boolean tryAcquire(String taskType) {
+        boolean acquired = permitsFor(taskType).tryAcquire();
+
+        if (!acquired) {
+            log.debug("Bulkhead for '{}' is full", taskType);
+        }
+
+        return acquired;
+    }
+
+    public void release(String taskType) {
+        permitsFor(taskType).release();
+    }
+
+    public int availablePermits(String taskType) {
+        return permitsFor(taskType).availablePermits();
+    }
+
+    /**
+     * @return the task types that currently have no permits left
+     */
+    public Set<String> getSaturatedTaskTypes() {
+        return permits.entrySet().stream()
+                .filter(e -> e.getValue().availablePermits() == 0)
+                .map(Map.Entry::getKey)
+                .collect(Collectors.toSet());
+    }
+}
@@ -0,0 +1,11 @@
+package edu.mines.packtrain.services.tasks;
+
+/**
+ * Raised inside a job once its task has been cancelled (by a user, or by the watchdog when it ran
+ * past its deadline), so the job unwinds instead of carrying on with the rest of its work.
+ */
+public class TaskCancelledException extends RuntimeException {
+    public TaskCancelledException(String reason) {
+        super(reason);
+    }
+}
@@ -0,0 +1,58 @@
+package edu.mines.packtrain.services.tasks;
+
+import java.util.Optional;
+
+/**
+ * Gives a running job access to its own task's progress and resource meter without having to
+ * thread them through every call.
+ * <br></br>
+ * Outside a task (ie: when a job method is called directly in tests) progress updates are
+ * silently dropped.
+ */
+public final class TaskContext {
+    private static final ThreadLocal<TaskProgress> CURRENT = new ThreadLocal<>();
+    // shared by every caller outside a task, so it must not hold on to anything
+    private static final TaskProgress DETACHED = new TaskProgress(-1) {
+        @Override
+        public void startPhase(String phase, Long total) {
+        }
+
+        @Override
+        public void setTotal(long total) {
+        }
+
+        @Override
+        public void increment(long count) {
+        }
+
+        @Override
+        public void runCancellable(Runnable job) {
+            job.run();
+        }
+    };
+
+    private TaskContext() {
+    }
+
+    public static TaskProgress progress() {
+        TaskProgress progress = CURRENT.get();
+        return progress == null ? DETACHED : progress;
+    }
+
+    /**
+     * The meter of the task running on this thread, if any. Unlike progress there is no detached
+     * fallback, work done outside a task shouldn't be counted against anything.
+     */
+    public static Optional<TaskResourceMeter> meter() {
+        TaskProgress progress = CURRENT.get();
+        return progress == null ? Optional.empty() : Optional.of(progress.getMeter());
+    }
+
+    static void attach(TaskProgress progress) {
+        CURRENT.set(progress);
+    }
+
+    static void detach() {
+        CURRENT.remove();
+    }
+}
@@ -0,0 +1,188 @@
+package edu.mines.packtrain.services.tasks;
+
+import edu.mines.packtrain.events.NewTaskEvent;
+import edu.mines.packtrain.models.tasks.ScheduleStatus;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * In memory DAG of submitted tasks.
+ * A task is handed to {@code onReady} as soon as every task it depends on has completed,
+ * and dependents are released (or failed) the moment their parent finishes.
+ * <br></br>
+ * Dependencies that the graph has never seen (ie: their event has not arrived yet, or they were
+ * submitted on another replica) have their status looked up once when the dependent is submitted.
+ * One that has already finished without completing fails the dependent straight away.
+ * <br></br>
+ * A dependency that finishes on another replica is never reported here. That replica releases
+ * (or fails) the dependents itself, and {@link #syncRemoteDependencies()} later drops them from
+ * this graph.
+ */
+@Slf4j
+public class TaskDependencyGraph {
+    private static final Set<ScheduleStatus> UNFINISHED = EnumSet.of(ScheduleStatus.CREATED,
+            ScheduleStatus.QUEUED, ScheduleStatus.STARTED);
+
+    private static class PendingTask {
+        private final NewTaskEvent.TaskData<?> data;
+        private final Set<Long> waitingOn;
+
+        PendingTask(NewTaskEvent.TaskData<?> data, Set<Long> waitingOn) {
+            this.data = data;
+            this.waitingOn = waitingOn;
+        }
+    }
+
+    private final Map<Long, PendingTask> pending = new HashMap<>();
+    private final Map<Long, Set<Long>> dependents = new HashMap<>();
+    private final Set<Long> inFlight = new HashSet<>();
+
+    private final Function<Long, ScheduleStatus> statusLookup;
+    private final Consumer<NewTaskEvent.TaskData<?>> onReady;
+    private final BiConsumer<NewTaskEvent.TaskData<?>, String> onDependencyFailed;
+
+    public TaskDependencyGraph(Function<Long, ScheduleStatus> statusLookup,
+                               Consumer<NewTaskEvent.TaskData<?>> onReady,
+                               BiConsumer<NewTaskEvent.TaskData<?>, String> onDependencyFailed) {
+        this.statusLookup = statusLookup;
+        this.onReady = onReady;
+        this.onDependencyFailed = onDependencyFailed;
+    }
+
+    public void submit(NewTaskEvent.TaskData<?> data) {
+        long taskId = data.getTaskId();
+        Set<Long> waitingOn = new HashSet<>();
+        boolean dependencyFailed = false;
+
+        synchronized (this) {
+            for (Long dependency : data.getDependsOn()) {
+                if (inFlight.contains(dependency)) {
+                    waitingOn.add(dependency);
+                    continue;
+                }
+
+                // the status is read while holding the lock so that a parent can't finish
+                // between the lookup and the dependent being registered
+                ScheduleStatus status = statusLookup.apply(dependency);
+
+                if (status == ScheduleStatus.COMPLETED) {
+                    continue;
+                }
+
+                // failed, cancelled or never saved
+                if (!UNFINISHED.contains(status)) {
+                    dependencyFailed = true;
+                    break;
+                }
+
+                waitingOn.add(dependency);
+            }
+
+            inFlight.add(taskId);
+
+            if (!dependencyFailed && !waitingOn.isEmpty()) {
+                pending.put(taskId, new PendingTask(data, waitingOn));
+                waitingOn.forEach(dep -> dependents.computeIfAbsent(dep, _ -> new HashSet<>())
+                        .add(taskId));
+
+                log.debug("Task '{}' is waiting on {} task(s)", taskId, waitingOn.size());
+                return;
+            }
+        }
+
+        if (dependencyFailed) {
+            log.error("A dependent task failed for job '{}'.", taskId);
+            onDependencyFailed.accept(data, "Dependent task failed.");
+            complete(taskId, ScheduleStatus.FAILED);
+            return;
+        }
+
+        onReady.accept(data);
+    }
+
+    public void complete(long taskId, ScheduleStatus status) {
+        List<NewTaskEvent.TaskData<?>> ready = new LinkedList<>();
+        List<NewTaskEvent.TaskData<?>> failed = new LinkedList<>();
+
+        synchronized (this) {
+            inFlight.remove(taskId);
+            // finished without being released (ie: cancelled while it was still waiting)
+            pending.remove(taskId);
+            Set<Long> children = dependents.remove(taskId);
+
+            if (children == null) {
+                return;
+            }
+
+            for (Long child : children) {
+                PendingTask task = pending.get(child);
+
+                // already released because another one of its parents failed
+                if (task == null) {
+                    continue;
+                }
+
+                if (status != ScheduleStatus.COMPLETED) {
+                    pending.remove(child);
+                    failed.add(task.data);
+                    continue;
+                }
+
+                task.waitingOn.remove(taskId);
+
+                if (task.waitingOn.isEmpty()) {
+                    pending.remove(child);
+                    ready.add(task.data);
+                }
+            }
+        }
+
+        ready.forEach(onReady);
+
+        for (NewTaskEvent.TaskData<?> data : failed) {
+            log.error("A dependent task failed for job '{}'.", data.getTaskId());
+            onDependencyFailed.accept(data, "Dependent task failed.");
+            complete(data.getTaskId(), ScheduleStatus.FAILED);
+        }
+    }
+
+    /**
+     * Completes every dependency that was not submitted to this graph and has since finished.
+     * <br></br>
+     * Statuses are looked up outside the lock, since there is one query per dependency.
+     */
+    public void syncRemoteDependencies() {
+        Set<Long> remote = new HashSet<>();
+        synchronized (this) {
+            dependents.keySet().stream().filter(dep -> !inFlight.contains(dep))
+                    .forEach(remote::add);
+        }
+
+        for (Long dependency : remote) {
+            ScheduleStatus status = statusLookup.apply(dependency);
+            if (!UNFINISHED.contains(status)) {
+                complete(dependency, status);
+            }
+        }
+    }
+
+    /**
+     * @return whether the task was submitted to this graph and has not finished yet
+     */
+    public synchronized boolean isSubmitted(long taskId) {
+        return inFlight.contains(taskId);
+    }
+
+    public synchronized int waitingCount() {
+        return pending.size();
+    }
+}
@@ -0,0 +1,9 @@
+package edu.mines.packtrain.services.tasks;
+
+/**
+ * Implemented by services that own task types, so that any replica can rebuild the job for a
+ * task it pulls off the queue (even if a different replica created the task).
+ */
+public interface TaskHandlerProvider {
+    void registerTaskHandlers(TaskHandlerRegistry registry);
+}
@@ -0,0 +1,59 @@
+package edu.mines.packtrain.services.tasks;
+
+import edu.mines.packtrain.events.NewTaskEvent;
+import edu.mines.packtrain.models.tasks.ScheduledTaskDef;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongFunction;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+
+/**
+ * Maps task types to the handler that builds the {@link NewTaskEvent.TaskData} for a task id.
+ * <br></br>
+ * Providers are looked up lazily so that task owning services are free to depend on the task
+ * executor without creating a cycle.
+ */
+@Component
+@Slf4j
+public class TaskHandlerRegistry {
+    private final ObjectProvider<TaskHandlerProvider> providers;
+    private final Map<String, LongFunction<NewTaskEvent.TaskData<?>>> handlers =
+            new ConcurrentHashMap<>();
+    private volatile boolean loaded = false;
+
+    public TaskHandlerRegistry(ObjectProvider<TaskHandlerProvider> providers) {
+        this.providers = providers;
+    }
+
+    private void loadProviders() {
+        if (loaded) {
+            return;
+        }
+
+        synchronized (this) {
+            if (!loaded) {
+                providers.orderedStream().forEach(p -> p.registerTaskHandlers(this));
+                loaded = true;
+            }
+        }
+    }
+
+    public <T extends ScheduledTaskDef> void register(Class<T> taskType,
+                                                      LongFunction<NewTaskEvent.TaskData<T>> handler) {
+        log.debug("Registering handler for task type '{}'", taskType.getSimpleName());
+        handlers.put(taskType.getSimpleName(), handler::apply);
+    }
+
+    public boolean isRegistered(String taskType) {
+        loadProviders();
+        return handlers.containsKey(taskType);
+    }
+
+    public Optional<NewTaskEvent.TaskData<?>> createTaskData(String taskType, long taskId) {
+        loadProviders();
+        return Optional.ofNullable(handlers.get(taskType)).map(h -> h.apply(taskId));
+    }
+}
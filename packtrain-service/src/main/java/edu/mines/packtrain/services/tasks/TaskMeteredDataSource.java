@@ -0,0 +1,101 @@
+package edu.mines.packtrain.services.tasks;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.Optional;
+import javax.sql.DataSource;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+/**
+ * Counts the statements run (and rows they wrote) against the task running on the current
+ * thread.
+ * <br></br>
+ * Connections handed out outside a task are returned as is, so requests pay nothing for it.
+ * Rows written are only known for plain updates and batches, statements that return rows (ie:
+ * {@code update ... returning}) only count as a statement.
+ */
+public class TaskMeteredDataSource extends DelegatingDataSource {
+    public TaskMeteredDataSource(DataSource targetDataSource) {
+        super(targetDataSource);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return meter(super.getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return meter(super.getConnection(username, password));
+    }
+
+    private static Connection meter(Connection connection) {
+        Optional<TaskResourceMeter> meter = TaskContext.meter();
+        if (meter.isEmpty()) {
+            return connection;
+        }
+
+        return proxy(Connection.class, new ConnectionHandler(connection, meter.get()));
+    }
+
+    private static <T> T proxy(Class<T> type, InvocationHandler handler) {
+        return type.cast(Proxy.newProxyInstance(TaskMeteredDataSource.class.getClassLoader(),
+                new Class<?>[]{type}, handler));
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    private record ConnectionHandler(Connection connection, TaskResourceMeter meter)
+            implements InvocationHandler {
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            Object result = TaskMeteredDataSource.invoke(connection, method, args);
+
+            // createStatement, prepareStatement and prepareCall
+            if (result instanceof Statement statement
+                    && Statement.class.isAssignableFrom(method.getReturnType())) {
+                return proxy(method.getReturnType(), new StatementHandler(statement, meter));
+            }
+            return result;
+        }
+    }
+
+    private record StatementHandler(Statement statement, TaskResourceMeter meter)
+            implements InvocationHandler {
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            Object result = TaskMeteredDataSource.invoke(statement, method, args);
+
+            switch (method.getName()) {
+                case "execute", "executeQuery" -> meter.recordStatement(0);
+                case "executeUpdate", "executeLargeUpdate" ->
+                        meter.recordStatement(((Number) result).longValue());
+                case "executeBatch" -> meter.recordStatement(Arrays.stream((int[]) result)
+                        .asLongStream().map(StatementHandler::rowsWritten).sum());
+                case "executeLargeBatch" -> meter.recordStatement(Arrays.stream((long[]) result)
+                        .map(StatementHandler::rowsWritten).sum());
+                default -> {
+                }
+            }
+            return result;
+        }
+
+        // rewritten batches (see reWriteBatchedInserts) don't report counts, but wrote at least
+        // one row per statement
+        private static long rowsWritten(long rows) {
+            return rows == Statement.SUCCESS_NO_INFO ? 1 : Math.max(rows, 0);
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package edu.mines.packtrain.services.tasks;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Optional;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+
+/**
+ * Counts the calls (and bytes) a {@link org.springframework.web.client.RestClient} makes against
+ * the task running on the current thread.
+ */
+public class TaskMeteringInterceptor implements ClientHttpRequestInterceptor {
+    private final TaskResourceMeter.ExternalService service;
+
+    public TaskMeteringInterceptor(TaskResourceMeter.ExternalService service) {
+        this.service = service;
+    }
+
+    @Override
+    public ClientHttpResponse intercept(HttpRequest request, byte[] body,
+                                        ClientHttpRequestExecution execution) throws IOException {
+        Optional<TaskResourceMeter> meter = TaskContext.meter();
+        meter.ifPresent(m -> m.recordExternalCall(service, body.length));
+
+        ClientHttpResponse response = execution.execute(request, body);
+        if (meter.isEmpty()) {
+            return response;
+        }
+        return new MeteredResponse(response, meter.get(), service);
+    }
+
+    // the body is counted as it's read, as most responses don't come with a content length
+    private record MeteredResponse(ClientHttpResponse response, TaskResourceMeter meter,
+                                   TaskResourceMeter.ExternalService service)
+            implements ClientHttpResponse {
+        @Override
+        public HttpStatusCode getStatusCode() throws IOException {
+            return response.getStatusCode();
+        }
+
+        @Override
+        public String getStatusText() throws IOException {
+            return response.getStatusText();
+        }
+
+        @Override
+        public HttpHeaders getHeaders() {
+            return response.getHeaders();
+        }
+
+        @Override
+        public InputStream getBody() throws IOException {
+            return new FilterInputStream(response.getBody()) {
+                @Override
+                public int read() throws IOException {
+                    int b = super.read();
+                    if (b != -1) {
+                        meter.recordBytesReceived(service, 1);
+                    }
+                    return b;
+                }
+
+                @Override
+                public int read(byte[] b, int off, int len) throws IOException {
+                    int read = super.read(b, off, len);
+                    meter.recordBytesReceived(service, read);
+                    return read;
+                }
+            };
+        }
+
+        @Override
+        public void close() {
+            response.close();
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package edu.mines.packtrain.services.tasks;
+
+import edu.mines.packtrain.models.tasks.ScheduleStatus;
+import edu.mines.packtrain.models.tasks.TaskQueueEntry;
+import edu.mines.packtrain.repositories.TaskQueueRepo;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+import org.springframework.stereotype.Component;
+
+/**
+ * Micrometer instrumentation for the task executor.
+ * <br></br>
+ * Every task meter is tagged with the task type. Counters are also tagged with the course the task
+ * was submitted for, but timers aren't: each of their series carries a whole percentile
+ * histogram, so a series per course would grow with every course ever served.
+ */
+@Component
+public class TaskMetrics {
+    private final MeterRegistry meterRegistry;
+
+    public TaskMetrics(MeterRegistry meterRegistry, TaskQueueRepo taskQueueRepo) {
+        this.meterRegistry = meterRegistry;
+
+        // shared across replicas, so this is the depth of the whole queue
+        Gauge.builder("packtrain.tasks.queued", taskQueueRepo, TaskQueueRepo::countQueued)
+                .description("Tasks waiting to run or running on any replica")
+                .register(meterRegistry);
+    }
+
+    public void registerRunningGauge(Collection<?> runningTasks) {
+        Gauge.builder("packtrain.tasks.running", runningTasks, Collection::size)
+                .description("Tasks running on this replica")
+                .register(meterRegistry);
+    }
+
+    public static Tags tagsFor(TaskQueueEntry entry) {
+        return Tags.of("type", entry.getTaskType());
+    }
+
+    public static Tags courseTagsFor(TaskQueueEntry entry) {
+        return tagsFor(entry).and("course",
+                entry.getCourseId() == null ? "none" : entry.getCourseId().toString());
+    }
+
+    public void recordStarted(TaskQueueEntry entry) {
+        Timer.builder("packtrain.tasks.wait")
+                .description("Time between a task being queued and it starting")
+                .tags(tagsFor(entry))
+                .register(meterRegistry)
+                .record(Duration.between(entry.getEnqueuedTime(), Instant.now()));
+    }
+
+    public void recordRetry(TaskQueueEntry entry) {
+        Counter.builder("packtrain.tasks.retries")
+                .tags(courseTagsFor(entry))
+                .register(meterRegistry)
+                .increment();
+    }
+
+    public void recordFinished(TaskQueueEntry entry, ScheduleStatus status, Duration runTime) {
+        Timer.builder("packtrain.tasks.run")
+                .description("Time spent running a task")
+                .tags(tagsFor(entry).and("status", status.name()))
+                .register(meterRegistry)
+                .record(runTime);
+
+        // the timer counts runs too, this keeps how many there were per course
+        Counter.builder("packtrain.tasks.finished")
+                .tags(courseTagsFor(entry).and("status", status.name()))
+                .register(meterRegistry)
+                .increment();
+
+        if (status == ScheduleStatus.FAILED) {
+            Counter.builder("packtrain.tasks.failures")
+                    .tags(courseTagsFor(entry))
+                    .register(meterRegistry)
+                    .increment();
+        }
+    }
+}
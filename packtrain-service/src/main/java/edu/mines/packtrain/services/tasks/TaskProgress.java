@@ -0,0 +1,149 @@
+package edu.mines.packtrain.services.tasks;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicLong;
+import lombok.Getter;
+
+/**
+ * Progress of a single running task.
+ * <br></br>
+ * Updates only touch memory, so jobs can report progress per item without worrying about the
+ * cost - {@link TaskProgressService} takes care of persisting and publishing it periodically.
+ * <br></br>
+ * Also carries the task's cancellation. Jobs are expected to call {@link #checkCancelled()} in
+ * their loops, and a job that is blocked (ie: on a hung Canvas request) is interrupted.
+ * <br></br>
+ * Also carries the task's {@link TaskResourceMeter}.
+ */
+public class TaskProgress {
+    @Getter
+    private final long taskId;
+    @Getter
+    private final Instant startedTime = Instant.now();
+    @Getter
+    private volatile String phase;
+    @Getter
+    private volatile Long total;
+    // processed is counted per phase, so throughput is too
+    private volatile Instant phaseStartedTime = startedTime;
+    private final AtomicLong processed = new AtomicLong();
+
+    // bumped on every change, so the flushes can tell if there is anything new to write
+    private final AtomicLong version = new AtomicLong();
+    private final AtomicLong persistedVersion = new AtomicLong();
+    private final AtomicLong publishedVersion = new AtomicLong();
+
+    @Getter
+    private final TaskResourceMeter meter = new TaskResourceMeter();
+
+    @Getter
+    private volatile String cancelReason;
+    // the thread running the job, only set while the job itself is running
+    private Thread jobThread;
+
+    TaskProgress(long taskId) {
+        this.taskId = taskId;
+    }
+
+    /**
+     * Starts a new phase of the task, resetting the processed count and throughput.
+     *
+     * @param phase a human readable description of what the task is doing
+     * @param total the number of items in this phase, or null if unknown
+     */
+    public void startPhase(String phase, Long total) {
+        this.phase = phase;
+        this.total = total;
+        processed.set(0);
+        phaseStartedTime = Instant.now();
+        version.incrementAndGet();
+    }
+
+    public void setTotal(long total) {
+        this.total = total;
+        version.incrementAndGet();
+    }
+
+    public void increment() {
+        increment(1);
+    }
+
+    public void increment(long count) {
+        processed.addAndGet(count);
+        version.incrementAndGet();
+    }
+
+    public long getProcessed() {
+        return processed.get();
+    }
+
+    /**
+     * @return items processed per second since the current phase started
+     */
+    public double getThroughput() {
+        long millis = Duration.between(phaseStartedTime, Instant.now()).toMillis();
+        return millis == 0 ? 0 : processed.get() * 1000.0 / millis;
+    }
+
+    public boolean isCancelled() {
+        return cancelReason != null;
+    }
+
+    /**
+     * @throws TaskCancelledException if the task has been cancelled
+     */
+    public void checkCancelled() {
+        if (cancelReason != null) {
+            throw new TaskCancelledException(cancelReason);
+        }
+    }
+
+    /**
+     * Runs the job so that cancelling the task can interrupt it. The interrupt is cleared
+     * afterwards, so the executor can still record how the task ended.
+     */
+    public void runCancellable(Runnable job) {
+        synchronized (this) {
+            checkCancelled();
+            jobThread = Thread.currentThread();
+        }
+
+        try {
+            job.run();
+        } finally {
+            synchronized (this) {
+                jobThread = null;
+            }
+            Thread.interrupted();
+        }
+    }
+
+    /**
+     * @return false if the task was already cancelled
+     */
+    synchronized boolean cancel(String reason) {
+        if (cancelReason != null) {
+            return false;
+        }
+
+        cancelReason = reason;
+        if (jobThread != null) {
+            jobThread.interrupt();
+        }
+        return true;
+    }
+
+    boolean claimPersist() {
+        return claim(persistedVersion);
+    }
+
+    boolean claimPublish() {
+        return claim(publishedVersion);
+    }
+
+    private boolean claim(AtomicLong lastSeen) {
+        long current = version.get();
+        return lastSeen.getAndSet(current) != current;
+    }
+}
@@ -0,0 +1,120 @@
+package edu.mines.packtrain.services.tasks;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import edu.mines.packtrain.data.websockets.TaskProgressNotificationDTO;
+import edu.mines.packtrain.models.tasks.ScheduledTaskDef;
+import edu.mines.packtrain.repositories.ScheduledTaskRepo;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+/**
+ * Tracks the progress of the tasks running on this replica.
+ * <br></br>
+ * Progress is pushed to {@code /tasks/{id}/progress} at most once per publish interval, and
+ * written to the task row at most once per persist interval, no matter how often a job reports.
+ */
+@Service
+@Slf4j
+public class TaskProgressService {
+    private final ScheduledTaskRepo<? extends ScheduledTaskDef> scheduledTaskRepo;
+    private final SimpMessagingTemplate messagingTemplate;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Map<Long, TaskProgress> running = new ConcurrentHashMap<>();
+
+    public TaskProgressService(ScheduledTaskRepo<? extends ScheduledTaskDef> scheduledTaskRepo,
+                               SimpMessagingTemplate messagingTemplate) {
+        this.scheduledTaskRepo = scheduledTaskRepo;
+        this.messagingTemplate = messagingTemplate;
+    }
+
+    /**
+     * Starts tracking a task, and makes its progress available to the job through
+     * {@link TaskContext} on the calling thread.
+     */
+    public TaskProgress start(long taskId) {
+        TaskProgress progress = new TaskProgress(taskId);
+        running.put(taskId, progress);
+        TaskContext.attach(progress);
+        return progress;
+    }
+
+    /**
+     * Stops tracking a task, flushing whatever progress has not been written yet.
+     */
+    public void finish(long taskId) {
+        TaskContext.detach();
+        TaskProgress progress = running.remove(taskId);
+
+        if (progress == null) {
+            return;
+        }
+
+        persist(progress);
+        publish(progress, true);
+    }
+
+    /**
+     * Cancels a task if it is running on this replica.
+     *
+     * @return false if the task isn't running here
+     */
+    public boolean cancel(long taskId, String reason) {
+        TaskProgress progress = running.get(taskId);
+
+        if (progress == null) {
+            return false;
+        }
+
+        if (progress.cancel(reason)) {
+            log.info("Cancelling task '{}': {}", taskId, reason);
+        }
+        return true;
+    }
+
+    @Scheduled(fixedDelayString = "${grading-admin.tasks.progress.publish-interval-ms:500}")
+    public void publishProgress() {
+        running.values().stream()
+                .filter(TaskProgress::claimPublish)
+                .forEach(p -> publish(p, false));
+    }
+
+    @Scheduled(fixedDelayString = "${grading-admin.tasks.progress.persist-interval-ms:5000}")
+    public void persistProgress() {
+        running.values().stream()
+                .filter(TaskProgress::claimPersist)
+                .forEach(this::persist);
+    }
+
+    private void persist(TaskProgress progress) {
+        try {
+            scheduledTaskRepo.setProgress(progress.getTaskId(), progress.getPhase(),
+                    progress.getProcessed(), progress.getTotal());
+        } catch (Exception e) {
+            log.warn("Failed to save progress for task '{}'", progress.getTaskId(), e);
+        }
+    }
+
+    private void publish(TaskProgress progress, boolean finished) {
+        TaskProgressNotificationDTO notificationDTO = TaskProgressNotificationDTO.builder()
+                .taskId(progress.getTaskId())
+                .phase(progress.getPhase())
+                .processed(progress.getProcessed())
+                .total(progress.getTotal())
+                .itemsPerSecond(progress.getThroughput())
+                .finished(finished)
+                .build();
+
+        try {
+            messagingTemplate.convertAndSend(
+                    String.format("/tasks/%s/progress", progress.getTaskId()),
+                    objectMapper.writeValueAsString(notificationDTO));
+        } catch (JsonProcessingException _) {
+            throw new RuntimeException("Could not process JSON for sending notification DTO!");
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package edu.mines.packtrain.services.tasks;
+
+import edu.mines.packtrain.models.tasks.TaskResourceUsage;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts the database and external service work done by a running task.
+ * <br></br>
+ * The counters are fed from the JDBC and HTTP client layers of whatever thread the task runs on,
+ * see {@link TaskContext#meter()}. Work done outside a task is not counted.
+ */
+public class TaskResourceMeter {
+    public enum ExternalService {
+        CANVAS, S3, POLICY_SERVER, GRADESCOPE
+    }
+
+    private static final int SERVICES = ExternalService.values().length;
+
+    private final LongAdder statements = new LongAdder();
+    private final LongAdder rowsWritten = new LongAdder();
+    private final AtomicLongArray calls = new AtomicLongArray(SERVICES);
+    private final AtomicLongArray bytesSent = new AtomicLongArray(SERVICES);
+    private final AtomicLongArray bytesReceived = new AtomicLongArray(SERVICES);
+
+    /**
+     * @param rowsWritten rows inserted, updated or deleted by the statement, if any
+     */
+    public void recordStatement(long rowsWritten) {
+        statements.increment();
+        if (rowsWritten > 0) {
+            this.rowsWritten.add(rowsWritten);
+        }
+    }
+
+    public void recordExternalCall(ExternalService service, long bytesSent) {
+        calls.incrementAndGet(service.ordinal());
+        if (bytesSent > 0) {
+            this.bytesSent.addAndGet(service.ordinal(), bytesSent);
+        }
+    }
+
+    public void recordBytesReceived(ExternalService service, long bytesReceived) {
+        if (bytesReceived > 0) {
+            this.bytesReceived.addAndGet(service.ordinal(), bytesReceived);
+        }
+    }
+
+    /**
+     * Adds everything counted so far to {@code usage}.
+     */
+    public void addTo(TaskResourceUsage usage) {
+        usage.setJdbcStatements(usage.getJdbcStatements() + statements.sum());
+        usage.setRowsWritten(usage.getRowsWritten() + rowsWritten.sum());
+
+        addTo(usage.getCanvas(), ExternalService.CANVAS);
+        addTo(usage.getS3(), ExternalService.S3);
+        addTo(usage.getPolicyServer(), ExternalService.POLICY_SERVER);
+        addTo(usage.getGradescope(), ExternalService.GRADESCOPE);
+    }
+
+    private void addTo(TaskResourceUsage.ExternalServiceUsage usage, ExternalService service) {
+        int i = service.ordinal();
+        usage.setCalls(usage.getCalls() + calls.get(i));
+        usage.setBytesSent(usage.getBytesSent() + bytesSent.get(i));
+        usage.setBytesReceived(usage.getBytesReceived() + bytesReceived.get(i));
+    }
+}
@@ -0,0 +1,38 @@
+package edu.mines.packtrain.services.tasks;
+
+import edu.mines.packtrain.config.TaskExecutorConfig;
+import edu.mines.packtrain.repositories.ArchivedTaskRepo;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+/**
+ * Keeps the live task table small by periodically moving old finished tasks to the archive.
+ */
+@Service
+@Slf4j
+public class TaskRetentionService {
+    private final ArchivedTaskRepo archivedTaskRepo;
+    private final TaskExecutorConfig.RetentionConfig retentionConfig;
+
+    public TaskRetentionService(ArchivedTaskRepo archivedTaskRepo,
+                                TaskExecutorConfig.RetentionConfig retentionConfig) {
+        this.archivedTaskRepo = archivedTaskRepo;
+        this.retentionConfig = retentionConfig;
+    }
+
+    @Scheduled(fixedDelayString = "${grading-admin.tasks.retention.archive-interval-ms:3600000}")
+    public void archiveFinishedTasks() {
+        int total = 0;
+        int archived;
+        do {
+            archived = archivedTaskRepo.archiveFinishedTasks(retentionConfig.getRetentionDays(),
+                    retentionConfig.getArchiveBatchSize());
+            total += archived;
+        } while (archived == retentionConfig.getArchiveBatchSize());
+
+        if (total > 0) {
+            log.info("Archived {} finished task(s)", total);
+        }
+    }
+}
@@ -0,0 +1,10 @@
+package edu.mines.packtrain.services.tasks;
+
+/**
+ * Raised by the executor when a job failed with a transient error and will be retried.
+ */
+public class TaskRetryException extends RuntimeException {
+    public TaskRetryException(Throwable cause) {
+        super(cause.getMessage(), cause);
+    }
+}
@@ -0,0 +1,104 @@
+package edu.mines.packtrain.services.tasks;
+
+import edu.mines.packtrain.events.NewTaskEvent;
+import edu.mines.packtrain.models.tasks.ScheduleStatus;
+import edu.mines.packtrain.models.tasks.ScheduledTaskDef;
+import edu.mines.packtrain.repositories.ScheduledTaskRepo;
+import jakarta.transaction.Transactional;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+
+/**
+ * Saves and queues a {@link TaskBatch} in a single transaction, so either the whole graph is
+ * queued or none of it is.
+ * <br></br>
+ * Tasks with an idempotency key that is already in flight are not submitted again, the caller gets
+ * the in flight task back instead and can follow it to its result (see
+ * {@link ScheduledTaskDef#getJoinedBy()}).
+ */
+@Service
+@Slf4j
+public class TaskSubmissionService {
+    private static final Set<ScheduleStatus> IN_FLIGHT = EnumSet.of(ScheduleStatus.CREATED,
+            ScheduleStatus.QUEUED, ScheduleStatus.STARTED);
+
+    private final ScheduledTaskRepo<ScheduledTaskDef> scheduledTaskRepo;
+    private final ApplicationEventPublisher eventPublisher;
+
+    public TaskSubmissionService(ScheduledTaskRepo<ScheduledTaskDef> scheduledTaskRepo,
+                                 ApplicationEventPublisher eventPublisher) {
+        this.scheduledTaskRepo = scheduledTaskRepo;
+        this.eventPublisher = eventPublisher;
+    }
+
+    /**
+     * Builds an idempotency key out of the task type and whatever identifies the work it does
+     * (ie: the course and the sync options).
+     */
+    public static String idempotencyKey(Class<? extends ScheduledTaskDef> taskType,
+                                        Object... parameters) {
+        return Stream.concat(Stream.of(taskType.getSimpleName()), Arrays.stream(parameters))
+                .map(String::valueOf)
+                .collect(Collectors.joining(":"));
+    }
+
+    @Transactional
+    public List<ScheduledTaskDef> submit(Object source, TaskBatch batch) {
+        if (batch.isEmpty()) {
+            return List.of();
+        }
+
+        joinInFlightTasks(batch);
+
+        List<ScheduledTaskDef> newTasks = batch.getNewTasks();
+        scheduledTaskRepo.saveAll(newTasks);
+
+        if (!newTasks.isEmpty()) {
+            log.debug("Submitting batch of {} task(s) from '{}'", newTasks.size(),
+                    source.getClass().getName());
+            eventPublisher.publishEvent(new NewTaskEvent(source, batch.createTaskData()));
+        }
+
+        return batch.getTasks();
+    }
+
+    private void joinInFlightTasks(TaskBatch batch) {
+        // locked in a consistent order so two overlapping batches can't deadlock
+        batch.getTasks().stream()
+                .map(ScheduledTaskDef::getIdempotencyKey)
+                .filter(Objects::nonNull)
+                .distinct()
+                .sorted()
+                .forEach(scheduledTaskRepo::lockIdempotencyKey);
+
+        for (ScheduledTaskDef task : batch.getTasks()) {
+            if (task.getIdempotencyKey() == null) {
+                continue;
+            }
+
+            scheduledTaskRepo.getTasksWithIdempotencyKey(task.getIdempotencyKey(), IN_FLIGHT,
+                            Limit.of(1))
+                    .stream().findFirst()
+                    .ifPresent(inFlight -> {
+                        log.info("Task '{}' is already in flight as task '{}', joining it",
+                                task.getIdempotencyKey(), inFlight.getId());
+                        batch.join(task, inFlight);
+
+                        if (task.getCreatedByUser() != null
+                                && !task.getCreatedByUser().equals(inFlight.getCreatedByUser())) {
+                            scheduledTaskRepo.addJoiner(inFlight.getId(),
+                                    task.getCreatedByUser().getCwid());
+                        }
+                    });
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package edu.mines.packtrain.services.tasks;
+
+/**
+ * Thrown by a job to signal that it failed for a reason that is likely to go away, so the task
+ * should be retried (with backoff) rather than failed outright.
+ */
+public class TransientTaskException extends RuntimeException {
+    public TransientTaskException(String message) {
+        super(message);
+    }
+
+    public TransientTaskException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
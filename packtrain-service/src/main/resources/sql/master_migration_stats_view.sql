@@ -3,9 +3,23 @@ $$
     BEGIN IF EXISTS(SELECT 1 FROM pg_tables WHERE tablename = 'master_migration_stats_view') THEN
         EXECUTE 'DROP TABLE IF EXISTS master_migration_stats_view';
     END IF;
+    -- the stats used to be a plain view, aggregated on every read
+    IF EXISTS(SELECT 1 FROM pg_views WHERE viewname = 'master_migration_stats_view') THEN
+        EXECUTE 'DROP VIEW IF EXISTS master_migration_stats_view';
+    END IF;
+    -- the view is only created when it's missing, so one built from an older version of this file
+    -- has to go first. DatabaseConfig fills in the hash of this file
+    IF EXISTS(SELECT 1
+              FROM pg_matviews AS v
+                       JOIN pg_class AS c ON c.relname = v.matviewname
+              WHERE v.matviewname = 'master_migration_stats_view'
+                AND obj_description(c.oid, 'pg_class') IS DISTINCT FROM '${definition_hash}') THEN
+        EXECUTE 'DROP MATERIALIZED VIEW master_migration_stats_view';
+    END IF;
 END $$;
 
-CREATE OR REPLACE VIEW master_migration_stats_view AS
+-- see MasterMigrationStatsService for when this is refreshed
+CREATE MATERIALIZED VIEW IF NOT EXISTS master_migration_stats_view AS
 SELECT r.master_migration_id                                                    AS master_migration_id,
        COUNT(r.cwid)                                                            AS total_submissions,
        SUM(CASE WHEN late_request.request_type IS NOT NULL THEN 1 ELSE 0 END)   AS late_requests,
@@ -21,3 +35,9 @@ FROM (SELECT raw_score.cwid              AS cwid,
          LEFT JOIN late_requests AS late_request ON late_request.assignment = r.assignment_id
          LEFT JOIN extensions AS extension ON late_request.extension = extension.id
 GROUP BY r.master_migration_id;
+
+-- refreshing concurrently needs a unique index
+CREATE UNIQUE INDEX IF NOT EXISTS master_migration_stats_view_master_migration_id
+    ON master_migration_stats_view (master_migration_id);
+
+COMMENT ON MATERIALIZED VIEW master_migration_stats_view IS '${definition_hash}';
@@ -0,0 +1,24 @@
+-- Imports upsert raw scores on (migration_id, cwid), but tables from before the constraint can
+-- hold more than one row for a student, and then hibernate can't add it. Without it every import
+-- fails, so this drops the duplicates and adds the constraint itself.
+--
+-- There's nothing recording which duplicate came last, so the one stored last (highest ctid) is
+-- kept, which is what the upsert would have left behind in almost every case.
+DO
+$$
+    BEGIN
+        IF EXISTS (SELECT 1 FROM pg_constraint WHERE conname = 'raw_scores_migration_id_cwid') THEN
+            RETURN;
+        END IF;
+
+        DELETE
+        FROM raw_scores a
+            USING raw_scores b
+        WHERE a.migration_id = b.migration_id
+          AND a.cwid = b.cwid
+          AND a.ctid < b.ctid;
+
+        ALTER TABLE raw_scores
+            ADD CONSTRAINT raw_scores_migration_id_cwid UNIQUE (migration_id, cwid);
+    END
+$$;
@@ -0,0 +1,53 @@
+-- Every task type used to have its own table, until they were all moved into scheduled_tasks
+-- (see ScheduledTaskDef). This copies the old rows over and drops the old tables.
+--
+-- Tasks that hadn't finished are failed rather than copied as is, since their jobs only lived
+-- in the memory of the replica that submitted them and there is nothing left to resume.
+DO
+$$
+    DECLARE
+        old_table RECORD;
+    BEGIN
+        FOR old_table IN SELECT *
+                         FROM (VALUES ('sync_assignments_tasks', 'sync_assignment_task',
+                                       'course_id, add_new_assignments, delete_old_assignments, update_existing_assignments',
+                                       'course_id, add_new_assignments, delete_old_assignments, update_existing_assignments'),
+                                      ('sync_course_tasks', 'sync_course_task',
+                                       'course_id, canvas_id, overwrite_name, overwrite_code',
+                                       'course_id, canvas_id, overwrite_name, overwrite_code'),
+                                      ('section_sync_tasks', 'section_sync_task',
+                                       'course_id, canvas_id',
+                                       'course_id, canvas_id'),
+                                      ('user_sync_tasks', 'user_sync_task',
+                                       'course_id, assign_users_to_course, remove_old_users, update_exsiting_users',
+                                       'course_id, assign_users_to_course, remove_old_users, update_exsiting_users'),
+                                      ('post_to_canvas_task_defs', 'post_to_canvas_task_def',
+                                       'migation_id, canvas_assignment_id, canvas_course_id',
+                                       'migration_id, canvas_assignment_id, canvas_course_id'),
+                                      ('process_scores_tasks', 'process_score_task',
+                                       'migration_id, assignment_id, policy_uri',
+                                       'migration_id, assignment_id, policy_uri'),
+                                      ('zero_out_submissions_task_defs', 'zero_out_submissions_task_def',
+                                       'migration_id',
+                                       'migration_id'))
+                                  AS t(table_name, task_type, old_columns, new_columns)
+            LOOP
+                IF to_regclass(old_table.table_name) IS NULL THEN
+                    CONTINUE;
+                END IF;
+
+                EXECUTE format(
+                        'INSERT INTO scheduled_tasks (id, task_type, user_id, task_name, submitted_time, ' ||
+                        'completed_time, status, status_text, %s) ' ||
+                        'SELECT id, %L, user_id, task_name, submitted_time, completed_time, ' ||
+                        'CASE WHEN status IN (''CREATED'', ''QUEUED'', ''STARTED'') THEN ''FAILED'' ELSE status END, ' ||
+                        'CASE WHEN status IN (''CREATED'', ''QUEUED'', ''STARTED'') ' ||
+                        'THEN ''Interrupted by an upgrade, please submit it again'' ELSE status_text END, %s ' ||
+                        'FROM %I ON CONFLICT (id) DO NOTHING',
+                        old_table.new_columns, old_table.task_type, old_table.old_columns,
+                        old_table.table_name);
+
+                EXECUTE format('DROP TABLE %I', old_table.table_name);
+            END LOOP;
+    END
+$$;
@@ -0,0 +1,30 @@
+-- Revisions used to be handed out from a per-instance cache, which could hand the same revision
+-- to two entries for a student. Hibernate can't add the unique constraint while those exist, so
+-- this renumbers each student's entries in the order they were written and then adds it.
+DO
+$$
+    BEGIN
+        IF EXISTS (SELECT 1
+                   FROM pg_constraint
+                   WHERE conname = 'migration_transaction_logs_migration_cwid_revision') THEN
+            RETURN;
+        END IF;
+
+        UPDATE migration_transaction_logs l
+        SET revision = renumbered.revision
+        FROM (SELECT id,
+                     row_number() OVER (PARTITION BY migration_id, student_cwid
+                         ORDER BY revision, id) AS revision
+              FROM migration_transaction_logs
+              WHERE (migration_id, student_cwid) IN (SELECT migration_id, student_cwid
+                                                     FROM migration_transaction_logs
+                                                     GROUP BY migration_id, student_cwid, revision
+                                                     HAVING count(*) > 1)) renumbered
+        WHERE l.id = renumbered.id
+          AND l.revision <> renumbered.revision;
+
+        ALTER TABLE migration_transaction_logs
+            ADD CONSTRAINT migration_transaction_logs_migration_cwid_revision
+                UNIQUE (migration_id, student_cwid, revision);
+    END
+$$;
@@ -11,6 +11,7 @@ import org.mockito.Mockito;
 import java.io.IOException;
 import java.net.URI;
 import java.time.Instant;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 import java.util.function.BiFunction;
@@ -29,20 +30,20 @@ public class TestMigrationFactory {
 
         URI uri = URI.create("http://localhost:3000/policy.js");
 
-        Consumer<ScoredDTO> onReceived = Mockito.mock(Consumer.class);
+        Consumer<List<ScoredDTO>> onReceived = Mockito.mock(Consumer.class);
 
         Channel ch = Mockito.mock(Channel.class);
 
         Function<String, Optional<Channel>> createPublish = Mockito.mock(Function.class);
         Mockito.when(createPublish.apply(Mockito.anyString())).thenReturn(Optional.of(ch));
 
-        BiFunction<String, Consumer<ScoredDTO>, Optional<Channel>> createReceive = Mockito.mock(BiFunction.class);
+        BiFunction<String, Consumer<List<ScoredDTO>>, Optional<Channel>> createReceive = Mockito.mock(BiFunction.class);
         Mockito.when(createReceive.apply(Mockito.anyString(), Mockito.any())).thenReturn(Optional.of(ch));
 
         MigrationFactory.ProcessScoresAndExtensionsConfig config = MigrationFactory.startProcessScoresAndExtensions(UUID.randomUUID(), createPublish, createReceive)
                 .forAssignment(assignment)
                 .withPolicy(uri)
-                .withOnScoreReceived(onReceived)
+                .withOnScoresReceived(onReceived)
                 .build();
 
 
@@ -65,19 +66,19 @@ public class TestMigrationFactory {
 
         URI uri = URI.create("http://localhost:3000/policy.js");
 
-        Consumer<ScoredDTO> onReceived = Mockito.mock(Consumer.class);
+        Consumer<List<ScoredDTO>> onReceived = Mockito.mock(Consumer.class);
 
         Channel ch = Mockito.mock(Channel.class);
 
         Function<String, Optional<Channel>> createPublish = Mockito.mock(Function.class);
         Mockito.when(createPublish.apply(Mockito.anyString())).thenReturn(Optional.of(ch));
 
-        BiFunction<String, Consumer<ScoredDTO>, Optional<Channel>> createReceive = Mockito.mock(BiFunction.class);
+        BiFunction<String, Consumer<List<ScoredDTO>>, Optional<Channel>> createReceive = Mockito.mock(BiFunction.class);
         Mockito.when(createReceive.apply(Mockito.anyString(), Mockito.any())).thenReturn(Optional.empty());
 
         Assertions.assertThrows(IOException.class, () ->
                 MigrationFactory.startProcessScoresAndExtensions(UUID.randomUUID(), createPublish, createReceive)
-                        .withOnScoreReceived(onReceived)
+                        .withOnScoresReceived(onReceived)
                         .build()
         );
 
@@ -101,7 +102,7 @@ public class TestMigrationFactory {
         Function<String, Optional<Channel>> createPublish = Mockito.mock(Function.class);
         Mockito.when(createPublish.apply(Mockito.anyString())).thenReturn(Optional.of(ch));
 
-        BiFunction<String, Consumer<ScoredDTO>, Optional<Channel>> createReceive = Mockito.mock(BiFunction.class);
+        BiFunction<String, Consumer<List<ScoredDTO>>, Optional<Channel>> createReceive = Mockito.mock(BiFunction.class);
         Mockito.when(createReceive.apply(Mockito.anyString(), Mockito.any())).thenReturn(Optional.of(ch));
 
         MigrationFactory.ProcessScoresAndExtensionsConfig config = MigrationFactory.startProcessScoresAndExtensions(UUID.randomUUID(), createPublish, createReceive)
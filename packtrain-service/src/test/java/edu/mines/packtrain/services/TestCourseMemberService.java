@@ -20,7 +20,6 @@ import org.junit.jupiter.api.*;
 import org.mockito.Mockito;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
-import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
 
 import java.net.URI;
@@ -80,7 +79,7 @@ public class TestCourseMemberService implements PostgresTestContainer, CanvasSee
         courseMemberService = new CourseMemberService(
                 courseMemberRepo, scheduledTaskRepo,
                 userService, sectionService, courseService,
-                canvasService, Mockito.mock(ApplicationEventPublisher.class),
+                canvasService,
                 impersonationManager, messagingTemplate
         );
 
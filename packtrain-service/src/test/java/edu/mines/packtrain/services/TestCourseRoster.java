@@ -0,0 +1,45 @@
+package edu.mines.packtrain.services;
+
+import edu.mines.packtrain.repositories.CourseMemberRepo;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+public class TestCourseRoster {
+
+    private static CourseMemberRepo.RosterEntry member(String email, String cwid) {
+        return new CourseMemberRepo.RosterEntry() {
+            @Override
+            public String getEmail() {
+                return email;
+            }
+
+            @Override
+            public String getCwid() {
+                return cwid;
+            }
+        };
+    }
+
+    @Test
+    void verifyResolvesEmailsAndAliases() {
+        CourseRoster roster = new CourseRoster(List.of(
+                member("alice@mines.edu", "10000001"),
+                member("bob@mines.edu", "10000002"),
+                member("bob@example.com", "10000003")
+        ));
+
+        Assertions.assertEquals(Optional.of("10000001"), roster.resolve(" Alice@Mines.EDU "));
+        Assertions.assertEquals(Optional.of("10000001"), roster.resolve("alice@mymail.mines.edu"));
+        Assertions.assertEquals(Optional.of("10000001"), roster.resolve("10000001"));
+        Assertions.assertEquals(Optional.of("10000003"), roster.resolve("bob@example.com"));
+
+        // shared by two members, so it can't be used as an alias
+        Assertions.assertEquals(Optional.empty(), roster.resolve("bob@other.edu"));
+        Assertions.assertEquals(Optional.empty(), roster.resolve("carol@mines.edu"));
+        Assertions.assertEquals(Set.of("bob@other.edu", "carol@mines.edu"), roster.getUnresolved());
+    }
+}
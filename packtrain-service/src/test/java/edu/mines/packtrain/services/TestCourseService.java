@@ -13,10 +13,8 @@ import edu.mines.packtrain.services.external.S3Service;
 import jakarta.transaction.Transactional;
 import org.junit.jupiter.api.*;
 import org.mockito.Mock;
-import org.mockito.Mockito;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
-import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.web.server.ResponseStatusException;
 
@@ -86,7 +84,6 @@ public class TestCourseService implements PostgresTestContainer, CanvasSeeder, M
     void setup(){
         courseService = new CourseService(
                 courseRepo, lateRequestConfigRepo, gradescopeConfigRepo, scheduledTaskRepo,
-                Mockito.mock(ApplicationEventPublisher.class),
                 impersonationManager, canvasService,
                 s3Service, userService, masterMigrationRepo, migrationRepo, courseMemberRepo, messagingTemplate
         );
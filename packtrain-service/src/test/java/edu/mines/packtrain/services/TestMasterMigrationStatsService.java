@@ -0,0 +1,36 @@
+package edu.mines.packtrain.services;
+
+import edu.mines.packtrain.repositories.MasterMigrationStatsRepo;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+public class TestMasterMigrationStatsService {
+
+    @Test
+    void verifyStaleStatsAreRefreshedOnce() {
+        MasterMigrationStatsRepo repo = Mockito.mock(MasterMigrationStatsRepo.class);
+        MasterMigrationStatsService service = new MasterMigrationStatsService(repo);
+
+        service.refreshIfStale();
+        Mockito.verify(repo, Mockito.never()).refresh();
+
+        // a burst of late requests only costs one refresh
+        service.markStale();
+        service.markStale();
+        service.refreshIfStale();
+        service.refreshIfStale();
+        Mockito.verify(repo, Mockito.times(1)).refresh();
+    }
+
+    @Test
+    void verifyFailedRefreshIsRetried() {
+        MasterMigrationStatsRepo repo = Mockito.mock(MasterMigrationStatsRepo.class);
+        Mockito.doThrow(new RuntimeException("database went away")).doNothing().when(repo).refresh();
+        MasterMigrationStatsService service = new MasterMigrationStatsService(repo);
+
+        service.refresh();
+        service.refreshIfStale();
+        service.refreshIfStale();
+        Mockito.verify(repo, Mockito.times(2)).refresh();
+    }
+}
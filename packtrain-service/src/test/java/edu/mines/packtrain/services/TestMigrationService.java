@@ -3,34 +3,42 @@ package edu.mines.packtrain.services;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import edu.mines.packtrain.containers.PostgresTestContainer;
+import edu.mines.packtrain.data.MigrationWithScoresDTO;
 import edu.mines.packtrain.data.policyServer.ScoredDTO;
 import edu.mines.packtrain.managers.ImpersonationManager;
 import edu.mines.packtrain.models.*;
 import edu.mines.packtrain.models.enums.LateRequestStatus;
+import edu.mines.packtrain.models.enums.MigrationStatus;
 import edu.mines.packtrain.models.enums.SubmissionStatus;
 import edu.mines.packtrain.models.tasks.PostToCanvasTaskDef;
 import edu.mines.packtrain.models.tasks.ProcessScoresAndExtensionsTaskDef;
 import edu.mines.packtrain.models.tasks.ZeroOutSubmissionsTaskDef;
 import edu.mines.packtrain.repositories.*;
 import edu.mines.packtrain.seeders.AssignmentSeeder;
+import edu.mines.packtrain.seeders.CourseMemberSeeder;
 import edu.mines.packtrain.seeders.CourseSeeders;
 import edu.mines.packtrain.seeders.MigrationSeeder;
 import edu.mines.packtrain.seeders.UserSeeders;
 import edu.mines.packtrain.services.external.CanvasService;
 import edu.mines.packtrain.services.external.PolicyServerService;
 import edu.mines.packtrain.services.external.RabbitMqService;
+import edu.mines.packtrain.services.tasks.TaskSubmissionService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.*;
 import org.mockito.Mockito;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.http.HttpStatus;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.web.server.ResponseStatusException;
 
+import java.time.Duration;
 import java.time.Instant;
 import java.util.List;
 import java.util.Optional;
+import java.util.UUID;
 
 @SpringBootTest
 public class TestMigrationService implements PostgresTestContainer {
@@ -59,7 +67,7 @@ public class TestMigrationService implements PostgresTestContainer {
     @Autowired
     private ScheduledTaskRepo<PostToCanvasTaskDef> postToCanvasTaskTaskRepo;
     @Autowired
-    private MasterMigrationStatsRepo masterMigrationStatsRepo;
+    private MasterMigrationStatsService masterMigrationStatsService;
     @Autowired
     private ExtensionService extensionService;
     @Autowired
@@ -75,6 +83,8 @@ public class TestMigrationService implements PostgresTestContainer {
     @Autowired
     private AssignmentSeeder assignmentSeeder;
     @Autowired
+    private CourseMemberSeeder courseMemberSeeder;
+    @Autowired
     private SimpMessagingTemplate messagingTemplate;
     @Autowired
     private ObjectMapper objectMapper;
@@ -90,8 +100,9 @@ public class TestMigrationService implements PostgresTestContainer {
         migrationService = new MigrationService(migrationRepo, masterMigrationRepo, migrationTransactionLogRepo, taskRepo, zeroOutSubmissionTaskRepo, postToCanvasTaskTaskRepo,
                 extensionService, courseService, assignmentService, Mockito.mock(ApplicationEventPublisher.class),
                 Mockito.mock(RabbitMqService.class), Mockito.mock(PolicyServerService.class), rawScoreRepo,
-                masterMigrationStatsRepo, policyService, courseMemberService, Mockito.mock(ImpersonationManager.class), Mockito.mock(CanvasService.class),
-                messagingTemplate, objectMapper);
+                masterMigrationStatsService, policyService, courseMemberService, Mockito.mock(ImpersonationManager.class), Mockito.mock(CanvasService.class),
+                messagingTemplate, objectMapper, new SimpleMeterRegistry(), Mockito.mock(TaskSubmissionService.class),
+                Duration.ofMinutes(1));
 
         course = courseSeeders.populatedCourse();
         user = userSeeders.user1();
@@ -101,6 +112,7 @@ public class TestMigrationService implements PostgresTestContainer {
     @AfterEach
     void tearDown(){
         migrationSeeder.clearAll();
+        courseMemberSeeder.clearAll();
         policyRepo.deleteAll();
         assignmentSeeder.clearAll();
         courseSeeders.clearAll();
@@ -179,4 +191,301 @@ public class TestMigrationService implements PostgresTestContainer {
 
         Assertions.assertEquals(HttpStatus.NOT_FOUND, exception.getStatusCode());
     }
-}
\ No newline at end of file
+
+    @Test
+    void verifyHandleScoresBatch(){
+        Assignment assignment = assignmentSeeder.worksheet1(course);
+        MasterMigration masterMigration = migrationSeeder.masterMigration(course, user);
+        Migration migration = migrationSeeder.migration(assignment, masterMigration);
+
+        User student = userSeeders.user2();
+        courseMemberSeeder.student(student, course, courseSeeders.section(course));
+
+        List<ScoredDTO> batch = List.of(10.0, 8.0).stream().map(score -> {
+            ScoredDTO dto = new ScoredDTO();
+            dto.setCwid(student.getCwid());
+            dto.setFinalScore(score);
+            dto.setAdjustedSubmissionTime(Instant.now());
+            dto.setExtensionStatus(LateRequestStatus.NO_EXTENSION);
+            dto.setSubmissionStatus(SubmissionStatus.ON_TIME);
+            return dto;
+        }).toList();
+
+        migrationService.handleScoresReceived(user, migration.getId(), batch);
+        migrationService.handleScoresReceived(user, migration.getId(), batch.subList(0, 1));
+
+        List<MigrationTransactionLog> entries = migrationTransactionLogRepo
+                .getByCwidAndMigrationId(student.getCwid(), migration.getId());
+
+        Assertions.assertEquals(List.of(1, 2, 3), entries.stream()
+                .map(MigrationTransactionLog::getRevision).toList());
+        Assertions.assertEquals(List.of(10.0, 8.0, 10.0), entries.stream()
+                .map(MigrationTransactionLog::getScore).toList());
+    }
+
+    @Test
+    void verifyHandleScoreSyncsCachedRevision(){
+        Assignment assignment = assignmentSeeder.worksheet1(course);
+        MasterMigration masterMigration = migrationSeeder.masterMigration(course, user);
+        Migration migration = migrationSeeder.migration(assignment, masterMigration);
+
+        User student = userSeeders.user2();
+        courseMemberSeeder.student(student, course, courseSeeders.section(course));
+
+        ScoredDTO dto = new ScoredDTO();
+        dto.setCwid(student.getCwid());
+        dto.setFinalScore(10);
+        dto.setAdjustedSubmissionTime(Instant.now());
+        dto.setExtensionStatus(LateRequestStatus.NO_EXTENSION);
+        dto.setSubmissionStatus(SubmissionStatus.ON_TIME);
+
+        migrationService.handleScoresReceived(user, migration.getId(), List.of(dto));
+
+        // written by another instance, so the cached context doesn't know about it
+        MigrationTransactionLog other = new MigrationTransactionLog();
+        other.setPerformedByUser(user);
+        other.setCwid(student.getCwid());
+        other.setCanvasId("canvas");
+        other.setMigrationId(migration.getId());
+        other.setRevision(2);
+        other.setSubmissionStatus(SubmissionStatus.ON_TIME);
+        migrationTransactionLogRepo.save(other);
+
+        migrationService.handleScoreReceived(user, migration.getId(), dto);
+
+        Assertions.assertEquals(List.of(1, 2, 3), migrationTransactionLogRepo
+                .getByCwidAndMigrationId(student.getCwid(), migration.getId()).stream()
+                .map(MigrationTransactionLog::getRevision).toList());
+    }
+
+    @Test
+    void verifyRebuiltContextContinuesFromDatabase(){
+        Assignment assignment = assignmentSeeder.worksheet1(course);
+        MasterMigration masterMigration = migrationSeeder.masterMigration(course, user);
+        Migration migration = migrationSeeder.migration(assignment, masterMigration);
+
+        User student = userSeeders.user2();
+        courseMemberSeeder.student(student, course, courseSeeders.section(course));
+
+        ScoredDTO dto = new ScoredDTO();
+        dto.setCwid(student.getCwid());
+        dto.setFinalScore(10);
+        dto.setAdjustedSubmissionTime(Instant.now());
+        dto.setExtensionStatus(LateRequestStatus.NO_EXTENSION);
+        dto.setSubmissionStatus(SubmissionStatus.ON_TIME);
+
+        migrationService.handleScoresReceived(user, migration.getId(), List.of(dto));
+
+        // written by another instance, so the cached context doesn't know about it
+        MigrationTransactionLog other = new MigrationTransactionLog();
+        other.setPerformedByUser(user);
+        other.setCwid(student.getCwid());
+        other.setCanvasId("canvas");
+        other.setMigrationId(migration.getId());
+        other.setRevision(2);
+        other.setSubmissionStatus(SubmissionStatus.ON_TIME);
+        migrationTransactionLogRepo.save(other);
+
+        // a stale context would hand out revision 2 again, which the database refuses
+        Assertions.assertThrows(DataIntegrityViolationException.class,
+                () -> migrationService.handleScoresReceived(user, migration.getId(), List.of(dto)));
+
+        migrationService.rebuildMigrationContext(migration.getId());
+        migrationService.handleScoresReceived(user, migration.getId(), List.of(dto));
+
+        Assertions.assertEquals(List.of(1, 2, 3), migrationTransactionLogRepo
+                .getByCwidAndMigrationId(student.getCwid(), migration.getId()).stream()
+                .map(MigrationTransactionLog::getRevision).toList());
+    }
+
+    @Test
+    void verifyZeroOutSubmissions(){
+        Assignment assignment = assignmentSeeder.worksheet1(course);
+        MasterMigration masterMigration = migrationSeeder.masterMigration(course, user);
+        Migration migration = migrationSeeder.migration(assignment, masterMigration);
+
+        User student = userSeeders.user2();
+        courseMemberSeeder.student(student, course, courseSeeders.section(course));
+
+        ScoredDTO dto = new ScoredDTO();
+        dto.setCwid(student.getCwid());
+        dto.setFinalScore(10);
+        dto.setAdjustedSubmissionTime(Instant.now());
+        dto.setExtensionStatus(LateRequestStatus.NO_EXTENSION);
+        dto.setSubmissionStatus(SubmissionStatus.ON_TIME);
+        migrationService.handleScoreReceived(user, migration.getId(), dto);
+
+        ZeroOutSubmissionsTaskDef task = new ZeroOutSubmissionsTaskDef();
+        task.setMigrationId(migration.getId());
+        task.setCreatedByUser(user);
+        migrationService.zeroOutSubmissions(task);
+
+        List<MigrationTransactionLog> entries = migrationTransactionLogRepo
+                .getByCwidAndMigrationId(student.getCwid(), migration.getId());
+        Assertions.assertEquals(List.of(1, 2), entries.stream()
+                .map(MigrationTransactionLog::getRevision).toList());
+        Assertions.assertEquals(SubmissionStatus.MISSING, entries.getLast().getSubmissionStatus());
+        Assertions.assertEquals(0, entries.getLast().getScore());
+
+        // the context is rebuilt after zeroing out, so it carries on from the zeroed revision
+        migrationService.handleScoresReceived(user, migration.getId(), List.of(dto));
+        Assertions.assertEquals(3, migrationTransactionLogRepo
+                .getByCwidAndMigrationId(student.getCwid(), migration.getId()).getLast().getRevision());
+    }
+
+    @Test
+    void verifyMasterMigrationReviewIsPaged(){
+        Assignment assignment = assignmentSeeder.worksheet1(course);
+        MasterMigration masterMigration = migrationSeeder.masterMigration(course, user);
+        Migration migration = migrationSeeder.migration(assignment, masterMigration);
+
+        Section section = courseSeeders.section(course);
+        User first = userSeeders.user("Student One", "one@test.com", "80000001");
+        User second = userSeeders.user("Student Two", "two@test.com", "80000002");
+        courseMemberSeeder.student(first, course, section);
+        courseMemberSeeder.student(second, course, section);
+
+        List<ScoredDTO> batch = List.of(first, second, first).stream().map(student -> {
+            ScoredDTO dto = new ScoredDTO();
+            dto.setCwid(student.getCwid());
+            dto.setFinalScore(student == first ? 5 : 7);
+            dto.setAdjustedSubmissionTime(Instant.now());
+            dto.setExtensionStatus(LateRequestStatus.NO_EXTENSION);
+            dto.setSubmissionStatus(SubmissionStatus.ON_TIME);
+            return dto;
+        }).toList();
+        batch.getLast().setFinalScore(9);
+        migrationService.handleScoresReceived(user, migration.getId(), batch);
+
+        // scored, but dropped from the course since. sorts first, so it mustn't use up the page
+        MigrationTransactionLog dropped = new MigrationTransactionLog();
+        dropped.setPerformedByUser(user);
+        dropped.setCwid("70000000");
+        dropped.setCanvasId("canvas");
+        dropped.setMigrationId(migration.getId());
+        dropped.setSubmissionStatus(SubmissionStatus.ON_TIME);
+        migrationTransactionLogRepo.save(dropped);
+
+        List<MigrationWithScoresDTO> page = migrationService
+                .getMasterMigrationToReview(masterMigration.getId(), null, 1);
+        Assertions.assertEquals(1, page.size());
+        Assertions.assertEquals(1, page.getFirst().getScores().size());
+        Assertions.assertEquals("80000001", page.getFirst().getScores().getFirst().getStudent().getCwid());
+        Assertions.assertEquals(9, page.getFirst().getScores().getFirst().getScore());
+        Assertions.assertEquals(List.of(section.getName()),
+                page.getFirst().getScores().getFirst().getStudent().getSections());
+
+        page = migrationService.getMasterMigrationToReview(masterMigration.getId(), "80000001", 1);
+        Assertions.assertEquals("80000002", page.getFirst().getScores().getFirst().getStudent().getCwid());
+        Assertions.assertEquals(7, page.getFirst().getScores().getFirst().getScore());
+
+        Assertions.assertEquals(2, migrationService.getMasterMigrationToReview(masterMigration.getId(),
+                null, null).getFirst().getScores().size());
+
+        // only the apply phase moves it to review
+        Assertions.assertEquals(masterMigration.getStatus(),
+                masterMigrationRepo.findById(masterMigration.getId()).orElseThrow().getStatus());
+    }
+
+    @Test
+    void verifyLatestEntriesPerStudent(){
+        Assignment assignment = assignmentSeeder.worksheet1(course);
+        MasterMigration masterMigration = migrationSeeder.masterMigration(course, user);
+        Migration migration = migrationSeeder.migration(assignment, masterMigration);
+
+        Section section = courseSeeders.section(course);
+        User first = userSeeders.user("Student One", "one@test.com", "80000001");
+        User second = userSeeders.user("Student Two", "two@test.com", "80000002");
+        courseMemberSeeder.student(first, course, section);
+        courseMemberSeeder.student(second, course, section);
+
+        List<ScoredDTO> batch = List.of(second, first, second, first).stream().map(student -> {
+            ScoredDTO dto = new ScoredDTO();
+            dto.setCwid(student.getCwid());
+            dto.setAdjustedSubmissionTime(Instant.now());
+            dto.setExtensionStatus(LateRequestStatus.NO_EXTENSION);
+            dto.setSubmissionStatus(SubmissionStatus.ON_TIME);
+            return dto;
+        }).toList();
+        for (int i = 0; i < batch.size(); i++) {
+            batch.get(i).setFinalScore(i);
+        }
+        migrationService.handleScoresReceived(user, migration.getId(), batch);
+
+        List<MigrationTransactionLog> latest = migrationTransactionLogRepo
+                .getLatestByMigrationId(migration.getId());
+        Assertions.assertEquals(List.of("80000001", "80000002"), latest.stream()
+                .map(MigrationTransactionLog::getCwid).toList());
+        Assertions.assertEquals(List.of(3.0, 2.0), latest.stream()
+                .map(MigrationTransactionLog::getScore).toList());
+        Assertions.assertEquals(Optional.of(2), migrationTransactionLogRepo
+                .getLatestRevision(migration.getId(), "80000001"));
+    }
+
+    @Test
+    void verifyZeroOutSkipsScoredStudents(){
+        Assignment assignment = assignmentSeeder.worksheet1(course);
+        MasterMigration masterMigration = migrationSeeder.masterMigration(course, user);
+        Migration migration = migrationSeeder.migration(assignment, masterMigration);
+
+        Section section = courseSeeders.section(course);
+        User scored = userSeeders.user("Student One", "one@test.com", "80000001");
+        User unscored = userSeeders.user("Student Two", "two@test.com", "80000002");
+        courseMemberSeeder.student(scored, course, section);
+        courseMemberSeeder.student(unscored, course, section);
+
+        MigrationTransactionLog entry = new MigrationTransactionLog();
+        entry.setPerformedByUser(user);
+        entry.setCwid(scored.getCwid());
+        entry.setCanvasId("canvas");
+        entry.setMigrationId(migration.getId());
+        entry.setSubmissionStatus(SubmissionStatus.ON_TIME);
+        entry.setScore(8);
+        entry.setInputFingerprint("fingerprint");
+        migrationTransactionLogRepo.save(entry);
+
+        ZeroOutSubmissionsTaskDef task = new ZeroOutSubmissionsTaskDef();
+        task.setMigrationId(migration.getId());
+        task.setCreatedByUser(user);
+        migrationService.zeroOutSubmissions(task);
+
+        Assertions.assertEquals(1, migrationTransactionLogRepo
+                .getByCwidAndMigrationId(scored.getCwid(), migration.getId()).size());
+        Assertions.assertEquals(1, migrationTransactionLogRepo
+                .getByCwidAndMigrationId(unscored.getCwid(), migration.getId()).size());
+
+        // a manual edit keeps the fingerprint of the entry it replaces
+        ScoredDTO dto = new ScoredDTO();
+        dto.setCwid(scored.getCwid());
+        dto.setFinalScore(10);
+        dto.setAdjustedSubmissionTime(Instant.now());
+        dto.setExtensionStatus(LateRequestStatus.NO_EXTENSION);
+        dto.setSubmissionStatus(SubmissionStatus.ON_TIME);
+        migrationService.handleScoreReceived(user, migration.getId(), dto);
+
+        Assertions.assertEquals("fingerprint", migrationTransactionLogRepo
+                .getByCwidAndMigrationId(scored.getCwid(), migration.getId()).getLast()
+                .getInputFingerprint());
+    }
+
+    @Test
+    void verifyStreamingOnlyBeforeApply(){
+        MasterMigration masterMigration = migrationService.createMasterMigration(course.getId(), user);
+        Assertions.assertFalse(masterMigration.isStreamingToCanvas());
+
+        masterMigration = migrationService.setStreamingForMasterMigration(masterMigration.getId(),
+                true, 5.0);
+        Assertions.assertTrue(masterMigration.isStreamingToCanvas());
+        Assertions.assertEquals(5.0, masterMigration.getStreamHoldThreshold());
+
+        UUID masterMigrationId = masterMigration.getId();
+        Assertions.assertThrows(ResponseStatusException.class, () -> migrationService
+                .setStreamingForMasterMigration(masterMigrationId, true, -1.0));
+
+        masterMigration.setStatus(MigrationStatus.STARTED);
+        masterMigrationRepo.save(masterMigration);
+        ResponseStatusException e = Assertions.assertThrows(ResponseStatusException.class,
+                () -> migrationService.setStreamingForMasterMigration(masterMigrationId, false, null));
+        Assertions.assertEquals(HttpStatus.BAD_REQUEST, e.getStatusCode());
+    }
+}
@@ -1,19 +1,42 @@
 package edu.mines.packtrain.services;
 
+import edu.mines.packtrain.config.DatabaseConfig;
 import edu.mines.packtrain.containers.PostgresTestContainer;
+import edu.mines.packtrain.events.NewTaskEvent;
 import edu.mines.packtrain.models.*;
+import edu.mines.packtrain.models.enums.ExternalAssignmentType;
+import edu.mines.packtrain.models.enums.RawScoreStatus;
 import edu.mines.packtrain.models.enums.SubmissionStatus;
+import edu.mines.packtrain.models.tasks.RawScoreImportTaskDef;
+import edu.mines.packtrain.repositories.AssignmentRepo;
+import edu.mines.packtrain.repositories.ExternalAssignmentRepo;
 import edu.mines.packtrain.repositories.RawScoreRepo;
+import edu.mines.packtrain.repositories.ScheduledTaskRepo;
 import edu.mines.packtrain.seeders.*;
+import edu.mines.packtrain.services.external.S3Service;
+import edu.mines.packtrain.services.tasks.TaskHandlerProvider;
+import edu.mines.packtrain.services.tasks.TaskHandlerRegistry;
+import edu.mines.packtrain.services.tasks.TaskSubmissionService;
+import edu.mines.packtrain.services.tasks.TransientTaskException;
 import jakarta.transaction.Transactional;
 import lombok.SneakyThrows;
 import org.junit.jupiter.api.*;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.mock.web.MockMultipartFile;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Instant;
 import java.util.List;
 import java.util.Optional;
+import java.util.UUID;
+import java.util.stream.Stream;
 
 @SpringBootTest
 @Transactional
@@ -22,8 +45,23 @@ public class TestRawScoreService implements PostgresTestContainer {
     @Autowired
     private RawScoreRepo rawScoreRepo;
 
-    @Autowired
     private RawScoreService rawScoreService;
+    private S3Service s3Service;
+
+    @Value("${grading-admin.time-zone}")
+    private String timeZone;
+    @Autowired
+    private MigrationService migrationService;
+    @Autowired
+    private CourseMemberService courseMemberService;
+    @Autowired
+    private TaskSubmissionService taskSubmissionService;
+    @Autowired
+    private ScheduledTaskRepo<RawScoreImportTaskDef> importTaskRepo;
+    @Autowired
+    private AssignmentRepo assignmentRepo;
+    @Autowired
+    private ExternalAssignmentRepo externalAssignmentRepo;
     @Autowired
     private UserSeeders userSeeders;
     @Autowired
@@ -34,11 +72,16 @@ public class TestRawScoreService implements PostgresTestContainer {
     private MigrationSeeder migrationSeeder;
     @Autowired
     private CourseMemberSeeder courseMemberSeeder;
+    @Autowired
+    private DatabaseConfig databaseConfig;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
 
     private Assignment worksheet;
     private Assignment reading;
     private MasterMigration masterMigration;
     private Course course;
+    private User user;
 
     @BeforeAll
     static void setupClass(){
@@ -47,7 +90,12 @@ public class TestRawScoreService implements PostgresTestContainer {
 
     @BeforeEach
     void beforeEach(){
-        User user = userSeeders.user1();
+        // uploads are read from S3 by the import task, the tests hand them over directly instead
+        s3Service = Mockito.mock(S3Service.class);
+        rawScoreService = new RawScoreService(timeZone, rawScoreRepo, courseMemberService,
+                migrationService, s3Service, taskSubmissionService, importTaskRepo, 500);
+
+        user = userSeeders.user1();
         course = courseSeeders.course1();
         worksheet = assignmentSeeder.worksheet1(course);
         reading = assignmentSeeder.reading(course);
@@ -64,6 +112,44 @@ public class TestRawScoreService implements PostgresTestContainer {
         userSeeders.clearAll();
     }
 
+    /**
+     * Queues an import for a file the same way an upload does, without running it.
+     */
+    @SneakyThrows
+    private RawScoreImportTaskDef importTask(Migration migration, ExternalAssignmentType type,
+                                             MockMultipartFile file) {
+        ExternalAssignment config = new ExternalAssignment();
+        config.setType(type);
+        Assignment assignment = migration.getAssignment();
+        assignment.setExternalAssignmentConfig(externalAssignmentRepo.save(config));
+        assignmentRepo.save(assignment);
+
+        Assertions.assertTrue(migrationService.attemptToStartRawScoreImport(migration.getId(),
+                "Import queued.", type));
+
+        String uploadObject = UUID.randomUUID().toString();
+        byte[] content = file.getBytes();
+        Mockito.when(s3Service.openRawScoreUpload(uploadObject))
+                .thenAnswer(_ -> new ByteArrayInputStream(content));
+
+        RawScoreImportTaskDef task = new RawScoreImportTaskDef();
+        task.setCreatedByUser(user);
+        task.setTaskName("Import raw scores");
+        task.setMigrationId(migration.getId());
+        task.setUploadObject(uploadObject);
+        return importTaskRepo.save(task);
+    }
+
+    private void importFile(Migration migration, ExternalAssignmentType type, MockMultipartFile file) {
+        rawScoreService.importRawScoresTask(importTask(migration, type, file));
+    }
+
+    private String getStatusText(RawScoreImportTaskDef task) {
+        // set with an update query, so the entity in this transaction doesn't see it
+        return jdbcTemplate.queryForObject("select status_text from scheduled_tasks where id = ?",
+                String.class, task.getId());
+    }
+
     private MockMultipartFile getRunestoneGradesheet() {
         String fileContent = "\"first_name\",\"last_name\",\"email\",\"Week 6 Readings\",\"Week 12 Readings\",\"Week 11 Readings\",\"Week 14 Readings\",\"Week 10 Readings\",\"Week 4 Readings\",\"Week 1 Readings\",\"Week 7 Readings\",\"Week 2 Readings\",\"Week 13 Readings\",\"Week 3 Readings\",\"Week 5 Readings\",\"Week 8 Readings\"\n" +
                 "\"Test\",\"User\",\"test_user@mines.edu\",\"0.0\",\"\",\"\",\"\",\"4.0\",\"2.0\",\"3.0\",\"16.0\",\"23.0\",\"1.0\",\"13.0\",\"1.0\",\"0.0\"\n" +
@@ -126,7 +212,7 @@ Group C,"[""eve@example.com"", ""frank@example.com""]",5,10,10,50,5,10,0,0,2020-
         String filename = "test.csv";
         MockMultipartFile file = new MockMultipartFile(filename, filename, "text/csv", fileContent.getBytes());
 
-        rawScoreService.uploadPrairieLearnCSV(file.getInputStream(), migration.getId());
+        importFile(migration, ExternalAssignmentType.PRAIRIELEARN, file);
         List<RawScore> rawScores = rawScoreService.getRawScoresFromMigration(migration.getId());
 
         Assertions.assertTrue(rawScores.isEmpty());
@@ -139,7 +225,7 @@ Group C,"[""eve@example.com"", ""frank@example.com""]",5,10,10,50,5,10,0,0,2020-
 
         MockMultipartFile file = getPrairieLearnGradesheetGroup();
 
-        rawScoreService.uploadPrairieLearnCSV(file.getInputStream(), migration.getId());
+        importFile(migration, ExternalAssignmentType.PRAIRIELEARN, file);
         List<RawScore> rawScores = rawScoreService.getRawScoresFromMigration(migration.getId());
 
         Assertions.assertEquals(6, rawScores.size());
@@ -158,7 +244,7 @@ Group C,"[""eve@example.com"", ""frank@example.com""]",5,10,10,50,5,10,0,0,2020-
 
         MockMultipartFile file = getPrairieLearnGradesheetGroup();
 
-        rawScoreService.uploadPrairieLearnCSV(file.getInputStream(), migration.getId());
+        importFile(migration, ExternalAssignmentType.PRAIRIELEARN, file);
         List<RawScore> rawScores = rawScoreService.getRawScoresFromMigration(migration.getId());
 
         Assertions.assertEquals(6, rawScores.size());
@@ -170,6 +256,78 @@ Group C,"[""eve@example.com"", ""frank@example.com""]",5,10,10,50,5,10,0,0,2020-
         Assertions.assertEquals(30, charlie.get().getHoursLate().intValue());
     }
 
+    @Test
+    void testImportBatchCombinesAcrossChunks(){
+        Migration migration = migrationSeeder.migration(worksheet, masterMigration);
+        Instant early = Instant.parse("2020-01-22T06:00:01Z");
+
+        // a chunk of one student, so every row after the first is merged into a written score
+        RawScoreImportBatch batch = new RawScoreImportBatch(rawScoreRepo, migration.getId(),
+                RawScoreImportBatch.Duplicates.COMBINE, 1);
+        batch.add(rawScore(migration, "alice", 5, early.plusSeconds(60), SubmissionStatus.LATE));
+        batch.add(rawScore(migration, "bob", 5, early, SubmissionStatus.ON_TIME));
+        batch.add(rawScore(migration, "alice", 5, early, SubmissionStatus.ON_TIME));
+        batch.flush();
+
+        Assertions.assertEquals(3, batch.getImported());
+        Assertions.assertEquals(2, rawScoreService.getRawScoresFromMigration(migration.getId()).size());
+
+        RawScore alice = rawScoreService.getRawScoreForCwidAndMigration("alice", migration.getId())
+                .orElseThrow();
+        Assertions.assertEquals(10, alice.getScore());
+        Assertions.assertEquals(early, alice.getSubmissionTime());
+        Assertions.assertEquals(SubmissionStatus.ON_TIME, alice.getSubmissionStatus());
+    }
+
+    @Test
+    void testImportBatchSkipsAcrossChunks(){
+        Migration migration = migrationSeeder.migration(worksheet, masterMigration);
+        Instant time = Instant.parse("2020-01-22T06:00:01Z");
+
+        RawScoreImportBatch batch = new RawScoreImportBatch(rawScoreRepo, migration.getId(),
+                RawScoreImportBatch.Duplicates.SKIP, 1);
+        batch.add(rawScore(migration, "alice", 5, time, SubmissionStatus.ON_TIME));
+        batch.add(rawScore(migration, "alice", 7, time, SubmissionStatus.ON_TIME));
+        batch.flush();
+
+        Assertions.assertEquals(1, batch.getImported());
+        Assertions.assertEquals(5, rawScoreService.getRawScoreForCwidAndMigration("alice",
+                migration.getId()).orElseThrow().getScore());
+    }
+
+    @Test
+    void testDuplicateRawScoresAreRemovedBeforeConstraint(){
+        Migration migration = migrationSeeder.migration(worksheet, masterMigration);
+
+        // a table from before the constraint, rolled back with the rest of the test
+        jdbcTemplate.execute("alter table raw_scores drop constraint raw_scores_migration_id_cwid");
+        for (double score : List.of(5.0, 7.0)) {
+            jdbcTemplate.update("insert into raw_scores (id, migration_id, cwid, score, " +
+                    "submission_status) values (gen_random_uuid(), ?, 'alice', ?, 'ON_TIME')",
+                    migration.getId(), score);
+        }
+
+        databaseConfig.setupDatabase();
+
+        Assertions.assertEquals(1, jdbcTemplate.queryForObject("select count(*) from pg_constraint " +
+                "where conname = 'raw_scores_migration_id_cwid'", Integer.class));
+        List<RawScore> rawScores = rawScoreService.getRawScoresFromMigration(migration.getId());
+        Assertions.assertEquals(1, rawScores.size());
+        Assertions.assertEquals(7, rawScores.getFirst().getScore());
+    }
+
+    private static RawScore rawScore(Migration migration, String cwid, double score,
+                                     Instant submissionTime, SubmissionStatus status) {
+        RawScore rawScore = new RawScore();
+        rawScore.setMigrationId(migration.getId());
+        rawScore.setCwid(cwid);
+        rawScore.setScore(score);
+        rawScore.setSubmissionTime(submissionTime);
+        rawScore.setSubmissionStatus(status);
+        rawScore.setHoursLate(0.0);
+        return rawScore;
+    }
+
     @Test
     @SneakyThrows
     void testEmptyGS(){
@@ -179,7 +337,7 @@ Group C,"[""eve@example.com"", ""frank@example.com""]",5,10,10,50,5,10,0,0,2020-
         String filename = "test.csv";
         MockMultipartFile file = new MockMultipartFile(filename, filename, "text/csv", fileContent.getBytes());
 
-        rawScoreService.uploadGradescopeCSV(file.getInputStream(), migration.getId());
+        importFile(migration, ExternalAssignmentType.GRADESCOPE, file);
         List<RawScore> rawScores = rawScoreService.getRawScoresFromMigration(migration.getId());
 
         Assertions.assertTrue(rawScores.isEmpty());
@@ -192,7 +350,7 @@ Group C,"[""eve@example.com"", ""frank@example.com""]",5,10,10,50,5,10,0,0,2020-
         MockMultipartFile file = getGradescopeGradesheet();
 
         // Should add scores to the list that were properly saved
-        rawScoreService.uploadGradescopeCSV(file.getInputStream(), migration.getId());
+        importFile(migration, ExternalAssignmentType.GRADESCOPE, file);
         List<RawScore> rawScores = rawScoreService.getRawScoresFromMigration(migration.getId());
 
         Assertions.assertEquals(3, rawScores.size());
@@ -203,6 +361,94 @@ Group C,"[""eve@example.com"", ""frank@example.com""]",5,10,10,50,5,10,0,0,2020-
         Assertions.assertEquals(SubmissionStatus.LATE, score.get().getSubmissionStatus());
     }
 
+    @Test
+    @SneakyThrows
+    void testParseGSSkipsBadLines(){
+        Migration migration = migrationSeeder.migration(worksheet, masterMigration);
+        String fileContent = """
+First Name,Last Name,SID,,,Total Score,Max Points,Status,,Submission Time,Lateness (H:M:S)
+Jane,Doe,12344321,,,twelve,12.0,Graded,,2022-06-25 13:16:26 -0600,13:29:30
+Tester,Testing,testtest,,,12.0,12.0,Graded,,2022-06-25 13:16:58 -0600,00:00:00
+                """;
+        String filename = "test.csv";
+        MockMultipartFile file = new MockMultipartFile(filename, filename, "text/csv", fileContent.getBytes());
+
+        // a bad line is reported instead of failing the whole import
+        RawScoreImportTaskDef task = importTask(migration, ExternalAssignmentType.GRADESCOPE, file);
+        rawScoreService.importRawScoresTask(task);
+
+        List<RawScore> rawScores = rawScoreService.getRawScoresFromMigration(migration.getId());
+        Assertions.assertEquals(1, rawScores.size());
+        Assertions.assertEquals("testtest", rawScores.getFirst().getCwid());
+        Assertions.assertEquals("1 raw scores were imported, 1 lines could not be imported!",
+                migrationService.getMigration(migration.getId()).getRawScoreMessage());
+        Assertions.assertEquals(RawScoreStatus.PRESENT,
+                migrationService.getMigration(migration.getId()).getRawScoreStatus());
+
+        // the task gets the full report, with the line that failed
+        String statusText = getStatusText(task);
+        Assertions.assertTrue(statusText.startsWith("1 raw scores were imported, 1 lines could not be imported!"));
+        Assertions.assertTrue(statusText.contains("\nline "));
+    }
+
+    @Test
+    void testImportRetryReplacesEarlierAttempt(){
+        Migration migration = migrationSeeder.migration(worksheet, masterMigration);
+        RawScoreImportTaskDef task = importTask(migration, ExternalAssignmentType.GRADESCOPE,
+                getGradescopeGradesheet());
+
+        // written by an attempt that failed part way through
+        rawScoreRepo.save(rawScore(migration, "stale", 1, Instant.now(), SubmissionStatus.ON_TIME));
+
+        rawScoreService.importRawScoresTask(task);
+
+        List<RawScore> rawScores = rawScoreService.getRawScoresFromMigration(migration.getId());
+        Assertions.assertEquals(3, rawScores.size());
+        Assertions.assertTrue(rawScoreService.getRawScoreForCwidAndMigration("stale", migration.getId()).isEmpty());
+        Assertions.assertEquals("3 raw scores were imported!", getStatusText(task));
+    }
+
+    @Test
+    @SneakyThrows
+    void testImportReadFailureIsRetried(){
+        Migration migration = migrationSeeder.migration(worksheet, masterMigration);
+        RawScoreImportTaskDef task = importTask(migration, ExternalAssignmentType.GRADESCOPE,
+                getGradescopeGradesheet());
+
+        Mockito.when(s3Service.openRawScoreUpload(task.getUploadObject())).thenAnswer(_ -> new InputStream() {
+            @Override
+            public int read() throws IOException {
+                throw new IOException("Connection reset");
+            }
+        });
+
+        Assertions.assertThrows(TransientTaskException.class, () -> rawScoreService.importRawScoresTask(task));
+        Assertions.assertEquals(RawScoreStatus.IMPORTING,
+                migrationService.getMigration(migration.getId()).getRawScoreStatus());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testFailedImportResetsMigration(){
+        Migration migration = migrationSeeder.migration(worksheet, masterMigration);
+        RawScoreImportTaskDef task = importTask(migration, ExternalAssignmentType.GRADESCOPE,
+                getGradescopeGradesheet());
+
+        ObjectProvider<TaskHandlerProvider> providers = Mockito.mock(ObjectProvider.class);
+        Mockito.when(providers.orderedStream()).thenReturn(Stream.<TaskHandlerProvider>of(rawScoreService));
+        NewTaskEvent.TaskData<RawScoreImportTaskDef> taskData = (NewTaskEvent.TaskData<RawScoreImportTaskDef>)
+                new TaskHandlerRegistry(providers).createTaskData(RawScoreImportTaskDef.class.getSimpleName(),
+                        task.getId()).orElseThrow();
+
+        // what the executor runs once the task has failed for good
+        taskData.getOnJobFail().orElseThrow().accept(task);
+
+        Migration failed = migrationService.getMigration(migration.getId());
+        Assertions.assertEquals(RawScoreStatus.EMPTY, failed.getRawScoreStatus());
+        Assertions.assertEquals("Import of raw scores failed.", failed.getRawScoreMessage());
+        Mockito.verify(s3Service).deleteRawScoreUpload(task.getUploadObject());
+    }
+
     @Test
     @SneakyThrows
     void testParseGSMissing(){
@@ -210,7 +456,7 @@ Group C,"[""eve@example.com"", ""frank@example.com""]",5,10,10,50,5,10,0,0,2020-
         MockMultipartFile file = getGradescopeGradesheet();
 
         // Should add scores to the list that were properly saved
-        rawScoreService.uploadGradescopeCSV(file.getInputStream(), migration.getId());
+        importFile(migration, ExternalAssignmentType.GRADESCOPE, file);
         List<RawScore> rawScores = rawScoreService.getRawScoresFromMigration(migration.getId());
 
         Assertions.assertEquals(3, rawScores.size());
@@ -230,7 +476,7 @@ Group C,"[""eve@example.com"", ""frank@example.com""]",5,10,10,50,5,10,0,0,2020-
         MockMultipartFile file = getGradescopeGradesheet();
 
         // Should add scores to the list that were properly saved
-        rawScoreService.uploadGradescopeCSV(file.getInputStream(), migration.getId());
+        importFile(migration, ExternalAssignmentType.GRADESCOPE, file);
         List<RawScore> rawScores = rawScoreService.getRawScoresFromMigration(migration.getId());
 
         Assertions.assertEquals(3, rawScores.size());
@@ -246,7 +492,7 @@ Group C,"[""eve@example.com"", ""frank@example.com""]",5,10,10,50,5,10,0,0,2020-
         MockMultipartFile file = getGradescopeGradesheet();
 
         // Should add scores to the list that were properly saved
-        rawScoreService.uploadGradescopeCSV(file.getInputStream(), migration.getId());
+        importFile(migration, ExternalAssignmentType.GRADESCOPE, file);
         List<RawScore> rawScores = rawScoreService.getRawScoresFromMigration(migration.getId());
 
         Assertions.assertEquals(3, rawScores.size());
@@ -264,7 +510,7 @@ Group C,"[""eve@example.com"", ""frank@example.com""]",5,10,10,50,5,10,0,0,2020-
         String filename = "test.csv";
         MockMultipartFile file = new MockMultipartFile(filename, filename, "text/csv", fileContent.getBytes());
 
-        rawScoreService.uploadRunestoneCSV(file.getInputStream(), migration.getId());
+        importFile(migration, ExternalAssignmentType.RUNESTONE, file);
         List<RawScore> rawScores = rawScoreService.getRawScoresFromMigration(migration.getId());
 
         Assertions.assertTrue(rawScores.isEmpty());
@@ -276,7 +522,7 @@ Group C,"[""eve@example.com"", ""frank@example.com""]",5,10,10,50,5,10,0,0,2020-
         Migration migration = migrationSeeder.migration(reading, masterMigration);
         MockMultipartFile file = getRunestoneGradesheet();
 
-        rawScoreService.uploadRunestoneCSV(file.getInputStream(), migration.getId());
+        importFile(migration, ExternalAssignmentType.RUNESTONE, file);
         List<RawScore> rawScores = rawScoreService.getRawScoresFromMigration(migration.getId());
 
         Assertions.assertEquals(2, rawScores.size());
@@ -0,0 +1,63 @@
+package edu.mines.packtrain.services;
+
+import lombok.SneakyThrows;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+public class TestScoreCompletionBarrier {
+
+    @Test
+    @SneakyThrows
+    void verifyWaitsForExpectedCount() {
+        ScoreCompletionBarrier barrier = new ScoreCompletionBarrier();
+        // scores can arrive before publishing has finished
+        barrier.received(2);
+
+        Thread.ofVirtual().start(() -> {
+            barrier.expect(3);
+            barrier.received(1);
+        });
+
+        Assertions.assertTrue(barrier.await(Duration.ofSeconds(10), Duration.ofMillis(10), _ -> {}));
+        Assertions.assertEquals(3, barrier.getReceived());
+    }
+
+    @Test
+    @SneakyThrows
+    void verifyTimesOut() {
+        ScoreCompletionBarrier barrier = new ScoreCompletionBarrier();
+        barrier.expect(2);
+        barrier.received(1);
+
+        List<Long> ticks = new ArrayList<>();
+        Assertions.assertFalse(barrier.await(Duration.ofMillis(100), Duration.ofMillis(10), ticks::add));
+        Assertions.assertFalse(ticks.isEmpty());
+        Assertions.assertTrue(ticks.stream().allMatch(t -> t == 1));
+    }
+
+    @Test
+    @SneakyThrows
+    void verifyRejectedScoresOpenBarrier() {
+        ScoreCompletionBarrier barrier = new ScoreCompletionBarrier();
+        barrier.expect(3);
+        barrier.received(2);
+        barrier.rejected(1);
+
+        Assertions.assertTrue(barrier.await(Duration.ofSeconds(10), Duration.ofMillis(10), _ -> {}));
+        Assertions.assertEquals(2, barrier.getReceived());
+        Assertions.assertEquals(1, barrier.getRejected());
+    }
+
+    @Test
+    @SneakyThrows
+    void verifyNothingExpected() {
+        ScoreCompletionBarrier barrier = new ScoreCompletionBarrier();
+        barrier.expect(0);
+
+        Assertions.assertTrue(barrier.await(Duration.ZERO, Duration.ofMillis(10), _ -> {}));
+    }
+}
@@ -0,0 +1,102 @@
+package edu.mines.packtrain.services;
+
+import edu.mines.packtrain.containers.PostgresTestContainer;
+import edu.mines.packtrain.events.NewTaskEvent;
+import edu.mines.packtrain.models.tasks.ScheduleStatus;
+import edu.mines.packtrain.seeders.UserSeeders;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationEventPublisher;
+
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+@SpringBootTest(properties = {
+        "grading-admin.tasks.deadlines[TestTaskDef]=1s",
+        "grading-admin.tasks.watchdog-interval-ms=200"
+})
+public class TestTaskDeadlines implements PostgresTestContainer {
+    @Autowired
+    private TestTaskRepo testTaskRepo;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private UserSeeders userSeeders;
+
+    @BeforeAll
+    static void setupClass() {
+        postgres.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        testTaskRepo.deleteAll();
+        userSeeders.clearAll();
+    }
+
+    private ScheduleStatus waitForTask(long taskId) throws InterruptedException {
+        for (int i = 0; i < 100; i++) {
+            ScheduleStatus status = testTaskRepo.getStatus(taskId).orElseThrow(AssertionError::new);
+            if (status == ScheduleStatus.COMPLETED || status == ScheduleStatus.FAILED
+                    || status == ScheduleStatus.CANCELLED) {
+                return status;
+            }
+            Thread.sleep(100);
+        }
+        throw new AssertionError("Task did not finish in time");
+    }
+
+    @Test
+    void verifyBlockedTaskIsCancelledPastDeadline() throws InterruptedException {
+        var admin = userSeeders.admin1();
+        var task = new TestTaskDef();
+        task.setCreatedByUser(admin);
+        task.setTaskName("Test Task");
+
+        task = testTaskRepo.save(task);
+
+        AtomicBoolean failed = new AtomicBoolean();
+        var data = new NewTaskEvent.TaskData<>(testTaskRepo, task.getId(), _ -> {
+            try {
+                // ie: a hung Canvas request
+                Thread.sleep(60_000);
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+        });
+        data.setOnJobFail(Optional.of(_ -> failed.set(true)));
+        eventPublisher.publishEvent(new NewTaskEvent(this, data));
+
+        Assertions.assertEquals(ScheduleStatus.CANCELLED, waitForTask(task.getId()));
+        task = testTaskRepo.getById(task.getId()).orElseThrow(AssertionError::new);
+        Assertions.assertTrue(task.getStatusText().startsWith("Timed out"));
+        Assertions.assertTrue(failed.get());
+    }
+
+    @Test
+    void verifyTaskWithinDeadlineCompletes() throws InterruptedException {
+        var admin = userSeeders.admin1();
+        var task = new TestTaskDef();
+        task.setCreatedByUser(admin);
+        task.setTaskName("Test Task");
+
+        task = testTaskRepo.save(task);
+
+        var data = new NewTaskEvent.TaskData<>(testTaskRepo, task.getId(), _ -> {
+            try {
+                Thread.sleep(300);
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+        });
+        eventPublisher.publishEvent(new NewTaskEvent(this, data));
+
+        Assertions.assertEquals(ScheduleStatus.COMPLETED, waitForTask(task.getId()));
+    }
+}
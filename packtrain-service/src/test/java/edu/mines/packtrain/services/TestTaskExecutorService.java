@@ -1,13 +1,23 @@
 package edu.mines.packtrain.services;
 
+import edu.mines.packtrain.config.DatabaseConfig;
+import edu.mines.packtrain.config.TaskExecutorConfig;
 import edu.mines.packtrain.containers.PostgresTestContainer;
 import edu.mines.packtrain.events.NewTaskEvent;
 import edu.mines.packtrain.models.tasks.ScheduleStatus;
 import edu.mines.packtrain.models.tasks.ScheduledTaskDef;
+import edu.mines.packtrain.models.tasks.TaskQueueEntry;
+import edu.mines.packtrain.models.tasks.TaskResourceUsage;
+import edu.mines.packtrain.repositories.ArchivedTaskRepo;
 import edu.mines.packtrain.repositories.ScheduledTaskRepo;
+import edu.mines.packtrain.repositories.TaskQueueRepo;
 import edu.mines.packtrain.seeders.UserSeeders;
+import edu.mines.packtrain.services.tasks.TaskBatch;
+import edu.mines.packtrain.services.tasks.TaskBulkhead;
+import edu.mines.packtrain.services.tasks.TaskContext;
+import edu.mines.packtrain.services.tasks.TaskRetentionService;
+import edu.mines.packtrain.services.tasks.TaskSubmissionService;
 import jakarta.persistence.Entity;
-import jakarta.persistence.Table;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
 import org.junit.jupiter.api.AfterEach;
@@ -16,15 +26,24 @@ import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Repository;
 import org.springframework.web.server.ResponseStatusException;
 
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
 import java.util.List;
+import java.util.Optional;
 import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongFunction;
 
 @Entity(name = "test_task")
-@Table(name = "test_tasks")
 @EqualsAndHashCode(callSuper = true)
 @Data
 class TestTaskDef extends ScheduledTaskDef {
@@ -42,17 +61,83 @@ public class TestTaskExecutorService implements PostgresTestContainer {
     @Autowired
     private TaskExecutorService executorService;
 
+    @Autowired
+    private TaskQueueRepo taskQueueRepo;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private TaskSubmissionService taskSubmissionService;
+
+    @Autowired
+    private TaskRetentionService taskRetentionService;
+
+    @Autowired
+    private ArchivedTaskRepo archivedTaskRepo;
+
     @Autowired
     private UserSeeders userSeeders;
 
+    @Autowired
+    private DatabaseConfig databaseConfig;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TaskBulkhead bulkhead;
+
+    @Autowired
+    private TaskExecutorConfig.BulkheadConfig bulkheadConfig;
+
     @BeforeAll
     static void setupClass() {
         postgres.start();
     }
 
+    private ScheduleStatus waitForTask(long taskId) throws InterruptedException {
+        for (int i = 0; i < 100; i++) {
+            ScheduleStatus status = testTaskRepo.getStatus(taskId).orElseThrow(AssertionError::new);
+            if (status == ScheduleStatus.COMPLETED || status == ScheduleStatus.FAILED
+                    || status == ScheduleStatus.CANCELLED) {
+                return status;
+            }
+            Thread.sleep(100);
+        }
+        throw new AssertionError("Task did not finish in time");
+    }
+
+    private void waitForPermitsReleased() throws InterruptedException {
+        int concurrency = bulkheadConfig.getConcurrency("TestTaskDef");
+        for (int i = 0; i < 100; i++) {
+            if (bulkhead.availablePermits("TestTaskDef") == concurrency) {
+                return;
+            }
+            Thread.sleep(100);
+        }
+        throw new AssertionError("Bulkhead permits were not released in time");
+    }
+
+    private TaskQueueEntry queueEntry(long taskId, UUID courseId, int priority, Instant enqueuedTime) {
+        var entry = new TaskQueueEntry();
+        entry.setTaskId(taskId);
+        entry.setTaskType("TestTaskDef");
+        entry.setCourseId(courseId);
+        entry.setPriority(priority);
+        entry.setEnqueuedTime(enqueuedTime);
+        return entry;
+    }
+
+    private List<Long> claim(int limit, int maxPerCourse, List<Long> taskIds) {
+        return taskQueueRepo.claim("test-owner", 60, limit, List.of(""), maxPerCourse, taskIds)
+                .stream().map(TaskQueueEntry::getTaskId).toList();
+    }
+
     @AfterEach
     void tearDown() {
         testTaskRepo.deleteAll();
+        archivedTaskRepo.deleteAll();
         userSeeders.clearAll();
     }
 
@@ -199,7 +284,7 @@ public class TestTaskExecutorService implements PostgresTestContainer {
 
         taskForUser2 = testTaskRepo.save(taskForUser2);
 
-        List<ScheduledTaskDef> tasks = executorService.getScheduledTasks(user1);
+        List<ScheduledTaskDef> tasks = executorService.getScheduledTasks(user1, List.of(), null, 25);
 
         Assertions.assertEquals(1, tasks.size());
         Assertions.assertEquals(taskForUser1.getId(), tasks.getFirst().getId());
@@ -252,4 +337,527 @@ public class TestTaskExecutorService implements PostgresTestContainer {
         Assertions.assertNotNull(actualTasks);
     }
 
+    @Test
+    void verifyQueuedTaskRuns() throws InterruptedException {
+        var admin = userSeeders.admin1();
+        var task = new TestTaskDef();
+        task.setCreatedByUser(admin);
+        task.setTaskName("Test Task");
+
+        task = testTaskRepo.save(task);
+
+        var data = new NewTaskEvent.TaskData<>(testTaskRepo, task.getId(), _ -> {});
+        eventPublisher.publishEvent(new NewTaskEvent(this, data));
+
+        Assertions.assertEquals(ScheduleStatus.COMPLETED, waitForTask(task.getId()));
+        Assertions.assertFalse(taskQueueRepo.existsById(task.getId()));
+    }
+
+    @Test
+    void verifyQueuedTaskWaitsForDep() throws InterruptedException {
+        var admin = userSeeders.admin1();
+        var depTask = new TestTaskDef();
+        depTask.setCreatedByUser(admin);
+        depTask.setTaskName("Test Task");
+
+        depTask = testTaskRepo.save(depTask);
+
+        var task = new TestTaskDef();
+        task.setCreatedByUser(admin);
+        task.setTaskName("Test Task");
+
+        task = testTaskRepo.save(task);
+
+        List<Long> ranTasks = new CopyOnWriteArrayList<>();
+
+        var depData = new NewTaskEvent.TaskData<>(testTaskRepo, depTask.getId(), t -> {
+            try {
+                Thread.sleep(500);
+            } catch (InterruptedException _) {
+                Thread.currentThread().interrupt();
+            }
+            ranTasks.add(t.getId());
+        });
+        var data = new NewTaskEvent.TaskData<>(testTaskRepo, task.getId(),
+                t -> ranTasks.add(t.getId()));
+        data.setDependsOn(Set.of(depTask.getId()));
+
+        eventPublisher.publishEvent(new NewTaskEvent(this, depData));
+        eventPublisher.publishEvent(new NewTaskEvent(this, data));
+
+        Assertions.assertEquals(ScheduleStatus.COMPLETED, waitForTask(task.getId()));
+        Assertions.assertEquals(List.of(depTask.getId(), task.getId()), ranTasks);
+    }
+
+    @Test
+    void verifyQueuedTaskFailsIfDepFails() throws InterruptedException {
+        var admin = userSeeders.admin1();
+        var depTask = new TestTaskDef();
+        depTask.setCreatedByUser(admin);
+        depTask.setTaskName("Test Task");
+
+        depTask = testTaskRepo.save(depTask);
+
+        var task = new TestTaskDef();
+        task.setCreatedByUser(admin);
+        task.setTaskName("Test Task");
+
+        task = testTaskRepo.save(task);
+
+        var depData = new NewTaskEvent.TaskData<>(testTaskRepo, depTask.getId(), _ -> {
+            throw new RuntimeException("huzzah");
+        });
+        var data = new NewTaskEvent.TaskData<>(testTaskRepo, task.getId(), _ -> {});
+        data.setDependsOn(Set.of(depTask.getId()));
+
+        eventPublisher.publishEvent(new NewTaskEvent(this, depData));
+        eventPublisher.publishEvent(new NewTaskEvent(this, data));
+
+        Assertions.assertEquals(ScheduleStatus.FAILED, waitForTask(task.getId()));
+        Assertions.assertEquals(ScheduleStatus.FAILED, waitForTask(depTask.getId()));
+    }
+
+    @Test
+    void verifyQueuedTaskFailsIfDepWasCancelled() throws InterruptedException {
+        var admin = userSeeders.admin1();
+        var depTask = new TestTaskDef();
+        depTask.setCreatedByUser(admin);
+        depTask.setTaskName("Test Task");
+        depTask.setStatus(ScheduleStatus.CANCELLED);
+
+        depTask = testTaskRepo.save(depTask);
+
+        var task = new TestTaskDef();
+        task.setCreatedByUser(admin);
+        task.setTaskName("Test Task");
+
+        task = testTaskRepo.save(task);
+
+        var data = new NewTaskEvent.TaskData<>(testTaskRepo, task.getId(), _ -> {});
+        data.setDependsOn(Set.of(depTask.getId()));
+
+        eventPublisher.publishEvent(new NewTaskEvent(this, data));
+
+        Assertions.assertEquals(ScheduleStatus.FAILED, waitForTask(task.getId()));
+    }
+
+    @Test
+    void verifyDependentOnAnotherReplicaFailsWithParent() throws InterruptedException {
+        var admin = userSeeders.admin1();
+        var depTask = new TestTaskDef();
+        depTask.setCreatedByUser(admin);
+        depTask.setTaskName("Test Task");
+
+        depTask = testTaskRepo.save(depTask);
+
+        var task = new TestTaskDef();
+        task.setCreatedByUser(admin);
+        task.setTaskName("Test Task");
+        task.setStatus(ScheduleStatus.QUEUED);
+
+        task = testTaskRepo.save(task);
+
+        // queued by another replica, so it is not in this replica's dependency graph
+        var entry = queueEntry(task.getId(), null, NewTaskEvent.TaskData.PRIORITY_NORMAL,
+                Instant.now());
+        entry.setDependsOn(Set.of(depTask.getId()));
+        taskQueueRepo.save(entry);
+
+        var depData = new NewTaskEvent.TaskData<>(testTaskRepo, depTask.getId(), _ -> {
+            throw new RuntimeException("huzzah");
+        });
+
+        eventPublisher.publishEvent(new NewTaskEvent(this, depData));
+
+        Assertions.assertEquals(ScheduleStatus.FAILED, waitForTask(depTask.getId()));
+        Assertions.assertEquals(ScheduleStatus.FAILED, waitForTask(task.getId()));
+        Assertions.assertFalse(taskQueueRepo.existsById(task.getId()));
+    }
+
+    @Test
+    void verifyPermitReleasedWhenTaskFails() throws InterruptedException {
+        var admin = userSeeders.admin1();
+        var task = new TestTaskDef();
+        task.setCreatedByUser(admin);
+        task.setTaskName("Test Task");
+
+        task = testTaskRepo.save(task);
+
+        var data = new NewTaskEvent.TaskData<>(testTaskRepo, task.getId(), _ -> {
+            throw new RuntimeException("huzzah");
+        });
+        eventPublisher.publishEvent(new NewTaskEvent(this, data));
+
+        Assertions.assertEquals(ScheduleStatus.FAILED, waitForTask(task.getId()));
+        waitForPermitsReleased();
+    }
+
+    @Test
+    void verifyPermitReleasedWhenTaskThrows() throws InterruptedException {
+        var admin = userSeeders.admin1();
+        var task = new TestTaskDef();
+        task.setCreatedByUser(admin);
+        task.setTaskName("Test Task");
+
+        task = testTaskRepo.save(task);
+
+        // errors aren't caught by the job runner, so this escapes the task altogether
+        CountDownLatch started = new CountDownLatch(1);
+        var data = new NewTaskEvent.TaskData<>(testTaskRepo, task.getId(), _ -> {
+            started.countDown();
+            throw new AssertionError("huzzah");
+        });
+        eventPublisher.publishEvent(new NewTaskEvent(this, data));
+
+        Assertions.assertTrue(started.await(10, TimeUnit.SECONDS));
+        waitForPermitsReleased();
+        Assertions.assertFalse(taskQueueRepo.existsById(task.getId()));
+    }
+
+    @Test
+    void verifyBatchRunsInDependencyOrder() throws InterruptedException {
+        var admin = userSeeders.admin1();
+        var depTask = new TestTaskDef();
+        depTask.setCreatedByUser(admin);
+        depTask.setTaskName("Test Task");
+
+        var task = new TestTaskDef();
+        task.setCreatedByUser(admin);
+        task.setTaskName("Test Task");
+
+        List<Long> ranTasks = new CopyOnWriteArrayList<>();
+
+        TaskBatch batch = new TaskBatch(null, NewTaskEvent.TaskData.PRIORITY_NORMAL);
+        batch.add(depTask, id -> new NewTaskEvent.TaskData<>(testTaskRepo, id, t -> {
+            try {
+                Thread.sleep(500);
+            } catch (InterruptedException _) {
+                Thread.currentThread().interrupt();
+            }
+            ranTasks.add(t.getId());
+        }));
+        batch.add(task, id -> new NewTaskEvent.TaskData<>(testTaskRepo, id,
+                t -> ranTasks.add(t.getId())), depTask);
+
+        List<ScheduledTaskDef> submitted = taskSubmissionService.submit(this, batch);
+
+        Assertions.assertEquals(2, submitted.size());
+        Assertions.assertEquals(ScheduleStatus.COMPLETED, waitForTask(task.getId()));
+        Assertions.assertEquals(List.of(depTask.getId(), task.getId()), ranTasks);
+    }
+
+    @Test
+    void verifyGetTasksIsPaginated() {
+        var user1 = userSeeders.user1();
+        Instant submitted = Instant.now();
+
+        for (int i = 0; i < 5; i++) {
+            var task = new TestTaskDef();
+            task.setCreatedByUser(user1);
+            task.setTaskName("Test Task");
+            task.setSubmittedTime(submitted.minusSeconds(i));
+            task.setStatus(i % 2 == 0 ? ScheduleStatus.COMPLETED : ScheduleStatus.FAILED);
+            testTaskRepo.save(task);
+        }
+
+        List<ScheduledTaskDef> firstPage = executorService.getScheduledTasks(user1, List.of(), null, 3);
+        List<ScheduledTaskDef> secondPage = executorService.getScheduledTasks(user1, List.of(),
+                firstPage.getLast().getId(), 3);
+
+        Assertions.assertEquals(3, firstPage.size());
+        Assertions.assertEquals(2, secondPage.size());
+        Assertions.assertTrue(firstPage.getLast().getSubmittedTime()
+                .isAfter(secondPage.getFirst().getSubmittedTime()));
+
+        List<ScheduledTaskDef> failed = executorService.getScheduledTasks(user1,
+                List.of(ScheduleStatus.FAILED), null, 25);
+        Assertions.assertEquals(2, failed.size());
+        Assertions.assertTrue(failed.stream().allMatch(t -> t.getStatus() == ScheduleStatus.FAILED));
+    }
+
+    @Test
+    void verifyOldFinishedTasksAreArchived() {
+        var user1 = userSeeders.user1();
+
+        var oldTask = new TestTaskDef();
+        oldTask.setCreatedByUser(user1);
+        oldTask.setTaskName("Test Task");
+        oldTask.setStatus(ScheduleStatus.COMPLETED);
+        oldTask.setSubmittedTime(Instant.now().minus(60, ChronoUnit.DAYS));
+        oldTask.setCompletedTime(Instant.now().minus(60, ChronoUnit.DAYS));
+        oldTask = testTaskRepo.save(oldTask);
+
+        var recentTask = new TestTaskDef();
+        recentTask.setCreatedByUser(user1);
+        recentTask.setTaskName("Test Task");
+        recentTask.setStatus(ScheduleStatus.COMPLETED);
+        recentTask.setCompletedTime(Instant.now());
+        recentTask = testTaskRepo.save(recentTask);
+
+        taskRetentionService.archiveFinishedTasks();
+
+        Assertions.assertFalse(testTaskRepo.existsById(oldTask.getId()));
+        Assertions.assertTrue(archivedTaskRepo.existsById(oldTask.getId()));
+        Assertions.assertTrue(testTaskRepo.existsById(recentTask.getId()));
+    }
+
+    @Test
+    void verifyDuplicateSubmissionJoinsInFlightTask() throws InterruptedException {
+        var admin = userSeeders.admin1();
+        CountDownLatch release = new CountDownLatch(1);
+        LongFunction<NewTaskEvent.TaskData<TestTaskDef>> handler = id -> new NewTaskEvent.TaskData<>(
+                testTaskRepo, id, _ -> {
+            try {
+                release.await();
+            } catch (InterruptedException _) {
+                Thread.currentThread().interrupt();
+            }
+        });
+
+        var first = new TestTaskDef();
+        first.setCreatedByUser(admin);
+        first.setTaskName("Test Task");
+        first.setIdempotencyKey("TestTaskDef:sync");
+        TaskBatch firstBatch = new TaskBatch(null, NewTaskEvent.TaskData.PRIORITY_NORMAL);
+        firstBatch.add(first, handler);
+        long firstId = taskSubmissionService.submit(this, firstBatch).getFirst().getId();
+
+        var duplicate = new TestTaskDef();
+        duplicate.setCreatedByUser(admin);
+        duplicate.setTaskName("Test Task");
+        duplicate.setIdempotencyKey("TestTaskDef:sync");
+        TaskBatch duplicateBatch = new TaskBatch(null, NewTaskEvent.TaskData.PRIORITY_NORMAL);
+        duplicateBatch.add(duplicate, handler);
+        List<ScheduledTaskDef> joined = taskSubmissionService.submit(this, duplicateBatch);
+
+        Assertions.assertEquals(firstId, joined.getFirst().getId());
+        Assertions.assertEquals(1, testTaskRepo.count());
+
+        release.countDown();
+        Assertions.assertEquals(ScheduleStatus.COMPLETED, waitForTask(firstId));
+    }
+
+    @Test
+    void verifyJoinerCanFollowJoinedTask() throws InterruptedException {
+        var user1 = userSeeders.user1();
+        var user2 = userSeeders.user2();
+        CountDownLatch release = new CountDownLatch(1);
+        LongFunction<NewTaskEvent.TaskData<TestTaskDef>> handler = id -> new NewTaskEvent.TaskData<>(
+                testTaskRepo, id, _ -> {
+            try {
+                release.await();
+            } catch (InterruptedException _) {
+                Thread.currentThread().interrupt();
+            }
+        });
+
+        var first = new TestTaskDef();
+        first.setCreatedByUser(user1);
+        first.setTaskName("Test Task");
+        first.setIdempotencyKey("TestTaskDef:shared");
+        TaskBatch firstBatch = new TaskBatch(null, NewTaskEvent.TaskData.PRIORITY_NORMAL);
+        firstBatch.add(first, handler);
+        long firstId = taskSubmissionService.submit(this, firstBatch).getFirst().getId();
+
+        var duplicate = new TestTaskDef();
+        duplicate.setCreatedByUser(user2);
+        duplicate.setTaskName("Test Task");
+        duplicate.setIdempotencyKey("TestTaskDef:shared");
+        TaskBatch duplicateBatch = new TaskBatch(null, NewTaskEvent.TaskData.PRIORITY_NORMAL);
+        duplicateBatch.add(duplicate, handler);
+        taskSubmissionService.submit(this, duplicateBatch);
+
+        try {
+            Assertions.assertEquals(firstId, executorService.getScheduledTask(user2, firstId).getId());
+            Assertions.assertTrue(executorService.getScheduledTasks(user2, List.of(), null, 25)
+                    .stream().anyMatch(t -> t.getId() == firstId));
+
+            // only the user that submitted it can cancel it for everyone
+            var e = Assertions.assertThrows(ResponseStatusException.class,
+                    () -> executorService.cancelTask(user2, firstId));
+            Assertions.assertEquals(HttpStatus.FORBIDDEN, e.getStatusCode());
+        } finally {
+            release.countDown();
+        }
+        Assertions.assertEquals(ScheduleStatus.COMPLETED, waitForTask(firstId));
+    }
+
+    @Test
+    void verifyTasksAreCancelled() throws InterruptedException {
+        var admin = userSeeders.admin1();
+        var runningTask = new TestTaskDef();
+        runningTask.setCreatedByUser(admin);
+        runningTask.setTaskName("Test Task");
+
+        runningTask = testTaskRepo.save(runningTask);
+
+        var queuedTask = new TestTaskDef();
+        queuedTask.setCreatedByUser(admin);
+        queuedTask.setTaskName("Test Task");
+
+        queuedTask = testTaskRepo.save(queuedTask);
+
+        CountDownLatch started = new CountDownLatch(1);
+        List<Long> ranTasks = new CopyOnWriteArrayList<>();
+
+        var runningData = new NewTaskEvent.TaskData<>(testTaskRepo, runningTask.getId(), t -> {
+            started.countDown();
+            while (true) {
+                TaskContext.progress().checkCancelled();
+                try {
+                    Thread.sleep(50);
+                } catch (InterruptedException _) {
+                    // cancelled, picked up by the check on the next pass
+                }
+            }
+        });
+        var queuedData = new NewTaskEvent.TaskData<>(testTaskRepo, queuedTask.getId(),
+                t -> ranTasks.add(t.getId()));
+        queuedData.setDependsOn(Set.of(runningTask.getId()));
+        List<Long> failedTasks = new CopyOnWriteArrayList<>();
+        queuedData.setOnJobFail(Optional.of(t -> failedTasks.add(t.getId())));
+
+        eventPublisher.publishEvent(new NewTaskEvent(this,
+                List.<NewTaskEvent.TaskData<?>>of(runningData, queuedData)));
+        started.await();
+
+        executorService.cancelTask(admin, queuedTask.getId());
+        Assertions.assertEquals(ScheduleStatus.CANCELLED,
+                testTaskRepo.getStatus(queuedTask.getId()).orElseThrow(AssertionError::new));
+        Assertions.assertFalse(taskQueueRepo.existsById(queuedTask.getId()));
+        Assertions.assertEquals(List.of(queuedTask.getId()), failedTasks);
+
+        executorService.cancelTask(admin, runningTask.getId());
+        Assertions.assertEquals(ScheduleStatus.CANCELLED, waitForTask(runningTask.getId()));
+        Assertions.assertTrue(ranTasks.isEmpty());
+
+        long finishedId = runningTask.getId();
+        var e = Assertions.assertThrows(ResponseStatusException.class,
+                () -> executorService.cancelTask(admin, finishedId));
+        Assertions.assertEquals(HttpStatus.BAD_REQUEST, e.getStatusCode());
+    }
+
+    @Test
+    void verifyResourceUsageIsRecorded() throws InterruptedException {
+        var admin = userSeeders.admin1();
+        var task = new TestTaskDef();
+        task.setCreatedByUser(admin);
+        task.setTaskName("Test Task");
+
+        task = testTaskRepo.save(task);
+
+        var data = new NewTaskEvent.TaskData<>(testTaskRepo, task.getId(), t -> {
+            testTaskRepo.setStatus(t.getId(), ScheduleStatus.STARTED, "Working");
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException _) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        eventPublisher.publishEvent(new NewTaskEvent(this, data));
+
+        Assertions.assertEquals(ScheduleStatus.COMPLETED, waitForTask(task.getId()));
+
+        // recorded just after the task finishes
+        TaskResourceUsage usage = null;
+        for (int i = 0; i < 50 && usage == null; i++) {
+            usage = testTaskRepo.getResourceUsage(task.getId()).orElse(null);
+            Thread.sleep(100);
+        }
+
+        Assertions.assertNotNull(usage);
+        Assertions.assertTrue(usage.getWallTimeMs() >= 100);
+        Assertions.assertTrue(usage.getJdbcStatements() > 0);
+        Assertions.assertTrue(usage.getRowsWritten() > 0);
+        Assertions.assertEquals(0, usage.getCanvas().getCalls());
+    }
+
+    @Test
+    void verifyClaimRespectsPerCourseCap() {
+        UUID courseA = UUID.randomUUID();
+        UUID courseB = UUID.randomUUID();
+        Instant now = Instant.now();
+
+        // already running on another replica, counts against course A's cap
+        var running = queueEntry(900_001, courseA, NewTaskEvent.TaskData.PRIORITY_NORMAL, now);
+        running.setLeaseOwner("other-owner");
+        running.setLeaseExpiresTime(now.plusSeconds(60));
+
+        List<TaskQueueEntry> entries = List.of(running,
+                queueEntry(900_002, courseA, NewTaskEvent.TaskData.PRIORITY_NORMAL, now),
+                queueEntry(900_003, courseA, NewTaskEvent.TaskData.PRIORITY_NORMAL, now),
+                queueEntry(900_004, courseA, NewTaskEvent.TaskData.PRIORITY_NORMAL, now),
+                queueEntry(900_005, courseB, NewTaskEvent.TaskData.PRIORITY_NORMAL, now));
+        taskQueueRepo.saveAll(entries);
+        List<Long> taskIds = entries.stream().map(TaskQueueEntry::getTaskId).toList();
+
+        try {
+            List<Long> claimed = claim(10, 2, taskIds);
+
+            Assertions.assertEquals(2, claimed.size());
+            Assertions.assertTrue(claimed.contains(900_005L));
+            Assertions.assertEquals(1, claimed.stream()
+                    .filter(id -> id >= 900_002 && id <= 900_004).count());
+
+            // the cap is full until one of course A's tasks finishes
+            Assertions.assertTrue(claim(10, 2, taskIds).isEmpty());
+        } finally {
+            taskQueueRepo.deleteAllById(taskIds);
+        }
+    }
+
+    @Test
+    void verifyClaimServesHigherPriorityFirst() {
+        UUID courseA = UUID.randomUUID();
+        UUID courseB = UUID.randomUUID();
+        Instant now = Instant.now();
+
+        List<TaskQueueEntry> entries = List.of(
+                queueEntry(900_011, courseA, NewTaskEvent.TaskData.PRIORITY_NORMAL,
+                        now.minusSeconds(10)),
+                queueEntry(900_012, courseB, NewTaskEvent.TaskData.PRIORITY_NORMAL,
+                        now.minusSeconds(5)),
+                queueEntry(900_013, courseB, NewTaskEvent.TaskData.PRIORITY_INTERACTIVE, now));
+        taskQueueRepo.saveAll(entries);
+        List<Long> taskIds = entries.stream().map(TaskQueueEntry::getTaskId).toList();
+
+        try {
+            // interactive work jumps ahead of older bulk work, which then runs oldest first
+            Assertions.assertEquals(List.of(900_013L), claim(1, 8, taskIds));
+            Assertions.assertEquals(List.of(900_011L), claim(1, 8, taskIds));
+            Assertions.assertEquals(List.of(900_012L), claim(1, 8, taskIds));
+        } finally {
+            taskQueueRepo.deleteAllById(taskIds);
+        }
+    }
+
+    @Test
+    void verifyOldTaskTablesAreMigrated() {
+        var admin = userSeeders.admin1();
+        jdbcTemplate.execute("create table section_sync_tasks (id bigint primary key, " +
+                "user_id varchar(255), task_name varchar(255) not null, " +
+                "submitted_time timestamp(6) with time zone, " +
+                "completed_time timestamp(6) with time zone, status varchar(255), " +
+                "status_text varchar(10000), course_id uuid, canvas_id bigint not null)");
+        jdbcTemplate.update("insert into section_sync_tasks values (910001, ?, 'Finished', now(), " +
+                "now(), 'COMPLETED', null, null, 1), (910002, ?, 'Running', now(), null, " +
+                "'STARTED', null, null, 2)", admin.getCwid(), admin.getCwid());
+
+        try {
+            databaseConfig.setupDatabase();
+
+            Assertions.assertNull(jdbcTemplate.queryForObject(
+                    "select to_regclass('section_sync_tasks')::text", String.class));
+            Assertions.assertEquals("COMPLETED", jdbcTemplate.queryForObject(
+                    "select status from scheduled_tasks where id = 910001", String.class));
+            // its job is gone, so it can't be resumed
+            Assertions.assertEquals("FAILED", jdbcTemplate.queryForObject(
+                    "select status from scheduled_tasks where id = 910002", String.class));
+            Assertions.assertEquals(2L, jdbcTemplate.queryForObject(
+                    "select canvas_id from scheduled_tasks where id = 910002", Long.class));
+        } finally {
+            jdbcTemplate.execute("drop table if exists section_sync_tasks");
+            jdbcTemplate.update("delete from scheduled_tasks where id in (910001, 910002)");
+        }
+    }
 }
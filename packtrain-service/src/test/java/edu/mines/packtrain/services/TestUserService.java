@@ -15,10 +15,8 @@ import edu.mines.packtrain.seeders.CourseSeeders;
 import edu.mines.packtrain.seeders.UserSeeders;
 import edu.mines.packtrain.services.external.CanvasService;
 import org.junit.jupiter.api.*;
-import org.mockito.Mockito;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
-import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.http.HttpStatus;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.web.server.ResponseStatusException;
@@ -73,7 +71,7 @@ public class TestUserService implements PostgresTestContainer, CanvasSeeder {
         courseMemberService = new CourseMemberService(
                 courseMemberRepo, scheduledTaskRepo,
                 userService, sectionService, courseService,
-                canvasService, Mockito.mock(ApplicationEventPublisher.class),
+                canvasService,
                 impersonationManager, messagingTemplate
         );
     }
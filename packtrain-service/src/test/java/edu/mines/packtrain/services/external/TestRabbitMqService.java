@@ -4,9 +4,12 @@ import java.io.IOException;
 import java.net.URISyntaxException;
 import java.security.KeyManagementException;
 import java.security.NoSuchAlgorithmException;
+import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Consumer;
 
 import org.junit.jupiter.api.AfterAll;
@@ -61,11 +64,11 @@ public class TestRabbitMqService implements PostgresTestContainer, RabbitMqTestC
 
     @Test
     void verifyReceiveScore() throws IOException, TimeoutException, InterruptedException {
-        Consumer<ScoredDTO> onReceived = Mockito.mock(Consumer.class);
+        Consumer<List<ScoredDTO>> onReceived = Mockito.mock(Consumer.class);
 
         String routingKey = UUID.randomUUID().toString();
 
-        Channel consumer = rabbitMqService.createScoreReceivedChannel(routingKey, onReceived).orElseThrow(AssertionError::new);
+        Channel consumer = rabbitMqService.createScoreReceivedChannel(routingKey, onReceived, _ -> {}).orElseThrow(AssertionError::new);
 
         Channel scoreSender = rabbitMqConnection.createChannel();
         String queue = scoreSender.queueDeclare().getQueue();
@@ -93,6 +96,80 @@ public class TestRabbitMqService implements PostgresTestContainer, RabbitMqTestC
         consumer.close();
     }
 
+    @Test
+    void verifyReceivedScoresAreBatched() throws IOException, TimeoutException, InterruptedException {
+        List<List<ScoredDTO>> batches = new CopyOnWriteArrayList<>();
+
+        String routingKey = UUID.randomUUID().toString();
+
+        Channel consumer = rabbitMqService.createScoreReceivedChannel(routingKey, batches::add, _ -> {}).orElseThrow(AssertionError::new);
+
+        Channel scoreSender = rabbitMqConnection.createChannel();
+
+        for (int i = 0; i < 10; i++) {
+            ScoredDTO scored = new ScoredDTO();
+            scored.setCwid(String.valueOf(i));
+
+            scoreSender.basicPublish(
+                    rabbitMqExchange.get().toString(),
+                    routingKey,
+                    new AMQP.BasicProperties.Builder()
+                            .contentType("application/json")
+                            .build(),
+                    mapper.writeValueAsBytes(scored));
+        }
+
+        // Yucky - but not really a good way to wait for the network otherwise
+        TimeUnit.MILLISECONDS.sleep(1000);
+
+        // all of them arrive well within the batch delay, so they should come through together
+        Assertions.assertEquals(10, batches.stream().mapToInt(List::size).sum());
+        Assertions.assertTrue(batches.size() < 10);
+
+        scoreSender.close();
+        consumer.close();
+    }
+
+    @Test
+    void verifyRejectedScoresAreReported() throws IOException, TimeoutException, InterruptedException {
+        List<ScoredDTO> received = new CopyOnWriteArrayList<>();
+        AtomicLong rejected = new AtomicLong();
+
+        String routingKey = UUID.randomUUID().toString();
+
+        Channel consumer = rabbitMqService.createScoreReceivedChannel(routingKey, batch -> {
+            if (batch.stream().anyMatch(s -> "bad".equals(s.getCwid()))) {
+                throw new IllegalStateException("Can't handle this score");
+            }
+            received.addAll(batch);
+        }, rejected::addAndGet).orElseThrow(AssertionError::new);
+
+        Channel scoreSender = rabbitMqConnection.createChannel();
+
+        for (String cwid : List.of("1", "bad", "2")) {
+            ScoredDTO scored = new ScoredDTO();
+            scored.setCwid(cwid);
+
+            scoreSender.basicPublish(
+                    rabbitMqExchange.get().toString(),
+                    routingKey,
+                    new AMQP.BasicProperties.Builder()
+                            .contentType("application/json")
+                            .build(),
+                    mapper.writeValueAsBytes(scored));
+        }
+
+        // Yucky - but not really a good way to wait for the network otherwise
+        TimeUnit.MILLISECONDS.sleep(1000);
+
+        // the batch fails, then every score but the bad one goes through on its own
+        Assertions.assertEquals(List.of("1", "2"), received.stream().map(ScoredDTO::getCwid).toList());
+        Assertions.assertEquals(1, rejected.get());
+
+        scoreSender.close();
+        consumer.close();
+    }
+
     @Test
     void verifySendRawScore() throws IOException, TimeoutException, InterruptedException {
         String routingKey = UUID.randomUUID().toString();
@@ -17,6 +17,9 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 
 import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.net.HttpURLConnection;
 import java.net.URL;
@@ -60,6 +63,22 @@ public class TestS3Service implements MinioTestContainer, PostgresTestContainer
         }
     }
 
+    @Test
+    @SneakyThrows
+    void verifySpoolRawScoreUpload(){
+        String contents = "a,b,c\n1,2,3\n";
+        String objectName = s3Service.spoolRawScoreUpload(UUID.randomUUID(),
+                new ByteArrayInputStream(contents.getBytes()));
+
+        try (InputStream upload = s3Service.openRawScoreUpload(objectName)) {
+            Assertions.assertEquals(contents, new String(upload.readAllBytes()));
+        }
+
+        s3Service.deleteRawScoreUpload(objectName);
+        Assertions.assertThrows(IOException.class, () -> s3Service.openRawScoreUpload(objectName)
+                .close());
+    }
+
     @Test
     @SneakyThrows
     void verifyCreateBucket(){
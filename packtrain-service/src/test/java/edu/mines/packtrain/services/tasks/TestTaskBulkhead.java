@@ -0,0 +1,43 @@
+package edu.mines.packtrain.services.tasks;
+
+import edu.mines.packtrain.config.TaskExecutorConfig;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.Set;
+
+public class TestTaskBulkhead {
+    private final TaskBulkhead bulkhead = new TaskBulkhead(
+            new TaskExecutorConfig.BulkheadConfig(2, Map.of("CourseSyncTaskDef", 1)));
+
+    @Test
+    void verifyPermitsPerTypeAreEnforced() {
+        Assertions.assertTrue(bulkhead.tryAcquire("CourseSyncTaskDef"));
+        Assertions.assertFalse(bulkhead.tryAcquire("CourseSyncTaskDef"));
+
+        // types without their own limit get the default
+        Assertions.assertTrue(bulkhead.tryAcquire("UserSyncTaskDef"));
+        Assertions.assertTrue(bulkhead.tryAcquire("UserSyncTaskDef"));
+        Assertions.assertFalse(bulkhead.tryAcquire("UserSyncTaskDef"));
+    }
+
+    @Test
+    void verifyReleasedPermitCanBeTakenAgain() {
+        Assertions.assertTrue(bulkhead.tryAcquire("CourseSyncTaskDef"));
+        bulkhead.release("CourseSyncTaskDef");
+
+        Assertions.assertEquals(1, bulkhead.availablePermits("CourseSyncTaskDef"));
+        Assertions.assertTrue(bulkhead.tryAcquire("CourseSyncTaskDef"));
+    }
+
+    @Test
+    void verifySaturatedTypeDoesNotBlockOtherTypes() {
+        Assertions.assertTrue(bulkhead.tryAcquire("CourseSyncTaskDef"));
+
+        Assertions.assertEquals(Set.of("CourseSyncTaskDef"), bulkhead.getSaturatedTaskTypes());
+        Assertions.assertTrue(bulkhead.tryAcquire("UserSyncTaskDef"));
+        Assertions.assertEquals(1, bulkhead.availablePermits("UserSyncTaskDef"));
+        Assertions.assertEquals(Set.of("CourseSyncTaskDef"), bulkhead.getSaturatedTaskTypes());
+    }
+}
@@ -0,0 +1,147 @@
+package edu.mines.packtrain.services.tasks;
+
+import edu.mines.packtrain.events.NewTaskEvent;
+import edu.mines.packtrain.models.tasks.ScheduleStatus;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+public class TestTaskDependencyGraph {
+    private Map<Long, ScheduleStatus> statuses;
+    private List<Long> started;
+    private List<Long> failed;
+    private TaskDependencyGraph graph;
+
+    @BeforeEach
+    void setup() {
+        statuses = new HashMap<>();
+        started = new LinkedList<>();
+        failed = new LinkedList<>();
+        graph = new TaskDependencyGraph(
+                id -> statuses.getOrDefault(id, ScheduleStatus.MISSING),
+                data -> started.add(data.getTaskId()),
+                (data, _) -> failed.add(data.getTaskId()));
+    }
+
+    private NewTaskEvent.TaskData<?> task(long id, Long... dependsOn) {
+        statuses.put(id, ScheduleStatus.QUEUED);
+        var data = new NewTaskEvent.TaskData<>(null, id, _ -> {});
+        data.setDependsOn(Set.of(dependsOn));
+        return data;
+    }
+
+    @Test
+    void verifyTaskWithoutDependenciesStartsImmediately() {
+        graph.submit(task(1));
+
+        Assertions.assertEquals(List.of(1L), started);
+    }
+
+    @Test
+    void verifyDependentReleasedWhenParentCompletes() {
+        graph.submit(task(1));
+        graph.submit(task(2, 1L));
+
+        Assertions.assertEquals(List.of(1L), started);
+        Assertions.assertEquals(1, graph.waitingCount());
+
+        graph.complete(1, ScheduleStatus.COMPLETED);
+
+        Assertions.assertEquals(List.of(1L, 2L), started);
+        Assertions.assertEquals(0, graph.waitingCount());
+    }
+
+    @Test
+    void verifyDependentWaitsForParentSubmittedLater() {
+        statuses.put(1L, ScheduleStatus.CREATED);
+        graph.submit(task(2, 1L));
+
+        Assertions.assertTrue(started.isEmpty());
+
+        graph.submit(task(1));
+        graph.complete(1, ScheduleStatus.COMPLETED);
+
+        Assertions.assertEquals(List.of(1L, 2L), started);
+    }
+
+    @Test
+    void verifyFailureCascadesToDependents() {
+        graph.submit(task(1));
+        graph.submit(task(2, 1L));
+        graph.submit(task(3, 2L));
+
+        graph.complete(1, ScheduleStatus.FAILED);
+
+        Assertions.assertEquals(List.of(1L), started);
+        Assertions.assertEquals(List.of(2L, 3L), failed);
+        Assertions.assertEquals(0, graph.waitingCount());
+    }
+
+    @Test
+    void verifyAlreadyCompletedDependencyDoesNotBlock() {
+        statuses.put(1L, ScheduleStatus.COMPLETED);
+        graph.submit(task(2, 1L));
+
+        Assertions.assertEquals(List.of(2L), started);
+    }
+
+    @Test
+    void verifyFinishedWaitingTaskIsNotReleased() {
+        graph.submit(task(1));
+        graph.submit(task(2, 1L));
+
+        // ie: cancelled before it started
+        graph.complete(2, ScheduleStatus.CANCELLED);
+        graph.complete(1, ScheduleStatus.COMPLETED);
+
+        Assertions.assertEquals(List.of(1L), started);
+        Assertions.assertTrue(failed.isEmpty());
+        Assertions.assertEquals(0, graph.waitingCount());
+    }
+
+    @Test
+    void verifyCancelledDependencyFailsTask() {
+        statuses.put(1L, ScheduleStatus.CANCELLED);
+        graph.submit(task(2, 1L));
+
+        Assertions.assertTrue(started.isEmpty());
+        Assertions.assertEquals(List.of(2L), failed);
+        Assertions.assertEquals(0, graph.waitingCount());
+    }
+
+    @Test
+    void verifyRemoteDependencyIsSynced() {
+        // running on another replica
+        statuses.put(1L, ScheduleStatus.STARTED);
+        statuses.put(2L, ScheduleStatus.STARTED);
+        graph.submit(task(3, 1L));
+        graph.submit(task(4, 2L));
+
+        graph.syncRemoteDependencies();
+
+        Assertions.assertTrue(started.isEmpty());
+        Assertions.assertEquals(2, graph.waitingCount());
+
+        statuses.put(1L, ScheduleStatus.COMPLETED);
+        statuses.put(2L, ScheduleStatus.CANCELLED);
+        graph.syncRemoteDependencies();
+
+        Assertions.assertEquals(List.of(3L), started);
+        Assertions.assertEquals(List.of(4L), failed);
+        Assertions.assertEquals(0, graph.waitingCount());
+    }
+
+    @Test
+    void verifyMissingDependencyFailsTask() {
+        graph.submit(task(2, 99L));
+
+        Assertions.assertTrue(started.isEmpty());
+        Assertions.assertEquals(List.of(2L), failed);
+    }
+}
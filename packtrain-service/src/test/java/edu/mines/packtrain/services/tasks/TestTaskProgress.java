@@ -0,0 +1,72 @@
+package edu.mines.packtrain.services.tasks;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class TestTaskProgress {
+
+    @Test
+    void verifyStartPhaseResetsProcessed() {
+        var progress = new TaskProgress(1);
+        progress.startPhase("First", 10L);
+        progress.increment(4);
+
+        progress.startPhase("Second", 2L);
+
+        Assertions.assertEquals("Second", progress.getPhase());
+        Assertions.assertEquals(2L, progress.getTotal());
+        Assertions.assertEquals(0, progress.getProcessed());
+    }
+
+    @Test
+    void verifyOnlyFlushedWhenChanged() {
+        var progress = new TaskProgress(1);
+        progress.startPhase("Working", 10L);
+
+        Assertions.assertTrue(progress.claimPersist());
+        Assertions.assertFalse(progress.claimPersist());
+
+        progress.increment();
+        progress.increment();
+
+        Assertions.assertTrue(progress.claimPersist());
+        Assertions.assertFalse(progress.claimPersist());
+    }
+
+    @Test
+    void verifyPersistAndPublishAreIndependent() {
+        var progress = new TaskProgress(1);
+        progress.increment();
+
+        Assertions.assertTrue(progress.claimPublish());
+        Assertions.assertTrue(progress.claimPersist());
+        Assertions.assertFalse(progress.claimPublish());
+    }
+
+    @Test
+    void verifyThroughputIsPerPhase() throws InterruptedException {
+        var progress = new TaskProgress(1);
+        progress.startPhase("First", 10L);
+        Thread.sleep(200);
+        progress.increment(10);
+
+        progress.startPhase("Second", 10L);
+        Thread.sleep(50);
+        progress.increment(10);
+
+        // measured from the start of the task this would be under 50 items/s
+        Assertions.assertTrue(progress.getThroughput() > 50);
+    }
+
+    @Test
+    void verifyDetachedProgressIsIgnored() {
+        Assertions.assertEquals(-1, TaskContext.progress().getTaskId());
+        TaskContext.progress().startPhase("Working", 10L);
+        TaskContext.progress().increment(5);
+
+        Assertions.assertNull(TaskContext.progress().getPhase());
+        Assertions.assertNull(TaskContext.progress().getTotal());
+        Assertions.assertEquals(0, TaskContext.progress().getProcessed());
+        Assertions.assertFalse(TaskContext.progress().claimPersist());
+    }
+}
@@ -0,0 +1,42 @@
+package edu.mines.packtrain.services.tasks;
+
+import edu.mines.packtrain.config.TaskExecutorConfig;
+import java.io.IOException;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.TransientDataAccessResourceException;
+
+public class TestTaskRetries {
+    private final TaskExecutorConfig.RetryConfig config =
+            new TaskExecutorConfig.RetryConfig(5, 5, 60);
+
+    @Test
+    void verifyBackoffDoublesUpToMax() {
+        Assertions.assertEquals(5, config.getDelaySeconds(1));
+        Assertions.assertEquals(10, config.getDelaySeconds(2));
+        Assertions.assertEquals(20, config.getDelaySeconds(3));
+        Assertions.assertEquals(40, config.getDelaySeconds(4));
+        Assertions.assertEquals(60, config.getDelaySeconds(5));
+        Assertions.assertEquals(60, config.getDelaySeconds(100));
+    }
+
+    @Test
+    void verifyTransientFailuresRetried() {
+        Assertions.assertTrue(config.shouldRetry(1,
+                new RuntimeException(new IOException("connection reset"))));
+        Assertions.assertTrue(config.shouldRetry(1,
+                new TransientDataAccessResourceException("db went away")));
+        Assertions.assertTrue(config.shouldRetry(1, new TransientTaskException("canvas")));
+    }
+
+    @Test
+    void verifyOtherFailuresNotRetried() {
+        Assertions.assertFalse(config.shouldRetry(1, new IllegalStateException("bug")));
+    }
+
+    @Test
+    void verifyStopsRetryingAfterMaxAttempts() {
+        Assertions.assertTrue(config.shouldRetry(4, new TransientTaskException("canvas")));
+        Assertions.assertFalse(config.shouldRetry(5, new TransientTaskException("canvas")));
+    }
+}